@@ -1,10 +1,8 @@
 #define ATTENUATION
 //#define HQ_ATTENUATION
 
-uniform mat4 g_WorldViewProjectionMatrix;
-uniform mat4 g_WorldViewMatrix;
-uniform mat3 g_NormalMatrix;
-uniform mat4 g_ViewMatrix;
+#import "Common/ShaderLib/Instancing.glsllib"
+#import "Common/ShaderLib/Skinning.glsllib"
 
 uniform vec4 m_Ambient;
 uniform vec4 m_Diffuse;
@@ -52,7 +50,6 @@ varying vec3 lightVec;
 
 #ifdef USE_REFLECTION
     uniform vec3 g_CameraPosition;
-    uniform mat4 g_WorldMatrix;
 
     uniform vec3 m_FresnelParams;
     varying vec4 refVec;
@@ -60,19 +57,19 @@ varying vec3 lightVec;
 
     /**
      * Input:
-     * attribute inPosition
-     * attribute inNormal
-     * uniform g_WorldMatrix
+     * modelSpacePos
+     * modelSpaceNorm
+     * uniform g_WorldMatrix (or attribute inInstanceData)
      * uniform g_CameraPosition
      *
      * Output:
      * varying refVec
      */
-    void computeRef(){
-        vec3 worldPos = (g_WorldMatrix * vec4(inPosition,1.0)).xyz;
+    void computeRef(in vec4 modelSpacePos, in vec3 modelSpaceNorm){
+        vec3 worldPos = TransformWorld(modelSpacePos).xyz;
 
         vec3 I = normalize( g_CameraPosition - worldPos  ).xyz;
-        vec3 N = normalize( (g_WorldMatrix * vec4(inNormal, 0.0)).xyz );
+        vec3 N = normalize( TransformWorldNormal(modelSpaceNorm) );
 
         refVec.xyz = reflect(I, N);
         refVec.w   = m_FresnelParams.x + m_FresnelParams.y * pow(1.0 + dot(I, N), m_FresnelParams.z);
@@ -131,15 +128,24 @@ vec2 computeLighting(in vec3 wvPos, in vec3 wvNorm, in vec3 wvViewDir, in vec4 w
 #endif
 
 void main(){
-   vec4 pos = vec4(inPosition, 1.0);
-   gl_Position = g_WorldViewProjectionMatrix * pos;
+   vec4 modelSpacePos = vec4(inPosition, 1.0);
+   vec3 modelSpaceNorm = inNormal;
+
+   #if !defined(VERTEX_LIGHTING) && (defined(NORMALMAP) || defined(V_TANGENT))
+        vec3 modelSpaceTan  = inTangent.xyz;
+        Skinning_Compute(modelSpacePos, modelSpaceNorm, modelSpaceTan);
+   #else
+        Skinning_Compute(modelSpacePos, modelSpaceNorm);
+   #endif
+
+   gl_Position = TransformWorldViewProjection(modelSpacePos);
    texCoord = inTexCoord;
    #ifdef SEPARATE_TEXCOORD
       texCoord2 = inTexCoord2;
    #endif
 
-   vec3 wvPosition = (g_WorldViewMatrix * pos).xyz;
-   vec3 wvNormal  = normalize(g_NormalMatrix * inNormal);
+   vec3 wvPosition = TransformWorldView(modelSpacePos).xyz;
+   vec3 wvNormal  = normalize(TransformNormal(modelSpaceNorm));
    vec3 viewDir = normalize(-wvPosition);
   
        //vec4 lightColor = g_LightColor[gl_InstanceID];
@@ -152,7 +158,7 @@ void main(){
    vec4 lightColor = g_LightColor;
 
    #if defined(NORMALMAP) && !defined(VERTEX_LIGHTING)
-     vec3 wvTangent = normalize(g_NormalMatrix * inTangent.xyz);
+     vec3 wvTangent = normalize(TransformNormal(modelSpaceTan));
      vec3 wvBinormal = cross(wvNormal, wvTangent);
 
      mat3 tbnMat = mat3(wvTangent, wvBinormal * -inTangent.w,wvNormal);
@@ -171,7 +177,7 @@ void main(){
      lightComputeDir(wvPosition, lightColor, wvLightPos, vLightDir);
 
      #ifdef V_TANGENT
-        vNormal = normalize(g_NormalMatrix * inTangent.xyz);
+        vNormal = normalize(TransformNormal(modelSpaceTan));
         vNormal = -cross(cross(vLightDir.xyz, vNormal), vNormal);
      #endif
    #endif
@@ -202,6 +208,6 @@ void main(){
     #endif
 
     #ifdef USE_REFLECTION
-        computeRef();
+        computeRef(modelSpacePos, modelSpaceNorm);
     #endif 
 }
\ No newline at end of file
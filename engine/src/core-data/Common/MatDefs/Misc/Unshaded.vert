@@ -1,4 +1,6 @@
-uniform mat4 g_WorldViewProjectionMatrix;
+#import "Common/ShaderLib/Instancing.glsllib"
+#import "Common/ShaderLib/Skinning.glsllib"
+
 attribute vec3 inPosition;
 
 #if defined(HAS_COLORMAP) || (defined(HAS_LIGHTMAP) && !defined(SEPARATE_TEXCOORD))
@@ -27,5 +29,8 @@ void main(){
         vertColor = inColor;
     #endif
 
-    gl_Position = g_WorldViewProjectionMatrix * vec4(inPosition, 1.0);
+    vec4 modelSpacePos = vec4(inPosition, 1.0);
+    Skinning_Compute(modelSpacePos);
+
+    gl_Position = TransformWorldViewProjection(modelSpacePos);
 }
\ No newline at end of file
@@ -1,12 +1,15 @@
+#import "Common/ShaderLib/Instancing.glsllib"
+#import "Common/ShaderLib/Skinning.glsllib"
+
 attribute vec4 inPosition;
 attribute vec2 inTexCoord;
 
-uniform mat4 g_WorldViewProjectionMatrix;
-uniform mat4 g_WorldViewMatrix;
-
 varying vec2 texCoord;
 
 void main(){
-    gl_Position = g_WorldViewProjectionMatrix * inPosition;
+    vec4 modelSpacePos = inPosition;
+    Skinning_Compute(modelSpacePos);
+
+    gl_Position = TransformWorldViewProjection(modelSpacePos);
     texCoord = inTexCoord;
 }
\ No newline at end of file
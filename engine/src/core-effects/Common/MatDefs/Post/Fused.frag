@@ -0,0 +1,123 @@
+uniform sampler2D m_Texture;
+varying vec2 texCoord;
+
+#ifdef STAGE0
+    uniform vec4 m_Color0;
+    uniform int m_NumColors0;
+    uniform float m_Gamma0;
+    uniform float m_Strength0;
+    uniform float m_gamma0;
+    uniform float m_Value0;
+#endif
+
+#ifdef STAGE1
+    uniform vec4 m_Color1;
+    uniform int m_NumColors1;
+    uniform float m_Gamma1;
+    uniform float m_Strength1;
+    uniform float m_gamma1;
+    uniform float m_Value1;
+#endif
+
+#ifdef STAGE2
+    uniform vec4 m_Color2;
+    uniform int m_NumColors2;
+    uniform float m_Gamma2;
+    uniform float m_Strength2;
+    uniform float m_gamma2;
+    uniform float m_Value2;
+#endif
+
+#ifdef STAGE3
+    uniform vec4 m_Color3;
+    uniform int m_NumColors3;
+    uniform float m_Gamma3;
+    uniform float m_Strength3;
+    uniform float m_gamma3;
+    uniform float m_Value3;
+#endif
+
+// Stage operations, see the filter each one comes from:
+// 1 ColorOverlayFilter, 2 PosterizationFilter,
+// 3 GammaCorrectionFilter, 4 FadeFilter
+vec4 posterize(vec4 color, int numColors, float gamma, float strength) {
+    vec4 texVal = pow(color, vec4(gamma));
+    texVal = texVal * vec4(numColors);
+    texVal = floor(texVal);
+    texVal = texVal / vec4(numColors);
+    texVal = pow(texVal, vec4(1.0 / gamma));
+    return mix(color, texVal, strength);
+}
+
+vec4 gammaCorrect(vec4 color, float gamma) {
+    if (gamma > 0.0) {
+        color.rgb = pow(color.rgb, vec3(1.0 / gamma));
+    }
+    return color;
+}
+
+void main() {
+    vec4 color = texture2D(m_Texture, texCoord);
+
+    #ifdef STAGE0
+        #if STAGE0 == 1
+            color = color * m_Color0;
+        #elif STAGE0 == 2
+            color = posterize(color, m_NumColors0, m_Gamma0, m_Strength0);
+        #elif STAGE0 == 3
+            color = gammaCorrect(color, m_gamma0);
+            #ifdef COMPUTE_LUMA0
+                color.a = dot(color.rgb, vec3(0.299, 0.587, 0.114));
+            #endif
+        #elif STAGE0 == 4
+            color = color * m_Value0;
+        #endif
+    #endif
+
+    #ifdef STAGE1
+        #if STAGE1 == 1
+            color = color * m_Color1;
+        #elif STAGE1 == 2
+            color = posterize(color, m_NumColors1, m_Gamma1, m_Strength1);
+        #elif STAGE1 == 3
+            color = gammaCorrect(color, m_gamma1);
+            #ifdef COMPUTE_LUMA1
+                color.a = dot(color.rgb, vec3(0.299, 0.587, 0.114));
+            #endif
+        #elif STAGE1 == 4
+            color = color * m_Value1;
+        #endif
+    #endif
+
+    #ifdef STAGE2
+        #if STAGE2 == 1
+            color = color * m_Color2;
+        #elif STAGE2 == 2
+            color = posterize(color, m_NumColors2, m_Gamma2, m_Strength2);
+        #elif STAGE2 == 3
+            color = gammaCorrect(color, m_gamma2);
+            #ifdef COMPUTE_LUMA2
+                color.a = dot(color.rgb, vec3(0.299, 0.587, 0.114));
+            #endif
+        #elif STAGE2 == 4
+            color = color * m_Value2;
+        #endif
+    #endif
+
+    #ifdef STAGE3
+        #if STAGE3 == 1
+            color = color * m_Color3;
+        #elif STAGE3 == 2
+            color = posterize(color, m_NumColors3, m_Gamma3, m_Strength3);
+        #elif STAGE3 == 3
+            color = gammaCorrect(color, m_gamma3);
+            #ifdef COMPUTE_LUMA3
+                color.a = dot(color.rgb, vec3(0.299, 0.587, 0.114));
+            #endif
+        #elif STAGE3 == 4
+            color = color * m_Value3;
+        #endif
+    #endif
+
+    gl_FragColor = color;
+}
@@ -74,6 +74,11 @@ public class ColorOverlayFilter extends Filter {
         return material;
     }
 
+    @Override
+    protected int getFusedOperation() {
+        return 1;
+    }
+
     /**
      * returns the color
      * @return color
@@ -78,6 +78,11 @@ public class FadeFilter extends Filter {
         return material;
     }
 
+    @Override
+    protected int getFusedOperation() {
+        return 4;
+    }
+
     @Override
     protected void initFilter(AssetManager manager, RenderManager renderManager, ViewPort vp, int w, int h) {
         material = new Material(manager, "Common/MatDefs/Post/Fade.j3md");
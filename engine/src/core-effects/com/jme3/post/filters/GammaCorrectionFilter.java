@@ -65,6 +65,12 @@ public class GammaCorrectionFilter extends Filter
 		return material;
 	}
 
+	@Override
+	protected int getFusedOperation()
+	{
+		return 3;
+	}
+
 	@Override
 	protected void initFilter(AssetManager manager,
 			RenderManager renderManager, ViewPort vp, int w, int h)
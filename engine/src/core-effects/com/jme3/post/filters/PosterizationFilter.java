@@ -94,6 +94,11 @@ public class PosterizationFilter extends Filter {
         return material;
     }
 
+    @Override
+    protected int getFusedOperation() {
+        return 2;
+    }
+
     /**
      * Sets number of color levels used to draw the screen
      */
@@ -33,6 +33,10 @@ package com.jme3.asset.plugins;
 
 import com.jme3.asset.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * <code>FileLocator</code> allows you to specify a folder where to
@@ -41,6 +45,8 @@ import java.io.*;
  */
 public class FileLocator implements AssetLocator {
 
+    private static final Logger logger = Logger.getLogger(FileLocator.class.getName());
+
     private File root;
 
     public void setRootPath(String rootPath) {
@@ -76,6 +82,34 @@ public class FileLocator implements AssetLocator {
                 throw new AssetLoadException("Failed to open file: " + file, ex);
             }
         }
+
+        @Override
+        public ByteBuffer openMappedBuffer() {
+            return mapFile(file, 0, file.length());
+        }
+    }
+
+    /**
+     * Maps a region of a file into memory, read-only.
+     * 
+     * @return The mapped region, or null if the file could not be mapped
+     */
+    static ByteBuffer mapFile(File file, long position, long size) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Failed to map file: " + file, ex);
+            return null;
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
     }
 
     public AssetInfo locate(AssetManager manager, AssetKey key) {
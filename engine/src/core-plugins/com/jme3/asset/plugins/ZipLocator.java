@@ -35,6 +35,12 @@ import com.jme3.asset.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -46,8 +52,14 @@ import java.util.zip.ZipFile;
 public class ZipLocator implements AssetLocator {
 
     private ZipFile zipfile;
+    private File file;
+    private HashMap<String, Long> storedEntries;
     private static final Logger logger = Logger.getLogger(ZipLocator.class.getName());
 
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
     private class JarAssetInfo extends AssetInfo {
 
         private final ZipEntry entry;
@@ -64,11 +76,124 @@ public class ZipLocator implements AssetLocator {
                 throw new AssetLoadException("Failed to load zip entry: "+entry, ex);
             }
         }
+
+        @Override
+        public ByteBuffer openMappedBuffer() {
+            if (entry.getMethod() != ZipEntry.STORED || entry.getSize() < 0){
+                return null;
+            }
+            
+            long offset = getDataOffset(entry.getName());
+            if (offset < 0){
+                return null;
+            }
+            return FileLocator.mapFile(file, offset, entry.getSize());
+        }
+    }
+
+    /**
+     * Returns the position of an uncompressed entry's data in the zip file,
+     * or -1 if it is not known.
+     */
+    private synchronized long getDataOffset(String name) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            if (storedEntries == null){
+                storedEntries = readStoredEntries(channel);
+            }
+            
+            Long headerOffset = storedEntries.get(name);
+            if (headerOffset == null){
+                return -1;
+            }
+            
+            // The local header has its own name and extra field lengths
+            ByteBuffer header = readFully(channel, headerOffset, 30);
+            if (header.getInt(0) != LOCAL_HEADER_SIGNATURE){
+                return -1;
+            }
+            int nameLength = header.getShort(26) & 0xFFFF;
+            int extraLength = header.getShort(28) & 0xFFFF;
+            return headerOffset + 30 + nameLength + extraLength;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Failed to read zip file directory: " + file, ex);
+            return -1;
+        } finally {
+            if (raf != null){
+                try {
+                    raf.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the central directory of the zip file and returns the local 
+     * header offset of each uncompressed entry.
+     */
+    private static HashMap<String, Long> readStoredEntries(FileChannel channel) throws IOException {
+        HashMap<String, Long> entries = new HashMap<String, Long>();
+        
+        // The end record is 22 bytes, followed by a comment of up to 64 KB
+        long size = channel.size();
+        int tailSize = (int) Math.min(size, 22 + 0xFFFF);
+        ByteBuffer tail = readFully(channel, size - tailSize, tailSize);
+        int end = -1;
+        for (int i = tailSize - 22; i >= 0; i--){
+            if (tail.getInt(i) == END_SIGNATURE){
+                end = i;
+                break;
+            }
+        }
+        if (end < 0){
+            return entries;
+        }
+        
+        int count = tail.getShort(end + 10) & 0xFFFF;
+        int directorySize = tail.getInt(end + 12);
+        long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+        ByteBuffer directory = readFully(channel, directoryOffset, directorySize);
+        
+        int pos = 0;
+        for (int i = 0; i < count && pos + 46 <= directory.limit(); i++){
+            if (directory.getInt(pos) != DIRECTORY_SIGNATURE){
+                break;
+            }
+            int method = directory.getShort(pos + 10) & 0xFFFF;
+            int nameLength = directory.getShort(pos + 28) & 0xFFFF;
+            int extraLength = directory.getShort(pos + 30) & 0xFFFF;
+            int commentLength = directory.getShort(pos + 32) & 0xFFFF;
+            long headerOffset = directory.getInt(pos + 42) & 0xFFFFFFFFL;
+            if (method == ZipEntry.STORED){
+                byte[] name = new byte[nameLength];
+                directory.position(pos + 46);
+                directory.get(name);
+                entries.put(new String(name, "UTF-8"), headerOffset);
+            }
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()){
+            if (channel.read(buffer, position + buffer.position()) < 0){
+                throw new IOException("Unexpected end of zip file");
+            }
+        }
+        buffer.clear();
+        return buffer;
     }
 
     public void setRootPath(String rootPath) {
         try{
-            zipfile = new ZipFile(new File(rootPath), ZipFile.OPEN_READ);
+            file = new File(rootPath);
+            zipfile = new ZipFile(file, ZipFile.OPEN_READ);
+            storedEntries = null;
         }catch (IOException ex){
             throw new AssetLoadException("Failed to open zip file: " + rootPath, ex);
         }
@@ -35,8 +35,11 @@ import com.jme3.asset.AssetInfo;
 import com.jme3.asset.AssetManager;
 import com.jme3.export.*;
 import com.jme3.math.FastMath;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -68,11 +71,18 @@ public final class BinaryImporter implements JmeImporter {
 
     public static boolean debug = false;
 
-    private byte[] dataArray;
+    private ByteBuffer data;
     private int aliasWidth;
     private int formatVersion;
+    private boolean lazyLoading = false;
+    /**
+     * The object being read, which requests the objects read meanwhile.
+     */
+    private Savable reading;
 
     private static final boolean fastRead = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private static volatile boolean useMappedFiles = true;
     
     public BinaryImporter() {
     }
@@ -85,6 +95,26 @@ public final class BinaryImporter implements JmeImporter {
         return fastRead;
     }
 
+    /**
+     * Enables or disables loading assets through memory mapping when
+     * their locator supports it, see {@link AssetInfo#openMappedBuffer() }.
+     * <p>
+     * When enabled, the objects are read in place from the mapped file
+     * instead of from a copy of the whole file. The locators map files
+     * read-only, so the NIO buffers of the loaded objects, e.g. mesh vertex
+     * data, which must be writable, are copied out of the mapping.
+     * Enabled by default.
+     * 
+     * @param enabled True to use memory mapping when possible
+     */
+    public static void setUseMappedFiles(boolean enabled){
+        useMappedFiles = enabled;
+    }
+
+    public static boolean isUseMappedFiles(){
+        return useMappedFiles;
+    }
+
     public static BinaryImporter getInstance() {
         return new BinaryImporter();
     }
@@ -97,6 +127,27 @@ public final class BinaryImporter implements JmeImporter {
         return assetManager;
     }
 
+    /**
+     * Enables or disables lazy loading. In lazy loading mode, the children 
+     * of the nodes are not decoded, instead they are represented by 
+     * {@link SpatialPlaceholder placeholders} which decode them when
+     * {@link SpatialPlaceholder#load() loaded}. Meshes, materials and 
+     * textures are only decoded along with the first spatial that uses them.
+     * <p>
+     * The placeholders keep a reference to this importer and to the file
+     * data, so a lazy loading importer should be created for each load
+     * and not be shared, e.g. by registering it with an asset manager.
+     * 
+     * @param lazyLoading True to enable lazy loading
+     */
+    public void setLazyLoading(boolean lazyLoading){
+        this.lazyLoading = lazyLoading;
+    }
+
+    public boolean isLazyLoading(){
+        return lazyLoading;
+    }
+
     public Object load(AssetInfo info){
 //        if (!(info.getKey() instanceof ModelKey))
 //            throw new IllegalArgumentException("Model assets must be loaded using a ModelKey");
@@ -105,6 +156,11 @@ public final class BinaryImporter implements JmeImporter {
 
         InputStream is = null;
         try {
+            ByteBuffer mapped = useMappedFiles ? info.openMappedBuffer() : null;
+            if (mapped != null){
+                return load(mapped);
+            }
+
             is = info.openStream();
             Savable s = load(is);
             
@@ -130,8 +186,61 @@ public final class BinaryImporter implements JmeImporter {
     }
 
     public Savable load(InputStream is, ReadListener listener, ByteArrayOutputStream baos) throws IOException {
-        contentTable.clear();
         BufferedInputStream bis = new BufferedInputStream(is);
+        int id = readHeader(bis, listener);
+
+        if (baos == null) {
+                baos = new ByteArrayOutputStream(4096);
+        } else {
+                baos.reset();
+        }
+        int size = -1;
+        byte[] cache = new byte[4096];
+        while((size = bis.read(cache)) != -1) {
+            baos.write(cache, 0, size);
+            if (listener != null) listener.readBytes(size);
+        }
+        bis = null;
+
+        data = ByteBuffer.wrap(baos.toByteArray());
+        baos = null;
+
+        return readContent(id);
+    }
+
+    /**
+     * Loads a binary object from the given buffer, without copying it.
+     * The data is read from the buffer's position to its limit.
+     * <p>
+     * If the buffer is direct and writable, e.g. a file mapped in
+     * {@link java.nio.channels.FileChannel.MapMode#PRIVATE private} mode,
+     * the NIO buffers of the loaded objects share its memory.
+     * 
+     * @param buffer The buffer containing the binary object
+     * @return The loaded object
+     * @throws IOException If the data could not be read
+     */
+    public Savable load(ByteBuffer buffer) throws IOException {
+        return load(buffer, null);
+    }
+
+    public Savable load(ByteBuffer buffer, ReadListener listener) throws IOException {
+        ByteBuffer content = buffer.slice();
+        int id = readHeader(new ByteBufferInputStream(content), listener);
+        if (listener != null) listener.readBytes(content.remaining());
+
+        data = content.slice();
+        return readContent(id);
+    }
+
+    /**
+     * Reads the class and location tables, leaving the stream 
+     * at the start of the object data.
+     * 
+     * @return The ID of the root object
+     */
+    private int readHeader(InputStream bis, ReadListener listener) throws IOException {
+        contentTable.clear();
         
         int numClasses;
         
@@ -222,31 +331,20 @@ public final class BinaryImporter implements JmeImporter {
         int id = ByteUtils.readInt(bis);
         bytes += 8;
         if (listener != null) listener.readBytes(bytes);
+        return id;
+    }
 
-        if (baos == null) {
-                baos = new ByteArrayOutputStream(bytes);
-        } else {
-                baos.reset();
-        }
-        int size = -1;
-        byte[] cache = new byte[4096];
-        while((size = bis.read(cache)) != -1) {
-            baos.write(cache, 0, size);
-            if (listener != null) listener.readBytes(size);
-        }
-        bis = null;
-
-        dataArray = baos.toByteArray();
-        baos = null;
-
+    private Savable readContent(int id) {
         Savable rVal = readObject(id);
         if (debug) {
             logger.info("Importer Stats: ");
-            logger.log(Level.INFO, "Tags: {0}", numClasses);
-            logger.log(Level.INFO, "Objects: {0}", numLocs);
-            logger.log(Level.INFO, "Data Size: {0}", dataArray.length);
+            logger.log(Level.INFO, "Tags: {0}", classes.size());
+            logger.log(Level.INFO, "Objects: {0}", locationTable.size());
+            logger.log(Level.INFO, "Data Size: {0}", data.limit());
+        }
+        if (!lazyLoading) {
+            data = null;
         }
-        dataArray = null;
         return rVal;
     }
 
@@ -296,13 +394,22 @@ public final class BinaryImporter implements JmeImporter {
     protected String readString(int length, int offset) throws IOException {
         byte[] data = new byte[length];
         for(int j = 0; j < length; j++) {
-            data[j] = dataArray[j+offset];
+            data[j] = this.data.get(j+offset);
         }
 
         return new String(data);
     }
 
+    /**
+     * Reads the object with the given id. In lazy loading mode, the
+     * spatials read by a node, i.e. its children, are not decoded unless
+     * they were decoded before, placeholders are returned instead.
+     */
     public Savable readObject(int id) {
+        return readObject(id, lazyLoading && reading instanceof Node);
+    }
+
+    private Savable readObject(int id, boolean deferSpatials) {
 
         if(contentTable.get(id) != null) {
             return contentTable.get(id);
@@ -321,7 +428,7 @@ public final class BinaryImporter implements JmeImporter {
                 return null;
             }
 
-            int dataLength = ByteUtils.convertIntFromBytes(dataArray, loc);
+            int dataLength = data.getInt(loc);
             loc+=4;
 
             Savable out = null;
@@ -331,13 +438,27 @@ public final class BinaryImporter implements JmeImporter {
                 out = SavableClassUtil.fromName(bco.className);
             }
 
+            if (deferSpatials && out instanceof Spatial) {
+                SpatialPlaceholder placeholder = new SpatialPlaceholder(this, id);
+                BinaryInputCapsule cap = new BinaryInputCapsule(this, placeholder, bco);
+                cap.setContent(data, loc, loc+dataLength);
+                placeholder.readPlaceholder(cap);
+                return placeholder;
+            }
+
             BinaryInputCapsule cap = new BinaryInputCapsule(this, out, bco);
-            cap.setContent(dataArray, loc, loc+dataLength);
+            cap.setContent(data, loc, loc+dataLength);
 
             capsuleTable.put(out, cap);
             contentTable.put(id, out);
 
-            out.read(this);
+            Savable parent = reading;
+            reading = out;
+            try {
+                out.read(this);
+            } finally {
+                reading = parent;
+            }
 
             capsuleTable.remove(out);
 
@@ -357,4 +478,31 @@ public final class BinaryImporter implements JmeImporter {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the header of a buffer through the stream based code path.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.export.binary;
+
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.control.AbstractControl;
+import com.jme3.scene.control.Control;
+import java.util.LinkedList;
+
+/**
+ * Streams a lazily loaded scene into the scene graph over several frames.
+ * <p>
+ * Each update, the control loads a limited number of the 
+ * {@link SpatialPlaceholder placeholders} found under its spatial. 
+ * Placeholders are loaded in breadth-first order, so the upper levels of 
+ * the scene appear first. The control must be added to a loaded spatial,
+ * e.g. the root returned by the importer, not to a placeholder.
+ * 
+ * <pre>
+ * BinaryImporter importer = new BinaryImporter();
+ * importer.setAssetManager(assetManager);
+ * importer.setLazyLoading(true);
+ * Spatial scene = (Spatial) importer.load(file);
+ * scene.addControl(new LazyLoadControl(4));
+ * rootNode.attachChild(scene);
+ * </pre>
+ */
+public class LazyLoadControl extends AbstractControl {
+
+    private final LinkedList<SpatialPlaceholder> pending = new LinkedList<SpatialPlaceholder>();
+    private int maxLoadsPerFrame = 1;
+    private boolean scanned = false;
+
+    public LazyLoadControl() {
+    }
+
+    public LazyLoadControl(int maxLoadsPerFrame) {
+        this.maxLoadsPerFrame = maxLoadsPerFrame;
+    }
+
+    /**
+     * Sets how many placeholders are loaded each frame.
+     * 
+     * @param maxLoadsPerFrame The number of placeholders loaded per frame
+     */
+    public void setMaxLoadsPerFrame(int maxLoadsPerFrame) {
+        this.maxLoadsPerFrame = maxLoadsPerFrame;
+    }
+
+    public int getMaxLoadsPerFrame() {
+        return maxLoadsPerFrame;
+    }
+
+    /**
+     * @return True if all the placeholders under the spatial were loaded.
+     */
+    public boolean isDone() {
+        return scanned && pending.isEmpty();
+    }
+
+    private void collect(Spatial s) {
+        if (s instanceof SpatialPlaceholder) {
+            pending.add((SpatialPlaceholder) s);
+        } else if (s instanceof Node) {
+            for (Spatial child : ((Node) s).getChildren()) {
+                collect(child);
+            }
+        }
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        if (!scanned) {
+            collect(spatial);
+            scanned = true;
+        }
+
+        for (int i = 0; i < maxLoadsPerFrame && !pending.isEmpty(); i++) {
+            SpatialPlaceholder placeholder = pending.removeFirst();
+            Spatial loaded = placeholder.load();
+            if (loaded != null) {
+                collect(loaded);
+            } else {
+                // The importer already logged the error
+                placeholder.removeFromParent();
+            }
+        }
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+    }
+
+    @Override
+    public Control cloneForSpatial(Spatial spatial) {
+        LazyLoadControl control = new LazyLoadControl(maxLoadsPerFrame);
+        control.setSpatial(spatial);
+        return control;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.export.binary;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.Savable;
+import com.jme3.math.Transform;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <code>SpatialPlaceholder</code> stands in for a spatial that was not
+ * decoded yet by a {@link BinaryImporter} in 
+ * {@link BinaryImporter#setLazyLoading(boolean) lazy loading} mode.
+ * <p>
+ * The placeholder has the name, local transform and user data of the
+ * spatial it represents, but none of its children, meshes or materials. 
+ * Calling {@link #load() } decodes the spatial and replaces the placeholder
+ * with it in the scene graph. The children of the loaded spatial are again
+ * placeholders, so a scene can be expanded one level at a time, see 
+ * {@link LazyLoadControl}.
+ * <p>
+ * Placeholders are not meant to be saved, exporting one throws an exception.
+ */
+public class SpatialPlaceholder extends Node {
+
+    private final BinaryImporter importer;
+    private final int id;
+    private Spatial spatial;
+
+    SpatialPlaceholder(BinaryImporter importer, int id) {
+        this.importer = importer;
+        this.id = id;
+    }
+
+    /**
+     * Reads the light properties of the spatial from its capsule.
+     */
+    void readPlaceholder(InputCapsule ic) throws IOException {
+        name = ic.readString("name", null);
+        localTransform = (Transform) ic.readSavable("transform", Transform.IDENTITY);
+        Map<String, ? extends Savable> data = ic.readStringSavableMap("user_data", null);
+        if (data != null) {
+            userData = new HashMap<String, Savable>(data);
+        }
+    }
+
+    /**
+     * @return True if the spatial was already decoded.
+     */
+    public boolean isLoaded() {
+        return spatial != null;
+    }
+
+    /**
+     * Decodes the spatial represented by this placeholder and replaces the
+     * placeholder with it in its parent. Changes made to the placeholder's
+     * local transform are applied to the spatial.
+     * <p>
+     * The spatial can be decoded from any thread, but if the placeholder is
+     * attached to a live scene, this must be called from the render thread.
+     * 
+     * @return The loaded spatial, or null if it could not be decoded.
+     */
+    public Spatial load() {
+        if (spatial == null) {
+            synchronized (importer) {
+                spatial = (Spatial) importer.readObject(id);
+            }
+            if (spatial == null) {
+                return null;
+            }
+            spatial.setLocalTransform(getLocalTransform());
+        }
+
+        Node node = getParent();
+        if (node != null) {
+            int index = node.getChildIndex(this);
+            node.detachChildAt(index);
+            node.attachChildAt(spatial, index);
+        }
+        return spatial;
+    }
+
+    /**
+     * Loads all placeholders under the given spatial, so that the whole
+     * sub-tree is decoded.
+     * 
+     * @param root The root of the sub-tree
+     * @return The root, or the spatial it was replaced with if the root
+     * itself is a placeholder.
+     */
+    public static Spatial loadAll(Spatial root) {
+        if (root instanceof SpatialPlaceholder) {
+            root = ((SpatialPlaceholder) root).load();
+            if (root == null) {
+                return null;
+            }
+        }
+
+        if (root instanceof Node) {
+            for (Spatial child : new ArrayList<Spatial>(((Node) root).getChildren())) {
+                loadAll(child);
+            }
+        }
+        return root;
+    }
+
+    @Override
+    public void write(JmeExporter e) throws IOException {
+        throw new IOException("Placeholder for " + name + " cannot be saved, load it first");
+    }
+}
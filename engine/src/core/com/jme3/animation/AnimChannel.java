@@ -65,6 +65,9 @@ public final class AnimChannel {
     
     private float blendAmount = 1f;
     private float blendRate   = 0;
+
+    private int[] cursors = new int[0];
+    private int[] cursorsBlendFrom = new int[0];
     
     private static float clampWrapTime(float t, float max, LoopMode loopMode){
         if (t == 0) {
@@ -249,6 +252,10 @@ public final class AnimChannel {
         if (animation != null && blendTime > 0f){
             // activate blending
             blendFrom = animation;
+            // keep the keyframe cursors of the animation blended from
+            int[] tmp = cursorsBlendFrom;
+            cursorsBlendFrom = cursors;
+            cursors = tmp;
             timeBlendFrom = time;
             speedBlendFrom = speed;
             loopModeBlendFrom = loopMode;
@@ -347,6 +354,30 @@ public final class AnimChannel {
     BitSet getAffectedBones(){
         return affectedBones;
     }
+
+    /**
+     * Returns the keyframe cursors of the tracks of the given animation,
+     * the keyframes they interpolated from on the last update. As the time
+     * of the channel usually moves forward by less than a keyframe, the
+     * tracks check the keyframes from their cursor first instead of
+     * searching all the keyframes.
+     *
+     * @param anim The animation being played or blended from
+     * @param trackCount The number of tracks of the animation
+     * @return The cursors, one per track
+     */
+    int[] getKeyFrameCursors(Animation anim, int trackCount){
+        if (anim == blendFrom && anim != animation){
+            if (cursorsBlendFrom.length < trackCount){
+                cursorsBlendFrom = new int[trackCount];
+            }
+            return cursorsBlendFrom;
+        }
+        if (cursors.length < trackCount){
+            cursors = new int[trackCount];
+        }
+        return cursors;
+    }
     
     public void reset(boolean rewind){
         if(rewind){
@@ -32,6 +32,8 @@
 package com.jme3.animation;
 
 import com.jme3.export.*;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.ViewPort;
 import com.jme3.scene.Mesh;
@@ -41,6 +43,7 @@ import com.jme3.scene.control.Control;
 import com.jme3.util.TempVars;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map.Entry;
@@ -86,6 +89,38 @@ public final class AnimControl extends AbstractControl implements Cloneable {
      * Animation event listeners
      */
     private transient ArrayList<AnimEventListener> listeners = new ArrayList<AnimEventListener>();
+    /**
+     * Number of frames between two updates of the channels, 0 to freeze them.
+     */
+    private transient int updateInterval = 1;
+    /**
+     * Frame of the interval on which the channels are updated.
+     */
+    private transient int updateOffset = 0;
+    private transient int updateFrame = 0;
+    /**
+     * Time elapsed since the last update of the channels.
+     */
+    private transient float skippedTime = 0;
+    /**
+     * Incremented each time the channels are updated.
+     */
+    private transient int poseVersion = 0;
+    /**
+     * Bones animated by the channels, all of them if null.
+     */
+    transient BitSet lodBones;
+    /**
+     * Blend between the last two sampled poses on the skipped frames.
+     */
+    private transient boolean poseInterpolation = true;
+    /**
+     * Local transforms of the bones at the last two updates of the
+     * channels, 10 floats per bone, valid if poseSampled is true.
+     */
+    private transient float[] previousPose, sampledPose;
+    private transient boolean poseSampled = false;
+    private transient int framesSinceUpdate;
 
     /**
      * Creates a new animation control for the given skeleton.
@@ -114,6 +149,9 @@ public final class AnimControl extends AbstractControl implements Cloneable {
             clone.spatial = spatial;
             clone.channels = new ArrayList<AnimChannel>();
             clone.listeners = new ArrayList<AnimEventListener>();
+            clone.previousPose = null;
+            clone.sampledPose = null;
+            clone.poseSampled = false;
 
             if (skeleton != null) {
                 clone.skeleton = new Skeleton(skeleton);
@@ -219,6 +257,114 @@ public final class AnimControl extends AbstractControl implements Cloneable {
         channels.clear();
     }
 
+    /**
+     * Sets how often the channels are updated, to animate far or hidden
+     * models at a lower rate.
+     * <p>
+     * The channels are updated once every <code>updateInterval</code> frames
+     * with the time elapsed since their last update, so the animations keep
+     * playing at the same speed. In between, the skeleton blends from the
+     * pose of the previous update to the one of the last update, see
+     * {@link #setPoseInterpolation(boolean) }. An interval of 0 freezes the
+     * pose, the time still adds up until the next update.
+     * <p>
+     * The channels are updated on the frames where the frame count plus
+     * <code>updateOffset</code> is a multiple of the interval. Giving
+     * different offsets to the models spreads their updates over the
+     * frames of the interval.
+     *
+     * @param updateInterval The number of frames between two updates,
+     * 1 by default to update every frame.
+     * @param updateOffset The offset of the update frames.
+     *
+     * @see AnimLodControl
+     */
+    public void setUpdateInterval(int updateInterval, int updateOffset) {
+        if (updateInterval < 0) {
+            throw new IllegalArgumentException("updateInterval cannot be less than zero");
+        }
+        this.updateInterval = updateInterval;
+        this.updateOffset = updateOffset;
+    }
+
+    /**
+     * @return The number of frames between two updates of the channels.
+     * @see #setUpdateInterval(int, int)
+     */
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    /**
+     * @return The offset of the frames on which the channels are updated.
+     * @see #setUpdateInterval(int, int)
+     */
+    public int getUpdateOffset() {
+        return updateOffset;
+    }
+
+    /**
+     * Restricts the animation to the given bones. The tracks of the other
+     * bones are skipped and these bones stay in bind pose, e.g. the fingers
+     * of a far model.
+     * 
+     * @param bones The indices of the bones to animate, or null
+     * to animate all of them.
+     *
+     * @see AnimLodControl
+     */
+    public void setLodBones(BitSet bones) {
+        lodBones = bones;
+    }
+
+    /**
+     * @return The indices of the animated bones, or null if all of them
+     * are animated.
+     * @see #setLodBones(java.util.BitSet)
+     */
+    public BitSet getLodBones() {
+        return lodBones;
+    }
+
+    /**
+     * Sets whether the skeleton blends between the poses of the last two
+     * updates of the channels on the frames they are not updated. It is
+     * then one update interval behind the animation, and the
+     * {@link SkeletonControl} skins the model again on every frame.
+     * Otherwise the skeleton keeps the pose of the last update and the
+     * skinning is only done again on the next update.
+     * <p>
+     * Blending the bones is cheaper than updating the channels, but
+     * it is only done for the skeleton, spatial tracks keep their pose.
+     * Enabled by default, it has no effect when the channels are updated
+     * every frame.
+     *
+     * @param poseInterpolation True to blend the skipped frames
+     *
+     * @see #setUpdateInterval(int, int)
+     */
+    public void setPoseInterpolation(boolean poseInterpolation) {
+        this.poseInterpolation = poseInterpolation;
+    }
+
+    /**
+     * @return True if the skeleton blends between the poses of the last two
+     * updates of the channels.
+     * @see #setPoseInterpolation(boolean)
+     */
+    public boolean isPoseInterpolation() {
+        return poseInterpolation;
+    }
+
+    /**
+     * @return A number that changes each time the animation changes the
+     * pose of the skeleton, the skeleton keeps its pose while it is the
+     * same, except for the bones under user control.
+     */
+    int getPoseVersion() {
+        return poseVersion;
+    }
+
     /**
      * @return The skeleton of this <code>AnimControl</code>.
      */
@@ -323,6 +469,25 @@ public final class AnimControl extends AbstractControl implements Cloneable {
      */
     @Override
     protected void controlUpdate(float tpf) {
+        skippedTime += tpf;
+        int frame = updateFrame++;
+        if (updateInterval != 1) {
+            if (updateInterval == 0
+                    || ((frame + updateOffset) & Integer.MAX_VALUE) % updateInterval != 0) {
+                // the blend stops once it reaches the last pose
+                if (poseInterpolation && poseSampled && updateInterval > 1
+                        && framesSinceUpdate < updateInterval) {
+                    framesSinceUpdate++;
+                    applyPose((float) framesSinceUpdate / updateInterval);
+                    poseVersion++;
+                }
+                return;
+            }
+        }
+        tpf = skippedTime;
+        skippedTime = 0;
+        poseVersion++;
+
         if (skeleton != null) {
             skeleton.reset(); // reset skeleton to bind pose
         }
@@ -336,6 +501,87 @@ public final class AnimControl extends AbstractControl implements Cloneable {
         if (skeleton != null) {
             skeleton.updateWorldVectors();
         }
+
+        if (poseInterpolation && updateInterval > 1 && skeleton != null) {
+            samplePose();
+        } else {
+            poseSampled = false;
+        }
+    }
+
+    /**
+     * Keeps the pose of the skeleton after an update of the channels, and
+     * goes back to the pose of the previous update to blend from it.
+     */
+    private void samplePose() {
+        int size = skeleton.getBoneCount() * 10;
+        if (sampledPose == null || sampledPose.length != size) {
+            sampledPose = new float[size];
+            previousPose = new float[size];
+            poseSampled = false;
+        }
+        float[] pose = previousPose;
+        previousPose = sampledPose;
+        sampledPose = pose;
+
+        for (int i = 0, j = 0; i < skeleton.getBoneCount(); i++, j += 10) {
+            Bone bone = skeleton.getBone(i);
+            Vector3f pos = bone.getLocalPosition();
+            Quaternion rot = bone.getLocalRotation();
+            Vector3f scale = bone.getLocalScale();
+            pose[j] = pos.x;
+            pose[j + 1] = pos.y;
+            pose[j + 2] = pos.z;
+            pose[j + 3] = rot.getX();
+            pose[j + 4] = rot.getY();
+            pose[j + 5] = rot.getZ();
+            pose[j + 6] = rot.getW();
+            pose[j + 7] = scale.x;
+            pose[j + 8] = scale.y;
+            pose[j + 9] = scale.z;
+        }
+
+        framesSinceUpdate = 0;
+        if (poseSampled) {
+            applyPose(0);
+        } else {
+            // nothing to blend from yet
+            System.arraycopy(sampledPose, 0, previousPose, 0, size);
+            poseSampled = true;
+        }
+    }
+
+    /**
+     * Sets the bones between the poses of the last two updates.
+     *
+     * @param blend 0 for the pose of the previous update, 1 for the
+     * pose of the last update
+     */
+    private void applyPose(float blend) {
+        TempVars vars = TempVars.get();
+        Quaternion from = vars.quat1;
+        Quaternion to = vars.quat2;
+        float[] a = previousPose;
+        float[] b = sampledPose;
+        float blendI = 1f - blend;
+        for (int i = 0, j = 0; i < skeleton.getBoneCount(); i++, j += 10) {
+            Bone bone = skeleton.getBone(i);
+            if (bone.hasUserControl()) {
+                continue;
+            }
+            bone.getLocalPosition().set(blendI * a[j] + blend * b[j],
+                                        blendI * a[j + 1] + blend * b[j + 1],
+                                        blendI * a[j + 2] + blend * b[j + 2]);
+            from.set(a[j + 3], a[j + 4], a[j + 5], a[j + 6]);
+            to.set(b[j + 3], b[j + 4], b[j + 5], b[j + 6]);
+            from.nlerp(to, blend);
+            bone.getLocalRotation().set(from);
+            bone.getLocalScale().set(blendI * a[j + 7] + blend * b[j + 7],
+                                     blendI * a[j + 8] + blend * b[j + 8],
+                                     blendI * a[j + 9] + blend * b[j + 9]);
+        }
+        vars.release();
+        skeleton.updateWorldVectors();
     }
 
     /**
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.animation;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.math.FastMath;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.control.AbstractControl;
+import com.jme3.scene.control.AreaUtils;
+import com.jme3.scene.control.Control;
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * Determines at what level of detail the {@link AnimControl} of a model
+ * should animate it, based on its distance to the camera or on the area
+ * of the screen it covers.
+ * <p>
+ * Level 0 animates the model every frame. The next levels each have a
+ * threshold, an update interval and a bone depth: once the model is past
+ * the threshold, the animation is only updated every
+ * <code>updateInterval</code> frames and animates the bones down to
+ * <code>boneDepth</code> levels from the root, the other bones stay in bind
+ * pose. Up to the {@link #setMaxInterpolatedLevel(int) max interpolated level},
+ * the skeleton blends between the last two updates on the frames in
+ * between, past it the skeleton keeps its pose and the
+ * {@link SkeletonControl} only skins the model again when the animation
+ * is updated.
+ * <p>
+ * Each control gets its own update offset, so that the updates of models
+ * at the same level are spread over the frames of the interval instead of
+ * all happening on the same frame.
+ * <p>
+ * The level is computed when the model is rendered and used for the
+ * animation updates of the next frame, the closest level is used if the
+ * model is rendered in several viewports. A model that is not rendered
+ * keeps its level.
+ */
+public class AnimLodControl extends AbstractControl implements Cloneable {
+
+    /**
+     * The measure compared to the thresholds of the levels.
+     */
+    public enum Metric {
+        /**
+         * The distance from the camera to the bounds of the model, the
+         * thresholds increase with the levels.
+         */
+        Distance,
+        /**
+         * The area of the screen covered by the bounds of the model,
+         * in pixels, the thresholds decrease with the levels.
+         */
+        ScreenArea
+    }
+
+    private static int nextUpdateOffset = 0;
+
+    private Metric metric = Metric.Distance;
+    private float[] thresholds = new float[0];
+    private int[] updateIntervals = new int[0];
+    private int[] boneDepths = new int[0];
+    private int maxInterpolatedLevel = Integer.MAX_VALUE;
+    private int updateOffset;
+    private int level = 0;
+    private int renderLevel = -1;
+    /**
+     * Bones animated at each level, for the skeleton of lodBonesSkeleton.
+     */
+    private BitSet[] lodBones;
+    private Skeleton lodBonesSkeleton;
+
+    /**
+     * Creates a new <code>AnimLodControl</code> with no levels, see
+     * {@link #setLevels(float[], int[], int[]) }.
+     */
+    public AnimLodControl() {
+        updateOffset = nextUpdateOffset();
+    }
+
+    private static synchronized int nextUpdateOffset() {
+        return nextUpdateOffset++;
+    }
+
+    /**
+     * Sets the levels of detail after level 0.
+     * 
+     * @param thresholds The threshold of each level, increasing distances
+     * or decreasing screen areas depending on the metric.
+     * @param updateIntervals The number of frames between two updates of
+     * the animation at each level, 0 freezes the animation.
+     * @param boneDepths The depth of the bones animated at each level,
+     * 1 to only animate the root bones, -1 to animate all of them, or null
+     * to animate all the bones at every level.
+     */
+    public void setLevels(float[] thresholds, int[] updateIntervals, int[] boneDepths) {
+        if (thresholds.length != updateIntervals.length
+                || (boneDepths != null && boneDepths.length != thresholds.length)) {
+            throw new IllegalArgumentException("The levels must have as many "
+                    + "thresholds, update intervals and bone depths");
+        }
+        for (int i = 0; i < updateIntervals.length; i++) {
+            if (updateIntervals[i] < 0) {
+                throw new IllegalArgumentException("updateInterval cannot be less than zero");
+            }
+        }
+        this.thresholds = thresholds.clone();
+        this.updateIntervals = updateIntervals.clone();
+        if (boneDepths != null) {
+            this.boneDepths = boneDepths.clone();
+        } else {
+            this.boneDepths = new int[thresholds.length];
+            for (int i = 0; i < this.boneDepths.length; i++) {
+                this.boneDepths[i] = -1;
+            }
+        }
+        lodBones = null;
+        level = Math.min(level, thresholds.length);
+    }
+
+    /**
+     * @return The number of levels, including level 0.
+     */
+    public int getNumLevels() {
+        return thresholds.length + 1;
+    }
+
+    /**
+     * @return The measure compared to the thresholds of the levels.
+     * 
+     * @see #setMetric(com.jme3.animation.AnimLodControl.Metric) 
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Sets the measure compared to the thresholds of the levels,
+     * {@link Metric#Distance} by default.
+     * 
+     * @param metric The measure to use
+     */
+    public void setMetric(Metric metric) {
+        this.metric = metric;
+    }
+
+    /**
+     * @return The last level at which the skeleton blends between the
+     * updates of the animation.
+     * 
+     * @see #setMaxInterpolatedLevel(int) 
+     */
+    public int getMaxInterpolatedLevel() {
+        return maxInterpolatedLevel;
+    }
+
+    /**
+     * Sets the last level at which the skeleton blends between the poses
+     * of the last two updates of the animation on the frames in between,
+     * all of them by default. At the next levels the skeleton keeps its
+     * pose, so the model is not skinned again until the next update.
+     * 
+     * @param maxInterpolatedLevel The last interpolated level, 0 to never
+     * interpolate.
+     * 
+     * @see AnimControl#setPoseInterpolation(boolean) 
+     */
+    public void setMaxInterpolatedLevel(int maxInterpolatedLevel) {
+        this.maxInterpolatedLevel = maxInterpolatedLevel;
+    }
+
+    /**
+     * @return The offset given to the update interval of the animation.
+     * 
+     * @see AnimControl#setUpdateInterval(int, int) 
+     */
+    public int getUpdateOffset() {
+        return updateOffset;
+    }
+
+    /**
+     * Sets the offset given to the update interval of the animation,
+     * each control gets a different one when created.
+     * 
+     * @param updateOffset The offset of the update frames
+     * 
+     * @see AnimControl#setUpdateInterval(int, int) 
+     */
+    public void setUpdateOffset(int updateOffset) {
+        this.updateOffset = updateOffset;
+    }
+
+    /**
+     * @return The current level of detail, 0 for the full animation.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the level of detail of a model for the given measure.
+     * 
+     * @param value The distance or screen area of the model
+     * @return The level of detail
+     */
+    public int computeLevel(float value) {
+        int i = 0;
+        if (metric == Metric.Distance) {
+            while (i < thresholds.length && value >= thresholds[i]) {
+                i++;
+            }
+        } else {
+            while (i < thresholds.length && value <= thresholds[i]) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        if (!enabled) {
+            // back to the full animation
+            level = 0;
+            renderLevel = -1;
+            applyLevel();
+        }
+    }
+
+    public Control cloneForSpatial(Spatial spatial) {
+        try {
+            AnimLodControl clone = (AnimLodControl) super.clone();
+            clone.updateOffset = nextUpdateOffset();
+            clone.level = 0;
+            clone.renderLevel = -1;
+            clone.lodBones = null;
+            clone.lodBonesSkeleton = null;
+            return clone;
+        } catch (CloneNotSupportedException ex) {
+            throw new AssertionError();
+        }
+    }
+
+    private BitSet getLodBones(Skeleton skeleton, int level) {
+        if (lodBones == null || lodBonesSkeleton != skeleton) {
+            lodBones = new BitSet[boneDepths.length];
+            lodBonesSkeleton = skeleton;
+        }
+        BitSet bones = lodBones[level - 1];
+        if (bones == null) {
+            bones = new BitSet(skeleton.getBoneCount());
+            for (int i = 0; i < skeleton.getBoneCount(); i++) {
+                int depth = 1;
+                for (Bone b = skeleton.getBone(i).getParent(); b != null; b = b.getParent()) {
+                    depth++;
+                }
+                if (depth <= boneDepths[level - 1]) {
+                    bones.set(i);
+                }
+            }
+            lodBones[level - 1] = bones;
+        }
+        return bones;
+    }
+
+    private void applyLevel() {
+        if (spatial == null) {
+            return;
+        }
+        AnimControl control = spatial.getControl(AnimControl.class);
+        if (control == null) {
+            return;
+        }
+
+        control.setPoseInterpolation(level <= maxInterpolatedLevel);
+        if (level == 0) {
+            control.setUpdateInterval(1, updateOffset);
+            control.setLodBones(null);
+        } else {
+            control.setUpdateInterval(updateIntervals[level - 1], updateOffset);
+            Skeleton skeleton = control.getSkeleton();
+            if (skeleton != null && boneDepths[level - 1] >= 0) {
+                control.setLodBones(getLodBones(skeleton, level));
+            } else {
+                control.setLodBones(null);
+            }
+        }
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        if (renderLevel >= 0) {
+            level = renderLevel;
+            renderLevel = -1;
+        }
+        applyLevel();
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        BoundingVolume bv = spatial.getWorldBound();
+        Camera cam = vp.getCamera();
+        float distance = bv.distanceTo(cam.getLocation());
+
+        int newLevel;
+        if (metric == Metric.Distance) {
+            newLevel = computeLevel(distance);
+        } else {
+            // same estimate as LodControl
+            float atanNH = FastMath.atan(cam.getFrustumNear() * cam.getFrustumTop());
+            float ratio = (FastMath.PI / (8f * atanNH));
+            float area = AreaUtils.calcScreenArea(bv, distance / ratio, cam.getWidth());
+            newLevel = computeLevel(area);
+        }
+
+        if (renderLevel < 0 || newLevel < renderLevel) {
+            renderLevel = newLevel;
+        }
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        super.write(ex);
+        OutputCapsule oc = ex.getCapsule(this);
+        oc.write(metric, "metric", Metric.Distance);
+        oc.write(thresholds, "thresholds", null);
+        oc.write(updateIntervals, "updateIntervals", null);
+        oc.write(boneDepths, "boneDepths", null);
+        oc.write(maxInterpolatedLevel, "maxInterpolatedLevel", Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        super.read(im);
+        InputCapsule ic = im.getCapsule(this);
+        metric = ic.readEnum("metric", Metric.class, Metric.Distance);
+        thresholds = ic.readFloatArray("thresholds", new float[0]);
+        updateIntervals = ic.readIntArray("updateIntervals", new int[0]);
+        boneDepths = ic.readIntArray("boneDepths", new int[0]);
+        maxInterpolatedLevel = ic.readInt("maxInterpolatedLevel", Integer.MAX_VALUE);
+    }
+}
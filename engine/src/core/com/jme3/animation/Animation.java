@@ -106,8 +106,17 @@ public class Animation implements Savable, Cloneable {
             return;
         }
 
-        for (Track track : tracks) {
-            track.setTime(time, blendAmount, control, channel, vars);
+        Track[] array = tracks.getArray();
+        int[] cursors = channel.getKeyFrameCursors(this, array.length);
+        for (int i = 0; i < array.length; i++) {
+            Track track = array[i];
+            if (track instanceof BoneTrack) {
+                ((BoneTrack) track).setTime(time, blendAmount, control, channel, vars, cursors, i);
+            } else if (track instanceof SpatialTrack) {
+                ((SpatialTrack) track).setTime(time, blendAmount, control, channel, vars, cursors, i);
+            } else {
+                track.setTime(time, blendAmount, control, channel, vars);
+            }
         }
     }
 
@@ -312,6 +312,14 @@ public final class Bone implements Savable {
         userControl = enable;
     }
 
+    /**
+     * @return True if the transforms of the bone are set by the user
+     * instead of the animation.
+     */
+    boolean hasUserControl() {
+        return userControl;
+    }
+
     /**
      * Add a new child to this bone. Shouldn't be used by user code.
      * Can corrupt skeleton.
@@ -188,10 +188,26 @@ public final class BoneTrack implements Track {
      * @param vars
      */
     public void setTime(float time, float weight, AnimControl control, AnimChannel channel, TempVars vars) {
+        setTime(time, weight, control, channel, vars, null, 0);
+    }
+
+    /**
+     * Same as {@link #setTime(float, float, com.jme3.animation.AnimControl, com.jme3.animation.AnimChannel, com.jme3.util.TempVars) },
+     * starting the keyframe search from the cursor of this track in the
+     * channel, see {@link AnimChannel#getKeyFrameCursors(com.jme3.animation.Animation, int) }.
+     *
+     * @param cursors the keyframe cursors of the channel or null
+     * @param cursorIndex the index of the cursor of this track
+     */
+    void setTime(float time, float weight, AnimControl control, AnimChannel channel, TempVars vars, int[] cursors, int cursorIndex) {
         BitSet affectedBones = channel.getAffectedBones();
         if (affectedBones != null && !affectedBones.get(targetBoneIndex)) {
             return;
         }
+        BitSet lodBones = control.lodBones;
+        if (lodBones != null && !lodBones.get(targetBoneIndex)) {
+            return;
+        }
         
         Bone target = control.getSkeleton().getBone(targetBoneIndex);
 
@@ -216,31 +232,23 @@ public final class BoneTrack implements Track {
                 scales.get(lastFrame, tempS);
             }
         } else {
-            int startFrame = 0;
-            int endFrame = 1;
-            // use lastFrame so we never overflow the array
-            int i;
-            for (i = 0; i < lastFrame && times[i] < time; i++) {
-                startFrame = i;
-                endFrame = i + 1;
+            int startFrame = KeyFrames.findStartFrame(times, time, cursors != null ? cursors[cursorIndex] : -1);
+            int endFrame = startFrame + 1;
+            if (cursors != null) {
+                cursors[cursorIndex] = startFrame;
             }
 
             float blend = (time - times[startFrame])
                     / (times[endFrame] - times[startFrame]);
 
-            rotations.get(startFrame, tempQ);
-            translations.get(startFrame, tempV);
-            if (scales != null) {
-                scales.get(startFrame, tempS);
-            }
-            rotations.get(endFrame, tempQ2);
-            translations.get(endFrame, tempV2);
-            if (scales != null) {
-                scales.get(endFrame, tempS2);
-            }
+            rotations.getPair(startFrame, tempQ, tempQ2);
+            translations.getPair(startFrame, tempV, tempV2);
             tempQ.nlerp(tempQ2, blend);
             tempV.interpolate(tempV2, blend);
-            tempS.interpolate(tempS2, blend);
+            if (scales != null) {
+                scales.getPair(startFrame, tempS, tempS2);
+                tempS.interpolate(tempS2, blend);
+            }
         }
 
 //        if (weight != 1f) {
@@ -132,6 +132,19 @@ public abstract class CompactArray<T> {
         return deserialize(j, store);
     }
 
+    /**
+     * Gets the objects at the given index and at the next one, e.g. the two
+     * keyframes surrounding the time of an animation.
+     * @param index zero based index of the first object
+     * @param store storage for the object at the index
+     * @param nextStore storage for the object at the next index
+     */
+    public final void getPair(int index, T store, T nextStore) {
+        serialize();
+        deserialize(getCompactIndex(index), store);
+        deserialize(getCompactIndex(index + 1), nextStore);
+    }
+
     /**
      * return a float array of serialized data
      * @return 
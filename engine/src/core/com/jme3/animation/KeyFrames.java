@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.animation;
+
+/**
+ * Finds the keyframes to interpolate between for a given time in the
+ * times of a {@link BoneTrack} or {@link SpatialTrack}.
+ */
+final class KeyFrames {
+
+    private KeyFrames() {
+    }
+
+    /**
+     * Returns the keyframe starting the interval that contains the given
+     * time, that is the last keyframe before the time, or 0 if the time
+     * is on the first keyframe.
+     * <p>
+     * The cursor is the keyframe returned for the previous time of the
+     * animation. While an animation plays, the time is in the same interval
+     * or in the next one, which are checked first. Otherwise the keyframe
+     * is found with a binary search.
+     *
+     * @param times The times of the keyframes, at least two.
+     * @param time The time, between 0 inclusive and the time of the last
+     * keyframe exclusive.
+     * @param cursor The keyframe returned for the previous time, or -1.
+     * @return The index of the keyframe, between 0 and times.length - 2.
+     */
+    static int findStartFrame(float[] times, float time, int cursor) {
+        int lastStart = times.length - 2;
+        if (cursor >= 0 && cursor <= lastStart && times[cursor] < time) {
+            if (time <= times[cursor + 1]) {
+                return cursor;
+            }
+            if (cursor < lastStart && time <= times[cursor + 2]) {
+                return cursor + 1;
+            }
+        }
+
+        // last keyframe before time
+        int low = 0;
+        int high = lastStart;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (times[mid] < time) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -178,6 +178,19 @@ public final class Skeleton implements Savable {
         }
     }
 
+    /**
+     * @return True if the transforms of at least one bone are set by
+     * the user instead of the animation.
+     */
+    boolean hasUserControl() {
+        for (int i = 0; i < boneList.length; i++) {
+            if (boneList[i].hasUserControl()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * returns the array of all root bones of this skeleton
      * @return 
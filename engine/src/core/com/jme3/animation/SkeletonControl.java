@@ -32,19 +32,24 @@
 package com.jme3.animation;
 
 import com.jme3.export.*;
-import com.jme3.math.FastMath;
+import com.jme3.material.Material;
 import com.jme3.math.Matrix4f;
+import com.jme3.renderer.Caps;
 import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.RendererException;
 import com.jme3.renderer.ViewPort;
 import com.jme3.scene.*;
 import com.jme3.scene.VertexBuffer.Type;
 import com.jme3.scene.control.AbstractControl;
 import com.jme3.scene.control.Control;
-import com.jme3.util.TempVars;
+import com.jme3.shader.VarType;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The Skeleton control deforms a model according to a skeleton, 
@@ -55,6 +60,8 @@ import java.util.ArrayList;
  */
 public class SkeletonControl extends AbstractControl implements Cloneable {
 
+    private static final Logger logger = Logger.getLogger(SkeletonControl.class.getName());
+
     /**
      * The skeleton of the model
      */
@@ -68,6 +75,43 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
      * if they are visible in at least one camera.
      */
     private boolean wasMeshUpdated = false;
+    /**
+     * Pose version of the animation the targets were last skinned with,
+     * see {@link AnimControl#getPoseVersion() }.
+     */
+    private int skinnedPoseVersion;
+    private boolean skinnedPoseValid = false;
+    /**
+     * Number of vertices skinned by a single job.
+     */
+    private static final int SKINNING_JOB_VERTICES = 4096;
+    /**
+     * Jobs used to skin the targets, reused every frame.
+     */
+    private final ArrayList<SkinningJob> skinningJobs = new ArrayList<SkinningJob>();
+    /**
+     * Materials of the animated geometries, they receive the bone
+     * matrices when hardware skinning is used.
+     */
+    private ArrayList<Material> materials = new ArrayList<Material>();
+    /**
+     * User wishes to use hardware skinning if available.
+     */
+    private boolean hwSkinningPreferred = false;
+    /**
+     * Hardware skinning is currently being used.
+     */
+    private boolean hwSkinningEnabled = false;
+    /**
+     * Hardware skinning was tested on this GPU, results
+     * are stored in {@link #hwSkinningSupported}.
+     */
+    private boolean hwSkinningTested = false;
+    /**
+     * If hardware skinning was {@link #hwSkinningTested tested}, then
+     * this variable will be set to true if supported, and false if otherwise.
+     */
+    private boolean hwSkinningSupported = false;
 
     /**
      * Serialization only. Do not use.
@@ -105,6 +149,7 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
     private Mesh[] findTargets(Node node) {
         Mesh sharedMesh = null;
         ArrayList<Mesh> animatedMeshes = new ArrayList<Mesh>();
+        materials.clear();
 
         for (Spatial child : node.getChildren()) {
             if (!(child instanceof Geometry)) {
@@ -126,11 +171,13 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
                     } else if (sharedMesh != childSharedMesh) {
                         throw new IllegalStateException("Two conflicting shared meshes for " + node);
                     }
+                    addMaterial(geom.getMaterial());
                 }
             } else {
                 Mesh mesh = geom.getMesh();
                 if (isMeshAnimated(mesh)) {
                     animatedMeshes.add(mesh);
+                    addMaterial(geom.getMaterial());
                 }
             }
         }
@@ -142,6 +189,110 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         return animatedMeshes.toArray(new Mesh[animatedMeshes.size()]);
     }
 
+    private void addMaterial(Material material) {
+        if (material != null && !materials.contains(material)) {
+            materials.add(material);
+        }
+    }
+
+    /**
+     * Specifies if hardware skinning is preferred. If it is preferred and
+     * supported by the GPU, it shall be enabled, if its not preferred, or not
+     * supported by the GPU, then it shall be disabled.
+     * <p>
+     * With hardware skinning, the position and normal buffers stay in bind
+     * pose and the bone matrices are given to the materials of the animated
+     * geometries, which must support the <code>NumberOfBones</code> and
+     * <code>BoneMatrices</code> parameters, like Lighting.j3md and
+     * Unshaded.j3md do. Materials should not be shared between models
+     * using different skeletons.
+     * 
+     * @param preferred True to use hardware skinning when supported
+     * @see #isHardwareSkinningUsed() 
+     */
+    public void setHardwareSkinningPreferred(boolean preferred) {
+        hwSkinningPreferred = preferred;
+    }
+
+    /**
+     * @return True if hardware skinning is preferable to software skinning.
+     * Set to false by default.
+     * 
+     * @see #setHardwareSkinningPreferred(boolean) 
+     */
+    public boolean isHardwareSkinningPreferred() {
+        return hwSkinningPreferred;
+    }
+
+    /**
+     * @return True is hardware skinning is activated and is currently used, false otherwise.
+     */
+    public boolean isHardwareSkinningUsed() {
+        return hwSkinningEnabled;
+    }
+
+    private void switchToHardware() {
+        // Next full 10 bones (e.g. 30 on 24 bones), so that
+        // skeletons of similar size share their shaders
+        int numBones = ((skeleton.getBoneCount() / 10) + 1) * 10;
+        for (Material m : materials) {
+            m.setInt("NumberOfBones", numBones);
+        }
+        for (Mesh mesh : targets) {
+            if (isMeshAnimated(mesh)) {
+                mesh.prepareForAnim(false);
+            }
+        }
+        // the shaders skin the bind pose
+        resetToBind();
+        hwSkinningEnabled = true;
+    }
+
+    private void switchToSoftware() {
+        for (Material m : materials) {
+            m.clearParam("NumberOfBones");
+            m.clearParam("BoneMatrices");
+        }
+        for (Mesh mesh : targets) {
+            if (isMeshAnimated(mesh)) {
+                mesh.prepareForAnim(true);
+            }
+        }
+        hwSkinningEnabled = false;
+    }
+
+    private boolean testHardwareSupported(RenderManager rm) {
+        // the bone matrices are uniforms, which need shaders
+        if (!rm.getRenderer().getCaps().contains(Caps.GLSL100)) {
+            return false;
+        }
+
+        // the materials may have changed since the control was attached
+        targets = findTargets((Node) spatial);
+        for (Material m : materials) {
+            if (m.getMaterialDef().getMaterialParam("NumberOfBones") == null) {
+                logger.log(Level.INFO, "Material {0} does not support hardware skinning, "
+                        + "using software skinning for {1}",
+                        new Object[]{m.getMaterialDef().getName(), spatial.getName()});
+                return false;
+            }
+        }
+
+        switchToHardware();
+
+        try {
+            // compiles the skinning shaders, this fails if the
+            // bone matrices don't fit in the vertex uniforms
+            rm.preloadScene(spatial);
+            return true;
+        } catch (RendererException e) {
+            logger.log(Level.WARNING, "Could not enable HW skinning due to shader compile error, "
+                    + "using software skinning for " + spatial.getName(), e);
+            switchToSoftware();
+            return false;
+        }
+    }
+
     @Override
     public void setSpatial(Spatial spatial) {
         super.setSpatial(spatial);
@@ -155,26 +306,72 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
 
     @Override
     protected void controlRender(RenderManager rm, ViewPort vp) {
+        // the skinned buffers are shared between all the viewports
+        // this spatial is rendered in, only skin once per frame
         if (!wasMeshUpdated) {
-            resetToBind(); // reset morph meshes to bind pose
-
-            Matrix4f[] offsetMatrices = skeleton.computeSkinningMatrices();
-
-            // if hardware skinning is supported, the matrices and weight buffer
-            // will be sent by the SkinningShaderLogic object assigned to the shader
-            for (int i = 0; i < targets.length; i++) {
-                // NOTE: This assumes that code higher up
-                // Already ensured those targets are animated
-                // otherwise a crash will happen in skin update
-                //if (isMeshAnimated(targets[i])) {
-                softwareSkinUpdate(targets[i], offsetMatrices);
-                //}
+            if (hwSkinningPreferred && !hwSkinningTested) {
+                hwSkinningSupported = testHardwareSupported(rm);
+                hwSkinningTested = true;
+            }
+
+            // the targets keep their skinning while the animation
+            // keeps its pose, unless the skinning mode changes. Bones
+            // under user control change the pose without the animation.
+            AnimControl animControl = spatial.getControl(AnimControl.class);
+            boolean poseUnchanged = false;
+            if (animControl != null && animControl.getUpdateInterval() != 1
+                    && !skeleton.hasUserControl()) {
+                int poseVersion = animControl.getPoseVersion();
+                poseUnchanged = skinnedPoseValid && poseVersion == skinnedPoseVersion;
+                skinnedPoseVersion = poseVersion;
+                skinnedPoseValid = true;
+            } else {
+                skinnedPoseValid = false;
+            }
+
+            if (hwSkinningPreferred && hwSkinningSupported) {
+                if (!hwSkinningEnabled) {
+                    switchToHardware();
+                    poseUnchanged = false;
+                }
+                if (!poseUnchanged) {
+                    controlRenderHardware();
+                }
+            } else {
+                if (hwSkinningEnabled) {
+                    switchToSoftware();
+                    poseUnchanged = false;
+                }
+                if (!poseUnchanged) {
+                    controlRenderSoftware(rm);
+                }
             }
 
             wasMeshUpdated = true;
         }
     }
 
+    private void controlRenderSoftware(RenderManager rm) {
+        Matrix4f[] offsetMatrices = skeleton.computeSkinningMatrices();
+
+        int numJobs = 0;
+        for (int i = 0; i < targets.length; i++) {
+            // NOTE: This assumes that code higher up
+            // Already ensured those targets are animated
+            // otherwise a crash will happen in skin update
+            numJobs = softwareSkinUpdate(rm, targets[i], offsetMatrices, numJobs);
+        }
+    }
+
+    private void controlRenderHardware() {
+        // the matrices are uploaded as uniforms, the vertex
+        // buffers are left untouched
+        Matrix4f[] offsetMatrices = skeleton.computeSkinningMatrices();
+        for (Material m : materials) {
+            m.setParam("BoneMatrices", VarType.Matrix4Array, offsetMatrices);
+        }
+    }
+
     @Override
     protected void controlUpdate(float tpf) {
         wasMeshUpdated = false;
@@ -182,12 +379,7 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
 
     void resetToBind() {
         for (Mesh mesh : targets) {
-            if (isMeshAnimated(mesh)) {                
-                FloatBuffer bwBuff = (FloatBuffer) mesh.getBuffer(Type.BoneWeight).getData();
-                ByteBuffer biBuff = (ByteBuffer)mesh.getBuffer(Type.BoneIndex).getData();                
-                if (!biBuff.hasArray() || !bwBuff.hasArray()) {
-                    mesh.prepareForAnim(true); // prepare for software animation
-                }
+            if (isMeshAnimated(mesh)) {
                 VertexBuffer bindPos = mesh.getBuffer(Type.BindPosePosition);
                 VertexBuffer bindNorm = mesh.getBuffer(Type.BindPoseNormal);
                 VertexBuffer pos = mesh.getBuffer(Type.Position);
@@ -210,11 +402,14 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
                     tb.clear();
                     btb.clear();
                     tb.put(btb).clear();
+                    tangents.updateData(tb);
                 }
 
 
                 pb.put(bpb).clear();
                 nb.put(bnb).clear();
+                pos.updateData(pb);
+                norm.updateData(nb);
             }
         }
     }
@@ -226,6 +421,7 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         clone.setSpatial(clonedNode);
 
         clone.skeleton = ctrl.getSkeleton();
+        clone.hwSkinningPreferred = hwSkinningPreferred;
         // Fix animated targets for the cloned node
         clone.targets = findTargets(clonedNode);
 
@@ -298,274 +494,209 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
 //        this.targets = targets;
 //    }
     /**
-     * Update the mesh according to the given transformation matrices
+     * Update the mesh according to the given transformation matrices.
+     * The vertices are split in ranges of {@link #SKINNING_JOB_VERTICES}
+     * which are skinned by jobs given to the RenderManager, so they run
+     * in parallel when it has a job executor.
+     * 
+     * @param rm the render manager running the skinning jobs
      * @param mesh then mesh
      * @param offsetMatrices the transformation matrices to apply 
+     * @param numJobs the number of jobs of this control already in use
+     * @return the number of jobs in use after this mesh
      */
-    private void softwareSkinUpdate(Mesh mesh, Matrix4f[] offsetMatrices) {
+    private int softwareSkinUpdate(RenderManager rm, Mesh mesh, Matrix4f[] offsetMatrices, int numJobs) {
+        int maxWeightsPerVert = mesh.getMaxNumWeights();
+        if (maxWeightsPerVert <= 0) {
+            throw new IllegalStateException("Max weights per vert is incorrectly set!");
+        }
 
-        VertexBuffer tb = mesh.getBuffer(Type.Tangent);
-        if (tb == null) {
-            //if there are no tangents use the classic skinning
-            applySkinning(mesh, offsetMatrices);
-        } else {
-            //if there are tangents use the skinning with tangents
-            applySkinningTangents(mesh, offsetMatrices, tb);
+        VertexBuffer bwBuf = mesh.getBuffer(Type.BoneWeight);
+        VertexBuffer biBuf = mesh.getBuffer(Type.BoneIndex);
+        if (!((FloatBuffer) bwBuf.getData()).hasArray() || !((ByteBuffer) biBuf.getData()).hasArray()) {
+            mesh.prepareForAnim(true); // prepare for software animation
         }
 
+        VertexBuffer vb = mesh.getBuffer(Type.Position);
+        VertexBuffer nb = mesh.getBuffer(Type.Normal);
+        VertexBuffer tb = mesh.getBuffer(Type.Tangent);
+        // without bind pose tangents, the tangents are skinned in place
+        VertexBuffer btb = tb != null ? mesh.getBuffer(Type.BindPoseTangent) : null;
+
+        FloatBuffer bindPos = (FloatBuffer) mesh.getBuffer(Type.BindPosePosition).getData();
+        FloatBuffer bindNorm = (FloatBuffer) mesh.getBuffer(Type.BindPoseNormal).getData();
+        FloatBuffer pos = (FloatBuffer) vb.getData();
+        FloatBuffer norm = (FloatBuffer) nb.getData();
+        FloatBuffer tan = tb != null ? (FloatBuffer) tb.getData() : null;
+        FloatBuffer bindTan = btb != null ? (FloatBuffer) btb.getData() : tan;
+        float[] weights = ((FloatBuffer) mesh.getBuffer(Type.BoneWeight).getData()).array();
+        byte[] indices = ((ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData()).array();
+
+        int numVerts = pos.limit() / 3;
+        for (int start = 0; start < numVerts; start += SKINNING_JOB_VERTICES) {
+            if (numJobs == skinningJobs.size()) {
+                skinningJobs.add(new SkinningJob());
+            }
+            SkinningJob job = skinningJobs.get(numJobs++);
+            job.bindPos = bindPos;
+            job.bindNorm = bindNorm;
+            job.bindTan = bindTan;
+            job.pos = pos;
+            job.norm = norm;
+            job.tan = tan;
+            job.weights = weights;
+            job.indices = indices;
+            job.maxWeightsPerVert = maxWeightsPerVert;
+            job.offsetMatrices = offsetMatrices;
+            job.start = start;
+            job.end = Math.min(start + SKINNING_JOB_VERTICES, numVerts);
+            rm.submitJob(job);
+        }
 
+        // only flags the buffers, the data is uploaded once the jobs are done
+        vb.updateData(pos);
+        nb.updateData(norm);
+        if (tb != null) {
+            tb.updateData(tan);
+        }
+        return numJobs;
     }
 
     /**
-     * Method to apply skinning transforms to a mesh's buffers    
-     * @param mesh the mesh
-     * @param offsetMatrices the offset matices to apply
+     * Skins a range of vertices of a mesh. The bind pose buffers are read
+     * and the results written to the animated buffers with absolute
+     * gets and puts, so several jobs can work on the same mesh.
      */
-    private void applySkinning(Mesh mesh, Matrix4f[] offsetMatrices) {
-        int maxWeightsPerVert = mesh.getMaxNumWeights();
-        if (maxWeightsPerVert <= 0) {
-            throw new IllegalStateException("Max weights per vert is incorrectly set!");
+    private static class SkinningJob implements Callable<Void> {
+
+        FloatBuffer bindPos, bindNorm, bindTan, pos, norm, tan;
+        float[] weights;
+        byte[] indices;
+        int maxWeightsPerVert;
+        Matrix4f[] offsetMatrices;
+        int start, end;
+
+        public Void call() {
+            if (tan == null) {
+                //if there are no tangents use the classic skinning
+                applySkinning(bindPos, bindNorm, pos, norm, weights, indices,
+                        maxWeightsPerVert, offsetMatrices, start, end);
+            } else {
+                //if there are tangents use the skinning with tangents
+                applySkinningTangents(bindPos, bindNorm, bindTan, pos, norm, tan, weights, indices,
+                        maxWeightsPerVert, offsetMatrices, start, end);
+            }
+            return null;
         }
+    }
 
-        int fourMinusMaxWeights = 4 - maxWeightsPerVert;
+    /**
+     * Method to apply skinning transforms to a range of a mesh's vertices
+     * @param start the first vertex to skin
+     * @param end the vertex after the last one to skin
+     */
+    private static void applySkinning(FloatBuffer bindPos, FloatBuffer bindNorm,
+            FloatBuffer pos, FloatBuffer norm, float[] weights, byte[] indices,
+            int maxWeightsPerVert, Matrix4f[] offsetMatrices, int start, int end) {
+        int idxPositions = start * 3;
+        int idxWeights = start * 4;
+
+        // iterate vertices and apply skinning transform for each effecting bone
+        for (int vert = start; vert < end; vert++, idxPositions += 3, idxWeights += 4) {
+            float vtx = bindPos.get(idxPositions);
+            float vty = bindPos.get(idxPositions + 1);
+            float vtz = bindPos.get(idxPositions + 2);
+            float nmx = bindNorm.get(idxPositions);
+            float nmy = bindNorm.get(idxPositions + 1);
+            float nmz = bindNorm.get(idxPositions + 2);
+
+            // Keep the bind pose if the first weight is zero.
+            if (weights[idxWeights] == 0) {
+                pos.put(idxPositions, vtx).put(idxPositions + 1, vty).put(idxPositions + 2, vtz);
+                norm.put(idxPositions, nmx).put(idxPositions + 1, nmy).put(idxPositions + 2, nmz);
+                continue;
+            }
 
-        // NOTE: This code assumes the vertex buffer is in bind pose
-        // resetToBind() has been called this frame
-        VertexBuffer vb = mesh.getBuffer(Type.Position);
-        FloatBuffer fvb = (FloatBuffer) vb.getData();
-        fvb.rewind();
+            float rx = 0, ry = 0, rz = 0, rnx = 0, rny = 0, rnz = 0;
 
-        VertexBuffer nb = mesh.getBuffer(Type.Normal);
-        FloatBuffer fnb = (FloatBuffer) nb.getData();
-        fnb.rewind();
-
-        // get boneIndexes and weights for mesh
-        ByteBuffer ib = (ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData();
-        FloatBuffer wb = (FloatBuffer) mesh.getBuffer(Type.BoneWeight).getData();
-
-        ib.rewind();
-        wb.rewind();
-
-        float[] weights = wb.array();
-        byte[] indices = ib.array();
-        int idxWeights = 0;
-
-        TempVars vars = TempVars.get();
-
-        float[] posBuf = vars.skinPositions;
-        float[] normBuf = vars.skinNormals;
-
-        int iterations = (int) FastMath.ceil(fvb.limit() / ((float) posBuf.length));
-        int bufLength = posBuf.length;
-        for (int i = iterations - 1; i >= 0; i--) {
-            // read next set of positions and normals from native buffer
-            bufLength = Math.min(posBuf.length, fvb.remaining());
-            fvb.get(posBuf, 0, bufLength);
-            fnb.get(normBuf, 0, bufLength);
-            int verts = bufLength / 3;
-            int idxPositions = 0;
-
-            // iterate vertices and apply skinning transform for each effecting bone
-            for (int vert = verts - 1; vert >= 0; vert--) {
-                // Skip this vertex if the first weight is zero.
-                if (weights[idxWeights] == 0) {
-                    idxPositions += 3;
-                    idxWeights += 4;
-                    continue;
-                }
-                
-                float nmx = normBuf[idxPositions];
-                float vtx = posBuf[idxPositions++];
-                float nmy = normBuf[idxPositions];
-                float vty = posBuf[idxPositions++];
-                float nmz = normBuf[idxPositions];
-                float vtz = posBuf[idxPositions++];
-
-                float rx = 0, ry = 0, rz = 0, rnx = 0, rny = 0, rnz = 0;
-
-                for (int w = maxWeightsPerVert - 1; w >= 0; w--) {
-                    float weight = weights[idxWeights];
-                    Matrix4f mat = offsetMatrices[indices[idxWeights++]];
-
-                    rx += (mat.m00 * vtx + mat.m01 * vty + mat.m02 * vtz + mat.m03) * weight;
-                    ry += (mat.m10 * vtx + mat.m11 * vty + mat.m12 * vtz + mat.m13) * weight;
-                    rz += (mat.m20 * vtx + mat.m21 * vty + mat.m22 * vtz + mat.m23) * weight;
-
-                    rnx += (nmx * mat.m00 + nmy * mat.m01 + nmz * mat.m02) * weight;
-                    rny += (nmx * mat.m10 + nmy * mat.m11 + nmz * mat.m12) * weight;
-                    rnz += (nmx * mat.m20 + nmy * mat.m21 + nmz * mat.m22) * weight;
-                }
+            for (int w = 0; w < maxWeightsPerVert; w++) {
+                float weight = weights[idxWeights + w];
+                Matrix4f mat = offsetMatrices[indices[idxWeights + w]];
 
-                idxWeights += fourMinusMaxWeights;
+                rx += (mat.m00 * vtx + mat.m01 * vty + mat.m02 * vtz + mat.m03) * weight;
+                ry += (mat.m10 * vtx + mat.m11 * vty + mat.m12 * vtz + mat.m13) * weight;
+                rz += (mat.m20 * vtx + mat.m21 * vty + mat.m22 * vtz + mat.m23) * weight;
 
-                idxPositions -= 3;
-                normBuf[idxPositions] = rnx;
-                posBuf[idxPositions++] = rx;
-                normBuf[idxPositions] = rny;
-                posBuf[idxPositions++] = ry;
-                normBuf[idxPositions] = rnz;
-                posBuf[idxPositions++] = rz;
+                rnx += (nmx * mat.m00 + nmy * mat.m01 + nmz * mat.m02) * weight;
+                rny += (nmx * mat.m10 + nmy * mat.m11 + nmz * mat.m12) * weight;
+                rnz += (nmx * mat.m20 + nmy * mat.m21 + nmz * mat.m22) * weight;
             }
 
-            fvb.position(fvb.position() - bufLength);
-            fvb.put(posBuf, 0, bufLength);
-            fnb.position(fnb.position() - bufLength);
-            fnb.put(normBuf, 0, bufLength);
+            pos.put(idxPositions, rx).put(idxPositions + 1, ry).put(idxPositions + 2, rz);
+            norm.put(idxPositions, rnx).put(idxPositions + 1, rny).put(idxPositions + 2, rnz);
         }
-
-        vars.release();
-
-        vb.updateData(fvb);
-        nb.updateData(fnb);
-
     }
 
     /**
      * Specific method for skinning with tangents to avoid cluttering the classic skinning calculation with
      * null checks that would slow down the process even if tangents don't have to be computed.
      * Also the iteration has additional indexes since tangent has 4 components instead of 3 for pos and norm
-     * @param maxWeightsPerVert maximum number of weights per vertex
-     * @param mesh the mesh
-     * @param offsetMatrices the offsetMaytrices to apply
-     * @param tb the tangent vertexBuffer
+     * @param start the first vertex to skin
+     * @param end the vertex after the last one to skin
      */
-    private void applySkinningTangents(Mesh mesh, Matrix4f[] offsetMatrices, VertexBuffer tb) {
-        int maxWeightsPerVert = mesh.getMaxNumWeights();
-
-        if (maxWeightsPerVert <= 0) {
-            throw new IllegalStateException("Max weights per vert is incorrectly set!");
-        }
-
-        int fourMinusMaxWeights = 4 - maxWeightsPerVert;
-
-        // NOTE: This code assumes the vertex buffer is in bind pose
-        // resetToBind() has been called this frame
-        VertexBuffer vb = mesh.getBuffer(Type.Position);
-        FloatBuffer fvb = (FloatBuffer) vb.getData();
-        fvb.rewind();
-
-        VertexBuffer nb = mesh.getBuffer(Type.Normal);
-
-        FloatBuffer fnb = (FloatBuffer) nb.getData();
-        fnb.rewind();
-
-
-        FloatBuffer ftb = (FloatBuffer) tb.getData();
-        ftb.rewind();
-
-
-        // get boneIndexes and weights for mesh
-        ByteBuffer ib = (ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData();
-        FloatBuffer wb = (FloatBuffer) mesh.getBuffer(Type.BoneWeight).getData();
-
-        ib.rewind();
-        wb.rewind();
-
-        float[] weights = wb.array();
-        byte[] indices = ib.array();
-        int idxWeights = 0;
-
-        TempVars vars = TempVars.get();
-
-
-        float[] posBuf = vars.skinPositions;
-        float[] normBuf = vars.skinNormals;
-        float[] tanBuf = vars.skinTangents;
-
-        int iterations = (int) FastMath.ceil(fvb.limit() / ((float) posBuf.length));
-        int bufLength = 0;
-        int tanLength = 0;
-        for (int i = iterations - 1; i >= 0; i--) {
-            // read next set of positions and normals from native buffer
-            bufLength = Math.min(posBuf.length, fvb.remaining());
-            tanLength = Math.min(tanBuf.length, ftb.remaining());
-            fvb.get(posBuf, 0, bufLength);
-            fnb.get(normBuf, 0, bufLength);
-            ftb.get(tanBuf, 0, tanLength);
-            int verts = bufLength / 3;
-            int idxPositions = 0;
-            //tangents has their own index because of the 4 components
-            int idxTangents = 0;
-
-            // iterate vertices and apply skinning transform for each effecting bone
-            for (int vert = verts - 1; vert >= 0; vert--) {
-                // Skip this vertex if the first weight is zero.
-                if (weights[idxWeights] == 0) {
-                    idxTangents += 4;
-                    idxPositions += 3;
-                    idxWeights += 4;
-                    continue;
-                }
-                
-                float nmx = normBuf[idxPositions];
-                float vtx = posBuf[idxPositions++];
-                float nmy = normBuf[idxPositions];
-                float vty = posBuf[idxPositions++];
-                float nmz = normBuf[idxPositions];
-                float vtz = posBuf[idxPositions++];
-
-                float tnx = tanBuf[idxTangents++];
-                float tny = tanBuf[idxTangents++];
-                float tnz = tanBuf[idxTangents++];
-
-                // skipping the 4th component of the tangent since it doesn't have to be transformed
-                idxTangents++;
-
-                float rx = 0, ry = 0, rz = 0, rnx = 0, rny = 0, rnz = 0, rtx = 0, rty = 0, rtz = 0;
-
-                for (int w = maxWeightsPerVert - 1; w >= 0; w--) {
-                    float weight = weights[idxWeights];
-                    Matrix4f mat = offsetMatrices[indices[idxWeights++]];
-
-                    rx += (mat.m00 * vtx + mat.m01 * vty + mat.m02 * vtz + mat.m03) * weight;
-                    ry += (mat.m10 * vtx + mat.m11 * vty + mat.m12 * vtz + mat.m13) * weight;
-                    rz += (mat.m20 * vtx + mat.m21 * vty + mat.m22 * vtz + mat.m23) * weight;
-
-                    rnx += (nmx * mat.m00 + nmy * mat.m01 + nmz * mat.m02) * weight;
-                    rny += (nmx * mat.m10 + nmy * mat.m11 + nmz * mat.m12) * weight;
-                    rnz += (nmx * mat.m20 + nmy * mat.m21 + nmz * mat.m22) * weight;
-
-                    rtx += (tnx * mat.m00 + tny * mat.m01 + tnz * mat.m02) * weight;
-                    rty += (tnx * mat.m10 + tny * mat.m11 + tnz * mat.m12) * weight;
-                    rtz += (tnx * mat.m20 + tny * mat.m21 + tnz * mat.m22) * weight;
-                }
-
-                idxWeights += fourMinusMaxWeights;
+    private static void applySkinningTangents(FloatBuffer bindPos, FloatBuffer bindNorm, FloatBuffer bindTan,
+            FloatBuffer pos, FloatBuffer norm, FloatBuffer tan, float[] weights, byte[] indices,
+            int maxWeightsPerVert, Matrix4f[] offsetMatrices, int start, int end) {
+        int idxPositions = start * 3;
+        //tangents has their own index because of the 4 components
+        int idxTangents = start * 4;
+        int idxWeights = start * 4;
+
+        // iterate vertices and apply skinning transform for each effecting bone
+        for (int vert = start; vert < end; vert++, idxPositions += 3, idxTangents += 4, idxWeights += 4) {
+            float vtx = bindPos.get(idxPositions);
+            float vty = bindPos.get(idxPositions + 1);
+            float vtz = bindPos.get(idxPositions + 2);
+            float nmx = bindNorm.get(idxPositions);
+            float nmy = bindNorm.get(idxPositions + 1);
+            float nmz = bindNorm.get(idxPositions + 2);
+            float tnx = bindTan.get(idxTangents);
+            float tny = bindTan.get(idxTangents + 1);
+            float tnz = bindTan.get(idxTangents + 2);
+            // the 4th component of the tangent doesn't have to be transformed
+            float tnw = bindTan.get(idxTangents + 3);
+
+            // Keep the bind pose if the first weight is zero.
+            if (weights[idxWeights] == 0) {
+                pos.put(idxPositions, vtx).put(idxPositions + 1, vty).put(idxPositions + 2, vtz);
+                norm.put(idxPositions, nmx).put(idxPositions + 1, nmy).put(idxPositions + 2, nmz);
+                tan.put(idxTangents, tnx).put(idxTangents + 1, tny).put(idxTangents + 2, tnz).put(idxTangents + 3, tnw);
+                continue;
+            }
 
-                idxPositions -= 3;
+            float rx = 0, ry = 0, rz = 0, rnx = 0, rny = 0, rnz = 0, rtx = 0, rty = 0, rtz = 0;
 
-                normBuf[idxPositions] = rnx;
-                posBuf[idxPositions++] = rx;
-                normBuf[idxPositions] = rny;
-                posBuf[idxPositions++] = ry;
-                normBuf[idxPositions] = rnz;
-                posBuf[idxPositions++] = rz;
+            for (int w = 0; w < maxWeightsPerVert; w++) {
+                float weight = weights[idxWeights + w];
+                Matrix4f mat = offsetMatrices[indices[idxWeights + w]];
 
-                idxTangents -= 4;
+                rx += (mat.m00 * vtx + mat.m01 * vty + mat.m02 * vtz + mat.m03) * weight;
+                ry += (mat.m10 * vtx + mat.m11 * vty + mat.m12 * vtz + mat.m13) * weight;
+                rz += (mat.m20 * vtx + mat.m21 * vty + mat.m22 * vtz + mat.m23) * weight;
 
-                tanBuf[idxTangents++] = rtx;
-                tanBuf[idxTangents++] = rty;
-                tanBuf[idxTangents++] = rtz;
+                rnx += (nmx * mat.m00 + nmy * mat.m01 + nmz * mat.m02) * weight;
+                rny += (nmx * mat.m10 + nmy * mat.m11 + nmz * mat.m12) * weight;
+                rnz += (nmx * mat.m20 + nmy * mat.m21 + nmz * mat.m22) * weight;
 
-                //once again skipping the 4th component of the tangent
-                idxTangents++;
+                rtx += (tnx * mat.m00 + tny * mat.m01 + tnz * mat.m02) * weight;
+                rty += (tnx * mat.m10 + tny * mat.m11 + tnz * mat.m12) * weight;
+                rtz += (tnx * mat.m20 + tny * mat.m21 + tnz * mat.m22) * weight;
             }
 
-            fvb.position(fvb.position() - bufLength);
-            fvb.put(posBuf, 0, bufLength);
-            fnb.position(fnb.position() - bufLength);
-            fnb.put(normBuf, 0, bufLength);
-            ftb.position(ftb.position() - tanLength);
-            ftb.put(tanBuf, 0, tanLength);
+            pos.put(idxPositions, rx).put(idxPositions + 1, ry).put(idxPositions + 2, rz);
+            norm.put(idxPositions, rnx).put(idxPositions + 1, rny).put(idxPositions + 2, rnz);
+            tan.put(idxTangents, rtx).put(idxTangents + 1, rty).put(idxTangents + 2, rtz).put(idxTangents + 3, tnw);
         }
-
-        vars.release();
-
-        vb.updateData(fvb);
-        nb.updateData(fnb);
-        tb.updateData(ftb);
-
-
     }
 
     @Override
@@ -574,6 +705,7 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         OutputCapsule oc = ex.getCapsule(this);
         oc.write(targets, "targets", null);
         oc.write(skeleton, "skeleton", null);
+        oc.write(hwSkinningPreferred, "hwSkinningPreferred", false);
     }
 
     @Override
@@ -586,5 +718,6 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
             System.arraycopy(sav, 0, targets, 0, sav.length);
         }
         skeleton = (Skeleton) in.readSavable("skeleton", null);
+        hwSkinningPreferred = in.readBoolean("hwSkinningPreferred", false);
     }
 }
@@ -97,6 +97,18 @@ public class SpatialTrack implements Track {
      *            the current time of the animation
      */
     public void setTime(float time, float weight, AnimControl control, AnimChannel channel, TempVars vars) {
+        setTime(time, weight, control, channel, vars, null, 0);
+    }
+
+    /**
+     * Same as {@link #setTime(float, float, com.jme3.animation.AnimControl, com.jme3.animation.AnimChannel, com.jme3.util.TempVars) },
+     * starting the keyframe search from the cursor of this track in the
+     * channel, see {@link AnimChannel#getKeyFrameCursors(com.jme3.animation.Animation, int) }.
+     *
+     * @param cursors the keyframe cursors of the channel or null
+     * @param cursorIndex the index of the cursor of this track
+     */
+    void setTime(float time, float weight, AnimControl control, AnimChannel channel, TempVars vars, int[] cursors, int cursorIndex) {
         Spatial spatial = control.getSpatial();
         
         Vector3f tempV = vars.vect1;
@@ -124,33 +136,26 @@ public class SpatialTrack implements Track {
                 scales.get(lastFrame, tempS);
             }
         } else {
-            int startFrame = 0;
-            int endFrame = 1;
-            // use lastFrame so we never overflow the array
-            for (int i = 0; i < lastFrame && times[i] < time; ++i) {
-                startFrame = i;
-                endFrame = i + 1;
+            int startFrame = KeyFrames.findStartFrame(times, time, cursors != null ? cursors[cursorIndex] : -1);
+            int endFrame = startFrame + 1;
+            if (cursors != null) {
+                cursors[cursorIndex] = startFrame;
             }
 
             float blend = (time - times[startFrame]) / (times[endFrame] - times[startFrame]);
 
-            if (rotations != null)
-                rotations.get(startFrame, tempQ);
-            if (translations != null)
-                translations.get(startFrame, tempV);
-            if (scales != null) {
-                scales.get(startFrame, tempS);
+            if (rotations != null) {
+                rotations.getPair(startFrame, tempQ, tempQ2);
+                tempQ.nlerp(tempQ2, blend);
+            }
+            if (translations != null) {
+                translations.getPair(startFrame, tempV, tempV2);
+                tempV.interpolate(tempV2, blend);
             }
-            if (rotations != null)
-                rotations.get(endFrame, tempQ2);
-            if (translations != null)
-                translations.get(endFrame, tempV2);
             if (scales != null) {
-                scales.get(endFrame, tempS2);
+                scales.getPair(startFrame, tempS, tempS2);
+                tempS.interpolate(tempS2, blend);
             }
-            tempQ.nlerp(tempQ2, blend);
-            tempV.interpolate(tempV2, blend);
-            tempS.interpolate(tempS2, blend);
         }
         
         if (translations != null)
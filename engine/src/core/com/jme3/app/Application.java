@@ -38,6 +38,8 @@ import com.jme3.audio.AudioRenderer;
 import com.jme3.audio.Listener;
 import com.jme3.input.*;
 import com.jme3.math.Vector3f;
+import com.jme3.profile.AppProfiler;
+import com.jme3.profile.ProfilePhase;
 import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.Renderer;
@@ -90,6 +92,7 @@ public class Application implements SystemListener {
     protected TouchInput touchInput;
     protected InputManager inputManager;
     protected AppStateManager stateManager;
+    protected AppProfiler prof;
 
     private final ConcurrentLinkedQueue<AppTask<?>> taskQueue = new ConcurrentLinkedQueue<AppTask<?>>();
 
@@ -250,6 +253,7 @@ public class Application implements SystemListener {
         renderManager = new RenderManager(renderer);
         //Remy - 09/14/2010 setted the timer in the renderManager
         renderManager.setTimer(timer);
+        renderManager.setAppProfiler(prof);
         viewPort = renderManager.createMainView("Default", cam);
         viewPort.setClearFlags(true, true, true);
 
@@ -322,6 +326,29 @@ public class Application implements SystemListener {
         return renderManager;
     }
 
+    /**
+     * Sets the profiler timing the phases of each frame, or null to
+     * disable profiling.
+     * <p>
+     * Applications not extending {@link SimpleApplication} must call
+     * {@link AppProfiler#endFrame() } at the end of their update.
+     *
+     * @param prof The profiler, e.g. a {@link com.jme3.profile.BasicProfiler}
+     */
+    public void setAppProfiler(AppProfiler prof) {
+        this.prof = prof;
+        if (renderManager != null) {
+            renderManager.setAppProfiler(prof);
+        }
+    }
+
+    /**
+     * @return The profiler timing the phases of each frame, or null.
+     */
+    public AppProfiler getAppProfiler() {
+        return prof;
+    }
+
     /**
      * @return The {@link Renderer renderer} for the application
      */
@@ -593,7 +620,14 @@ public class Application implements SystemListener {
         // Make sure the audio renderer is available to callables
         AudioContext.setAudioRenderer(audioRenderer);
 
+        if (prof != null) {
+            prof.beginFrame();
+            prof.begin(ProfilePhase.QueuedTasks, null);
+        }
         runQueuedTasks();
+        if (prof != null) {
+            prof.end(ProfilePhase.QueuedTasks, null);
+        }
 
         if (speed == 0 || paused)
             return;
@@ -38,6 +38,7 @@ import com.jme3.input.FlyByCamera;
 import com.jme3.input.KeyInput;
 import com.jme3.input.controls.ActionListener;
 import com.jme3.input.controls.KeyTrigger;
+import com.jme3.profile.ProfilePhase;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.queue.RenderQueue.Bucket;
 import com.jme3.scene.Node;
@@ -230,28 +231,49 @@ public abstract class SimpleApplication extends Application {
     public void update() {
         super.update(); // makes sure to execute AppTasks
         if (speed == 0 || paused) {
+            if (prof != null) {
+                prof.endFrame();
+            }
             return;
         }
 
         float tpf = timer.getTimePerFrame() * speed;
 
         // update states
+        if (prof != null) prof.begin(ProfilePhase.StateUpdate, null);
         stateManager.update(tpf);
+        if (prof != null) prof.end(ProfilePhase.StateUpdate, null);
 
         // simple update and root node
         simpleUpdate(tpf);
  
+        if (prof != null) prof.begin(ProfilePhase.LogicalUpdate, rootNode);
         rootNode.updateLogicalState(tpf);
+        if (prof != null) prof.end(ProfilePhase.LogicalUpdate, rootNode);
+        if (prof != null) prof.begin(ProfilePhase.LogicalUpdate, guiNode);
         guiNode.updateLogicalState(tpf);
+        if (prof != null) prof.end(ProfilePhase.LogicalUpdate, guiNode);
         
+        if (prof != null) prof.begin(ProfilePhase.GeometricUpdate, rootNode);
         rootNode.updateGeometricState();
+        if (prof != null) prof.end(ProfilePhase.GeometricUpdate, rootNode);
+        if (prof != null) prof.begin(ProfilePhase.GeometricUpdate, guiNode);
         guiNode.updateGeometricState();
+        if (prof != null) prof.end(ProfilePhase.GeometricUpdate, guiNode);
 
         // render states
+        if (prof != null) prof.begin(ProfilePhase.StateRender, null);
         stateManager.render(renderManager);
+        if (prof != null) prof.end(ProfilePhase.StateRender, null);
+        if (prof != null) prof.begin(ProfilePhase.Render, null);
         renderManager.render(tpf, context.isRenderable());
+        if (prof != null) prof.end(ProfilePhase.Render, null);
         simpleRender(renderManager);
+        if (prof != null) prof.begin(ProfilePhase.StatePostRender, null);
         stateManager.postRender();        
+        if (prof != null) prof.end(ProfilePhase.StatePostRender, null);
+
+        if (prof != null) prof.endFrame();
     }
 
     public void setDisplayFps(boolean show) {
@@ -38,6 +38,7 @@ import com.jme3.font.BitmapText;
 import com.jme3.material.Material;
 import com.jme3.material.RenderState.BlendMode;
 import com.jme3.math.ColorRGBA;
+import com.jme3.profile.BasicProfiler;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial.CullHint;
@@ -189,6 +190,9 @@ public class StatsAppState extends AbstractAppState {
                                   app.getRenderer().getStatistics());
         // move it up so it appears above fps text
         statsView.setLocalTranslation(0, fpsText.getLineHeight(), 0);
+        if (app.getAppProfiler() instanceof BasicProfiler) {
+            statsView.setProfiler((BasicProfiler) app.getAppProfiler());
+        }
         statsView.setEnabled(showStats);
         statsView.setCullHint(showStats ? CullHint.Never : CullHint.Always);        
         guiNode.attachChild(statsView);
@@ -34,6 +34,8 @@ package com.jme3.app;
 import com.jme3.asset.AssetManager;
 import com.jme3.font.BitmapFont;
 import com.jme3.font.BitmapText;
+import com.jme3.profile.BasicProfiler;
+import com.jme3.profile.PhaseTiming;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.Statistics;
 import com.jme3.renderer.ViewPort;
@@ -57,6 +59,10 @@ import com.jme3.scene.control.Control;
  * StatsView statsView = new StatsView("MyStats", assetManager, stats);<br/>
  * rootNode.attachChild(statsView);<br/>
  * </code>
+ * <br/>
+ * If a {@link BasicProfiler} is set with {@link #setProfiler(com.jme3.profile.BasicProfiler) },
+ * the average and 95th percentile time of each profiled phase are displayed
+ * above the statistics.
  */
 public class StatsView extends Node implements Control {
 
@@ -70,6 +76,10 @@ public class StatsView extends Node implements Control {
     
     private final StringBuilder stringBuilder = new StringBuilder();
 
+    private BitmapFont font;
+    private BasicProfiler profiler;
+    private BitmapText profilerText;
+
     public StatsView(String name, AssetManager manager, Statistics stats){
         super(name);
 
@@ -82,7 +92,7 @@ public class StatsView extends Node implements Control {
         statData = new int[statLabels.length];
         labels = new BitmapText[statLabels.length];
 
-        BitmapFont font = manager.loadFont("Interface/Fonts/Console.fnt");
+        font = manager.loadFont("Interface/Fonts/Console.fnt");
         for (int i = 0; i < labels.length; i++){
             labels[i] = new BitmapText(font);
             labels[i].setLocalTranslation(0, labels[i].getLineHeight() * (i+1), 0);
@@ -95,6 +105,29 @@ public class StatsView extends Node implements Control {
     public float getHeight() {
         return labels[0].getLineHeight() * statLabels.length;
     }
+
+    /**
+     * Displays the timings of the given profiler, or stops displaying
+     * them if null.
+     * 
+     * @param profiler The profiler set on the application
+     */
+    public void setProfiler(BasicProfiler profiler) {
+        this.profiler = profiler;
+        if (profiler == null) {
+            if (profilerText != null) {
+                profilerText.removeFromParent();
+                profilerText = null;
+            }
+        } else if (profilerText == null) {
+            profilerText = new BitmapText(font);
+            attachChild(profilerText);
+        }
+    }
+
+    public BasicProfiler getProfiler() {
+        return profiler;
+    }
     
     public void update(float tpf) {
     
@@ -107,6 +140,10 @@ public class StatsView extends Node implements Control {
             stringBuilder.append(statLabels[i]).append(" = ").append(statData[i]);
             labels[i].setText(stringBuilder);
         }
+
+        if (profiler != null) {
+            updateProfilerText();
+        }
         
         // Moved to ResetStatsState to make sure it is
         // done even if there is no StatsView or the StatsView
@@ -114,6 +151,29 @@ public class StatsView extends Node implements Control {
         //statistics.clearFrame();
     }
 
+    private void updateProfilerText() {
+        stringBuilder.setLength(0);
+        stringBuilder.append("Phase = avg / 95% (ms)");
+        for (PhaseTiming timing : profiler.getTimings()) {
+            stringBuilder.append('\n').append(timing.getName()).append(" = ");
+            appendMillis(timing.getAverageNanos());
+            stringBuilder.append(" / ");
+            appendMillis(timing.getPercentileNanos(95));
+        }
+        profilerText.setText(stringBuilder);
+        // the text grows downward, keep it above the statistics
+        profilerText.setLocalTranslation(0, getHeight() + profilerText.getHeight(), 0);
+    }
+
+    private void appendMillis(long nanos) {
+        long hundredths = nanos / 10000;
+        stringBuilder.append(hundredths / 100).append('.');
+        if (hundredths % 100 < 10) {
+            stringBuilder.append('0');
+        }
+        stringBuilder.append(hundredths % 100);
+    }
+
     public Control cloneForSpatial(Spatial spatial) {
         return (Control) spatial;
     }
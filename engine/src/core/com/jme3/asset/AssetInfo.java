@@ -32,6 +32,7 @@
 package com.jme3.asset;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * The result of locating an asset through an AssetKey. Provides
@@ -73,4 +74,22 @@ public abstract class AssetInfo {
      */
     public abstract InputStream openStream();
 
+    /**
+     * Returns the asset data mapped into memory, if the asset is stored
+     * in a way that allows it, e.g. as a file on disk or as an uncompressed
+     * entry of a zip file. Loaders that can read directly from memory 
+     * may use this instead of {@link #openStream() } to avoid copying the data.
+     * <p>
+     * Each invocation returns a new mapping, spanning from the buffer's
+     * position to its limit. The buffer may be read-only, loaders must
+     * copy the data they need to modify.
+     * <p>
+     * The default implementation returns null.
+     * 
+     * @return The asset data, or null if it cannot be mapped.
+     */
+    public ByteBuffer openMappedBuffer() {
+        return null;
+    }
+
 }
@@ -44,7 +44,9 @@ import com.jme3.shader.Shader;
 import com.jme3.shader.ShaderKey;
 import com.jme3.texture.Texture;
 import com.jme3.texture.plugins.TGALoader;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * <code>AssetManager</code> provides an interface for managing the data assets
@@ -259,6 +261,45 @@ public interface AssetManager {
      */
     public Object loadAsset(String name);
 
+    /**
+     * Loads an asset on one of the asset manager's loading threads.
+     * <p>
+     * The asset is loaded as if by {@link #loadAsset(com.jme3.asset.AssetKey) }.
+     * Concurrent requests for the same key, whether asynchronous or not,
+     * only load the asset once.
+     * 
+     * @param <T> The object type that will be loaded from the AssetKey instance.
+     * @param key The AssetKey
+     * @return The future result of the load
+     * 
+     * @see #loadAssetAsync(com.jme3.asset.AssetKey, int) 
+     */
+    public <T> Future<T> loadAssetAsync(AssetKey<T> key);
+
+    /**
+     * Loads an asset on one of the asset manager's loading threads, queued
+     * with the given priority. Assets with higher priorities are loaded first,
+     * assets with equal priorities in the order they were requested.
+     * 
+     * @param <T> The object type that will be loaded from the AssetKey instance.
+     * @param key The AssetKey
+     * @param priority The priority of the load, the default is 0
+     * @return The future result of the load
+     */
+    public <T> Future<T> loadAssetAsync(AssetKey<T> key, int priority);
+
+    /**
+     * Queues a batch of assets for loading on the asset manager's
+     * loading threads, e.g. to prefetch the assets of a level.
+     * 
+     * @param keys The keys of the assets to load
+     * @param priority The priority of the loads, the default is 0
+     * @return The future results of the loads, in the order of the keys
+     * 
+     * @see #loadAssetAsync(com.jme3.asset.AssetKey, int) 
+     */
+    public List<Future<Object>> loadAssetsAsync(Collection<? extends AssetKey<?>> keys, int priority);
+
     /**
      * Loads texture file, supported types are BMP, JPG, PNG, GIF,
      * TGA and DDS.
@@ -47,9 +47,16 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -71,6 +78,34 @@ public class DesktopAssetManager implements AssetManager {
     private List<ClassLoader> classLoaders =
             Collections.synchronizedList(new ArrayList<ClassLoader>());
 
+    private final ThreadingManager threadingManager = new ThreadingManager(this);
+
+    /**
+     * Loads in progress, so that concurrent requests for the same
+     * key wait for the first one instead of loading the asset again.
+     */
+    private final ConcurrentHashMap<AssetKey<?>, LoadTask> loadsInProgress =
+            new ConcurrentHashMap<AssetKey<?>, LoadTask>();
+
+    /**
+     * The key each thread is waiting for, guarded by itself. Together
+     * with the owner of each load it tells if waiting would deadlock.
+     */
+    private final HashMap<Thread, AssetKey<?>> waitingLoads =
+            new HashMap<Thread, AssetKey<?>>();
+
+    /**
+     * A load in progress and the thread running it.
+     */
+    private static final class LoadTask extends FutureTask<Object> {
+
+        private final Thread owner = Thread.currentThread();
+
+        LoadTask(Callable<Object> callable) {
+            super(callable);
+        }
+    }
+
     public DesktopAssetManager(){
         this(null);
     }
@@ -241,6 +276,19 @@ public class DesktopAssetManager implements AssetManager {
         }
     }
 
+    /**
+     * Returns the cache instance used for assets whose key specifies
+     * the given cache type, creating it if needed. This allows configuring
+     * a cache, for example the budget of a
+     * {@link com.jme3.asset.cache.BoundedAssetCache}, before assets are loaded.
+     *
+     * @param cacheType The cache class, as returned by {@link AssetKey#getCacheType() }
+     * @return The cache instance for that class
+     */
+    public <T extends AssetCache> T getCache(Class<T> cacheType) {
+        return handler.getCache(cacheType);
+    }
+
     /**
      * <font color="red">Thread-safe.</font>
      *
@@ -261,52 +309,7 @@ public class DesktopAssetManager implements AssetManager {
         
         Object obj = cache != null ? cache.getFromCache(key) : null;
         if (obj == null){
-            // Asset not in cache, load it from file system.
-            AssetLoader loader = handler.aquireLoader(key);
-            AssetInfo info = handler.tryLocate(key);
-            if (info == null){
-                if (handler.getParentKey() != null){
-                    // Inform event listener that an asset has failed to load.
-                    // If the parent AssetLoader chooses not to propagate
-                    // the exception, this is the only means of finding
-                    // that something went wrong.
-                    for (AssetEventListener listener : eventListeners){
-                        listener.assetDependencyNotFound(handler.getParentKey(), key);
-                    }
-                }
-                throw new AssetNotFoundException(key.toString());
-            }
-
-            try {
-                handler.establishParentKey(key);
-                obj = loader.load(info);
-            } catch (IOException ex) {
-                throw new AssetLoadException("An exception has occured while loading asset: " + key, ex);
-            } finally {
-                handler.releaseParentKey(key);
-            }
-            if (obj == null){
-                throw new AssetLoadException("Error occured while loading asset \"" + key + "\" using " + loader.getClass().getSimpleName());
-            }else{
-                if (logger.isLoggable(Level.FINER)){
-                    logger.log(Level.FINER, "Loaded {0} with {1}",
-                            new Object[]{key, loader.getClass().getSimpleName()});
-                }
-                
-                if (proc != null){
-                    // do processing on asset before caching
-                    obj = proc.postProcess(key, obj);
-                }
-                
-                if (cache != null){
-                    // At this point, obj should be of type T
-                    cache.addToCache(key, (T) obj);
-                }
-                
-                for (AssetEventListener listener : eventListeners){
-                    listener.assetLoaded(key);
-                }
-            }
+            obj = loadOriginal(key, cache, proc);
         }
 
         // object obj is the original asset
@@ -332,6 +335,184 @@ public class DesktopAssetManager implements AssetManager {
         return clone;
     }
 
+    /**
+     * Loads the original asset of a key that is not in the cache.
+     * <p>
+     * Only one thread loads a given key at a time, the other threads
+     * requesting it wait for that load and share its result. A thread
+     * whose own load the running one depends on loads the asset itself
+     * instead of waiting, otherwise neither of them would finish.
+     */
+    private Object loadOriginal(final AssetKey<?> key, final AssetCache cache, final AssetProcessor proc) {
+        LoadTask task = new LoadTask(new Callable<Object>() {
+            public Object call() {
+                return loadFromLocator(key, cache, proc);
+            }
+        });
+        LoadTask inProgress = loadsInProgress.putIfAbsent(key, task);
+        if (inProgress == null) {
+            try {
+                task.run();
+            } finally {
+                loadsInProgress.remove(key, task);
+            }
+            return getLoadResult(task);
+        }
+
+        Thread current = Thread.currentThread();
+        synchronized (waitingLoads) {
+            if (waitsFor(inProgress, current)) {
+                // the load depends on this thread's own loads
+                inProgress = null;
+            } else {
+                waitingLoads.put(current, key);
+            }
+        }
+        if (inProgress == null) {
+            return loadFromLocator(key, cache, proc);
+        }
+
+        Object obj;
+        try {
+            obj = getLoadResult(inProgress);
+        } finally {
+            synchronized (waitingLoads) {
+                waitingLoads.remove(current);
+            }
+        }
+        if (cache != null && cache.getFromCache(key) == null) {
+            // the cache did not keep the asset, add it back
+            // so that it can track the clone made for this caller
+            addToCache(cache, key, obj);
+        }
+        return obj;
+    }
+
+    /**
+     * Tells if the given load, or a load it is waiting for,
+     * runs on the given thread. Must hold the lock on waitingLoads.
+     */
+    private boolean waitsFor(LoadTask load, Thread thread) {
+        // each thread waits for one key, so the chain is at
+        // most as long as the number of waiting threads
+        for (int i = 0; load != null && i <= waitingLoads.size(); i++) {
+            if (load.owner == thread) {
+                return true;
+            }
+            AssetKey<?> waitedKey = waitingLoads.get(load.owner);
+            if (waitedKey == null) {
+                return false;
+            }
+            load = loadsInProgress.get(waitedKey);
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void addToCache(AssetCache cache, AssetKey<T> key, Object obj) {
+        // the asset was loaded for this key, so it is a T
+        cache.addToCache(key, (T) obj);
+    }
+
+    private Object getLoadResult(Future<Object> load) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return load.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AssetLoadException("An exception has occured while loading asset", cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private <T> Object loadFromLocator(AssetKey<T> key, AssetCache cache, AssetProcessor proc) {
+        // Asset not in cache, load it from file system.
+        AssetLoader loader = handler.aquireLoader(key);
+        AssetInfo info = handler.tryLocate(key);
+        if (info == null){
+            if (handler.getParentKey() != null){
+                // Inform event listener that an asset has failed to load.
+                // If the parent AssetLoader chooses not to propagate
+                // the exception, this is the only means of finding
+                // that something went wrong.
+                for (AssetEventListener listener : eventListeners){
+                    listener.assetDependencyNotFound(handler.getParentKey(), key);
+                }
+            }
+            throw new AssetNotFoundException(key.toString());
+        }
+
+        Object obj;
+        try {
+            handler.establishParentKey(key);
+            obj = loader.load(info);
+        } catch (IOException ex) {
+            throw new AssetLoadException("An exception has occured while loading asset: " + key, ex);
+        } finally {
+            handler.releaseParentKey(key);
+        }
+        if (obj == null){
+            throw new AssetLoadException("Error occured while loading asset \"" + key + "\" using " + loader.getClass().getSimpleName());
+        }else{
+            if (logger.isLoggable(Level.FINER)){
+                logger.log(Level.FINER, "Loaded {0} with {1}",
+                        new Object[]{key, loader.getClass().getSimpleName()});
+            }
+
+            if (proc != null){
+                // do processing on asset before caching
+                obj = proc.postProcess(key, obj);
+            }
+
+            if (cache != null){
+                // At this point, obj should be of type T
+                cache.addToCache(key, (T) obj);
+            }
+
+            for (AssetEventListener listener : eventListeners){
+                listener.assetLoaded(key);
+            }
+        }
+        return obj;
+    }
+
+    public <T> Future<T> loadAssetAsync(AssetKey<T> key) {
+        return loadAssetAsync(key, ThreadingManager.DEFAULT_PRIORITY);
+    }
+
+    public <T> Future<T> loadAssetAsync(AssetKey<T> key, int priority) {
+        if (key == null)
+            throw new IllegalArgumentException("key cannot be null");
+
+        return threadingManager.loadAsset(key, priority);
+    }
+
+    public List<Future<Object>> loadAssetsAsync(Collection<? extends AssetKey<?>> keys, int priority) {
+        List<Future<Object>> futures = new ArrayList<Future<Object>>(keys.size());
+        for (final AssetKey<?> key : keys) {
+            futures.add(threadingManager.submit(new Callable<Object>() {
+                public Object call() {
+                    return loadAsset(key);
+                }
+            }, priority));
+        }
+        return futures;
+    }
+
     public Object loadAsset(String name){
         return loadAsset(new AssetKey(name));
     }
@@ -32,21 +32,34 @@
 package com.jme3.asset;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <code>ThreadingManager</code> manages the threads used to load content
  * within the Content Manager system. A pool of threads and a task queue
  * is used to load resource data and perform I/O while the application's
  * render thread is active. 
+ * <p>
+ * Tasks are queued by priority, tasks with a higher priority are started
+ * first, tasks with equal priorities in the order they were submitted.
  */
 public class ThreadingManager {
 
+    /**
+     * The priority used when none is specified.
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
     protected final ExecutorService executor =
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), 
-                                         new LoadingThreadFactory());
+            new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
+                                   Runtime.getRuntime().availableProcessors(),
+                                   0L, TimeUnit.MILLISECONDS,
+                                   new PriorityBlockingQueue<Runnable>(),
+                                   new LoadingThreadFactory());
 
     protected final AssetManager owner;
     protected int nextThreadId = 0;
+    private final AtomicLong nextSequence = new AtomicLong();
 
     public ThreadingManager(AssetManager owner){
         this.owner = owner;
@@ -74,8 +87,57 @@ public class ThreadingManager {
         }
     }
 
+    /**
+     * A task in the priority queue of the executor.
+     */
+    protected static class PrioritizedTask<T> extends FutureTask<T> 
+            implements Comparable<PrioritizedTask<?>> {
+
+        private final int priority;
+        private final long sequence;
+
+        public PrioritizedTask(Callable<T> callable, int priority, long sequence) {
+            super(callable);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        public int compareTo(PrioritizedTask<?> other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
     public <T> Future<T> loadAsset(AssetKey<T> assetKey) {
-        return executor.submit(new LoadingTask(assetKey));
+        return loadAsset(assetKey, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Queues the given asset for loading.
+     * 
+     * @param assetKey The key of the asset to load
+     * @param priority The priority of the task, higher priorities are
+     * loaded first
+     * @return The future result of the load
+     */
+    public <T> Future<T> loadAsset(AssetKey<T> assetKey, int priority) {
+        return submit(new LoadingTask<T>(assetKey), priority);
+    }
+
+    /**
+     * Queues a task on the loading threads.
+     * 
+     * @param task The task to run
+     * @param priority The priority of the task, higher priorities are
+     * started first
+     * @return The future result of the task
+     */
+    public <T> Future<T> submit(Callable<T> task, int priority) {
+        PrioritizedTask<T> future = new PrioritizedTask<T>(task, priority, nextSequence.getAndIncrement());
+        executor.execute(future);
+        return future;
     }
 
     public static boolean isLoadingThread() {
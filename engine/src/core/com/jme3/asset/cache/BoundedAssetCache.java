@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset.cache;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.CloneableSmartAsset;
+import com.jme3.audio.AudioBuffer;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>BoundedAssetCache</code> is an asset cache that keeps the assets
+ * it stores under a memory budget.
+ * <p>
+ * The size of each asset is estimated when it is added, by counting the
+ * data buffers of images, meshes and audio buffers. When the budget is
+ * exceeded, assets are evicted either in least-recently-used or in
+ * least-frequently-used order. Assets bigger than the whole budget are
+ * not cached.
+ * <p>
+ * To use it for an asset type, return <code>BoundedAssetCache.class</code>
+ * from {@link AssetKey#getCacheType() }, the instance can then be
+ * configured through {@link com.jme3.asset.DesktopAssetManager#getCache(java.lang.Class) }.
+ */
+public class BoundedAssetCache implements AssetCache {
+
+    private static final Logger logger = Logger.getLogger(BoundedAssetCache.class.getName());
+
+    /**
+     * The default budget, 64 MB.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024L * 1024L;
+
+    /**
+     * Estimated cost of assets that hold no known data buffers.
+     */
+    private static final long MIN_ENTRY_BYTES = 1024;
+
+    /**
+     * The order in which assets are evicted.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evict the asset that was requested least recently.
+         */
+        LeastRecentlyUsed,
+        /**
+         * Evict the asset that was requested the least times,
+         * the least recently used one among equals.
+         */
+        LeastFrequentlyUsed;
+    }
+
+    private static final class Entry {
+
+        final Object asset;
+        final long size;
+        long hits;
+
+        Entry(Object asset, long size) {
+            this.asset = asset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Entries in access order, the eldest first.
+     */
+    private final LinkedHashMap<AssetKey<?>, Entry> entries =
+            new LinkedHashMap<AssetKey<?>, Entry>(16, 0.75f, true);
+    private EvictionPolicy policy = EvictionPolicy.LeastRecentlyUsed;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BoundedAssetCache() {
+    }
+
+    public BoundedAssetCache(long maxBytes, EvictionPolicy policy) {
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Sets the memory budget of the cache. Assets are evicted immediately
+     * if the cache is over the new budget.
+     * 
+     * @param maxBytes The budget in bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict(0);
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return The estimated size of the assets in the cache, in bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized void setEvictionPolicy(EvictionPolicy policy) {
+        this.policy = policy;
+    }
+
+    public synchronized EvictionPolicy getEvictionPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return The number of assets in the cache.
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of {@link #getFromCache(com.jme3.asset.AssetKey) }
+     * calls which found their asset.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of {@link #getFromCache(com.jme3.asset.AssetKey) }
+     * calls which did not find their asset.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The number of assets evicted to stay under the budget.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public synchronized <T> void addToCache(AssetKey<T> key, T obj) {
+        long size = estimateSize(obj);
+        Entry old = entries.remove(key);
+        if (old != null) {
+            usedBytes -= old.size;
+        }
+        if (size > maxBytes) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "{0} is bigger than the cache budget, not cached", key);
+            }
+            return;
+        }
+
+        evict(size);
+        entries.put(key, new Entry(obj, size));
+        usedBytes += size;
+    }
+
+    public <T> void registerAssetClone(AssetKey<T> key, T clone) {
+        ((CloneableSmartAsset) clone).setKey(key);
+    }
+
+    // entries are only added through addToCache, which stores a T under an AssetKey<T>
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getFromCache(AssetKey<T> key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        entry.hits++;
+        return (T) entry.asset;
+    }
+
+    public synchronized boolean deleteFromCache(AssetKey key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        usedBytes -= entry.size;
+        return true;
+    }
+
+    public synchronized void clearCache() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public void notifyNoAssetClone() {
+    }
+
+    /**
+     * Evicts assets until <code>size</code> more bytes fit in the budget.
+     */
+    private void evict(long size) {
+        while (!entries.isEmpty() && usedBytes + size > maxBytes) {
+            Iterator<Map.Entry<AssetKey<?>, Entry>> it = entries.entrySet().iterator();
+            Map.Entry<AssetKey<?>, Entry> victim = it.next();
+            if (policy == EvictionPolicy.LeastFrequentlyUsed) {
+                while (it.hasNext()) {
+                    Map.Entry<AssetKey<?>, Entry> candidate = it.next();
+                    if (candidate.getValue().hits < victim.getValue().hits) {
+                        victim = candidate;
+                    }
+                }
+            }
+            entries.remove(victim.getKey());
+            usedBytes -= victim.getValue().size;
+            evictions++;
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Evicted {0} from the cache", victim.getKey());
+            }
+        }
+    }
+
+    /**
+     * Estimates the memory used by an asset, in bytes.
+     * 
+     * @param asset The asset
+     * @return The estimated size of the asset's data
+     */
+    public static long estimateSize(Object asset) {
+        long size = MIN_ENTRY_BYTES;
+        if (asset instanceof Texture) {
+            Image image = ((Texture) asset).getImage();
+            if (image != null) {
+                size += estimateImageSize(image);
+            }
+        } else if (asset instanceof Image) {
+            size += estimateImageSize((Image) asset);
+        } else if (asset instanceof Spatial) {
+            size += estimateSpatialSize((Spatial) asset);
+        } else if (asset instanceof Mesh) {
+            size += estimateMeshSize((Mesh) asset);
+        } else if (asset instanceof AudioBuffer) {
+            ByteBuffer data = ((AudioBuffer) asset).getData();
+            if (data != null) {
+                size += data.capacity();
+            }
+        } else if (asset instanceof byte[]) {
+            size += ((byte[]) asset).length;
+        } else if (asset instanceof String) {
+            size += ((String) asset).length() * 2;
+        }
+        return size;
+    }
+
+    private static long estimateImageSize(Image image) {
+        long size = 0;
+        for (ByteBuffer data : image.getData()) {
+            if (data != null) {
+                size += data.capacity();
+            }
+        }
+        return size;
+    }
+
+    private static long estimateSpatialSize(Spatial spatial) {
+        if (spatial instanceof Geometry) {
+            Mesh mesh = ((Geometry) spatial).getMesh();
+            return mesh != null ? estimateMeshSize(mesh) : 0;
+        } else if (spatial instanceof Node) {
+            long size = 0;
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                size += estimateSpatialSize(child);
+            }
+            return size;
+        }
+        return 0;
+    }
+
+    private static long estimateMeshSize(Mesh mesh) {
+        long size = 0;
+        for (VertexBuffer vb : mesh.getBufferList().getArray()) {
+            Buffer data = vb.getData();
+            if (data != null) {
+                size += (long) data.limit() * vb.getFormat().getComponentSize();
+            }
+        }
+        return size;
+    }
+}
@@ -79,6 +79,18 @@ public final class BIHNode implements Savable {
     public BIHNode() {
     }
 
+    int getAxis() {
+        return axis;
+    }
+
+    int getLeftIndex() {
+        return leftIndex;
+    }
+
+    int getRightIndex() {
+        return rightIndex;
+    }
+
     public BIHNode getLeftChild() {
         return left;
     }
@@ -56,11 +56,22 @@ import com.jme3.util.TempVars;
 import java.io.IOException;
 import static java.lang.Math.max;
 import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class BIHTree implements CollisionData {
 
     public static final int MAX_TREE_DEPTH = 100;
     public static final int MAX_TRIS_PER_NODE = 21;
+    /**
+     * Meshes with fewer triangles are always constructed on the
+     * calling thread.
+     */
+    public static final int PARALLEL_CONSTRUCT_THRESHOLD = 8192;
     private Mesh mesh;
     private BIHNode root;
     private int maxTrisPerNode;
@@ -69,7 +80,8 @@ public class BIHTree implements CollisionData {
     private int[] triIndices;
     
     private transient CollisionResults boundResults = new CollisionResults();
-    private transient float[] bihSwapTmp;
+    private transient volatile FlatBIHTree flatTree;
+    private transient int deferDepth;
     
     private static final TriangleAxisComparator[] comparators = new TriangleAxisComparator[]
     {
@@ -112,8 +124,6 @@ public class BIHTree implements CollisionData {
             throw new IllegalArgumentException();
         }
 
-        bihSwapTmp = new float[9];
-
         FloatBuffer vb = (FloatBuffer) mesh.getBuffer(Type.Position).getData();
         IndexBuffer ib = mesh.getIndexBuffer();
         if (ib == null) {
@@ -133,9 +143,86 @@ public class BIHTree implements CollisionData {
     public BIHTree() {
     }
 
+    /**
+     * A sub-tree left to be built by another thread, and the node
+     * it is attached to.
+     */
+    private static final class Subtree {
+
+        private final BIHNode parent;
+        private final boolean left;
+        private final int l, r, depth;
+        private final BoundingBox bbox;
+
+        Subtree(BIHNode parent, boolean left, int l, int r, BoundingBox bbox, int depth) {
+            this.parent = parent;
+            this.left = left;
+            this.l = l;
+            this.r = r;
+            this.bbox = bbox;
+            this.depth = depth;
+        }
+    }
+
     public void construct() {
+        construct(null);
+    }
+
+    /**
+     * Builds the tree. For large meshes, the top levels are built on
+     * the calling thread and the sub-trees below them are then built
+     * in parallel by the executor. The resulting tree is the same as
+     * the one built by {@link #construct() }.
+     * <p>
+     * The calling thread waits for the sub-trees, so this must not be
+     * called from a thread of a bounded executor that is passed as the 
+     * argument.
+     * 
+     * @param executor The executor to build the sub-trees with, or null
+     * to build the whole tree on the calling thread.
+     */
+    public void construct(ExecutorService executor) {
+        flatTree = null;
         BoundingBox sceneBbox = createBox(0, numTris - 1);
-        root = createNode(0, numTris - 1, sceneBbox, 0);
+        if (executor == null || numTris < PARALLEL_CONSTRUCT_THRESHOLD) {
+            root = createNode(0, numTris - 1, sceneBbox, 0, null);
+            return;
+        }
+
+        // Aim for about 4 sub-trees per processor
+        int subtrees = Runtime.getRuntime().availableProcessors() * 4;
+        deferDepth = 32 - Integer.numberOfLeadingZeros(subtrees - 1);
+        final List<Subtree> deferred = new ArrayList<Subtree>();
+        root = createNode(0, numTris - 1, sceneBbox, 0, deferred);
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(deferred.size());
+        for (final Subtree subtree : deferred) {
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    BIHNode node = createNode(subtree.l, subtree.r, subtree.bbox, subtree.depth, null);
+                    if (subtree.left) {
+                        subtree.parent.setLeftChild(node);
+                    } else {
+                        subtree.parent.setRightChild(node);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while constructing BIH tree");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause().toString());
+        }
     }
 
     private BoundingBox createBox(int l, int r) {
@@ -164,6 +251,34 @@ public class BIHTree implements CollisionData {
         return triIndices[triIndex];
     }
 
+    BIHNode getRoot() {
+        return root;
+    }
+
+    float[] getPointData() {
+        return pointData;
+    }
+
+    int[] getTriIndices() {
+        return triIndices;
+    }
+
+    /**
+     * Returns a copy of this tree in primitive arrays for casting
+     * batches of rays. The copy is created on first use and does not
+     * follow later changes to the mesh.
+     * 
+     * @return The flat tree.
+     */
+    public FlatBIHTree getFlatTree() {
+        FlatBIHTree tree = flatTree;
+        if (tree == null) {
+            tree = new FlatBIHTree(this);
+            flatTree = tree;
+        }
+        return tree;
+    }
+
     private int sortTriangles(int l, int r, float split, int axis) {
         int pivot = l;
         int j = r;
@@ -288,7 +403,7 @@ public class BIHTree implements CollisionData {
 //
 //        return node;
 //    }
-    private BIHNode createNode(int l, int r, BoundingBox nodeBbox, int depth) {
+    private BIHNode createNode(int l, int r, BoundingBox nodeBbox, int depth, List<Subtree> deferred) {
         if ((r - l) < maxTrisPerNode || depth > MAX_TREE_DEPTH) {
             return new BIHNode(l, r);
         }
@@ -329,15 +444,16 @@ public class BIHTree implements CollisionData {
             //Only right
             BoundingBox rbbox = new BoundingBox(currentBox);
             setMinMax(rbbox, true, axis, split);
-            return createNode(l, r, rbbox, depth + 1);
+            return createNode(l, r, rbbox, depth + 1, deferred);
         } else if (pivot > r) {
             //Only left
             BoundingBox lbbox = new BoundingBox(currentBox);
             setMinMax(lbbox, false, axis, split);
-            return createNode(l, r, lbbox, depth + 1);
+            return createNode(l, r, lbbox, depth + 1, deferred);
         } else {
             //Build the node
             BIHNode node = new BIHNode(axis);
+            boolean defer = deferred != null && depth + 1 >= deferDepth;
 
             //Left child
             BoundingBox lbbox = new BoundingBox(currentBox);
@@ -345,14 +461,22 @@ public class BIHTree implements CollisionData {
 
             //The left node right border is the plane most right
             node.setLeftPlane(getMinMax(createBox(l, max(l, pivot - 1)), false, axis));
-            node.setLeftChild(createNode(l, max(l, pivot - 1), lbbox, depth + 1)); //Recursive call
+            if (defer) {
+                deferred.add(new Subtree(node, true, l, max(l, pivot - 1), lbbox, depth + 1));
+            } else {
+                node.setLeftChild(createNode(l, max(l, pivot - 1), lbbox, depth + 1, deferred)); //Recursive call
+            }
 
             //Right Child
             BoundingBox rbbox = new BoundingBox(currentBox);
             setMinMax(rbbox, true, axis, split);
             //The right node left border is the plane most left
             node.setRightPlane(getMinMax(createBox(pivot, r), true, axis));
-            node.setRightChild(createNode(pivot, r, rbbox, depth + 1)); //Recursive call
+            if (defer) {
+                deferred.add(new Subtree(node, false, pivot, r, rbbox, depth + 1));
+            } else {
+                node.setRightChild(createNode(pivot, r, rbbox, depth + 1, deferred)); //Recursive call
+            }
 
             return node;
         }
@@ -378,14 +502,12 @@ public class BIHTree implements CollisionData {
         int p1 = index1 * 9;
         int p2 = index2 * 9;
 
-        // store p1 in tmp
-        System.arraycopy(pointData, p1, bihSwapTmp, 0, 9);
-
-        // copy p2 to p1
-        System.arraycopy(pointData, p2, pointData, p1, 9);
-
-        // copy tmp to p2
-        System.arraycopy(bihSwapTmp, 0, pointData, p2, 9);
+        // swap in place, sub-trees may be built on several threads
+        for (int i = 0; i < 9; i++) {
+            float tmp = pointData[p1 + i];
+            pointData[p1 + i] = pointData[p2 + i];
+            pointData[p2 + i] = tmp;
+        }
 
         // swap indices
         int tmp2 = triIndices[index1];
@@ -464,19 +586,56 @@ public class BIHTree implements CollisionData {
 
     public void write(JmeExporter ex) throws IOException {
         OutputCapsule oc = ex.getCapsule(this);
-        oc.write(mesh, "mesh", null);
-        oc.write(root, "root", null);
         oc.write(maxTrisPerNode, "tris_per_node", 0);
         oc.write(pointData, "points", null);
         oc.write(triIndices, "indices", null);
+        if (root != null) {
+            // Nodes are stored in flat arrays rather than as
+            // a Savable per node
+            FlatBIHTree flat = getFlatTree();
+            oc.write(flat.getNodes(), "nodes", null);
+            oc.write(flat.getPlanes(), "planes", null);
+        }
     }
 
     public void read(JmeImporter im) throws IOException {
         InputCapsule ic = im.getCapsule(this);
         mesh = (Mesh) ic.readSavable("mesh", null);
-        root = (BIHNode) ic.readSavable("root", null);
         maxTrisPerNode = ic.readInt("tris_per_node", 0);
         pointData = ic.readFloatArray("points", null);
         triIndices = ic.readIntArray("indices", null);
+        numTris = triIndices != null ? triIndices.length : 0;
+
+        int[] nodes = ic.readIntArray("nodes", null);
+        if (nodes != null) {
+            root = createNodes(nodes, ic.readFloatArray("planes", null));
+        } else {
+            // Written by an older version
+            root = (BIHNode) ic.readSavable("root", null);
+        }
+    }
+
+    /**
+     * Recreates the node objects from the layout used by {@link FlatBIHTree}.
+     */
+    private static BIHNode createNodes(int[] nodes, float[] planes) {
+        BIHNode[] created = new BIHNode[nodes.length / 3];
+        for (int i = 0; i < created.length; i++) {
+            int axis = nodes[i * 3];
+            if (axis == 3) {
+                created[i] = new BIHNode(nodes[i * 3 + 1], nodes[i * 3 + 2]);
+            } else {
+                created[i] = new BIHNode(axis);
+                created[i].setLeftPlane(planes[i * 2]);
+                created[i].setRightPlane(planes[i * 2 + 1]);
+            }
+        }
+        for (int i = 0; i < created.length; i++) {
+            if (nodes[i * 3] != 3) {
+                created[i].setLeftChild(created[nodes[i * 3 + 1]]);
+                created[i].setRightChild(created[nodes[i * 3 + 2]]);
+            }
+        }
+        return created[0];
     }
 }
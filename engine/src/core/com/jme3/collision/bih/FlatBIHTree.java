@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.collision.bih;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Matrix4f;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <code>FlatBIHTree</code> is a copy of a {@link BIHTree} stored in
+ * primitive arrays, meant for casting large numbers of rays at once.
+ * Use {@link com.jme3.scene.Mesh#getFlatCollisionTree() } to get the one
+ * of a mesh.
+ * <p>
+ * Rays are passed as a float array with {@link #RAY_STRIDE} values per ray:
+ * the origin, the direction and the maximum distance (use 
+ * <code>Float.POSITIVE_INFINITY</code> for no limit). Results are written to
+ * caller supplied arrays, so no objects are created per ray or per hit.
+ * Batches can be split across the threads of an <code>ExecutorService</code>.
+ * <p>
+ * The tree is immutable once created and may be queried from several 
+ * threads at the same time.
+ */
+public class FlatBIHTree {
+
+    /**
+     * Number of floats per ray: origin x, y, z, direction x, y, z and
+     * maximum distance.
+     */
+    public static final int RAY_STRIDE = 7;
+
+    /**
+     * Number of rays handled by one task when a batch is split
+     * across threads.
+     */
+    public static final int RAYS_PER_TASK = 256;
+
+    private static final int LEAF = 3;
+
+    // 3 ints per node: axis, then children for inner nodes or the
+    // triangle range for leaves
+    private final int[] nodes;
+    // 2 floats per node: left and right plane
+    private final float[] planes;
+    private final float[] pointData;
+    private final int[] triIndices;
+    private final float[] bounds = new float[6];
+    private final int depth;
+
+    /**
+     * Creates a flat copy of the given tree. The tree is constructed 
+     * first if needed.
+     */
+    public FlatBIHTree(BIHTree tree) {
+        if (tree.getRoot() == null) {
+            tree.construct();
+        }
+        pointData = tree.getPointData();
+        triIndices = tree.getTriIndices();
+
+        List<BIHNode> order = new ArrayList<BIHNode>();
+        List<Integer> depths = new ArrayList<Integer>();
+        order.add(tree.getRoot());
+        depths.add(1);
+        int maxDepth = 1;
+        // Breadth first, so that the children of a node are
+        // found after it in the order list
+        for (int i = 0; i < order.size(); i++) {
+            BIHNode node = order.get(i);
+            if (node.getAxis() != LEAF) {
+                int d = depths.get(i) + 1;
+                order.add(node.getLeftChild());
+                order.add(node.getRightChild());
+                depths.add(d);
+                depths.add(d);
+                maxDepth = Math.max(maxDepth, d);
+            }
+        }
+
+        nodes = new int[order.size() * 3];
+        planes = new float[order.size() * 2];
+        int next = 1;
+        for (int i = 0; i < order.size(); i++) {
+            BIHNode node = order.get(i);
+            nodes[i * 3] = node.getAxis();
+            if (node.getAxis() == LEAF) {
+                nodes[i * 3 + 1] = node.getLeftIndex();
+                nodes[i * 3 + 2] = node.getRightIndex();
+            } else {
+                nodes[i * 3 + 1] = next++;
+                nodes[i * 3 + 2] = next++;
+                planes[i * 2] = node.getLeftPlane();
+                planes[i * 2 + 1] = node.getRightPlane();
+            }
+        }
+        depth = maxDepth;
+
+        for (int i = 0; i < 3; i++) {
+            bounds[i] = Float.POSITIVE_INFINITY;
+            bounds[i + 3] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = 0; i < pointData.length; i += 3) {
+            for (int j = 0; j < 3; j++) {
+                bounds[j] = Math.min(bounds[j], pointData[i + j]);
+                bounds[j + 3] = Math.max(bounds[j + 3], pointData[i + j]);
+            }
+        }
+    }
+
+    int[] getNodes() {
+        return nodes;
+    }
+
+    float[] getPlanes() {
+        return planes;
+    }
+
+    /**
+     * @return The number of nodes in the tree.
+     */
+    public int getNodeCount() {
+        return nodes.length / 3;
+    }
+
+    /**
+     * @return The number of triangles in the tree.
+     */
+    public int getTriangleCount() {
+        return triIndices.length;
+    }
+
+    /**
+     * Finds the closest hit of each ray in model space, on the
+     * calling thread.
+     * 
+     * @see #intersectRays(float[], int, com.jme3.math.Matrix4f, boolean, float[], int[], java.util.concurrent.ExecutorService) 
+     */
+    public int intersectRays(float[] rays, int count, float[] distances, int[] triangles) {
+        return intersectRays(rays, count, null, false, distances, triangles, null);
+    }
+
+    /**
+     * Casts a batch of rays against the triangles of the tree.
+     * <p>
+     * For each ray <code>i</code>, <code>distances[i]</code> receives the 
+     * distance to the hit along the ray, or <code>Float.POSITIVE_INFINITY</code>
+     * if the ray hits nothing within its maximum distance, and 
+     * <code>triangles[i]</code> the index of the triangle in the mesh, 
+     * or -1. Distances are in units of the ray direction, so they are
+     * world space distances when the directions are normalized.
+     * 
+     * @param rays The rays, {@link #RAY_STRIDE} floats for each ray
+     * @param count The number of rays to cast
+     * @param worldMatrix The world transform of the mesh if the rays are in 
+     * world space, or null if they are in model space.
+     * @param anyHit If true, stop at the first hit found for a ray instead
+     * of searching for the closest one. Enough for line of sight tests, 
+     * and faster.
+     * @param distances Where to store the hit distances, at least 
+     * <code>count</code> long
+     * @param triangles Where to store the hit triangles, may be null
+     * @param executor The executor to split the batch over, or null to
+     * cast all rays on the calling thread
+     * @return The number of rays that hit a triangle.
+     */
+    public int intersectRays(final float[] rays, int count, Matrix4f worldMatrix, final boolean anyHit,
+                             final float[] distances, final int[] triangles, ExecutorService executor) {
+        if (rays.length < count * RAY_STRIDE || distances.length < count
+         || (triangles != null && triangles.length < count)) {
+            throw new IllegalArgumentException("Arrays are too short for " + count + " rays");
+        }
+
+        final Matrix4f inverse = worldMatrix != null ? worldMatrix.invert() : null;
+        if (executor == null || count <= RAYS_PER_TASK) {
+            return intersectRays(rays, 0, count, inverse, anyHit, distances, triangles);
+        }
+
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int start = 0; start < count; start += RAYS_PER_TASK) {
+            final int s = start;
+            final int e = Math.min(count, start + RAYS_PER_TASK);
+            tasks.add(new Callable<Integer>() {
+                public Integer call() {
+                    return intersectRays(rays, s, e, inverse, anyHit, distances, triangles);
+                }
+            });
+        }
+
+        try {
+            int hits = 0;
+            for (Future<Integer> result : executor.invokeAll(tasks)) {
+                hits += result.get();
+            }
+            return hits;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while casting rays");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause().toString());
+        }
+    }
+
+    private int intersectRays(float[] rays, int start, int end, Matrix4f inverse, boolean anyHit,
+                              float[] distances, int[] triangles) {
+        int[] nodeStack = new int[depth + 1];
+        float[] minStack = new float[depth + 1];
+        float[] maxStack = new float[depth + 1];
+        float[] origin = new float[3];
+        float[] dir = new float[3];
+        float[] invDir = new float[3];
+
+        int hits = 0;
+        for (int r = start; r < end; r++) {
+            int o = r * RAY_STRIDE;
+            float ox = rays[o], oy = rays[o + 1], oz = rays[o + 2];
+            float dx = rays[o + 3], dy = rays[o + 4], dz = rays[o + 5];
+            if (inverse != null) {
+                // The direction is not normalized after the transform so that
+                // distances along the ray stay in world units
+                origin[0] = inverse.m00 * ox + inverse.m01 * oy + inverse.m02 * oz + inverse.m03;
+                origin[1] = inverse.m10 * ox + inverse.m11 * oy + inverse.m12 * oz + inverse.m13;
+                origin[2] = inverse.m20 * ox + inverse.m21 * oy + inverse.m22 * oz + inverse.m23;
+                dir[0] = inverse.m00 * dx + inverse.m01 * dy + inverse.m02 * dz;
+                dir[1] = inverse.m10 * dx + inverse.m11 * dy + inverse.m12 * dz;
+                dir[2] = inverse.m20 * dx + inverse.m21 * dy + inverse.m22 * dz;
+            } else {
+                origin[0] = ox;
+                origin[1] = oy;
+                origin[2] = oz;
+                dir[0] = dx;
+                dir[1] = dy;
+                dir[2] = dz;
+            }
+            invDir[0] = 1f / dir[0];
+            invDir[1] = 1f / dir[1];
+            invDir[2] = 1f / dir[2];
+
+            float best = rays[o + 6];
+            int bestTri = -1;
+
+            // Clip the ray against the bounds of the mesh
+            float tMin = 0, tMax = best;
+            for (int a = 0; a < 3 && tMin <= tMax; a++) {
+                if (dir[a] == 0) {
+                    if (origin[a] < bounds[a] || origin[a] > bounds[a + 3]) {
+                        tMax = -1;
+                    }
+                } else {
+                    float t1 = (bounds[a] - origin[a]) * invDir[a];
+                    float t2 = (bounds[a + 3] - origin[a]) * invDir[a];
+                    tMin = Math.max(tMin, Math.min(t1, t2));
+                    tMax = Math.min(tMax, Math.max(t1, t2));
+                }
+            }
+
+            int sp = 0;
+            if (tMin <= tMax) {
+                nodeStack[0] = 0;
+                minStack[0] = tMin;
+                maxStack[0] = tMax;
+                sp = 1;
+            }
+
+            stackloop:
+            while (sp > 0) {
+                sp--;
+                int node = nodeStack[sp];
+                tMin = minStack[sp];
+                tMax = Math.min(maxStack[sp], best);
+                if (tMax < tMin) {
+                    continue;
+                }
+
+                int n = node * 3;
+                while (nodes[n] != LEAF) {
+                    int a = nodes[n];
+                    float tNearSplit = (planes[node * 2] - origin[a]) * invDir[a];
+                    float tFarSplit = (planes[node * 2 + 1] - origin[a]) * invDir[a];
+                    int nearNode = nodes[n + 1];
+                    int farNode = nodes[n + 2];
+                    if (invDir[a] < 0) {
+                        float tmpSplit = tNearSplit;
+                        tNearSplit = tFarSplit;
+                        tFarSplit = tmpSplit;
+                        int tmpNode = nearNode;
+                        nearNode = farNode;
+                        farNode = tmpNode;
+                    }
+
+                    if (tMin > tNearSplit && tMax < tFarSplit) {
+                        continue stackloop;
+                    }
+
+                    if (tMin > tNearSplit) {
+                        tMin = Math.max(tMin, tFarSplit);
+                        node = farNode;
+                    } else if (tMax < tFarSplit) {
+                        tMax = Math.min(tMax, tNearSplit);
+                        node = nearNode;
+                    } else {
+                        nodeStack[sp] = farNode;
+                        minStack[sp] = Math.max(tMin, tFarSplit);
+                        maxStack[sp] = tMax;
+                        sp++;
+                        tMax = Math.min(tMax, tNearSplit);
+                        node = nearNode;
+                    }
+                    n = node * 3;
+                }
+
+                for (int i = nodes[n + 1], last = nodes[n + 2]; i <= last; i++) {
+                    float t = intersectTriangle(i, origin, dir);
+                    if (t <= best && t != Float.POSITIVE_INFINITY) {
+                        best = t;
+                        bestTri = i;
+                        if (anyHit) {
+                            break stackloop;
+                        }
+                    }
+                }
+            }
+
+            if (bestTri != -1) {
+                distances[r] = best;
+                if (triangles != null) {
+                    triangles[r] = triIndices[bestTri];
+                }
+                hits++;
+            } else {
+                distances[r] = Float.POSITIVE_INFINITY;
+                if (triangles != null) {
+                    triangles[r] = -1;
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Same test as {@link com.jme3.math.Ray#intersects(com.jme3.math.Vector3f, com.jme3.math.Vector3f, com.jme3.math.Vector3f) },
+     * reading the triangle from the point data.
+     */
+    private float intersectTriangle(int tri, float[] origin, float[] dir) {
+        int p = tri * 9;
+        float v0X = pointData[p], v0Y = pointData[p + 1], v0Z = pointData[p + 2];
+
+        float edge1X = pointData[p + 3] - v0X;
+        float edge1Y = pointData[p + 4] - v0Y;
+        float edge1Z = pointData[p + 5] - v0Z;
+
+        float edge2X = pointData[p + 6] - v0X;
+        float edge2Y = pointData[p + 7] - v0Y;
+        float edge2Z = pointData[p + 8] - v0Z;
+
+        float normX = ((edge1Y * edge2Z) - (edge1Z * edge2Y));
+        float normY = ((edge1Z * edge2X) - (edge1X * edge2Z));
+        float normZ = ((edge1X * edge2Y) - (edge1Y * edge2X));
+
+        float dirDotNorm = dir[0] * normX + dir[1] * normY + dir[2] * normZ;
+
+        float diffX = origin[0] - v0X;
+        float diffY = origin[1] - v0Y;
+        float diffZ = origin[2] - v0Z;
+
+        float sign;
+        if (dirDotNorm > FastMath.FLT_EPSILON) {
+            sign = 1;
+        } else if (dirDotNorm < -FastMath.FLT_EPSILON) {
+            sign = -1f;
+            dirDotNorm = -dirDotNorm;
+        } else {
+            // ray and triangle are parallel
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float diffEdge2X = ((diffY * edge2Z) - (diffZ * edge2Y));
+        float diffEdge2Y = ((diffZ * edge2X) - (diffX * edge2Z));
+        float diffEdge2Z = ((diffX * edge2Y) - (diffY * edge2X));
+
+        float dirDotDiffxEdge2 = sign * (dir[0] * diffEdge2X
+                + dir[1] * diffEdge2Y
+                + dir[2] * diffEdge2Z);
+        if (dirDotDiffxEdge2 < 0.0f) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        diffEdge2X = ((edge1Y * diffZ) - (edge1Z * diffY));
+        diffEdge2Y = ((edge1Z * diffX) - (edge1X * diffZ));
+        diffEdge2Z = ((edge1X * diffY) - (edge1Y * diffX));
+
+        float dirDotEdge1xDiff = sign * (dir[0] * diffEdge2X
+                + dir[1] * diffEdge2Y
+                + dir[2] * diffEdge2Z);
+        if (dirDotEdge1xDiff < 0.0f || dirDotDiffxEdge2 + dirDotEdge1xDiff > dirDotNorm) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float diffDotNorm = -sign * (diffX * normX + diffY * normY + diffZ * normZ);
+        if (diffDotNorm < 0.0f) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return diffDotNorm / dirDotNorm;
+    }
+}
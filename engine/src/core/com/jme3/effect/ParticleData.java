@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.effect;
+
+import com.jme3.math.Vector3f;
+
+/**
+ * Holds the state of all particles of a {@link ParticleEmitter} in 
+ * parallel arrays, one entry per particle (structure of arrays).
+ * <p>
+ * Vectors are stored packed, so the position of particle <code>i</code>
+ * is at <code>positions[i * 3]</code> to <code>positions[i * 3 + 2]</code>
+ * and its color at <code>colors[i * 4]</code> to <code>colors[i * 4 + 3]</code>
+ * in RGBA order. A particle is dead if its life is 0.
+ * 
+ * @see Particle
+ */
+public class ParticleData {
+
+    /**
+     * Particle positions, 3 floats for each particle.
+     */
+    public final float[] positions;
+
+    /**
+     * Particle velocities, 3 floats for each particle.
+     */
+    public final float[] velocities;
+
+    /**
+     * Particle colors, 4 floats for each particle.
+     */
+    public final float[] colors;
+
+    /**
+     * Particle sizes or radiuses.
+     */
+    public final float[] sizes;
+
+    /**
+     * Remaining life of the particles, in seconds.
+     */
+    public final float[] life;
+
+    /**
+     * The initial particle life.
+     */
+    public final float[] startLife;
+
+    /**
+     * Particle rotation angles (in radians).
+     */
+    public final float[] angles;
+
+    /**
+     * Particle rotation speeds (in radians).
+     */
+    public final float[] rotateSpeeds;
+
+    /**
+     * Particle image indices.
+     */
+    public final int[] imageIndices;
+
+    /**
+     * Creates storage for the given number of particles, all dead.
+     */
+    public ParticleData(int capacity) {
+        positions = new float[capacity * 3];
+        velocities = new float[capacity * 3];
+        colors = new float[capacity * 4];
+        sizes = new float[capacity];
+        life = new float[capacity];
+        startLife = new float[capacity];
+        angles = new float[capacity];
+        rotateSpeeds = new float[capacity];
+        imageIndices = new int[capacity];
+    }
+
+    /**
+     * Creates storage holding a copy of the given particles.
+     */
+    public ParticleData(Particle[] particles) {
+        this(particles.length);
+        for (int i = 0; i < particles.length; i++) {
+            set(i, particles[i]);
+        }
+    }
+
+    /**
+     * @return The number of particles that can be stored.
+     */
+    public int getCapacity() {
+        return life.length;
+    }
+
+    /**
+     * Copies the state of a particle into <code>store</code>.
+     */
+    public Particle get(int index, Particle store) {
+        int i3 = index * 3;
+        int i4 = index * 4;
+        store.position.set(positions[i3], positions[i3 + 1], positions[i3 + 2]);
+        store.velocity.set(velocities[i3], velocities[i3 + 1], velocities[i3 + 2]);
+        store.color.set(colors[i4], colors[i4 + 1], colors[i4 + 2], colors[i4 + 3]);
+        store.size = sizes[index];
+        store.life = life[index];
+        store.startlife = startLife[index];
+        store.angle = angles[index];
+        store.rotateSpeed = rotateSpeeds[index];
+        store.imageIndex = imageIndices[index];
+        return store;
+    }
+
+    /**
+     * Sets the state of a particle from <code>particle</code>.
+     */
+    public void set(int index, Particle particle) {
+        int i3 = index * 3;
+        int i4 = index * 4;
+        positions[i3] = particle.position.x;
+        positions[i3 + 1] = particle.position.y;
+        positions[i3 + 2] = particle.position.z;
+        velocities[i3] = particle.velocity.x;
+        velocities[i3 + 1] = particle.velocity.y;
+        velocities[i3 + 2] = particle.velocity.z;
+        colors[i4] = particle.color.r;
+        colors[i4 + 1] = particle.color.g;
+        colors[i4 + 2] = particle.color.b;
+        colors[i4 + 3] = particle.color.a;
+        sizes[index] = particle.size;
+        life[index] = particle.life;
+        startLife[index] = particle.startlife;
+        angles[index] = particle.angle;
+        rotateSpeeds[index] = particle.rotateSpeed;
+        imageIndices[index] = particle.imageIndex;
+    }
+
+    public Vector3f getPosition(int index, Vector3f store) {
+        int i3 = index * 3;
+        return store.set(positions[i3], positions[i3 + 1], positions[i3 + 2]);
+    }
+
+    public void setPosition(int index, Vector3f position) {
+        int i3 = index * 3;
+        positions[i3] = position.x;
+        positions[i3 + 1] = position.y;
+        positions[i3 + 2] = position.z;
+    }
+
+    public Vector3f getVelocity(int index, Vector3f store) {
+        int i3 = index * 3;
+        return store.set(velocities[i3], velocities[i3 + 1], velocities[i3 + 2]);
+    }
+
+    public void setVelocity(int index, Vector3f velocity) {
+        int i3 = index * 3;
+        velocities[i3] = velocity.x;
+        velocities[i3 + 1] = velocity.y;
+        velocities[i3 + 2] = velocity.z;
+    }
+
+    /**
+     * Returns the color of a particle packed like {@link com.jme3.math.ColorRGBA#asIntABGR() }.
+     */
+    public int getColorABGR(int index) {
+        int i4 = index * 4;
+        return (((int) (colors[i4 + 3] * 255) & 0xFF) << 24)
+             | (((int) (colors[i4 + 2] * 255) & 0xFF) << 16)
+             | (((int) (colors[i4 + 1] * 255) & 0xFF) << 8)
+             | (((int) (colors[i4] * 255) & 0xFF));
+    }
+
+    /**
+     * Kills a particle, clearing everything that is visible of it.
+     * The position and velocity are kept.
+     */
+    public void clear(int index) {
+        int i4 = index * 4;
+        life[index] = 0;
+        sizes[index] = 0;
+        colors[i4] = 0;
+        colors[i4 + 1] = 0;
+        colors[i4 + 2] = 0;
+        colors[i4 + 3] = 0;
+        imageIndices[index] = 0;
+        angles[index] = 0;
+        rotateSpeeds[index] = 0;
+    }
+
+    /**
+     * Swaps the state of two particles.
+     */
+    public void swap(int index1, int index2) {
+        swap(positions, index1 * 3, index2 * 3, 3);
+        swap(velocities, index1 * 3, index2 * 3, 3);
+        swap(colors, index1 * 4, index2 * 4, 4);
+        swap(sizes, index1, index2, 1);
+        swap(life, index1, index2, 1);
+        swap(startLife, index1, index2, 1);
+        swap(angles, index1, index2, 1);
+        swap(rotateSpeeds, index1, index2, 1);
+        int tmp = imageIndices[index1];
+        imageIndices[index1] = imageIndices[index2];
+        imageIndices[index2] = tmp;
+    }
+
+    private static void swap(float[] array, int offset1, int offset2, int length) {
+        for (int i = 0; i < length; i++) {
+            float tmp = array[offset1 + i];
+            array[offset1 + i] = array[offset2 + i];
+            array[offset2 + i] = tmp;
+        }
+    }
+}
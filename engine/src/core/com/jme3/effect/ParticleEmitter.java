@@ -35,6 +35,7 @@ import com.jme3.bounding.BoundingBox;
 import com.jme3.effect.ParticleMesh.Type;
 import com.jme3.effect.influencers.DefaultParticleInfluencer;
 import com.jme3.effect.influencers.ParticleInfluencer;
+import com.jme3.effect.influencers.ParticleRangeInfluencer;
 import com.jme3.effect.shapes.EmitterPointShape;
 import com.jme3.effect.shapes.EmitterShape;
 import com.jme3.export.InputCapsule;
@@ -55,6 +56,12 @@ import com.jme3.scene.Spatial;
 import com.jme3.scene.control.Control;
 import com.jme3.util.TempVars;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * <code>ParticleEmitter</code> is a special kind of geometry which simulates
@@ -68,11 +75,21 @@ import java.io.IOException;
  * {@link ParticleInfluencer} that has been assigned to the emitter via
  * {@link ParticleEmitter#setParticleInfluencer(com.jme3.effect.influencers.ParticleInfluencer) }.
  * By default the implementation {@link DefaultParticleInfluencer} is used.
+ * <p>
+ * The particles are stored in the arrays of a {@link ParticleData}. 
+ * Large emitters can be updated in parallel, see 
+ * {@link #setUpdateExecutor(java.util.concurrent.ExecutorService) }.
  * 
  * @author Kirill Vainer
  */
 public class ParticleEmitter extends Geometry {
 
+    /**
+     * The number of particles updated by each task when the emitter
+     * is updated in parallel.
+     */
+    public static final int PARTICLES_PER_TASK = 1024;
+
     private boolean enabled = true;
     private static final EmitterShape DEFAULT_SHAPE = new EmitterPointShape(Vector3f.ZERO);
     private static final ParticleInfluencer DEFAULT_INFLUENCER = new DefaultParticleInfluencer();
@@ -81,9 +98,9 @@ public class ParticleEmitter extends Geometry {
     private ParticleMesh particleMesh;
     private ParticleInfluencer particleInfluencer = DEFAULT_INFLUENCER;
     private ParticleMesh.Type meshType;
-    private Particle[] particles;
-    private int firstUnUsed;
+    private ParticleData particles;
     private int lastUsed;
+    private ExecutorService updateExecutor;
 //    private int next = 0;
 //    private ArrayList<Integer> unusedIndices = new ArrayList<Integer>();
     private boolean randomAngle;
@@ -104,8 +121,10 @@ public class ParticleEmitter extends Geometry {
     private float startSize = 0.2f;
     private float endSize = 2f;
     private boolean worldSpace = true;
-    //variable that helps with computations
+    //variables that help with computations
     private transient Vector3f temp = new Vector3f();
+    private transient float[] bound = new float[6];
+    private transient Particle[] particleCopies;
 
     public static class ParticleEmitterControl implements Control {
 
@@ -160,7 +179,9 @@ public class ParticleEmitter extends Geometry {
         clone.shape = shape.deepClone();
 
         // Reinitialize particle list
-        clone.setNumParticles(particles.length);
+        clone.temp = new Vector3f();
+        clone.bound = new float[6];
+        clone.setNumParticles(particles.getCapacity());
 
         clone.faceNormal = faceNormal.clone();
         clone.startColor = startColor.clone();
@@ -186,7 +207,7 @@ public class ParticleEmitter extends Geometry {
             default:
                 throw new IllegalStateException("Unrecognized particle type: " + meshType);
         }
-        clone.particleMesh.initParticleData(clone, clone.particles.length);
+        clone.particleMesh.initParticleData(clone, clone.particles.getCapacity());
         clone.particleMesh.setImagesXY(clone.imagesX, clone.imagesY);
 
         return clone;
@@ -302,7 +323,7 @@ public class ParticleEmitter extends Geometry {
             default:
                 throw new IllegalStateException("Unrecognized particle type: " + meshType);
         }
-        this.setNumParticles(particles.length);
+        this.setNumParticles(particles.getCapacity());
     }
 
     /**
@@ -351,19 +372,16 @@ public class ParticleEmitter extends Geometry {
      * can exist at the same time with this emitter.
      */
     public final void setNumParticles(int numParticles) {
-        particles = new Particle[numParticles];
-        for (int i = 0; i < numParticles; i++) {
-            particles[i] = new Particle();
-        }
+        particles = new ParticleData(numParticles);
+        particleCopies = null;
         //We have to reinit the mesh's buffers with the new size
-        particleMesh.initParticleData(this, particles.length);
+        particleMesh.initParticleData(this, numParticles);
         particleMesh.setImagesXY(this.imagesX, this.imagesY);
-        firstUnUsed = 0;
         lastUsed = -1;
     }
 
     public int getMaxNumParticles() {
-        return particles.length;
+        return particles.getCapacity();
     }
 
     /**
@@ -374,13 +392,63 @@ public class ParticleEmitter extends Geometry {
      * The size of the array is set to the <code>numParticles</code> value
      * specified in the constructor or {@link ParticleEmitter#setNumParticles(int) }
      * method. 
+     * <p>
+     * The particles are copies of the state of the emitter at the
+     * time of the call, changing them has no effect. Use 
+     * {@link #getParticleData() } to access the particles directly.
      * 
      * @return a list of all particles.
      */
     public Particle[] getParticles() {
+        if (particleCopies == null) {
+            particleCopies = new Particle[particles.getCapacity()];
+            for (int i = 0; i < particleCopies.length; i++) {
+                particleCopies[i] = new Particle();
+            }
+        }
+        for (int i = 0; i < particleCopies.length; i++) {
+            particles.get(i, particleCopies[i]);
+        }
+        return particleCopies;
+    }
+
+    /**
+     * Returns the arrays holding the state of all particles, existing
+     * and non-existing.
+     * 
+     * @return the particles of the emitter
+     */
+    public ParticleData getParticleData() {
         return particles;
     }
 
+    /**
+     * Sets the executor used to update the particles in parallel.
+     * <p>
+     * When more than {@link #PARTICLES_PER_TASK} particles are alive,
+     * they are split into ranges which are updated by the executor's 
+     * threads. Particles are still emitted on the calling thread. 
+     * An executor can be shared by any number of emitters, it is not
+     * shut down by the emitter. The default is null, which updates 
+     * all particles on the calling thread.
+     * 
+     * @param updateExecutor The executor to use, or null to disable
+     * parallel updates.
+     */
+    public void setUpdateExecutor(ExecutorService updateExecutor) {
+        this.updateExecutor = updateExecutor;
+    }
+
+    /**
+     * @return The executor used to update the particles in parallel,
+     * or null if disabled.
+     * 
+     * @see #setUpdateExecutor(java.util.concurrent.ExecutorService) 
+     */
+    public ExecutorService getUpdateExecutor() {
+        return updateExecutor;
+    }
+
     /**
      * Get the normal which particles are facing. 
      * 
@@ -824,43 +892,60 @@ public class ParticleEmitter extends Geometry {
         this.particleInfluencer.setVelocityVariation(variation);
     }
 
-    private Particle emitParticle(Vector3f min, Vector3f max) {
-        int idx = lastUsed + 1;
-        if (idx >= particles.length) {
-            return null;
+    /**
+     * Emits up to <code>count</code> particles after the last used one.
+     * 
+     * @return the number of particles emitted.
+     */
+    private int emitParticles(int count, float[] bound) {
+        int start = lastUsed + 1;
+        int end = Math.min(start + count, particles.getCapacity());
+        if (start >= end) {
+            return 0;
         }
 
-        Particle p = particles[idx];
-        if (selectRandomImage) {
-            p.imageIndex = FastMath.nextRandomInt(0, imagesY - 1) * imagesX + FastMath.nextRandomInt(0, imagesX - 1);
+        float[] colors = particles.colors;
+        for (int i = start; i < end; i++) {
+            if (selectRandomImage) {
+                particles.imageIndices[i] = FastMath.nextRandomInt(0, imagesY - 1) * imagesX + FastMath.nextRandomInt(0, imagesX - 1);
+            }
+            particles.startLife[i] = lowLife + FastMath.nextRandomFloat() * (highLife - lowLife);
+            particles.life[i] = particles.startLife[i];
+            colors[i * 4] = startColor.r;
+            colors[i * 4 + 1] = startColor.g;
+            colors[i * 4 + 2] = startColor.b;
+            colors[i * 4 + 3] = startColor.a;
+            particles.sizes[i] = startSize;
         }
 
-        p.startlife = lowLife + FastMath.nextRandomFloat() * (highLife - lowLife);
-        p.life = p.startlife;
-        p.color.set(startColor);
-        p.size = startSize;
         //shape.getRandomPoint(p.position);
-        particleInfluencer.influenceParticle(p, shape);
-        if (worldSpace) {
-            worldTransform.transformVector(p.position, p.position);
-            worldTransform.getRotation().mult(p.velocity, p.velocity);
-            // TODO: Make scale relevant somehow??
-        }
-        if (randomAngle) {
-            p.angle = FastMath.nextRandomFloat() * FastMath.TWO_PI;
-        }
-        if (rotateSpeed != 0) {
-            p.rotateSpeed = rotateSpeed * (0.2f + (FastMath.nextRandomFloat() * 2f - 1f) * .8f);
+        if (particleInfluencer instanceof ParticleRangeInfluencer) {
+            ((ParticleRangeInfluencer) particleInfluencer).influenceParticles(particles, start, end, shape);
+        } else {
+            Particle p = new Particle();
+            for (int i = start; i < end; i++) {
+                particleInfluencer.influenceParticle(particles.get(i, p), shape);
+                particles.set(i, p);
+            }
         }
 
-        temp.set(p.position).addLocal(p.size, p.size, p.size);
-        max.maxLocal(temp);
-        temp.set(p.position).subtractLocal(p.size, p.size, p.size);
-        min.minLocal(temp);
+        for (int i = start; i < end; i++) {
+            if (worldSpace) {
+                particles.setPosition(i, worldTransform.transformVector(particles.getPosition(i, temp), temp));
+                particles.setVelocity(i, worldTransform.getRotation().mult(particles.getVelocity(i, temp), temp));
+                // TODO: Make scale relevant somehow??
+            }
+            if (randomAngle) {
+                particles.angles[i] = FastMath.nextRandomFloat() * FastMath.TWO_PI;
+            }
+            if (rotateSpeed != 0) {
+                particles.rotateSpeeds[i] = rotateSpeed * (0.2f + (FastMath.nextRandomFloat() * 2f - 1f) * .8f);
+            }
+            growBound(bound, particles.positions, i * 3, startSize);
+        }
 
-        ++lastUsed;
-        firstUnUsed = idx + 1;
-        return p;
+        lastUsed = end - 1;
+        return end - start;
     }
 
     /**
@@ -887,10 +972,13 @@ public class ParticleEmitter extends Geometry {
         if (!Vector3f.isValidVector(max)) {
             max.set(Vector3f.NEGATIVE_INFINITY);
         }
+        setBound(bound, min, max);
 
-        while (emitParticle(min, max) != null);
+        // dead particles may be in between, move them to the end first
+        compact();
+        emitParticles(particles.getCapacity(), bound);
 
-        bbox.setMinMax(min, max);
+        bbox.setMinMax(min.set(bound[0], bound[1], bound[2]), max.set(bound[3], bound[4], bound[5]));
         this.setBoundRefresh();
 
         vars.release();
@@ -901,11 +989,10 @@ public class ParticleEmitter extends Geometry {
      * particles will be dead and no longer visible.
      */
     public void killAllParticles() {
-        for (int i = 0; i < particles.length; ++i) {
-            if (particles[i].life > 0) {
-                this.freeParticle(i);
-            }
+        for (int i = 0; i <= lastUsed; ++i) {
+            particles.clear(i);
         }
+        lastUsed = -1;
     }
     
     /**
@@ -915,113 +1002,191 @@ public class ParticleEmitter extends Geometry {
      * @see #getParticles() 
      */
     public void killParticle(int index){
-        freeParticle(index);
+        particles.clear(index);
+        if (index == lastUsed) {
+            trimLastUsed();
+        }
     }
 
-    private void freeParticle(int idx) {
-        Particle p = particles[idx];
-        p.life = 0;
-        p.size = 0f;
-        p.color.set(0, 0, 0, 0);
-        p.imageIndex = 0;
-        p.angle = 0;
-        p.rotateSpeed = 0;
+    private void trimLastUsed() {
+        while (lastUsed >= 0 && particles.life[lastUsed] == 0) {
+            lastUsed--;
+        }
+    }
 
-        if (idx == lastUsed) {
-            while (lastUsed >= 0 && particles[lastUsed].life == 0) {
-                lastUsed--;
+    /**
+     * Moves the living particles to the start of the arrays, keeping 
+     * their order.
+     */
+    private void compact() {
+        float[] life = particles.life;
+        int alive = 0;
+        for (int i = 0; i <= lastUsed; i++) {
+            if (life[i] != 0) {
+                if (i != alive) {
+                    particles.swap(alive, i);
+                }
+                alive++;
             }
         }
-        if (idx < firstUnUsed) {
-            firstUnUsed = idx;
-        }
+        lastUsed = alive - 1;
     }
 
-    private void swap(int idx1, int idx2) {
-        Particle p1 = particles[idx1];
-        particles[idx1] = particles[idx2];
-        particles[idx2] = p1;
+    private static void setBound(float[] bound, Vector3f min, Vector3f max) {
+        bound[0] = min.x;
+        bound[1] = min.y;
+        bound[2] = min.z;
+        bound[3] = max.x;
+        bound[4] = max.y;
+        bound[5] = max.z;
     }
 
-    private void updateParticle(Particle p, float tpf, Vector3f min, Vector3f max){
+    private static void growBound(float[] bound, float[] positions, int i3, float size) {
+        bound[0] = Math.min(bound[0], positions[i3] - size);
+        bound[1] = Math.min(bound[1], positions[i3 + 1] - size);
+        bound[2] = Math.min(bound[2], positions[i3 + 2] - size);
+        bound[3] = Math.max(bound[3], positions[i3] + size);
+        bound[4] = Math.max(bound[4], positions[i3 + 1] + size);
+        bound[5] = Math.max(bound[5], positions[i3 + 2] + size);
+    }
+
+    private void updateParticle(int i, float tpf, float[] bound){
+        float[] position = particles.positions;
+        float[] velocity = particles.velocities;
+        float[] color = particles.colors;
+        int i3 = i * 3;
+        int i4 = i * 4;
+
         // applying gravity
-        p.velocity.x -= gravity.x * tpf;
-        p.velocity.y -= gravity.y * tpf;
-        p.velocity.z -= gravity.z * tpf;
-        temp.set(p.velocity).multLocal(tpf);
-        p.position.addLocal(temp);
+        velocity[i3] -= gravity.x * tpf;
+        velocity[i3 + 1] -= gravity.y * tpf;
+        velocity[i3 + 2] -= gravity.z * tpf;
+        position[i3] += velocity[i3] * tpf;
+        position[i3 + 1] += velocity[i3 + 1] * tpf;
+        position[i3 + 2] += velocity[i3 + 2] * tpf;
 
         // affecting color, size and angle
-        float b = (p.startlife - p.life) / p.startlife;
-        p.color.interpolate(startColor, endColor, b);
-        p.size = FastMath.interpolateLinear(b, startSize, endSize);
-        p.angle += p.rotateSpeed * tpf;
+        float b = (particles.startLife[i] - particles.life[i]) / particles.startLife[i];
+        color[i4] = (1 - b) * startColor.r + b * endColor.r;
+        color[i4 + 1] = (1 - b) * startColor.g + b * endColor.g;
+        color[i4 + 2] = (1 - b) * startColor.b + b * endColor.b;
+        color[i4 + 3] = (1 - b) * startColor.a + b * endColor.a;
+        float size = FastMath.interpolateLinear(b, startSize, endSize);
+        particles.sizes[i] = size;
+        particles.angles[i] += particles.rotateSpeeds[i] * tpf;
 
         // Computing bounding volume
-        temp.set(p.position).addLocal(p.size, p.size, p.size);
-        max.maxLocal(temp);
-        temp.set(p.position).subtractLocal(p.size, p.size, p.size);
-        min.minLocal(temp);
+        growBound(bound, position, i3, size);
 
         if (!selectRandomImage) {
-            p.imageIndex = (int) (b * imagesX * imagesY);
+            particles.imageIndices[i] = (int) (b * imagesX * imagesY);
         }
     }
-    
-    private void updateParticleState(float tpf) {
-        // Force world transform to update
-        this.getWorldTransform();
 
-        TempVars vars = TempVars.get();
-
-        Vector3f min = vars.vect1.set(Vector3f.POSITIVE_INFINITY);
-        Vector3f max = vars.vect2.set(Vector3f.NEGATIVE_INFINITY);
-
-        for (int i = 0; i < particles.length; ++i) {
-            Particle p = particles[i];
-            if (p.life == 0) { // particle is dead
-//                assert i <= firstUnUsed;
+    /**
+     * Ages and updates the particles from <code>start</code> to 
+     * <code>end</code>, killing those that reach the end of their life.
+     * Only the given particles are touched, so ranges can be updated
+     * concurrently.
+     */
+    private void updateParticles(int start, int end, float tpf, float[] bound) {
+        float[] life = particles.life;
+        for (int i = start; i < end; i++) {
+            if (life[i] == 0) { // particle is dead
                 continue;
             }
 
-            p.life -= tpf;
-            if (p.life <= 0) {
-                this.freeParticle(i);
+            life[i] -= tpf;
+            if (life[i] <= 0) {
+                particles.clear(i);
                 continue;
             }
 
-            updateParticle(p, tpf, min, max);
+            updateParticle(i, tpf, bound);
+        }
+    }
+
+    private void updateParticles(final float tpf, float[] bound) {
+        int count = lastUsed + 1;
+        if (updateExecutor == null || count <= PARTICLES_PER_TASK) {
+            updateParticles(0, count, tpf, bound);
+            return;
+        }
+
+        List<Callable<float[]>> tasks = new ArrayList<Callable<float[]>>();
+        for (int start = 0; start < count; start += PARTICLES_PER_TASK) {
+            final int s = start;
+            final int e = Math.min(count, start + PARTICLES_PER_TASK);
+            tasks.add(new Callable<float[]>() {
+                public float[] call() {
+                    float[] taskBound = new float[6];
+                    setBound(taskBound, Vector3f.POSITIVE_INFINITY, Vector3f.NEGATIVE_INFINITY);
+                    updateParticles(s, e, tpf, taskBound);
+                    return taskBound;
+                }
+            });
+        }
 
-            if (firstUnUsed < i) {
-                this.swap(firstUnUsed, i);
-                if (i == lastUsed) {
-                    lastUsed = firstUnUsed;
+        try {
+            for (Future<float[]> result : updateExecutor.invokeAll(tasks)) {
+                float[] taskBound = result.get();
+                for (int i = 0; i < 3; i++) {
+                    bound[i] = Math.min(bound[i], taskBound[i]);
+                    bound[i + 3] = Math.max(bound[i + 3], taskBound[i + 3]);
                 }
-                firstUnUsed++;
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while updating particles");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause().toString());
         }
+    }
+    
+    private void updateParticleState(float tpf) {
+        // Force world transform to update
+        this.getWorldTransform();
+
+        setBound(bound, Vector3f.POSITIVE_INFINITY, Vector3f.NEGATIVE_INFINITY);
+
+        updateParticles(tpf, bound);
+        compact();
         
         // Spawns particles within the tpf timeslot with proper age
         float interval = 1f / particlesPerSec;
         tpf += timeDifference;
-        while (tpf > interval){
-            tpf -= interval;
-            Particle p = emitParticle(min, max);
-            if (p != null){
-                p.life -= tpf;
-                if (p.life <= 0){
-                    freeParticle(lastUsed);
-                }else{
-                    updateParticle(p, tpf, min, max);
+        int count = 0;
+        for (float t = tpf; t > interval; t -= interval) {
+            count++;
+        }
+        if (count > 0) {
+            int start = lastUsed + 1;
+            int emitted = emitParticles(count, bound);
+            for (int i = 0; i < count; i++) {
+                tpf -= interval;
+                if (i >= emitted) {
+                    continue;
+                }
+                int idx = start + i;
+                particles.life[idx] -= tpf;
+                if (particles.life[idx] <= 0) {
+                    particles.clear(idx);
+                } else {
+                    updateParticle(idx, tpf, bound);
                 }
             }
+            trimLastUsed();
         }
         timeDifference = tpf;
 
+        TempVars vars = TempVars.get();
         BoundingBox bbox = (BoundingBox) this.getMesh().getBound();
-        bbox.setMinMax(min, max);
+        bbox.setMinMax(vars.vect1.set(bound[0], bound[1], bound[2]), 
+                       vars.vect2.set(bound[3], bound[4], bound[5]));
         this.setBoundRefresh();
-
         vars.release();
     }
 
@@ -1100,7 +1265,7 @@ public class ParticleEmitter extends Geometry {
         oc.write(shape, "shape", DEFAULT_SHAPE);
         oc.write(meshType, "meshType", ParticleMesh.Type.Triangle);
         oc.write(enabled, "enabled", true);
-        oc.write(particles.length, "numParticles", 0);
+        oc.write(particles.getCapacity(), "numParticles", 0);
         oc.write(particlesPerSec, "particlesPerSec", 0);
         oc.write(lowLife, "lowLife", 0);
         oc.write(highLife, "highLife", 0);
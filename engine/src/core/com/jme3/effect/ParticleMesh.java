@@ -62,6 +62,14 @@ public abstract class ParticleMesh extends Mesh {
         Triangle;
     }
 
+    /**
+     * Particles given to {@link #updateParticleData(com.jme3.effect.Particle[], com.jme3.renderer.Camera, com.jme3.math.Matrix3f) }
+     * by the default implementation of 
+     * {@link #updateParticleData(com.jme3.effect.ParticleData, com.jme3.renderer.Camera, com.jme3.math.Matrix3f) },
+     * reused every frame.
+     */
+    private transient Particle[] particleArray;
+
     /**
      * Initialize mesh data.
      * 
@@ -82,4 +90,27 @@ public abstract class ParticleMesh extends Mesh {
      */
     public abstract void updateParticleData(Particle[] particles, Camera cam, Matrix3f inverseRotation);
 
+    /**
+     * Update the particle visual data from the particle arrays of the 
+     * emitter. Typically called every frame.
+     * <p>
+     * The default implementation copies the particles into 
+     * {@link Particle} objects, meshes should override it to write
+     * the vertex buffers directly.
+     */
+    public void updateParticleData(ParticleData particles, Camera cam, Matrix3f inverseRotation) {
+        Particle[] array = particleArray;
+        if (array == null || array.length != particles.getCapacity()) {
+            array = new Particle[particles.getCapacity()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = new Particle();
+            }
+            particleArray = array;
+        }
+        for (int i = 0; i < array.length; i++) {
+            particles.get(i, array[i]);
+        }
+        updateParticleData(array, cam, inverseRotation);
+    }
+
 }
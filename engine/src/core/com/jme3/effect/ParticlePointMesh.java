@@ -47,6 +47,11 @@ public class ParticlePointMesh extends ParticleMesh {
     private int imagesX = 1;
     private int imagesY = 1;
 
+    // vertex data of the particles, copied into the buffers in bulk
+    private float[] sizeData;
+    private int[] colorData;
+    private float[] texCoordData;
+
     @Override
     public void setImagesXY(int imagesX, int imagesY) {
         this.imagesX = imagesX;
@@ -114,6 +119,11 @@ public class ParticlePointMesh extends ParticleMesh {
 
     @Override
     public void updateParticleData(Particle[] particles, Camera cam, Matrix3f inverseRotation) {
+        updateParticleData(new ParticleData(particles), cam, inverseRotation);
+    }
+
+    @Override
+    public void updateParticleData(ParticleData particles, Camera cam, Matrix3f inverseRotation) {
         VertexBuffer pvb = getBuffer(VertexBuffer.Type.Position);
         FloatBuffer positions = (FloatBuffer) pvb.getData();
 
@@ -126,36 +136,48 @@ public class ParticlePointMesh extends ParticleMesh {
         VertexBuffer tvb = getBuffer(VertexBuffer.Type.TexCoord);
         FloatBuffer texcoords = (FloatBuffer) tvb.getData();
 
-        float sizeScale = emitter.getWorldScale().x;
+        int numParticles = particles.getCapacity();
+        if (sizeData == null || sizeData.length != numParticles) {
+            sizeData = new float[numParticles];
+            colorData = new int[numParticles];
+            texCoordData = new float[numParticles * 4];
+        }
 
-        // update data in vertex buffers
-        positions.rewind();
-        colors.rewind();
-        sizes.rewind();
-        texcoords.rewind();
-        for (int i = 0; i < particles.length; i++){
-            Particle p = particles[i];
-            
-            positions.put(p.position.x)
-                     .put(p.position.y)
-                     .put(p.position.z);
+        float sizeScale = emitter.getWorldScale().x;
+        int[] imageIndices = particles.imageIndices;
 
-            sizes.put(p.size * sizeScale);
-            colors.putInt(p.color.asIntABGR());
+        for (int i = 0; i < numParticles; i++){
+            sizeData[i] = particles.sizes[i] * sizeScale;
+            colorData[i] = particles.getColorABGR(i);
 
-            int imgX = p.imageIndex % imagesX;
-            int imgY = (p.imageIndex - imgX) / imagesY;
+            int imgX = imageIndices[i] % imagesX;
+            int imgY = (imageIndices[i] - imgX) / imagesY;
 
             float startX = ((float) imgX) / imagesX;
             float startY = ((float) imgY) / imagesY;
-            float endX   = startX + (1f / imagesX);
-            float endY   = startY + (1f / imagesY);
 
-            texcoords.put(startX).put(startY).put(endX).put(endY);
+            int t = i * 4;
+            texCoordData[t]     = startX;
+            texCoordData[t + 1] = startY;
+            texCoordData[t + 2] = startX + (1f / imagesX);
+            texCoordData[t + 3] = startY + (1f / imagesY);
         }
+
+        // update data in vertex buffers, positions are 
+        // copied straight from the particles
+        positions.clear();
+        positions.put(particles.positions);
         positions.flip();
-        colors.flip();
+
+        colors.clear();
+        colors.asIntBuffer().put(colorData);
+
+        sizes.clear();
+        sizes.put(sizeData);
         sizes.flip();
+
+        texcoords.clear();
+        texcoords.put(texCoordData);
         texcoords.flip();
 
         // force renderer to re-send data to GPU
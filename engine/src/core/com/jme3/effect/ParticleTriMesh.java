@@ -52,6 +52,10 @@ public class ParticleTriMesh extends ParticleMesh {
 //    private ParticleComparator comparator = new ParticleComparator();
     private ParticleEmitter emitter;
 //    private Particle[] particlesCopy;
+    // vertex data of the particles, copied into the buffers in bulk
+    private float[] positionData;
+    private int[] colorData;
+    private float[] texCoordData;
 
     @Override
     public void initParticleData(ParticleEmitter emitter, int numParticles) {
@@ -146,6 +150,11 @@ public class ParticleTriMesh extends ParticleMesh {
 
     @Override
     public void updateParticleData(Particle[] particles, Camera cam, Matrix3f inverseRotation) {
+        updateParticleData(new ParticleData(particles), cam, inverseRotation);
+    }
+
+    @Override
+    public void updateParticleData(ParticleData particles, Camera cam, Matrix3f inverseRotation) {
 //        System.arraycopy(particles, 0, particlesCopy, 0, particlesCopy.length);
 //        comparator.setCamera(cam);
 //        Arrays.sort(particlesCopy, comparator);
@@ -162,6 +171,16 @@ public class ParticleTriMesh extends ParticleMesh {
         VertexBuffer tvb = getBuffer(VertexBuffer.Type.TexCoord);
         FloatBuffer texcoords = (FloatBuffer) tvb.getData();
 
+        int numParticles = particles.getCapacity();
+        if (positionData == null || positionData.length != numParticles * 12) {
+            positionData = new float[numParticles * 12];
+            colorData = new int[numParticles * 4];
+            texCoordData = null;
+        }
+        if (uniqueTexCoords && texCoordData == null) {
+            texCoordData = new float[numParticles * 8];
+        }
+
         Vector3f camUp   = cam.getUp();
         Vector3f camLeft = cam.getLeft();
         Vector3f camDir  = cam.getDirection();
@@ -180,44 +199,50 @@ public class ParticleTriMesh extends ParticleMesh {
             left.set(camLeft);
         }
 
-        // update data in vertex buffers
-        positions.clear();
-        colors.clear();
-        texcoords.clear();
+        // build the vertex data in arrays, then copy them
+        // into the vertex buffers in bulk
         Vector3f faceNormal = emitter.getFaceNormal();
-        
-        for (int i = 0; i < particles.length; i++){
-            Particle p = particles[i];
-            boolean dead = p.life == 0;
-            if (dead){
-                positions.put(0).put(0).put(0);
-                positions.put(0).put(0).put(0);
-                positions.put(0).put(0).put(0);
-                positions.put(0).put(0).put(0);
+        float[] pos = particles.positions;
+        float[] vel = particles.velocities;
+        float[] sizes = particles.sizes;
+        float[] angles = particles.angles;
+        float[] life = particles.life;
+        int[] imageIndices = particles.imageIndices;
+        float[] pd = positionData;
+
+        for (int i = 0; i < numParticles; i++){
+            int v = i * 12;
+            if (life[i] == 0){
+                for (int j = 0; j < 12; j++){
+                    pd[v + j] = 0;
+                }
                 continue;
             }
-            
+
+            int i3 = i * 3;
+            float size = sizes[i];
+            float angle = angles[i];
             if (facingVelocity){
-                left.set(p.velocity).normalizeLocal();
+                left.set(vel[i3], vel[i3 + 1], vel[i3 + 2]).normalizeLocal();
                 camDir.cross(left, up);
-                up.multLocal(p.size);
-                left.multLocal(p.size);
+                up.multLocal(size);
+                left.multLocal(size);
             }else if (faceNormal != null){
                 up.set(faceNormal).crossLocal(Vector3f.UNIT_X);
                 faceNormal.cross(up, left);
-                up.multLocal(p.size);
-                left.multLocal(p.size);
-                if (p.angle != 0) {
+                up.multLocal(size);
+                left.multLocal(size);
+                if (angle != 0) {
                     TempVars vars = TempVars.get();
                     vars.vect1.set(faceNormal).normalizeLocal();
-                    vars.quat1.fromAngleNormalAxis(p.angle, vars.vect1);
+                    vars.quat1.fromAngleNormalAxis(angle, vars.vect1);
                     vars.quat1.multLocal(left);
                     vars.quat1.multLocal(up);
                     vars.release();
                 }
-            }else if (p.angle != 0){
-                float cos = FastMath.cos(p.angle) * p.size;
-                float sin = FastMath.sin(p.angle) * p.size;
+            }else if (angle != 0){
+                float cos = FastMath.cos(angle) * size;
+                float sin = FastMath.sin(angle) * size;
 
                 left.x = camLeft.x * cos + camUp.x * sin;
                 left.y = camLeft.y * cos + camUp.y * sin;
@@ -229,53 +254,66 @@ public class ParticleTriMesh extends ParticleMesh {
             }else{
                 up.set(camUp);
                 left.set(camLeft);
-                up.multLocal(p.size);
-                left.multLocal(p.size);
+                up.multLocal(size);
+                left.multLocal(size);
             }
 
-            positions.put(p.position.x + left.x + up.x)
-                     .put(p.position.y + left.y + up.y)
-                     .put(p.position.z + left.z + up.z);
+            float x = pos[i3], y = pos[i3 + 1], z = pos[i3 + 2];
 
-            positions.put(p.position.x - left.x + up.x)
-                     .put(p.position.y - left.y + up.y)
-                     .put(p.position.z - left.z + up.z);
+            pd[v]      = x + left.x + up.x;
+            pd[v + 1]  = y + left.y + up.y;
+            pd[v + 2]  = z + left.z + up.z;
 
-            positions.put(p.position.x + left.x - up.x)
-                     .put(p.position.y + left.y - up.y)
-                     .put(p.position.z + left.z - up.z);
+            pd[v + 3]  = x - left.x + up.x;
+            pd[v + 4]  = y - left.y + up.y;
+            pd[v + 5]  = z - left.z + up.z;
 
-            positions.put(p.position.x - left.x - up.x)
-                     .put(p.position.y - left.y - up.y)
-                     .put(p.position.z - left.z - up.z);
+            pd[v + 6]  = x + left.x - up.x;
+            pd[v + 7]  = y + left.y - up.y;
+            pd[v + 8]  = z + left.z - up.z;
+
+            pd[v + 9]  = x - left.x - up.x;
+            pd[v + 10] = y - left.y - up.y;
+            pd[v + 11] = z - left.z - up.z;
 
             if (uniqueTexCoords){
-                int imgX = p.imageIndex % imagesX;
-                int imgY = (p.imageIndex - imgX) / imagesY;
+                int imgX = imageIndices[i] % imagesX;
+                int imgY = (imageIndices[i] - imgX) / imagesY;
 
                 float startX = ((float) imgX) / imagesX;
                 float startY = ((float) imgY) / imagesY;
                 float endX   = startX + (1f / imagesX);
                 float endY   = startY + (1f / imagesY);
 
-                texcoords.put(startX).put(endY);
-                texcoords.put(endX).put(endY);
-                texcoords.put(startX).put(startY);
-                texcoords.put(endX).put(startY);
+                int t = i * 8;
+                texCoordData[t]     = startX;
+                texCoordData[t + 1] = endY;
+                texCoordData[t + 2] = endX;
+                texCoordData[t + 3] = endY;
+                texCoordData[t + 4] = startX;
+                texCoordData[t + 5] = startY;
+                texCoordData[t + 6] = endX;
+                texCoordData[t + 7] = startY;
             }
 
-            int abgr = p.color.asIntABGR();
-            colors.putInt(abgr);
-            colors.putInt(abgr);
-            colors.putInt(abgr);
-            colors.putInt(abgr);
+            int abgr = particles.getColorABGR(i);
+            int c = i * 4;
+            colorData[c]     = abgr;
+            colorData[c + 1] = abgr;
+            colorData[c + 2] = abgr;
+            colorData[c + 3] = abgr;
         }
 
         positions.clear();
+        positions.put(positionData);
+        positions.clear();
+
         colors.clear();
-        if (!uniqueTexCoords)
+        colors.asIntBuffer().put(colorData);
+
+        if (uniqueTexCoords){
             texcoords.clear();
-        else{
+            texcoords.put(texCoordData);
             texcoords.clear();
             tvb.updateData(texcoords);
         }
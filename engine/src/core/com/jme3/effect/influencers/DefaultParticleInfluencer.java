@@ -32,6 +32,7 @@
 package com.jme3.effect.influencers;
 
 import com.jme3.effect.Particle;
+import com.jme3.effect.ParticleData;
 import com.jme3.effect.shapes.EmitterShape;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
@@ -40,6 +41,8 @@ import com.jme3.export.OutputCapsule;
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This emitter influences the particles so that they move all in the same direction.
@@ -47,13 +50,18 @@ import java.io.IOException;
  * This influencer is default for the particle emitter.
  * @author Marcin Roguski (Kaelthas)
  */
-public class DefaultParticleInfluencer implements ParticleInfluencer {
+public class DefaultParticleInfluencer implements ParticleRangeInfluencer {
 
     //Version #1 : changed startVelocity to initialvelocity for consistency with accessors 
     //and also changed it in serialization
     public static final int SAVABLE_VERSION = 1;
     /** Temporary variable used to help with calculations. */
     protected transient Vector3f temp = new Vector3f();
+    /** Temporary particle state used when influencing ranges of particles. */
+    protected transient Vector3f position = new Vector3f();
+    protected transient Vector3f velocity = new Vector3f();
+    /** Classes for which influencing ranges gives the same result as single particles. */
+    private static final Map<Class<?>, Boolean> rangeSafe = new ConcurrentHashMap<Class<?>, Boolean>();
     /** The initial velocity of the particles. */
     protected Vector3f initialVelocity = new Vector3f();
     /** The velocity's variation of the particles. */
@@ -71,12 +79,91 @@ public class DefaultParticleInfluencer implements ParticleInfluencer {
      *        the particle to be affected
      */
     protected void applyVelocityVariation(Particle particle) {
-    	particle.velocity.set(initialVelocity);
+        applyVelocityVariation(particle.velocity);
+    }
+
+    private void applyVelocityVariation(Vector3f velocity) {
+    	velocity.set(initialVelocity);
         temp.set(FastMath.nextRandomFloat(), FastMath.nextRandomFloat(), FastMath.nextRandomFloat());
         temp.multLocal(2f);
         temp.subtractLocal(1f, 1f, 1f);
         temp.multLocal(initialVelocity.length());
-        particle.velocity.interpolate(temp, velocityVariation);
+        velocity.interpolate(temp, velocityVariation);
+    }
+
+    public void influenceParticles(ParticleData particles, int start, int end, EmitterShape emitterShape) {
+        if (!isRangeSafe(getClass())) {
+            // A subclass only knows how to influence single particles
+            Particle particle = new Particle();
+            for (int i = start; i < end; i++) {
+                influenceParticle(particles.get(i, particle), emitterShape);
+                particles.set(i, particle);
+            }
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            influenceParticle(particles, i, emitterShape);
+        }
+    }
+
+    /**
+     * Influences a single particle of a range, the same way as
+     * {@link #influenceParticle(com.jme3.effect.Particle, com.jme3.effect.shapes.EmitterShape) }.
+     * Subclasses overriding one must override the other.
+     * @param particles
+     *        the particles of the emitter
+     * @param index
+     *        the particle to be affected
+     * @param emitterShape
+     *        the shape of it emitter
+     */
+    protected void influenceParticle(ParticleData particles, int index, EmitterShape emitterShape) {
+        emitterShape.getRandomPoint(position);
+        particles.setPosition(index, position);
+        this.applyVelocityVariation(particles, index);
+    }
+
+    /**
+     * This method applies the variation to a particle of a range, the same way as 
+     * {@link #applyVelocityVariation(com.jme3.effect.Particle) }.
+     * Subclasses overriding one must override the other.
+     * @param particles
+     *        the particles of the emitter
+     * @param index
+     *        the particle to be affected
+     */
+    protected void applyVelocityVariation(ParticleData particles, int index) {
+        applyVelocityVariation(velocity);
+        particles.setVelocity(index, velocity);
+    }
+
+    /**
+     * Returns true if the range methods of the class are declared by the 
+     * same class as the single particle methods, or a subclass of it. 
+     * Otherwise a subclass which predates ranges has overridden the single
+     * particle methods only.
+     */
+    private static boolean isRangeSafe(Class<?> c) {
+        Boolean result = rangeSafe.get(c);
+        if (result == null) {
+            result = declaringClass(c, "influenceParticle", Particle.class, EmitterShape.class)
+                        .isAssignableFrom(declaringClass(c, "influenceParticle", ParticleData.class, int.class, EmitterShape.class))
+                  && declaringClass(c, "applyVelocityVariation", Particle.class)
+                        .isAssignableFrom(declaringClass(c, "applyVelocityVariation", ParticleData.class, int.class));
+            rangeSafe.put(c, result);
+        }
+        return result;
+    }
+
+    private static Class<?> declaringClass(Class<?> c, String name, Class<?>... parameterTypes) {
+        for (; c != null; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return c;
+            } catch (NoSuchMethodException ex) {
+            }
+        }
+        throw new AssertionError(name);
     }
 
     @Override
@@ -103,6 +190,9 @@ public class DefaultParticleInfluencer implements ParticleInfluencer {
         try {
             DefaultParticleInfluencer clone = (DefaultParticleInfluencer) super.clone();
             clone.initialVelocity = initialVelocity.clone();
+            clone.temp = new Vector3f();
+            clone.position = new Vector3f();
+            clone.velocity = new Vector3f();
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError();
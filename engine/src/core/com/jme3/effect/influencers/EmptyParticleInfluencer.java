@@ -32,6 +32,7 @@
 package com.jme3.effect.influencers;
 
 import com.jme3.effect.Particle;
+import com.jme3.effect.ParticleData;
 import com.jme3.effect.shapes.EmitterShape;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -43,7 +44,7 @@ import java.io.IOException;
  * It makes particles not to move.
  * @author Marcin Roguski (Kaelthas)
  */
-public class EmptyParticleInfluencer implements ParticleInfluencer {
+public class EmptyParticleInfluencer implements ParticleRangeInfluencer {
 
     @Override
     public void write(JmeExporter ex) throws IOException {
@@ -57,6 +58,9 @@ public class EmptyParticleInfluencer implements ParticleInfluencer {
     public void influenceParticle(Particle particle, EmitterShape emitterShape) {
     }
 
+    public void influenceParticles(ParticleData particles, int start, int end, EmitterShape emitterShape) {
+    }
+
     @Override
     public void setInitialVelocity(Vector3f initialVelocity) {
     }
@@ -32,6 +32,7 @@
 package com.jme3.effect.influencers;
 
 import com.jme3.effect.Particle;
+import com.jme3.effect.ParticleData;
 import com.jme3.effect.shapes.EmitterShape;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
@@ -39,6 +40,7 @@ import com.jme3.export.JmeImporter;
 import com.jme3.export.OutputCapsule;
 import com.jme3.math.FastMath;
 import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
 import java.io.IOException;
 
 /**
@@ -63,25 +65,39 @@ public class NewtonianParticleInfluencer extends DefaultParticleInfluencer {
 
     @Override
     public void influenceParticle(Particle particle, EmitterShape emitterShape) {
-        emitterShape.getRandomPointAndNormal(particle.position, particle.velocity);
+        influence(particle.position, particle.velocity, emitterShape);
+        if (velocityVariation != 0.0f) {
+            this.applyVelocityVariation(particle);
+        }
+    }
+
+    @Override
+    protected void influenceParticle(ParticleData particles, int index, EmitterShape emitterShape) {
+        influence(position, velocity, emitterShape);
+        particles.setPosition(index, position);
+        particles.setVelocity(index, velocity);
+        if (velocityVariation != 0.0f) {
+            this.applyVelocityVariation(particles, index);
+        }
+    }
+
+    private void influence(Vector3f position, Vector3f velocity, EmitterShape emitterShape) {
+        emitterShape.getRandomPointAndNormal(position, velocity);
         // influencing the particle's velocity
         if (surfaceTangentFactor == 0.0f) {
-            particle.velocity.multLocal(normalVelocity);
+            velocity.multLocal(normalVelocity);
         } else {
             // calculating surface tangent (velocity contains the 'normal' value)
-            temp.set(particle.velocity.z * surfaceTangentFactor, particle.velocity.y * surfaceTangentFactor, -particle.velocity.x * surfaceTangentFactor);
+            temp.set(velocity.z * surfaceTangentFactor, velocity.y * surfaceTangentFactor, -velocity.x * surfaceTangentFactor);
             if (surfaceTangentRotation != 0.0f) {// rotating the tangent
                 Matrix3f m = new Matrix3f();
-                m.fromAngleNormalAxis(FastMath.PI * surfaceTangentRotation, particle.velocity);
+                m.fromAngleNormalAxis(FastMath.PI * surfaceTangentRotation, velocity);
                 temp = m.multLocal(temp);
             }
             // applying normal factor (this must be done first)
-            particle.velocity.multLocal(normalVelocity);
+            velocity.multLocal(normalVelocity);
             // adding tangent vector
-            particle.velocity.addLocal(temp);
-        }
-        if (velocityVariation != 0.0f) {
-            this.applyVelocityVariation(particle);
+            velocity.addLocal(temp);
         }
     }
 
@@ -138,8 +154,18 @@ public class NewtonianParticleInfluencer extends DefaultParticleInfluencer {
 
     @Override
     protected void applyVelocityVariation(Particle particle) {
+        applyVelocityVariation(particle.velocity);
+    }
+
+    @Override
+    protected void applyVelocityVariation(ParticleData particles, int index) {
+        applyVelocityVariation(particles.getVelocity(index, velocity));
+        particles.setVelocity(index, velocity);
+    }
+
+    private void applyVelocityVariation(Vector3f velocity) {
         temp.set(FastMath.nextRandomFloat() * velocityVariation, FastMath.nextRandomFloat() * velocityVariation, FastMath.nextRandomFloat() * velocityVariation);
-        particle.velocity.addLocal(temp);
+        velocity.addLocal(temp);
     }
 
     @Override
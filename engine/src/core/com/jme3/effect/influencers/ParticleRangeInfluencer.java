@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.effect.influencers;
+
+import com.jme3.effect.ParticleData;
+import com.jme3.effect.shapes.EmitterShape;
+
+/**
+ * A {@link ParticleInfluencer} that can influence a range of newly 
+ * emitted particles at once, working directly on the arrays of the
+ * emitter's {@link ParticleData}.
+ * <p>
+ * Emitters use this instead of {@link #influenceParticle(com.jme3.effect.Particle, com.jme3.effect.shapes.EmitterShape) }
+ * when it is implemented. The result must be the same as influencing 
+ * each particle of the range on its own.
+ */
+public interface ParticleRangeInfluencer extends ParticleInfluencer {
+
+    /**
+     * Influences the particles from <code>start</code> (inclusive) to
+     * <code>end</code> (exclusive).
+     * @param particles
+     *        the particles of the emitter
+     * @param start
+     *        the first particle to influence
+     * @param end
+     *        the index after the last particle to influence
+     * @param emitterShape
+     *        the shape of it emitter
+     */
+    void influenceParticles(ParticleData particles, int start, int end, EmitterShape emitterShape);
+}
@@ -32,6 +32,7 @@
 package com.jme3.effect.influencers;
 
 import com.jme3.effect.Particle;
+import com.jme3.effect.ParticleData;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -57,18 +58,28 @@ public class RadialParticleInfluencer extends DefaultParticleInfluencer {
      */
     @Override
     protected void applyVelocityVariation(Particle particle) {
-        particle.velocity.set(initialVelocity);
-        temp.set(particle.position).subtractLocal(origin).normalizeLocal().multLocal(radialVelocity);
+        applyVelocityVariation(particle.position, particle.velocity);
+    }
+
+    @Override
+    protected void applyVelocityVariation(ParticleData particles, int index) {
+        applyVelocityVariation(particles.getPosition(index, position), velocity);
+        particles.setVelocity(index, velocity);
+    }
+
+    private void applyVelocityVariation(Vector3f position, Vector3f velocity) {
+        velocity.set(initialVelocity);
+        temp.set(position).subtractLocal(origin).normalizeLocal().multLocal(radialVelocity);
         if (horizontal) {
             temp.y = 0;
         }
-        particle.velocity.addLocal(temp);
+        velocity.addLocal(temp);
 
         temp.set(FastMath.nextRandomFloat(), FastMath.nextRandomFloat(), FastMath.nextRandomFloat());
         temp.multLocal(2f);
         temp.subtractLocal(1f, 1f, 1f);
         temp.multLocal(initialVelocity.length());
-        particle.velocity.interpolate(temp, velocityVariation);
+        velocity.interpolate(temp, velocityVariation);
     }
 
     /**
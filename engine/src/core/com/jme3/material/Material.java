@@ -829,7 +829,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
             }
             vars.release();
             r.setShader(shader);
-            r.renderMesh(g.getMesh(), g.getLodLevel(), 1);
+            r.renderMesh(g.getMesh(), g.getLodLevel(), g.getMesh().getInstanceCount());
         }
 
         if (isFirstLight && lightList.size() > 0) {
@@ -839,7 +839,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
             lightColor.setValue(VarType.Vector4, ColorRGBA.BlackNoAlpha);
             lightPos.setValue(VarType.Vector4, nullDirLight);
             r.setShader(shader);
-            r.renderMesh(g.getMesh(), g.getLodLevel(), 1);
+            r.renderMesh(g.getMesh(), g.getLodLevel(), g.getMesh().getInstanceCount());
         }
     }
 
@@ -1060,7 +1060,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
             r.setShader(shader);
         }
 
-        r.renderMesh(geom.getMesh(), geom.getLodLevel(), 1);
+        r.renderMesh(geom.getMesh(), geom.getLodLevel(), geom.getMesh().getInstanceCount());
     }
 
     public void write(JmeExporter ex) throws IOException {
@@ -410,6 +410,22 @@ public abstract class Filter implements Savable {
         return postRenderPasses;
     }
 
+    /**
+     * Reserved for the built-in filters that only transform the color of
+     * the pixel they shade, do not override it in other filters.
+     * The returned value is the stage operation in Common/MatDefs/Post/Fused.j3md,
+     * which only implements the operations of ColorOverlayFilter (1),
+     * PosterizationFilter (2), GammaCorrectionFilter (3) and FadeFilter (4)
+     * and declares their material parameters. Other filters are always
+     * rendered in their own pass.
+     *
+     * @return the fused operation of this filter or 0 if it can't be fused
+     * @see FilterPostProcessor#setFilterFusion(boolean)
+     */
+    protected int getFusedOperation() {
+        return 0;
+    }
+
     /**
      * Enable or disable this filter
      * @param enabled true to enable
@@ -33,7 +33,11 @@ package com.jme3.post;
 
 import com.jme3.asset.AssetManager;
 import com.jme3.export.*;
+import com.jme3.material.MatParam;
+import com.jme3.material.MatParamTexture;
 import com.jme3.material.Material;
+import com.jme3.profile.AppProfiler;
+import com.jme3.profile.ProfilePhase;
 import com.jme3.renderer.*;
 import com.jme3.renderer.queue.RenderQueue;
 import com.jme3.texture.FrameBuffer;
@@ -54,6 +58,19 @@ import java.util.List;
  */
 public class FilterPostProcessor implements SceneProcessor, Savable {
 
+    /**
+     * The maximum number of filters fused into a single pass
+     */
+    public static final int MAX_FUSED_FILTERS = 4;
+    /**
+     * The last operation implemented by Common/MatDefs/Post/Fused.j3md
+     */
+    private static final int MAX_FUSED_OPERATION = 4;
+    /**
+     * The profiler detail of the fused filter passes
+     */
+    private static final String FUSED_FILTERS = "Fused";
+
     private RenderManager renderManager;
     private Renderer renderer;
     private ViewPort viewPort;
@@ -79,6 +96,10 @@ public class FilterPostProcessor implements SceneProcessor, Savable {
     private int lastFilterIndex = -1;
     private boolean cameraInit = false;
     private boolean clearColor= true;
+    private boolean filterFusion = false;
+    private Material fusedMaterial;
+    private List<Filter> fusedRun = new ArrayList<Filter>(MAX_FUSED_FILTERS);
+    private Filter[] fusedStages = new Filter[MAX_FUSED_FILTERS];
 
     /**
      * Create a FilterProcessor 
@@ -208,11 +229,13 @@ public class FilterPostProcessor implements SceneProcessor, Savable {
     }
 
     public void postQueue(RenderQueue rq) {
-
+        AppProfiler prof = renderManager.getAppProfiler();
         for (Iterator<Filter> it = filters.iterator(); it.hasNext();) {
             Filter filter = it.next();
             if (filter.isEnabled()) {
+                if (prof != null) prof.begin(ProfilePhase.Filter, filter);
                 filter.postQueue(rq);
+                if (prof != null) prof.end(ProfilePhase.Filter, filter);
             }
         }
 
@@ -228,9 +251,30 @@ public class FilterPostProcessor implements SceneProcessor, Savable {
         Texture2D tex = filterTexture;
         FrameBuffer buff = sceneFb;
         boolean msDepth = depthTexture != null && depthTexture.getImage().getMultiSamples() > 1;
+        AppProfiler prof = renderManager.getAppProfiler();
         for (int i = 0; i < filters.size(); i++) {
             Filter filter = filters.get(i);
             if (filter.isEnabled()) {
+                if (filterFusion && isFusable(filter)) {
+                    int last = collectFusedRun(i);
+                    if (fusedRun.size() > 1) {
+                        FrameBuffer target = outputBuffer;
+                        if (last != lastFilterIndex) {
+                            target = filters.get(last).getRenderFrameBuffer();
+                        }
+                        if (prof != null) prof.begin(ProfilePhase.Filter, FUSED_FILTERS);
+                        renderFusedFilters(r, tex, buff, target, sceneFb);
+                        if (prof != null) prof.end(ProfilePhase.Filter, FUSED_FILTERS);
+                        buff = target;
+                        if (last != lastFilterIndex) {
+                            tex = filters.get(last).getRenderedTexture();
+                        }
+                        i = last;
+                        continue;
+                    }
+                }
+
+                if (prof != null) prof.begin(ProfilePhase.Filter, filter);
                 if (filter.getPostRenderPasses() != null) {
                     for (Iterator<Filter.Pass> it1 = filter.getPostRenderPasses().iterator(); it1.hasNext();) {
                         Filter.Pass pass = it1.next();
@@ -279,8 +323,92 @@ public class FilterPostProcessor implements SceneProcessor, Savable {
 
                 }
                 renderProcessing(r, buff, mat);
+                if (prof != null) prof.end(ProfilePhase.Filter, filter);
+            }
+        }
+    }
+
+    /**
+     * returns true if the given filter can be rendered in a fused pass
+     * @param filter
+     * @return 
+     */
+    private boolean isFusable(Filter filter) {
+        int operation = filter.getFusedOperation();
+        return operation > 0 && operation <= MAX_FUSED_OPERATION
+                && filter.isRequiresSceneTexture()
+                && !filter.isRequiresDepthTexture()
+                && (filter.getPostRenderPasses() == null || filter.getPostRenderPasses().isEmpty());
+    }
+
+    /**
+     * collects the enabled fusable filters following the given index in fusedRun
+     * @param start the index of the first fusable filter
+     * @return the index of the last filter of the run
+     */
+    private int collectFusedRun(int start) {
+        fusedRun.clear();
+        int last = start;
+        for (int i = start; i < filters.size() && fusedRun.size() < MAX_FUSED_FILTERS; i++) {
+            Filter filter = filters.get(i);
+            if (!filter.isEnabled()) {
+                continue;
+            }
+            if (!isFusable(filter)) {
+                break;
             }
+            fusedRun.add(filter);
+            last = i;
         }
+        return last;
+    }
+
+    /**
+     * renders the filters of fusedRun in one pass, each filter being a stage
+     * of the fused material with its own material parameters suffixed by the
+     * stage index
+     * @param r
+     * @param tex the texture of the previous filter
+     * @param prevFilterBuffer the frame buffer of the previous filter
+     * @param buff the frame buffer to render to
+     * @param sceneFb 
+     */
+    private void renderFusedFilters(Renderer r, Texture2D tex, FrameBuffer prevFilterBuffer, FrameBuffer buff, FrameBuffer sceneFb) {
+        if (fusedMaterial == null) {
+            fusedMaterial = new Material(assetManager, "Common/MatDefs/Post/Fused.j3md");
+        }
+        fusedMaterial.setTexture("Texture", tex);
+        if (tex.getImage().getMultiSamples() > 1) {
+            fusedMaterial.setInt("NumSamples", tex.getImage().getMultiSamples());
+        } else {
+            fusedMaterial.clearParam("NumSamples");
+        }
+
+        for (int stage = 0; stage < MAX_FUSED_FILTERS; stage++) {
+            Filter filter = stage < fusedRun.size() ? fusedRun.get(stage) : null;
+            if (fusedStages[stage] != null && fusedStages[stage] != filter) {
+                //the stage was used by another filter, clearing its parameters
+                for (MatParam param : fusedStages[stage].getMaterial().getParams()) {
+                    if (!(param instanceof MatParamTexture) && !param.getName().equals("NumSamples")) {
+                        fusedMaterial.clearParam(param.getName() + stage);
+                    }
+                }
+                fusedMaterial.clearParam("Stage" + stage);
+            }
+            fusedStages[stage] = filter;
+            if (filter == null) {
+                continue;
+            }
+
+            filter.postFrame(renderManager, viewPort, prevFilterBuffer, sceneFb);
+            fusedMaterial.setInt("Stage" + stage, filter.getFusedOperation());
+            for (MatParam param : filter.getMaterial().getParams()) {
+                if (!(param instanceof MatParamTexture) && !param.getName().equals("NumSamples")) {
+                    fusedMaterial.setParam(param.getName() + stage, param.getVarType(), param.getValue());
+                }
+            }
+        }
+        renderProcessing(r, buff, fusedMaterial);
     }
 
     public void postFrame(FrameBuffer out) {
@@ -324,10 +452,13 @@ public class FilterPostProcessor implements SceneProcessor, Savable {
             }
         }
 
+        AppProfiler prof = renderManager.getAppProfiler();
         for (Iterator<Filter> it = filters.iterator(); it.hasNext();) {
             Filter filter = it.next();
             if (filter.isEnabled()) {
+                if (prof != null) prof.begin(ProfilePhase.Filter, filter);
                 filter.preFrame(tpf);
+                if (prof != null) prof.end(ProfilePhase.Filter, filter);
             }
         }
 
@@ -478,6 +609,28 @@ public class FilterPostProcessor implements SceneProcessor, Savable {
         this.numSamples = numSamples;
     }
 
+    /**
+     * Enables or disables filter fusion (disabled by default)<br>
+     * When enabled, consecutive filters that only transform the color of each
+     * pixel (ColorOverlayFilter, PosterizationFilter, GammaCorrectionFilter,
+     * FadeFilter...) are rendered in a single pass, saving a full screen pass
+     * and a render target read for each fused filter.
+     * Up to {@link #MAX_FUSED_FILTERS} filters are fused together.
+     * @param filterFusion true to enable filter fusion
+     * @see Filter#getFusedOperation()
+     */
+    public void setFilterFusion(boolean filterFusion) {
+        this.filterFusion = filterFusion;
+    }
+
+    /**
+     * returns true if filter fusion is enabled
+     * @return filterFusion
+     */
+    public boolean isFilterFusion() {
+        return filterFusion;
+    }
+
     /**
      * Sets the asset manager for this processor
      * @param assetManager
@@ -489,12 +642,14 @@ public class FilterPostProcessor implements SceneProcessor, Savable {
     public void write(JmeExporter ex) throws IOException {
         OutputCapsule oc = ex.getCapsule(this);
         oc.write(numSamples, "numSamples", 0);
+        oc.write(filterFusion, "filterFusion", false);
         oc.writeSavableArrayList((ArrayList) filters, "filters", null);
     }
 
     public void read(JmeImporter im) throws IOException {
         InputCapsule ic = im.getCapsule(this);
         numSamples = ic.readInt("numSamples", 0);
+        filterFusion = ic.readBoolean("filterFusion", false);
         filters = ic.readSavableArrayList("filters", null);
         for (Filter filter : filters) {
             filter.setProcessor(this);
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+/**
+ * An <code>AppProfiler</code> receives the start and end of the phases
+ * of each frame, see {@link ProfilePhase}.
+ * <p>
+ * A profiler is set with {@link com.jme3.app.Application#setAppProfiler(com.jme3.profile.AppProfiler) }.
+ * When no profiler is set the engine only checks for null, so profiling
+ * costs nothing unless it is enabled.
+ * All the calls are made on the render thread.
+ *
+ * @see BasicProfiler
+ */
+public interface AppProfiler {
+
+    /**
+     * Called when a frame starts, before any of its phases.
+     */
+    public void beginFrame();
+
+    /**
+     * Called when a frame ends, after all of its phases.
+     */
+    public void endFrame();
+
+    /**
+     * Called when a phase starts.
+     *
+     * @param phase The phase
+     * @param detail The part of the engine running the phase, or null.
+     */
+    public void begin(ProfilePhase phase, Object detail);
+
+    /**
+     * Called when a phase ends, with the same arguments as the matching
+     * {@link #begin(com.jme3.profile.ProfilePhase, java.lang.Object) }.
+     *
+     * @param phase The phase
+     * @param detail The part of the engine running the phase, or null.
+     */
+    public void end(ProfilePhase phase, Object detail);
+}
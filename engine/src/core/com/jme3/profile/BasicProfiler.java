@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import com.jme3.post.Filter;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Spatial;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An {@link AppProfiler} that sums the time spent in each phase during
+ * a frame and keeps the totals of the last frames, so the average and
+ * percentiles of each phase can be queried, see {@link PhaseTiming}.
+ * <p>
+ * Each phase and detail gets its own timing, for example one for
+ * each filter of a {@link com.jme3.post.FilterPostProcessor}. Timings
+ * are keyed by their {@link #getName(com.jme3.profile.ProfilePhase, java.lang.Object) name},
+ * so details with the same name share a timing, and the details
+ * themselves are only weakly referenced. Timings are created the first
+ * time their phase runs and are kept until {@link #reset() } is called.
+ * <p>
+ * Usage:<br/>
+ * <code>
+ * BasicProfiler profiler = new BasicProfiler();<br/>
+ * app.setAppProfiler(profiler);<br/>
+ * ...<br/>
+ * for (PhaseTiming timing : profiler.getTimings())<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;System.out.println(timing.getName() + " " + timing.getPercentileNanos(95));<br/>
+ * </code>
+ */
+public class BasicProfiler implements AppProfiler {
+
+    /**
+     * The default number of frames kept by the profiler.
+     */
+    public static final int DEFAULT_HISTORY_SIZE = 120;
+
+    private final int historySize;
+    private final EnumMap<ProfilePhase, PhaseTiming> phaseTimings
+            = new EnumMap<ProfilePhase, PhaseTiming>(ProfilePhase.class);
+    /**
+     * Timings of the details seen so far, so that their names are not
+     * built on every run. Removed viewports, filters, etc. are collected.
+     */
+    private final EnumMap<ProfilePhase, Map<Object, PhaseTiming>> detailTimings
+            = new EnumMap<ProfilePhase, Map<Object, PhaseTiming>>(ProfilePhase.class);
+    private final Map<String, PhaseTiming> namedTimings = new HashMap<String, PhaseTiming>();
+    private final List<PhaseTiming> timings = new CopyOnWriteArrayList<PhaseTiming>();
+    private PhaseTiming frameTiming;
+    private boolean inFrame = false;
+    private volatile long frameCount = 0;
+
+    /**
+     * Creates a profiler keeping the last {@link #DEFAULT_HISTORY_SIZE} frames.
+     */
+    public BasicProfiler() {
+        this(DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * Creates a profiler keeping the given number of frames.
+     *
+     * @param historySize The number of frames to compute the averages and
+     * percentiles over.
+     */
+    public BasicProfiler(int historySize) {
+        if (historySize <= 0) {
+            throw new IllegalArgumentException("History size must be > 0");
+        }
+        this.historySize = historySize;
+        frameTiming = getTiming(ProfilePhase.Frame, null);
+    }
+
+    /**
+     * @return The number of frames kept by the profiler.
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * @return The number of frames recorded since the profiler was created
+     * or reset.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return The timings recorded so far, in the order their phase first
+     * ran. The first timing is the one of the whole frame.
+     */
+    public List<PhaseTiming> getTimings() {
+        return Collections.unmodifiableList(timings);
+    }
+
+    /**
+     * @param name The name of a timing, see {@link PhaseTiming#getName() }.
+     * @return The timing with the given name or null.
+     */
+    public PhaseTiming getTiming(String name) {
+        for (PhaseTiming timing : timings) {
+            if (timing.getName().equals(name)) {
+                return timing;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param phase The phase
+     * @param detail The part of the engine running the phase, or null.
+     * @return The timing of the phase and detail, created if needed.
+     */
+    public final PhaseTiming getTiming(ProfilePhase phase, Object detail) {
+        if (detail == null) {
+            PhaseTiming timing = phaseTimings.get(phase);
+            if (timing == null) {
+                timing = getNamedTiming(phase, getName(phase, null));
+                phaseTimings.put(phase, timing);
+            }
+            return timing;
+        }
+
+        Map<Object, PhaseTiming> map = detailTimings.get(phase);
+        if (map == null) {
+            map = new WeakHashMap<Object, PhaseTiming>();
+            detailTimings.put(phase, map);
+        }
+        PhaseTiming timing = map.get(detail);
+        if (timing == null) {
+            timing = getNamedTiming(phase, getName(phase, detail));
+            map.put(detail, timing);
+        }
+        return timing;
+    }
+
+    private PhaseTiming getNamedTiming(ProfilePhase phase, String name) {
+        PhaseTiming timing = namedTimings.get(name);
+        if (timing == null) {
+            timing = new PhaseTiming(phase, name, historySize);
+            namedTimings.put(name, timing);
+            timings.add(timing);
+        }
+        return timing;
+    }
+
+    /**
+     * Forgets all the timings, e.g. after the scene or the filters changed.
+     * Must be called on the render thread.
+     */
+    public void reset() {
+        phaseTimings.clear();
+        detailTimings.clear();
+        namedTimings.clear();
+        timings.clear();
+        frameCount = 0;
+        inFrame = false;
+        frameTiming = getTiming(ProfilePhase.Frame, null);
+    }
+
+    public void beginFrame() {
+        if (inFrame) {
+            endFrame();
+        }
+        inFrame = true;
+        frameTiming.begin(getTime());
+    }
+
+    public void endFrame() {
+        if (!inFrame) {
+            return;
+        }
+        frameTiming.end(getTime());
+        for (int i = 0; i < timings.size(); i++) {
+            timings.get(i).endFrame();
+        }
+        frameCount++;
+        inFrame = false;
+    }
+
+    public void begin(ProfilePhase phase, Object detail) {
+        getTiming(phase, detail).begin(getTime());
+    }
+
+    public void end(ProfilePhase phase, Object detail) {
+        long time = getTime();
+        getTiming(phase, detail).end(time);
+    }
+
+    /**
+     * @return The current time in nanoseconds.
+     */
+    protected long getTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Names the timing of a phase and detail.
+     *
+     * @param phase The phase
+     * @param detail The part of the engine running the phase, or null.
+     * @return The name of the timing.
+     */
+    protected String getName(ProfilePhase phase, Object detail) {
+        if (detail == null) {
+            return phase.name();
+        }
+        String detailName;
+        if (detail instanceof ViewPort) {
+            detailName = ((ViewPort) detail).getName();
+        } else if (detail instanceof Spatial) {
+            detailName = ((Spatial) detail).getName();
+        } else if (detail instanceof Filter) {
+            detailName = ((Filter) detail).getName();
+        } else if (detail instanceof Enum || detail instanceof String) {
+            detailName = detail.toString();
+        } else {
+            detailName = detail.getClass().getSimpleName();
+        }
+        return phase.name() + " " + detailName;
+    }
+}
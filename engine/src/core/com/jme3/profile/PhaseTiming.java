@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import java.util.Arrays;
+
+/**
+ * The timings of a {@link ProfilePhase} run by one part of the engine,
+ * over the last frames recorded by a {@link BasicProfiler}.
+ * <p>
+ * The getters can be called from any thread, e.g. by a monitoring tool.
+ * All times are in nanoseconds.
+ */
+public class PhaseTiming {
+
+    private final ProfilePhase phase;
+    private final String name;
+    private final long[] history;
+    private int historyIndex = 0;
+    private int historyCount = 0;
+    /**
+     * The history sorted by time for the percentiles, reused and only
+     * sorted again once a new frame is recorded.
+     */
+    private final long[] sorted;
+    private boolean sortedValid = false;
+
+    private int depth = 0;
+    private long start;
+    private long frameTotal;
+
+    PhaseTiming(ProfilePhase phase, String name, int historySize) {
+        this.phase = phase;
+        this.name = name;
+        this.history = new long[historySize];
+        this.sorted = new long[historySize];
+    }
+
+    void begin(long time) {
+        // nested runs of the same phase are only counted once
+        if (depth++ == 0) {
+            start = time;
+        }
+    }
+
+    void end(long time) {
+        if (depth > 0 && --depth == 0) {
+            frameTotal += time - start;
+        }
+    }
+
+    synchronized void endFrame() {
+        history[historyIndex] = frameTotal;
+        historyIndex = (historyIndex + 1) % history.length;
+        if (historyCount < history.length) {
+            historyCount++;
+        }
+        frameTotal = 0;
+        sortedValid = false;
+    }
+
+    /**
+     * @return The timed phase
+     */
+    public ProfilePhase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return The name of the phase and detail, e.g. "Flush Opaque".
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of frames recorded, up to the history size
+     * of the profiler.
+     */
+    public synchronized int getFrameCount() {
+        return historyCount;
+    }
+
+    /**
+     * @return The time spent in the phase during the last frame.
+     */
+    public synchronized long getLastNanos() {
+        if (historyCount == 0) {
+            return 0;
+        }
+        return history[(historyIndex + history.length - 1) % history.length];
+    }
+
+    /**
+     * @return The average time spent in the phase per frame.
+     */
+    public synchronized long getAverageNanos() {
+        if (historyCount == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < historyCount; i++) {
+            total += history[i];
+        }
+        return total / historyCount;
+    }
+
+    /**
+     * @return The longest time spent in the phase in a frame.
+     */
+    public synchronized long getMaxNanos() {
+        long max = 0;
+        for (int i = 0; i < historyCount; i++) {
+            max = Math.max(max, history[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the time per frame under which the given percentage of the
+     * recorded frames fall, e.g. 50 for the median or 99 for the slowest
+     * frames but one in a hundred.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The time of the percentile, 0 if no frame was recorded.
+     */
+    public synchronized long getPercentileNanos(float percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (historyCount == 0) {
+            return 0;
+        }
+        if (!sortedValid) {
+            System.arraycopy(history, 0, sorted, 0, historyCount);
+            Arrays.sort(sorted, 0, historyCount);
+            sortedValid = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100f * historyCount);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+/**
+ * The phases of a frame timed by an {@link AppProfiler}.
+ * <p>
+ * Each phase can be timed several times per frame, with a different
+ * detail object telling which part of the engine ran it, e.g. the
+ * {@link com.jme3.renderer.ViewPort} being culled or the
+ * {@link com.jme3.renderer.queue.RenderQueue.Bucket} being flushed.
+ */
+public enum ProfilePhase {
+
+    /**
+     * The whole frame, no detail.
+     */
+    Frame,
+
+    /**
+     * Tasks enqueued with {@link com.jme3.app.Application#enqueue(java.util.concurrent.Callable) },
+     * no detail.
+     */
+    QueuedTasks,
+
+    /**
+     * {@link com.jme3.app.state.AppStateManager#update(float) }, no detail.
+     */
+    StateUpdate,
+
+    /**
+     * {@link com.jme3.scene.Spatial#updateLogicalState(float) }, the detail
+     * is the updated spatial.
+     */
+    LogicalUpdate,
+
+    /**
+     * {@link com.jme3.scene.Spatial#updateGeometricState() }, the detail
+     * is the updated spatial.
+     */
+    GeometricUpdate,
+
+    /**
+     * {@link com.jme3.app.state.AppStateManager#render(com.jme3.renderer.RenderManager) },
+     * no detail.
+     */
+    StateRender,
+
+    /**
+     * {@link com.jme3.renderer.RenderManager#render(float, boolean) }, no detail.
+     */
+    Render,
+
+    /**
+     * {@link com.jme3.renderer.RenderManager#renderViewPort(com.jme3.renderer.ViewPort, float) },
+     * the detail is the rendered view port.
+     */
+    ViewPort,
+
+    /**
+     * Culling the scenes of a view port into its render queue, the detail
+     * is the view port.
+     */
+    Cull,
+
+    /**
+     * Sorting a geometry list before rendering it, the detail is the
+     * {@link com.jme3.renderer.queue.RenderQueue.Bucket} or
+     * {@link com.jme3.renderer.queue.RenderQueue.ShadowMode} of the list.
+     */
+    Sort,
+
+    /**
+     * Rendering a render queue bucket, sort included, the detail is the
+     * {@link com.jme3.renderer.queue.RenderQueue.Bucket}.
+     */
+    Flush,
+
+    /**
+     * The callbacks of a {@link com.jme3.post.SceneProcessor}, the detail
+     * is the processor.
+     */
+    Processor,
+
+    /**
+     * The callbacks and passes of a {@link com.jme3.post.Filter}, the detail
+     * is the filter.
+     */
+    Filter,
+
+    /**
+     * {@link com.jme3.app.state.AppStateManager#postRender() }, no detail.
+     */
+    StatePostRender;
+}
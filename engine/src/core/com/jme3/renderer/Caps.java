@@ -71,6 +71,14 @@ public enum Caps {
      */
     FrameBufferMultisample,
 
+    /**
+     * Supports copying the contents of one framebuffer to another,
+     * including depth, with {@link Renderer#copyFrameBuffer(FrameBuffer, FrameBuffer, boolean) }.
+     * <p>
+     * OpenGL: Renderer exposes the GL EXT framebuffer blit extension
+     */
+    FrameBufferBlit,
+
     /**
      * Supports texture multi-sampling
      * <p>
@@ -37,6 +37,8 @@ import com.jme3.material.RenderState;
 import com.jme3.material.Technique;
 import com.jme3.math.*;
 import com.jme3.post.SceneProcessor;
+import com.jme3.profile.AppProfiler;
+import com.jme3.profile.ProfilePhase;
 import com.jme3.renderer.queue.GeometryList;
 import com.jme3.renderer.queue.RenderQueue;
 import com.jme3.renderer.queue.RenderQueue.Bucket;
@@ -50,6 +52,10 @@ import com.jme3.system.Timer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 /**
@@ -79,6 +85,13 @@ public class RenderManager {
     private Matrix4f orthoMatrix = new Matrix4f();
     private String tmpTech;
     private boolean handleTranlucentBucket = true;
+    private ExecutorService cullingExecutor;
+    private int parallelCullingThreshold = 256;
+    private final ArrayList<CullTask> cullTasks = new ArrayList<CullTask>();
+    private final ArrayList<CullTask> activeCullTasks = new ArrayList<CullTask>();
+    private ExecutorService jobExecutor;
+    private final ArrayList<Future<?>> pendingJobs = new ArrayList<Future<?>>();
+    private AppProfiler prof;
 
     /**
      * Create a high-level rendering interface over the
@@ -358,6 +371,25 @@ public class RenderManager {
         uniformBindingManager.setTimer(timer);
     }
 
+    /**
+     * Sets the profiler timing the rendering of the view ports, or null
+     * to disable profiling. This is done by
+     * {@link com.jme3.app.Application#setAppProfiler(com.jme3.profile.AppProfiler) }.
+     * 
+     * @param prof The profiler
+     */
+    public void setAppProfiler(AppProfiler prof) {
+        this.prof = prof;
+    }
+
+    /**
+     * @return The profiler timing the rendering of the view ports, or null.
+     * Scene processors can use it to time their own work.
+     */
+    public AppProfiler getAppProfiler() {
+        return prof;
+    }
+
     /**
      * Returns the forced technique name set.
      * 
@@ -426,6 +458,129 @@ public class RenderManager {
         this.handleTranlucentBucket = handleTranslucentBucket;
     }
 
+    /**
+     * Sets the executor used to cull large sub-trees of the scene in parallel.
+     * <p>
+     * When a {@link Node} with at least {@link #getParallelCullingThreshold() }
+     * children is rendered, its children are split between the executor's
+     * threads, which cull them against copies of the camera. The visible
+     * geometries are then queued on the render thread, in scene order.
+     * Controls are still rendered on the render thread, but only once
+     * their sub-tree has been culled.
+     * <p>
+     * The executor is not shut down by the RenderManager. The default is
+     * null, which culls everything on the render thread.
+     * 
+     * @param cullingExecutor The executor to use, or null to disable
+     * parallel culling.
+     */
+    public void setCullingExecutor(ExecutorService cullingExecutor) {
+        this.cullingExecutor = cullingExecutor;
+    }
+
+    /**
+     * @return The executor used for parallel culling, or null if disabled.
+     * @see #setCullingExecutor(java.util.concurrent.ExecutorService) 
+     */
+    public ExecutorService getCullingExecutor() {
+        return cullingExecutor;
+    }
+
+    /**
+     * Sets the executor used to run jobs given to
+     * {@link #submitJob(java.util.concurrent.Callable) }.
+     * <p>
+     * The executor is not shut down by the RenderManager. It may be the
+     * same as the culling executor. The default is null, which runs
+     * jobs immediately on the render thread.
+     * 
+     * @param jobExecutor The executor to use, or null to run jobs
+     * on the render thread.
+     */
+    public void setJobExecutor(ExecutorService jobExecutor) {
+        waitForJobs();
+        this.jobExecutor = jobExecutor;
+    }
+
+    /**
+     * @return The executor used to run render jobs, or null if
+     * jobs are run on the render thread.
+     * @see #setJobExecutor(java.util.concurrent.ExecutorService) 
+     */
+    public ExecutorService getJobExecutor() {
+        return jobExecutor;
+    }
+
+    /**
+     * Submits a job that must complete before the current frame's
+     * geometries are rendered, for example to deform meshes in
+     * {@link com.jme3.scene.control.Control#render(com.jme3.renderer.RenderManager, com.jme3.renderer.ViewPort) }.
+     * <p>
+     * Jobs run on the {@link #setJobExecutor(java.util.concurrent.ExecutorService) job executor}
+     * if one is set, otherwise they are run immediately. All pending jobs
+     * are waited for once the scenes of a ViewPort have been queued, before
+     * scene processors see the queue, and before any geometry is rendered.
+     * 
+     * @param job The job to run
+     */
+    public void submitJob(Callable<?> job) {
+        if (jobExecutor == null) {
+            try {
+                job.call();
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new RendererException(ex.toString());
+            }
+        } else {
+            pendingJobs.add(jobExecutor.submit(job));
+        }
+    }
+
+    /**
+     * Waits for all jobs given to {@link #submitJob(java.util.concurrent.Callable) }
+     * to complete.
+     */
+    public void waitForJobs() {
+        if (pendingJobs.isEmpty()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < pendingJobs.size(); i++) {
+                pendingJobs.get(i).get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RendererException("Interrupted while waiting for render jobs");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RendererException(ex.getCause().toString());
+        } finally {
+            pendingJobs.clear();
+        }
+    }
+
+    /**
+     * Sets the minimum number of children a node must have for
+     * them to be culled in parallel. The default is 256.
+     * 
+     * @param parallelCullingThreshold The minimum number of children
+     * @see #setCullingExecutor(java.util.concurrent.ExecutorService) 
+     */
+    public void setParallelCullingThreshold(int parallelCullingThreshold) {
+        this.parallelCullingThreshold = Math.max(2, parallelCullingThreshold);
+    }
+
+    /**
+     * @return The minimum number of children a node must have for
+     * them to be culled in parallel.
+     */
+    public int getParallelCullingThreshold() {
+        return parallelCullingThreshold;
+    }
+
     /**
      * Internal use only. Sets the world matrix to use for future
      * rendering. This has no effect unless objects are rendered manually
@@ -484,6 +639,10 @@ public class RenderManager {
      * @see Material#render(com.jme3.scene.Geometry, com.jme3.renderer.RenderManager) 
      */
     public void renderGeometry(Geometry g) {
+        if (!pendingJobs.isEmpty()) {
+            waitForJobs();
+        }
+
         if (g.isIgnoreTransform()) {
             setWorldMatrix(Matrix4f.IDENTITY);
         } else {
@@ -659,24 +818,143 @@ public class RenderManager {
             List<Spatial> children = n.getChildren();
             // Saving cam state for culling
             int camState = vp.getCamera().getPlaneState();
+            if (cullingExecutor != null && children.size() >= parallelCullingThreshold) {
+                renderChildrenParallel(children, vp, camState);
+                return;
+            }
             for (int i = 0; i < children.size(); i++) {
                 // Restoring cam state before proceeding children recusively
                 vp.getCamera().setPlaneState(camState);
                 renderSubScene(children.get(i), vp);
             }
         } else if (scene instanceof Geometry) {
-            // add to the render queue
-            Geometry gm = (Geometry) scene;
-            if (gm.getMaterial() == null) {
-                throw new IllegalStateException("No material is set for Geometry: " + gm.getName());
+            queueGeometry((Geometry) scene, vp);
+        }
+    }
+
+    private void queueGeometry(Geometry gm, ViewPort vp) {
+        // add to the render queue
+        if (gm.getMaterial() == null) {
+            throw new IllegalStateException("No material is set for Geometry: " + gm.getName());
+        }
+
+        vp.getQueue().addToQueue(gm, gm.getQueueBucket());
+
+        // add to shadow queue if needed
+        RenderQueue.ShadowMode shadowMode = gm.getShadowMode();
+        if (shadowMode != RenderQueue.ShadowMode.Off) {
+            vp.getQueue().addToShadowQueue(gm, shadowMode);
+        }
+    }
+
+    // culls the children on the culling executor, then queues the results
+    // on the render thread in scene order
+    private void renderChildrenParallel(List<Spatial> children, ViewPort vp, int camState) {
+        int numTasks = Math.min(Runtime.getRuntime().availableProcessors(), children.size());
+        while (cullTasks.size() < numTasks) {
+            cullTasks.add(new CullTask());
+        }
+
+        int chunk = (children.size() + numTasks - 1) / numTasks;
+        activeCullTasks.clear();
+        for (int i = 0; i < numTasks; i++) {
+            int start = i * chunk;
+            int end = Math.min(start + chunk, children.size());
+            if (start >= end) {
+                break;
+            }
+            CullTask task = cullTasks.get(i);
+            task.setup(children, start, end, vp.getCamera(), camState);
+            activeCullTasks.add(task);
+        }
+
+        try {
+            List<Future<Void>> results = cullingExecutor.invokeAll(activeCullTasks);
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RendererException("Interrupted while culling the scene");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RendererException(ex.getCause().toString());
+        } finally {
+            vp.getCamera().setPlaneState(camState);
+        }
+
+        for (int i = 0; i < activeCullTasks.size(); i++) {
+            CullTask task = activeCullTasks.get(i);
+            for (int j = 0; j < task.visible.size(); j++) {
+                Spatial s = task.visible.get(j);
+                s.runControlRender(this, vp);
+                if (s instanceof Geometry) {
+                    queueGeometry((Geometry) s, vp);
+                }
+            }
+            for (int j = 0; j < task.culled.size(); j++) {
+                renderShadow(task.culled.get(j), vp.getQueue());
+            }
+            task.clear();
+        }
+        activeCullTasks.clear();
+    }
+
+    /**
+     * Culls a range of children against a private copy of the camera,
+     * recording the visible spatials and the culled shadow-only roots.
+     */
+    private static class CullTask implements Callable<Void> {
+
+        private final Camera cam = new Camera(1, 1);
+        private final ArrayList<Spatial> visible = new ArrayList<Spatial>();
+        private final ArrayList<Spatial> culled = new ArrayList<Spatial>();
+        private List<Spatial> children;
+        private Camera viewCam;
+        private int start, end, camState;
+
+        void setup(List<Spatial> children, int start, int end, Camera viewCam, int camState) {
+            this.children = children;
+            this.start = start;
+            this.end = end;
+            this.viewCam = viewCam;
+            this.camState = camState;
+        }
+
+        void clear() {
+            visible.clear();
+            culled.clear();
+            children = null;
+            viewCam = null;
+        }
+
+        public Void call() {
+            cam.copyFrom(viewCam);
+            for (int i = start; i < end; i++) {
+                cam.setPlaneState(camState);
+                cull(children.get(i));
             }
+            return null;
+        }
 
-            vp.getQueue().addToQueue(gm, scene.getQueueBucket());
+        private void cull(Spatial scene) {
+            if (!scene.checkCulling(cam)) {
+                if ((scene.getShadowMode() != RenderQueue.ShadowMode.Off || scene instanceof Node) && scene.getCullHint() != Spatial.CullHint.Always) {
+                    culled.add(scene);
+                }
+                return;
+            }
 
-            // add to shadow queue if needed
-            RenderQueue.ShadowMode shadowMode = scene.getShadowMode();
-            if (shadowMode != RenderQueue.ShadowMode.Off) {
-                vp.getQueue().addToShadowQueue(gm, shadowMode);
+            visible.add(scene);
+            if (scene instanceof Node) {
+                List<Spatial> nodeChildren = ((Node) scene).getChildren();
+                int state = cam.getPlaneState();
+                for (int i = 0; i < nodeChildren.size(); i++) {
+                    cam.setPlaneState(state);
+                    cull(nodeChildren.get(i));
+                }
             }
         }
     }
@@ -896,6 +1174,7 @@ public class RenderManager {
         for (int i = scenes.size() - 1; i >= 0; i--) {           
             renderScene(scenes.get(i), vp);
         }
+        waitForJobs();
         flushQueue(vp);
     }
 
@@ -944,6 +1223,7 @@ public class RenderManager {
         if (!vp.isEnabled()) {
             return;
         }
+        if (prof != null) prof.begin(ProfilePhase.ViewPort, vp);
         List<SceneProcessor> processors = vp.getProcessors();
         if (processors.isEmpty()) {
             processors = null;
@@ -951,10 +1231,12 @@ public class RenderManager {
 
         if (processors != null) {
             for (SceneProcessor proc : processors) {
+                if (prof != null) prof.begin(ProfilePhase.Processor, proc);
                 if (!proc.isInitialized()) {
                     proc.initialize(this, vp);
                 }
                 proc.preFrame(tpf);
+                if (prof != null) prof.end(ProfilePhase.Processor, proc);
             }
         }
 
@@ -969,14 +1251,19 @@ public class RenderManager {
                     vp.isClearStencil());
         }
 
+        if (prof != null) prof.begin(ProfilePhase.Cull, vp);
         List<Spatial> scenes = vp.getScenes();
         for (int i = scenes.size() - 1; i >= 0; i--) {            
             renderScene(scenes.get(i), vp);
         }
+        waitForJobs();
+        if (prof != null) prof.end(ProfilePhase.Cull, vp);
 
         if (processors != null) {
             for (SceneProcessor proc : processors) {
+                if (prof != null) prof.begin(ProfilePhase.Processor, proc);
                 proc.postQueue(vp.getQueue());
+                if (prof != null) prof.end(ProfilePhase.Processor, proc);
             }
         }
 
@@ -984,13 +1271,16 @@ public class RenderManager {
 
         if (processors != null) {
             for (SceneProcessor proc : processors) {
+                if (prof != null) prof.begin(ProfilePhase.Processor, proc);
                 proc.postFrame(vp.getOutputFrameBuffer());
+                if (prof != null) prof.end(ProfilePhase.Processor, proc);
             }
         }
         //renders the translucent objects queue after processors have been rendered
         renderTranslucentQueue(vp);
         // clear any remaining spatials that were not rendered.
         clearQueue(vp);
+        if (prof != null) prof.end(ProfilePhase.ViewPort, vp);
     }
 
     public void setUsingShaders(boolean usingShaders) { 
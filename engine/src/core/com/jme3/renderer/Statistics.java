@@ -54,6 +54,10 @@ public class Statistics {
     protected int numFboSwitches;
     protected int numUniformsSet;
 
+    protected int numShadowMaps;
+    protected int numShadowMapsCached;
+    protected int numShadowCasters;
+
     protected int memoryShaders;
     protected int memoryFrameBuffers;
     protected int memoryTextures;
@@ -86,7 +90,11 @@ public class Statistics {
 
                              "FrameBuffers (S)",
                              "FrameBuffers (F)",
-                             "FrameBuffers (M)" };
+                             "FrameBuffers (M)",
+
+                             "Shadow Maps (R)",
+                             "Shadow Maps (C)",
+                             "Shadow Casters" };
 
     }
 
@@ -114,6 +122,10 @@ public class Statistics {
         data[10] = numFboSwitches;
         data[11] = fbosUsed.size();
         data[12] = memoryFrameBuffers;
+
+        data[13] = numShadowMaps;
+        data[14] = numShadowMapsCached;
+        data[15] = numShadowCasters;
     }
 
     /**
@@ -121,9 +133,22 @@ public class Statistics {
      * 
      */
     public void onMeshDrawn(Mesh mesh, int lod){
+        onMeshDrawn(mesh, lod, 1);
+    }
+
+    /**
+     * Called by the Renderer when a mesh has been drawn.
+     * A single draw call of an instanced mesh counts as one object, 
+     * the triangles and vertices of every instance are accounted for.
+     * 
+     * @param mesh The mesh that was drawn
+     * @param lod The LOD level of the mesh that was drawn
+     * @param count The number of instances drawn
+     */
+    public void onMeshDrawn(Mesh mesh, int lod, int count){
         numObjects ++;
-        numTriangles += mesh.getTriangleCount(lod);
-        numVertices += mesh.getVertexCount();
+        numTriangles += mesh.getTriangleCount(lod) * count;
+        numVertices += mesh.getVertexCount() * count;
     }
 
     /**
@@ -183,6 +208,21 @@ public class Statistics {
             numFboSwitches ++;
     }
     
+    /**
+     * Called by shadow renderers when a shadow map has been updated.
+     * 
+     * @param cached If true, the shadow map was mostly copied from a cache
+     * and only the casters that move were rendered into it
+     * @param casters The number of shadow casters rendered
+     */
+    public void onShadowMapUpdate(boolean cached, int casters){
+        if (cached)
+            numShadowMapsCached ++;
+        else
+            numShadowMaps ++;
+        numShadowCasters += casters;
+    }
+    
     /**
      * Clears all frame-specific statistics such as objects used per frame.
      */
@@ -198,6 +238,10 @@ public class Statistics {
         numTextureBinds = 0;
         numFboSwitches = 0;
         numUniformsSet = 0;
+
+        numShadowMaps = 0;
+        numShadowMapsCached = 0;
+        numShadowCasters = 0;
     }
 
     /**
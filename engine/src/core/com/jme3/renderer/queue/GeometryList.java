@@ -51,6 +51,11 @@ public class GeometryList {
     private Geometry[] geometries2;
     private int size;
     private GeometryComparator comparator;
+    private boolean useSortKeys = true;
+    private final boolean keySortSafe;
+    private long[] keys;
+    private long[] keys2;
+    private int[] radixCounts;
 
     /**
      * Initializes the GeometryList to use the given {@link GeometryComparator}
@@ -63,6 +68,33 @@ public class GeometryList {
         geometries = new Geometry[DEFAULT_SIZE];
         geometries2 = new Geometry[DEFAULT_SIZE];
         this.comparator = comparator;
+        keySortSafe = isKeySortSafe(comparator);
+    }
+
+    /**
+     * Returns true if the comparator gives sort keys and they are declared
+     * by the same class as its comparison, so that a subclass of e.g.
+     * {@link OpaqueComparator} overriding only <code>compare</code> is
+     * sorted with its own comparison.
+     */
+    private static boolean isKeySortSafe(GeometryComparator comparator) {
+        if (!(comparator instanceof GeometryKeyComparator)) {
+            return false;
+        }
+        Class<?> c = comparator.getClass();
+        return declaringClass(c, "getSortKey", Geometry.class)
+                == declaringClass(c, "compare", Geometry.class, Geometry.class);
+    }
+
+    private static Class<?> declaringClass(Class<?> c, String name, Class<?>... parameterTypes) {
+        for (; c != null; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return c;
+            } catch (NoSuchMethodException ex) {
+            }
+        }
+        return null;
     }
 
     /**
@@ -83,6 +115,30 @@ public class GeometryList {
         this.comparator.setCamera(cam);
     }
 
+    /**
+     * Enables or disables sorting with packed sort keys.
+     * <p>
+     * When enabled and the comparator is a {@link GeometryKeyComparator},
+     * the sort key of every geometry is computed once and the keys are
+     * radix sorted, instead of running a merge sort that calls the
+     * comparator for every comparison. Enabled by default. Comparators
+     * whose <code>getSortKey</code> and <code>compare</code> are declared
+     * by different classes are always sorted with <code>compare</code>.
+     * 
+     * @param useSortKeys True to sort with packed keys when possible
+     */
+    public void setUseSortKeys(boolean useSortKeys) {
+        this.useSortKeys = useSortKeys;
+    }
+
+    /**
+     * @return True if sorting with packed sort keys is enabled.
+     * @see #setUseSortKeys(boolean) 
+     */
+    public boolean isUseSortKeys() {
+        return useSortKeys;
+    }
+
     /**
      * Returns the number of elements in this GeometryList.
      * 
@@ -136,6 +192,11 @@ public class GeometryList {
      */
     public void sort() {
         if (size > 1) {
+            if (useSortKeys && keySortSafe) {
+                sortByKeys((GeometryKeyComparator) comparator);
+                return;
+            }
+
             // sort the spatial list using the comparator
             
 //            SortUtil.qsort(geometries, 0, size, comparator);
@@ -147,4 +208,19 @@ public class GeometryList {
 
         }
     }
-}
\ No newline at end of file
+
+    private void sortByKeys(GeometryKeyComparator keyComparator) {
+        if (keys == null || keys.length < geometries.length) {
+            keys = new long[geometries.length];
+            keys2 = new long[geometries.length];
+        }
+        if (radixCounts == null) {
+            radixCounts = new int[SortUtil.RADIX_COUNTS_SIZE];
+        }
+
+        for (int i = 0; i < size; i++) {
+            keys[i] = keyComparator.getSortKey(geometries[i]);
+        }
+        SortUtil.rsort(keys, geometries, keys2, geometries2, size, radixCounts);
+    }
+}
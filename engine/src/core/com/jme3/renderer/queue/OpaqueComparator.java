@@ -35,8 +35,9 @@ import com.jme3.material.Material;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
+import com.jme3.util.SortUtil;
 
-public class OpaqueComparator implements GeometryComparator {
+public class OpaqueComparator implements GeometryKeyComparator {
 
     private Camera cam;
     private final Vector3f tempVec  = new Vector3f();
@@ -91,4 +92,16 @@ public class OpaqueComparator implements GeometryComparator {
         }
     }
 
+    /**
+     * Packs the material sort ID (descending) in the upper 32 bits
+     * and the view depth (front-to-back) in the lower 32 bits, matching
+     * {@link #compare(com.jme3.scene.Geometry, com.jme3.scene.Geometry) }.
+     */
+    public long getSortKey(Geometry g) {
+        int sortId = g.getMaterial().getSortId();
+        long high = ~(sortId ^ 0x80000000) & 0xFFFFFFFFL;
+        long low = SortUtil.floatToSortableBits(distanceToCam(g)) & 0xFFFFFFFFL;
+        return (high << 32) | low;
+    }
+
 }
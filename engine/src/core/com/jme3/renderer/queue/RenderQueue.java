@@ -32,6 +32,8 @@
 package com.jme3.renderer.queue;
 
 import com.jme3.post.SceneProcessor;
+import com.jme3.profile.AppProfiler;
+import com.jme3.profile.ProfilePhase;
 import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
 import com.jme3.scene.Geometry;
@@ -313,9 +315,12 @@ public class RenderQueue {
         }
     }
 
-    private void renderGeometryList(GeometryList list, RenderManager rm, Camera cam, boolean clear) {
+    private void renderGeometryList(GeometryList list, RenderManager rm, Camera cam, boolean clear, Enum<?> detail) {
+        AppProfiler prof = rm.getAppProfiler();
         list.setCamera(cam); // select camera for sorting
+        if (prof != null) prof.begin(ProfilePhase.Sort, detail);
         list.sort();
+        if (prof != null) prof.end(ProfilePhase.Sort, detail);
         for (int i = 0; i < list.size(); i++) {
             Geometry obj = list.get(i);
             assert obj != null;
@@ -328,16 +333,16 @@ public class RenderQueue {
     }
 
     public void renderShadowQueue(GeometryList list, RenderManager rm, Camera cam, boolean clear) {
-        renderGeometryList(list, rm, cam, clear);
+        renderGeometryList(list, rm, cam, clear, null);
     }
 
     public void renderShadowQueue(ShadowMode shadBucket, RenderManager rm, Camera cam, boolean clear) {
         switch (shadBucket) {
             case Cast:
-                renderGeometryList(shadowCast, rm, cam, clear);
+                renderGeometryList(shadowCast, rm, cam, clear, shadBucket);
                 break;
             case Receive:
-                renderGeometryList(shadowRecv, rm, cam, clear);
+                renderGeometryList(shadowRecv, rm, cam, clear, shadBucket);
                 break;
             default:
                 throw new IllegalArgumentException("Unexpected shadow bucket: " + shadBucket);
@@ -366,26 +371,29 @@ public class RenderQueue {
     }
 
     public void renderQueue(Bucket bucket, RenderManager rm, Camera cam, boolean clear) {
+        AppProfiler prof = rm.getAppProfiler();
+        if (prof != null) prof.begin(ProfilePhase.Flush, bucket);
         switch (bucket) {
             case Gui:
-                renderGeometryList(guiList, rm, cam, clear);
+                renderGeometryList(guiList, rm, cam, clear, bucket);
                 break;
             case Opaque:
-                renderGeometryList(opaqueList, rm, cam, clear);
+                renderGeometryList(opaqueList, rm, cam, clear, bucket);
                 break;
             case Sky:
-                renderGeometryList(skyList, rm, cam, clear);
+                renderGeometryList(skyList, rm, cam, clear, bucket);
                 break;
             case Transparent:
-                renderGeometryList(transparentList, rm, cam, clear);
+                renderGeometryList(transparentList, rm, cam, clear, bucket);
                 break;
             case Translucent:
-                renderGeometryList(translucentList, rm, cam, clear);
+                renderGeometryList(translucentList, rm, cam, clear, bucket);
                 break;
 
             default:
                 throw new UnsupportedOperationException("Unsupported bucket type: " + bucket);
         }
+        if (prof != null) prof.end(ProfilePhase.Flush, bucket);
     }
 
     public void clear() {
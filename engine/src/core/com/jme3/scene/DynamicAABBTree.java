@@ -0,0 +1,677 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.FastMath;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <code>DynamicAABBTree</code> is a bounding volume hierarchy over the
+ * world bounds of the spatials attached below a {@link Node}.
+ * <p>
+ * The tree is created with {@link Node#setCollisionIndexEnabled(boolean) }
+ * and is kept up to date incrementally: spatials are added and removed
+ * as they are attached and detached, and a leaf is re-inserted only when
+ * its world bound, updated through the usual refresh flags, grows out of
+ * the enlarged ("fat") box stored in the tree. Ray and bounding volume
+ * queries against the node then only visit the geometries whose boxes
+ * they touch instead of every child of the scene graph.
+ * <p>
+ * Leaves are normally {@link Geometry geometries}. Nodes that provide their
+ * own collision implementation, such as terrain, or that have a collision
+ * index of their own are stored as a single leaf and queried through
+ * their own {@link Spatial#collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) collideWith}
+ * method.
+ */
+public class DynamicAABBTree {
+
+    private static final int NULL = -1;
+    private static final Map<Class<?>, Boolean> traversable = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    private final Node owner;
+    private float fatMargin = 0.1f;
+
+    // Node storage, 6 floats (min xyz, max xyz) of bounds per node.
+    // The parents array also links the free list.
+    private float[] bounds;
+    private int[] parents;
+    private int[] children1;
+    private int[] children2;
+    private int[] heights;
+    private Spatial[] items;
+    private int root = NULL;
+    private int freeList = NULL;
+    private int nodeCount = 0;
+    private int leafCount = 0;
+
+    private int[] stack = new int[64];
+    private int[] found = new int[64];
+    private final float[] box = new float[6];
+
+    DynamicAABBTree(Node owner) {
+        this.owner = owner;
+        allocateStorage(16);
+    }
+
+    /**
+     * @return The node this index belongs to.
+     */
+    public Node getOwner() {
+        return owner;
+    }
+
+    /**
+     * Sets by how much the box of a leaf is enlarged when it is inserted,
+     * relative to the largest extent of its world bound. Larger values
+     * make moving spatials re-insert less often at the cost of looser
+     * boxes. The default is 0.1.
+     * 
+     * @param fatMargin The margin, must not be negative.
+     */
+    public void setFatMargin(float fatMargin) {
+        if (fatMargin < 0) {
+            throw new IllegalArgumentException("Margin cannot be negative");
+        }
+        this.fatMargin = fatMargin;
+    }
+
+    /**
+     * @return The margin by which leaf boxes are enlarged.
+     * @see #setFatMargin(float) 
+     */
+    public float getFatMargin() {
+        return fatMargin;
+    }
+
+    /**
+     * @return The number of spatials stored in the tree.
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * @return The height of the tree, 0 if it is empty or has a single leaf.
+     */
+    public int getHeight() {
+        return root == NULL ? 0 : heights[root];
+    }
+
+    /**
+     * Returns true if queries with the given collidable are accelerated
+     * by the tree. Other collidables are tested against every child of the
+     * owner node.
+     */
+    public static boolean isSupported(Collidable other) {
+        return other instanceof Ray
+            || other instanceof BoundingBox
+            || other instanceof BoundingSphere;
+    }
+
+    /**
+     * Collides the given collidable with the spatials under the owner node.
+     * The results are the same as those of a full traversal of the scene
+     * graph.
+     * 
+     * @param other The collidable to test
+     * @param results Where to store the results
+     * @return The number of collisions found.
+     */
+    public int collideWith(Collidable other, CollisionResults results) {
+        owner.checkDoBoundUpdate();
+        if (!isSupported(other)) {
+            int total = 0;
+            for (Spatial child : owner.children.getArray()) {
+                total += child.collideWith(other, results);
+            }
+            return total;
+        }
+
+        int count = query(other);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += items[found[i]].collideWith(other, results);
+        }
+        return total;
+    }
+
+    /**
+     * Collides many collidables at once, the results of
+     * <code>others[i]</code> are stored in <code>results[i]</code>.
+     * Bounds are only brought up to date once for the whole batch.
+     * 
+     * @param others The collidables to test
+     * @param results Where to store the results, one entry for each 
+     * collidable
+     * @return The total number of collisions found.
+     */
+    public int collideWith(Collidable[] others, CollisionResults[] results) {
+        if (others.length != results.length) {
+            throw new IllegalArgumentException("Need exactly one results object per collidable");
+        }
+        owner.checkDoBoundUpdate();
+        int total = 0;
+        for (int i = 0; i < others.length; i++) {
+            total += collideWith(others[i], results[i]);
+        }
+        return total;
+    }
+
+    /**
+     * Finds the spatials whose world bound may intersect the given 
+     * ray or bounding volume, without testing the meshes themselves.
+     * 
+     * @param other A ray, bounding box or bounding sphere
+     * @param store The list to add the spatials to
+     * @return The number of spatials added.
+     */
+    public int getIntersecting(Collidable other, List<Spatial> store) {
+        if (!isSupported(other)) {
+            throw new IllegalArgumentException("Unsupported collidable: " + other);
+        }
+        owner.checkDoBoundUpdate();
+        int count = query(other);
+        for (int i = 0; i < count; i++) {
+            store.add(items[found[i]]);
+        }
+        return count;
+    }
+
+    /**
+     * Collects the leaves touched by the collidable into the found array
+     * and returns their count.
+     */
+    private int query(Collidable other) {
+        if (root == NULL) {
+            return 0;
+        }
+        if (other instanceof Ray) {
+            return queryRay((Ray) other);
+        }
+        if (!toBox((BoundingVolume) other, box)) {
+            return 0;
+        }
+        return queryBox(box);
+    }
+
+    private int queryBox(float[] b) {
+        int count = 0;
+        int sp = 0;
+        stack[sp++] = root;
+        while (sp > 0) {
+            int node = stack[--sp];
+            int o = node * 6;
+            if (bounds[o] > b[3] || bounds[o + 3] < b[0]
+             || bounds[o + 1] > b[4] || bounds[o + 4] < b[1]
+             || bounds[o + 2] > b[5] || bounds[o + 5] < b[2]) {
+                continue;
+            }
+            if (children1[node] == NULL) {
+                count = addFound(count, node);
+            } else {
+                sp = push(sp, children1[node], children2[node]);
+            }
+        }
+        return count;
+    }
+
+    private int queryRay(Ray ray) {
+        Vector3f origin = ray.getOrigin();
+        Vector3f dir = ray.getDirection();
+        float limit = ray.getLimit();
+
+        int count = 0;
+        int sp = 0;
+        stack[sp++] = root;
+        while (sp > 0) {
+            int node = stack[--sp];
+            int o = node * 6;
+            float tMin = 0, tMax = limit;
+            boolean hit = true;
+            for (int axis = 0; axis < 3 && hit; axis++) {
+                float p = origin.get(axis);
+                float d = dir.get(axis);
+                float min = bounds[o + axis], max = bounds[o + axis + 3];
+                if (d == 0) {
+                    hit = p >= min && p <= max;
+                } else {
+                    float inv = 1f / d;
+                    float t1 = (min - p) * inv;
+                    float t2 = (max - p) * inv;
+                    if (t1 > t2) {
+                        float t = t1;
+                        t1 = t2;
+                        t2 = t;
+                    }
+                    tMin = Math.max(tMin, t1);
+                    tMax = Math.min(tMax, t2);
+                    hit = tMin <= tMax;
+                }
+            }
+            if (!hit) {
+                continue;
+            }
+            if (children1[node] == NULL) {
+                count = addFound(count, node);
+            } else {
+                sp = push(sp, children1[node], children2[node]);
+            }
+        }
+        return count;
+    }
+
+    private int addFound(int count, int node) {
+        if (count == found.length) {
+            int[] newFound = new int[found.length * 2];
+            System.arraycopy(found, 0, newFound, 0, count);
+            found = newFound;
+        }
+        found[count] = node;
+        return count + 1;
+    }
+
+    private int push(int sp, int a, int b) {
+        if (sp + 2 > stack.length) {
+            int[] newStack = new int[stack.length * 2];
+            System.arraycopy(stack, 0, newStack, 0, sp);
+            stack = newStack;
+        }
+        stack[sp++] = a;
+        stack[sp++] = b;
+        return sp;
+    }
+
+    /**
+     * Returns true if spatials attached below the node are stored in the
+     * tree rather than the node itself.
+     */
+    static boolean isTraversable(Node node) {
+        if (node.collisionIndex != null) {
+            return false;
+        }
+        Class<?> c = node.getClass();
+        if (c == Node.class) {
+            return true;
+        }
+        Boolean result = traversable.get(c);
+        if (result == null) {
+            try {
+                result = c.getMethod("collideWith", Collidable.class, CollisionResults.class)
+                          .getDeclaringClass() == Node.class;
+            } catch (NoSuchMethodException ex) {
+                result = Boolean.FALSE;
+            }
+            traversable.put(c, result);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the spatial and everything attached below it to the tree.
+     */
+    void addSubtree(Spatial spatial) {
+        if (spatial instanceof Node && isTraversable((Node) spatial)) {
+            for (Spatial child : ((Node) spatial).children.getArray()) {
+                addSubtree(child);
+            }
+        } else {
+            spatial.collisionTree = this;
+            spatial.collisionProxy = NULL;
+            leafCount++;
+            update(spatial);
+        }
+    }
+
+    /**
+     * Removes the spatial and everything attached below it from the tree.
+     */
+    void removeSubtree(Spatial spatial) {
+        if (spatial instanceof Node && isTraversable((Node) spatial)) {
+            for (Spatial child : ((Node) spatial).children.getArray()) {
+                removeSubtree(child);
+            }
+        } else if (spatial.collisionTree == this) {
+            if (spatial.collisionProxy != NULL) {
+                removeLeaf(spatial.collisionProxy);
+                freeNode(spatial.collisionProxy);
+            }
+            leafCount--;
+            spatial.collisionTree = null;
+            spatial.collisionProxy = NULL;
+        }
+    }
+
+    /**
+     * Called when the world bound of a leaf has been updated. The leaf
+     * is only moved if its bound is no longer inside the stored box.
+     */
+    void update(Spatial spatial) {
+        int proxy = spatial.collisionProxy;
+        BoundingVolume bound = spatial.worldBound;
+        if (bound == null || !toBox(bound, box)) {
+            // Spatials without a bound can't be hit anyway
+            if (proxy != NULL) {
+                removeLeaf(proxy);
+                freeNode(proxy);
+                spatial.collisionProxy = NULL;
+            }
+            return;
+        }
+
+        if (proxy != NULL) {
+            int o = proxy * 6;
+            if (bounds[o] <= box[0] && bounds[o + 1] <= box[1] && bounds[o + 2] <= box[2]
+             && bounds[o + 3] >= box[3] && bounds[o + 4] >= box[4] && bounds[o + 5] >= box[5]) {
+                return;
+            }
+            removeLeaf(proxy);
+        } else {
+            proxy = allocateNode();
+            items[proxy] = spatial;
+            spatial.collisionProxy = proxy;
+        }
+
+        float extent = Math.max(box[3] - box[0], Math.max(box[4] - box[1], box[5] - box[2])) * 0.5f;
+        float margin = Math.max(extent * fatMargin, FastMath.ZERO_TOLERANCE);
+        int o = proxy * 6;
+        for (int i = 0; i < 3; i++) {
+            bounds[o + i] = box[i] - margin;
+            bounds[o + i + 3] = box[i + 3] + margin;
+        }
+        insertLeaf(proxy);
+    }
+
+    private static boolean toBox(BoundingVolume bound, float[] store) {
+        Vector3f center = bound.getCenter();
+        float x, y, z;
+        if (bound instanceof BoundingBox) {
+            BoundingBox bb = (BoundingBox) bound;
+            x = bb.getXExtent();
+            y = bb.getYExtent();
+            z = bb.getZExtent();
+        } else if (bound instanceof BoundingSphere) {
+            x = y = z = ((BoundingSphere) bound).getRadius();
+        } else {
+            return false;
+        }
+        store[0] = center.x - x;
+        store[1] = center.y - y;
+        store[2] = center.z - z;
+        store[3] = center.x + x;
+        store[4] = center.y + y;
+        store[5] = center.z + z;
+        return true;
+    }
+
+    private void allocateStorage(int capacity) {
+        float[] newBounds = new float[capacity * 6];
+        int[] newParents = new int[capacity];
+        int[] newChildren1 = new int[capacity];
+        int[] newChildren2 = new int[capacity];
+        int[] newHeights = new int[capacity];
+        Spatial[] newItems = new Spatial[capacity];
+        if (bounds != null) {
+            System.arraycopy(bounds, 0, newBounds, 0, bounds.length);
+            System.arraycopy(parents, 0, newParents, 0, parents.length);
+            System.arraycopy(children1, 0, newChildren1, 0, children1.length);
+            System.arraycopy(children2, 0, newChildren2, 0, children2.length);
+            System.arraycopy(heights, 0, newHeights, 0, heights.length);
+            System.arraycopy(items, 0, newItems, 0, items.length);
+        }
+        bounds = newBounds;
+        parents = newParents;
+        children1 = newChildren1;
+        children2 = newChildren2;
+        heights = newHeights;
+        items = newItems;
+    }
+
+    private int allocateNode() {
+        int node;
+        if (freeList != NULL) {
+            node = freeList;
+            freeList = parents[node];
+        } else {
+            if (nodeCount == items.length) {
+                allocateStorage(items.length * 2);
+            }
+            node = nodeCount++;
+        }
+        parents[node] = NULL;
+        children1[node] = NULL;
+        children2[node] = NULL;
+        heights[node] = 0;
+        items[node] = null;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        items[node] = null;
+        heights[node] = -1;
+        parents[node] = freeList;
+        freeList = node;
+    }
+
+    private float area(int a) {
+        int o = a * 6;
+        float dx = bounds[o + 3] - bounds[o];
+        float dy = bounds[o + 4] - bounds[o + 1];
+        float dz = bounds[o + 5] - bounds[o + 2];
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    private float unionArea(int a, int b) {
+        int oa = a * 6, ob = b * 6;
+        float dx = Math.max(bounds[oa + 3], bounds[ob + 3]) - Math.min(bounds[oa], bounds[ob]);
+        float dy = Math.max(bounds[oa + 4], bounds[ob + 4]) - Math.min(bounds[oa + 1], bounds[ob + 1]);
+        float dz = Math.max(bounds[oa + 5], bounds[ob + 5]) - Math.min(bounds[oa + 2], bounds[ob + 2]);
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    private void union(int store, int a, int b) {
+        int o = store * 6, oa = a * 6, ob = b * 6;
+        for (int i = 0; i < 3; i++) {
+            bounds[o + i] = Math.min(bounds[oa + i], bounds[ob + i]);
+            bounds[o + i + 3] = Math.max(bounds[oa + i + 3], bounds[ob + i + 3]);
+        }
+    }
+
+    private void refit(int node) {
+        int a = children1[node], b = children2[node];
+        heights[node] = 1 + Math.max(heights[a], heights[b]);
+        union(node, a, b);
+    }
+
+    private float descendCost(int child, int leaf, float inheritanceCost) {
+        if (children1[child] == NULL) {
+            return unionArea(leaf, child) + inheritanceCost;
+        }
+        return unionArea(leaf, child) - area(child) + inheritanceCost;
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parents[leaf] = NULL;
+            return;
+        }
+
+        // Find the best sibling using the surface area heuristic
+        int index = root;
+        while (children1[index] != NULL) {
+            float area = area(index);
+            float combinedArea = unionArea(index, leaf);
+            float cost = 2f * combinedArea;
+            float inheritanceCost = 2f * (combinedArea - area);
+            float cost1 = descendCost(children1[index], leaf, inheritanceCost);
+            float cost2 = descendCost(children2[index], leaf, inheritanceCost);
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? children1[index] : children2[index];
+        }
+
+        int sibling = index;
+        int oldParent = parents[sibling];
+        int newParent = allocateNode();
+        parents[newParent] = oldParent;
+        children1[newParent] = sibling;
+        children2[newParent] = leaf;
+        parents[sibling] = newParent;
+        parents[leaf] = newParent;
+        if (oldParent == NULL) {
+            root = newParent;
+        } else if (children1[oldParent] == sibling) {
+            children1[oldParent] = newParent;
+        } else {
+            children2[oldParent] = newParent;
+        }
+
+        for (index = newParent; index != NULL; index = parents[index]) {
+            index = balance(index);
+            refit(index);
+        }
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int parent = parents[leaf];
+        int grandParent = parents[parent];
+        int sibling = children1[parent] == leaf ? children2[parent] : children1[parent];
+        freeNode(parent);
+        parents[leaf] = NULL;
+
+        if (grandParent == NULL) {
+            root = sibling;
+            parents[sibling] = NULL;
+            return;
+        }
+
+        if (children1[grandParent] == parent) {
+            children1[grandParent] = sibling;
+        } else {
+            children2[grandParent] = sibling;
+        }
+        parents[sibling] = grandParent;
+
+        for (int index = grandParent; index != NULL; index = parents[index]) {
+            index = balance(index);
+            refit(index);
+        }
+    }
+
+    private void replaceChild(int parent, int oldChild, int newChild) {
+        if (parent == NULL) {
+            root = newChild;
+        } else if (children1[parent] == oldChild) {
+            children1[parent] = newChild;
+        } else {
+            children2[parent] = newChild;
+        }
+    }
+
+    /**
+     * Performs a left or right rotation if node a is imbalanced.
+     * Returns the new root of the sub-tree.
+     */
+    private int balance(int a) {
+        if (children1[a] == NULL || heights[a] < 2) {
+            return a;
+        }
+
+        int b = children1[a];
+        int c = children2[a];
+        int balance = heights[c] - heights[b];
+
+        if (balance > 1) {
+            // Rotate c up
+            int f = children1[c];
+            int g = children2[c];
+            children1[c] = a;
+            parents[c] = parents[a];
+            parents[a] = c;
+            replaceChild(parents[c], a, c);
+
+            if (heights[f] > heights[g]) {
+                children2[c] = f;
+                children2[a] = g;
+                parents[g] = a;
+            } else {
+                children2[c] = g;
+                children2[a] = f;
+                parents[f] = a;
+            }
+            refit(a);
+            refit(c);
+            return c;
+        }
+
+        if (balance < -1) {
+            // Rotate b up
+            int d = children1[b];
+            int e = children2[b];
+            children1[b] = a;
+            parents[b] = parents[a];
+            parents[a] = b;
+            replaceChild(parents[b], a, b);
+
+            if (heights[d] > heights[e]) {
+                children2[b] = d;
+                children1[a] = e;
+                parents[e] = a;
+            } else {
+                children2[b] = e;
+                children1[a] = d;
+                parents[d] = a;
+            }
+            refit(a);
+            refit(b);
+            return b;
+        }
+
+        return a;
+    }
+
+}
@@ -283,6 +283,10 @@ public class Geometry extends Spatial {
                 worldBound = mesh.getBound().transform(worldTransform, worldBound);
             }
         }
+
+        if (collisionTree != null) {
+            collisionTree.update(this);
+        }
     }
 
     @Override
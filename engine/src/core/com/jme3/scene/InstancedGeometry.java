@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResults;
+import com.jme3.material.Material;
+import com.jme3.math.Matrix4f;
+import com.jme3.scene.VertexBuffer.Format;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.VertexBuffer.Usage;
+import com.jme3.util.BufferUtils;
+import com.jme3.util.SafeArrayList;
+import java.nio.FloatBuffer;
+
+/**
+ * <code>InstancedGeometry</code> renders many copies of the same mesh, 
+ * using the same material, with a single draw call.
+ * <p>
+ * The world matrices of the instance geometries are packed into a
+ * per-instance {@link Type#InstanceData} vertex buffer which is set on
+ * a shallow clone of the source mesh, the shared vertex buffers are
+ * only uploaded once. The material must support instancing, e.g. the
+ * Unshaded and Lighting materials with the <code>UseInstancing</code>
+ * parameter set to true.
+ * <p>
+ * InstancedGeometries are created and maintained by the {@link InstancedNode},
+ * they should not be used directly.
+ * 
+ * @see InstancedNode
+ */
+public class InstancedGeometry extends Geometry {
+
+    private static final int INSTANCE_SIZE = 16;
+    
+    protected SafeArrayList<Geometry> instances = new SafeArrayList<Geometry>(Geometry.class);
+    private VertexBuffer instanceData;
+    private FloatBuffer instanceBuffer;
+    private float[] tmpFloat;
+
+    /**
+     * Serialization only. Do not use.
+     */
+    public InstancedGeometry() {
+    }
+
+    /**
+     * Creates an InstancedGeometry that renders instances of the given mesh
+     * with the given material.
+     * 
+     * @param name The name of this geometry
+     * @param mesh The mesh shared by all instances
+     * @param material The material shared by all instances
+     */
+    public InstancedGeometry(String name, Mesh mesh, Material material) {
+        super(name, mesh.clone());
+        setMaterial(material);
+        // the world transform of every instance is in the instance data
+        setIgnoreTransform(true);
+        setUserData(UserData.JME_PHYSICSIGNORE, true);
+    }
+
+    /**
+     * Adds a geometry to be rendered as an instance of this geometry.
+     * The geometry must use the same mesh and material as this
+     * instanced geometry.
+     * 
+     * @param geom The geometry to add
+     */
+    public void addInstance(Geometry geom) {
+        instances.add(geom);
+    }
+
+    /**
+     * Removes a geometry from the instances of this geometry.
+     * 
+     * @param geom The geometry to remove
+     * @return true if the geometry was an instance of this geometry.
+     */
+    public boolean removeInstance(Geometry geom) {
+        return instances.remove(geom);
+    }
+
+    /**
+     * @return The geometries rendered as instances of this geometry.
+     */
+    public SafeArrayList<Geometry> getInstances() {
+        return instances;
+    }
+
+    /**
+     * @return The number of instances rendered by this geometry.
+     */
+    public int getNumInstances() {
+        return instances.size();
+    }
+
+    /**
+     * Writes the current world matrices of all instances into the 
+     * instance data buffer and updates the bounding volume of this geometry
+     * to contain all instances.
+     * The world state of the instances must be up to date.
+     */
+    public void updateInstances() {
+        int numInstances = instances.size();
+        if (instanceBuffer == null || instanceBuffer.capacity() < numInstances * INSTANCE_SIZE) {
+            // grow the buffer, leaving space for more instances
+            int capacity = Math.max(numInstances, 1) * 2;
+            instanceBuffer = BufferUtils.createFloatBuffer(capacity * INSTANCE_SIZE);
+            tmpFloat = new float[capacity * INSTANCE_SIZE];
+        }
+
+        BoundingVolume bound = null;
+        Geometry[] geoms = instances.getArray();
+        for (int i = 0; i < numInstances; i++) {
+            Geometry geom = geoms[i];
+            writeMatrix(geom.getWorldMatrix(), tmpFloat, i * INSTANCE_SIZE);
+            BoundingVolume worldBound = geom.getWorldBound();
+            if (worldBound != null) {
+                if (bound == null) {
+                    bound = worldBound.clone(mesh.getBound());
+                } else {
+                    bound.mergeLocal(worldBound);
+                }
+            }
+        }
+        instanceBuffer.clear();
+        instanceBuffer.put(tmpFloat, 0, numInstances * INSTANCE_SIZE);
+        instanceBuffer.flip();
+
+        if (instanceData == null) {
+            instanceData = new VertexBuffer(Type.InstanceData);
+            instanceData.setInstanced(true);
+            instanceData.setupData(Usage.Stream, INSTANCE_SIZE, Format.Float, instanceBuffer);
+            mesh.setBuffer(instanceData);
+        } else {
+            instanceData.updateData(instanceBuffer);
+            mesh.updateCounts();
+        }
+
+        if (bound != null) {
+            mesh.setBound(bound);
+        }
+        // the model bound is in world space, see ignoreTransform
+        updateWorldBound();
+    }
+
+    /**
+     * Stores the matrix in column-major order, as expected by the
+     * mat4 instance attribute.
+     */
+    private static void writeMatrix(Matrix4f m, float[] store, int offset) {
+        store[offset]      = m.m00;
+        store[offset + 1]  = m.m10;
+        store[offset + 2]  = m.m20;
+        store[offset + 3]  = m.m30;
+        store[offset + 4]  = m.m01;
+        store[offset + 5]  = m.m11;
+        store[offset + 6]  = m.m21;
+        store[offset + 7]  = m.m31;
+        store[offset + 8]  = m.m02;
+        store[offset + 9]  = m.m12;
+        store[offset + 10] = m.m22;
+        store[offset + 11] = m.m32;
+        store[offset + 12] = m.m03;
+        store[offset + 13] = m.m13;
+        store[offset + 14] = m.m23;
+        store[offset + 15] = m.m33;
+    }
+
+    /**
+     * The bound of an InstancedGeometry is computed from its instances,
+     * see {@link #updateInstances() }.
+     */
+    @Override
+    public void updateModelBound() {
+        setBoundRefresh();
+    }
+
+    /**
+     * Collisions are handled by the instances, which remain in the
+     * scene graph.
+     */
+    @Override
+    public int collideWith(Collidable other, CollisionResults results) {
+        return 0;
+    }
+}
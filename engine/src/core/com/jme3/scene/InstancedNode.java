@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.material.MatParam;
+import com.jme3.material.Material;
+import com.jme3.util.SafeArrayList;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * InstancedNode renders the geometries of its sub scene graph that share 
+ * the same {@link Mesh} and {@link Material} with a single draw call per
+ * mesh/material pair, using hardware instancing.
+ * <p>
+ * Usage is similar to the {@link BatchNode}: attach the geometries to the
+ * sub scene graph, then call {@link #instance()}. For every mesh/material
+ * pair an {@link InstancedGeometry} is attached to this node, and the 
+ * instanced geometries are set to {@link CullHint#Always} to not render them.
+ * The instanced geometries can be transformed as usual, their world
+ * matrices are packed into the instance data every time the sub scene graph
+ * changes. Unlike batching, the mesh data is not duplicated, only 16 floats
+ * per instance are updated.
+ * <p>
+ * The materials must support instancing and have the <code>UseInstancing</code>
+ * parameter set to true, and the renderer must support
+ * {@link com.jme3.renderer.Caps#MeshInstancing}.
+ * Geometries attached after {@link #instance()} has been called are rendered
+ * as normal geometries until {@link #instance()} is called again. Geometries
+ * detached from the sub scene graph, directly or along with one of their
+ * parents, are no longer instanced.
+ * 
+ * @see InstancedGeometry
+ */
+public class InstancedNode extends Node {
+
+    private static final Logger logger = Logger.getLogger(InstancedNode.class.getName());
+    /**
+     * the list of geometries rendering the instances
+     */
+    protected SafeArrayList<InstancedGeometry> instancedGeometries = new SafeArrayList<InstancedGeometry>(InstancedGeometry.class);
+    /**
+     * a map storing the instanced geometry by instance to quickly find it when removing
+     */
+    protected Map<Geometry, InstancedGeometry> instancesByGeom = new HashMap<Geometry, InstancedGeometry>();
+
+    /**
+     * Serialization only. Do not use.
+     */
+    public InstancedNode() {
+        super();
+    }
+
+    public InstancedNode(String name) {
+        super(name);
+    }
+
+    /**
+     * Key used to group the geometries of the sub scene graph.
+     */
+    private static final class InstanceTypeKey {
+
+        final Mesh mesh;
+        final Material material;
+
+        InstanceTypeKey(Mesh mesh, Material material) {
+            this.mesh = mesh;
+            this.material = material;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof InstanceTypeKey)) {
+                return false;
+            }
+            InstanceTypeKey other = (InstanceTypeKey) obj;
+            return mesh == other.mesh && material == other.material;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(mesh) + System.identityHashCode(material);
+        }
+    }
+
+    /**
+     * Instance this node.
+     * Every geometry of the sub scene graph sharing its mesh and material 
+     * with at least one other geometry is rendered through an 
+     * {@link InstancedGeometry}.
+     */
+    public void instance() {
+        unInstance();
+
+        Map<InstanceTypeKey, SafeArrayList<Geometry>> typeMap = new HashMap<InstanceTypeKey, SafeArrayList<Geometry>>();
+        gatherGeometries(typeMap, this);
+
+        int nbGeoms = 0;
+        for (Map.Entry<InstanceTypeKey, SafeArrayList<Geometry>> entry : typeMap.entrySet()) {
+            SafeArrayList<Geometry> list = entry.getValue();
+            if (list.size() < 2) {
+                continue;
+            }
+            InstanceTypeKey key = entry.getKey();
+            checkMaterial(key.material);
+
+            InstancedGeometry ig = new InstancedGeometry(name + "-instanced" + instancedGeometries.size(),
+                    key.mesh, key.material);
+            for (Geometry geom : list.getArray()) {
+                ig.addInstance(geom);
+                instancesByGeom.put(geom, ig);
+                geom.setCullHint(CullHint.Always);
+                geom.computeWorldMatrix();
+            }
+            nbGeoms += list.size();
+            ig.updateInstances();
+            instancedGeometries.add(ig);
+            attachChild(ig);
+        }
+
+        logger.log(Level.INFO, "Instanced {0} geometries in {1} instanced geometries.",
+                new Object[]{nbGeoms, instancedGeometries.size()});
+        updateGeometricState();
+    }
+
+    /**
+     * Removes all instanced geometries from this node, the geometries
+     * of the sub scene graph are rendered as normal geometries again.
+     */
+    public void unInstance() {
+        for (InstancedGeometry ig : instancedGeometries.getArray()) {
+            ig.removeFromParent();
+        }
+        instancedGeometries.clear();
+        instancesByGeom.clear();
+    }
+
+    private void setInstancesCullHint(CullHint hint) {
+        for (InstancedGeometry ig : instancedGeometries.getArray()) {
+            for (Geometry geom : ig.getInstances().getArray()) {
+                geom.setCullHint(hint);
+            }
+        }
+    }
+
+    /**
+     * @return The instanced geometries rendering the instances of this node.
+     */
+    public SafeArrayList<InstancedGeometry> getInstancedGeometries() {
+        return instancedGeometries;
+    }
+
+    private void checkMaterial(Material material) {
+        MatParam param = material.getParam("UseInstancing");
+        if (param == null || !((Boolean) param.getValue())) {
+            throw new IllegalStateException("You must set the 'UseInstancing' parameter "
+                    + "to true on the material " + material + " prior to instancing");
+        }
+    }
+
+    private void gatherGeometries(Map<InstanceTypeKey, SafeArrayList<Geometry>> map, Spatial n) {
+        if (n instanceof Geometry) {
+            if (n instanceof InstancedGeometry || n.getBatchHint() == BatchHint.Never) {
+                return;
+            }
+            Geometry g = (Geometry) n;
+            if (g.isBatched()) {
+                return;
+            }
+            if (g.getMaterial() == null) {
+                throw new IllegalStateException("No material is set for Geometry: " + g.getName() + " please set a material before instancing");
+            }
+            MatParam param = g.getMaterial().getParam("UseInstancing");
+            if (param == null || !((Boolean) param.getValue())) {
+                // not meant to be instanced
+                return;
+            }
+            InstanceTypeKey key = new InstanceTypeKey(g.getMesh(), g.getMaterial());
+            SafeArrayList<Geometry> list = map.get(key);
+            if (list == null) {
+                list = new SafeArrayList<Geometry>(Geometry.class);
+                map.put(key, list);
+            }
+            list.add(g);
+        } else if (n instanceof Node) {
+            for (Spatial child : ((Node) n).getChildren()) {
+                if (child instanceof InstancedNode || child instanceof BatchNode) {
+                    continue;
+                }
+                gatherGeometries(map, child);
+            }
+        }
+    }
+
+    @Override
+    public void updateGeometricState() {
+        // a transform change anywhere in the sub scene graph
+        // flags the bound of this node for refresh
+        boolean instancesChanged = (refreshFlags & RF_BOUND) != 0;
+
+        if ((refreshFlags & RF_LIGHTLIST) != 0) {
+            updateWorldLightList();
+        }
+
+        if ((refreshFlags & RF_TRANSFORM) != 0) {
+            updateWorldTransforms();
+        }
+
+        if (instancesChanged) {
+            removeDetachedInstances();
+        }
+
+        if (!children.isEmpty()) {
+            for (Spatial child : children.getArray()) {
+                child.updateGeometricState();
+            }
+
+            if (instancesChanged) {
+                for (InstancedGeometry ig : instancedGeometries.getArray()) {
+                    ig.updateInstances();
+                }
+            }
+        }
+
+        if ((refreshFlags & RF_BOUND) != 0) {
+            updateWorldBound();
+        }
+
+        assert refreshFlags == 0;
+    }
+
+    /**
+     * Instanced geometries are removed from the instanced geometry
+     * rendering them when detached from this node. Geometries detached
+     * deeper in the sub scene graph are removed on the next update.
+     */
+    @Override
+    public Spatial detachChildAt(int index) {
+        Spatial s = super.detachChildAt(index);
+        if (s instanceof InstancedGeometry) {
+            // render the instances as normal geometries again
+            InstancedGeometry ig = (InstancedGeometry) s;
+            for (Geometry geom : ig.getInstances().getArray()) {
+                geom.setCullHint(CullHint.Inherit);
+                instancesByGeom.remove(geom);
+            }
+            instancedGeometries.remove(ig);
+        } else {
+            removeInstances(s);
+        }
+        return s;
+    }
+
+    private void removeInstances(Spatial s) {
+        if (s instanceof Node) {
+            for (Spatial child : ((Node) s).getChildren()) {
+                removeInstances(child);
+            }
+        } else if (s instanceof Geometry) {
+            InstancedGeometry ig = removeInstance((Geometry) s);
+            if (ig != null) {
+                ig.updateInstances();
+            }
+        }
+    }
+
+    /**
+     * Removes the instances that are no longer in the sub scene graph,
+     * e.g. detached from a child node, or with a parent node detached.
+     * The detach flags the bound of this node for refresh, so this is
+     * only needed when updating after a change.
+     */
+    private void removeDetachedInstances() {
+        for (InstancedGeometry ig : instancedGeometries.getArray()) {
+            for (Geometry geom : ig.getInstances().getArray()) {
+                if (!isInSubGraph(geom)) {
+                    removeInstance(geom);
+                }
+            }
+        }
+    }
+
+    private boolean isInSubGraph(Spatial s) {
+        Node parent = s.getParent();
+        while (parent != null && parent != this) {
+            parent = parent.getParent();
+        }
+        return parent == this;
+    }
+
+    /**
+     * Stops instancing the given geometry and renders it as a normal
+     * geometry again.
+     * 
+     * @return the instanced geometry that rendered it, or null if it
+     * was not instanced or the instanced geometry has no instance left.
+     */
+    private InstancedGeometry removeInstance(Geometry geom) {
+        InstancedGeometry ig = instancesByGeom.remove(geom);
+        if (ig == null) {
+            return null;
+        }
+        ig.removeInstance(geom);
+        geom.setCullHint(CullHint.Inherit);
+        if (ig.getNumInstances() == 0) {
+            ig.removeFromParent();
+            return null;
+        }
+        return ig;
+    }
+
+    @Override
+    public InstancedNode clone(boolean cloneMaterials) {
+        // the instances are rendered as normal geometries in the clone
+        // until it is instanced, the cloned instanced geometries would
+        // still reference the instances of this node.
+        setInstancesCullHint(CullHint.Inherit);
+        InstancedNode clone = (InstancedNode) super.clone(cloneMaterials);
+        setInstancesCullHint(CullHint.Always);
+
+        clone.instancedGeometries = new SafeArrayList<InstancedGeometry>(InstancedGeometry.class);
+        clone.instancesByGeom = new HashMap<Geometry, InstancedGeometry>();
+        for (int i = clone.getQuantity() - 1; i >= 0; i--) {
+            if (clone.getChild(i) instanceof InstancedGeometry) {
+                clone.detachChildAt(i);
+            }
+        }
+        if (!instancedGeometries.isEmpty()) {
+            clone.instance();
+        }
+        return clone;
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        // instanced geometries are derived data, the instances are 
+        // saved as normal geometries and instanced again when loading
+        SafeArrayList<InstancedGeometry> saved = instancedGeometries;
+        setInstancesCullHint(CullHint.Inherit);
+        children.removeAll(saved);
+        try {
+            super.write(ex);
+        } finally {
+            children.addAll(saved);
+            setInstancesCullHint(CullHint.Always);
+        }
+        ex.getCapsule(this).write(!saved.isEmpty(), "instanced", false);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        super.read(im);
+        if (im.getCapsule(this).readBoolean("instanced", false)) {
+            instance();
+        }
+    }
+}
@@ -36,6 +36,7 @@ import com.jme3.bounding.BoundingVolume;
 import com.jme3.collision.Collidable;
 import com.jme3.collision.CollisionResults;
 import com.jme3.collision.bih.BIHTree;
+import com.jme3.collision.bih.FlatBIHTree;
 import com.jme3.export.*;
 import com.jme3.material.RenderState;
 import com.jme3.math.Matrix4f;
@@ -53,6 +54,7 @@ import com.jme3.util.SafeArrayList;
 import java.io.IOException;
 import java.nio.*;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
 
 /**
  * <code>Mesh</code> is used to store rendering data.
@@ -162,7 +164,7 @@ public class Mesh implements Savable, Cloneable {
      */
     private BoundingVolume meshBound =  new BoundingBox();
 
-    private CollisionData collisionTree = null;
+    private volatile CollisionData collisionTree = null;
 
     private SafeArrayList<VertexBuffer> buffersList = new SafeArrayList<VertexBuffer>(VertexBuffer.class);
     private IntMap<VertexBuffer> buffers = new IntMap<VertexBuffer>();
@@ -174,6 +176,7 @@ public class Mesh implements Savable, Cloneable {
 
     private int vertCount = -1;
     private int elementCount = -1;
+    private int instanceCount = -1;
     private int maxNumWeights = -1; // only if using skeletal animation
 
     private int[] elementLengths;
@@ -346,28 +349,60 @@ public class Mesh implements Savable, Cloneable {
     }
 
     /**
-     * Prepares the mesh for software skinning by converting the bone index
-     * and weight buffers to heap buffers. 
+     * Prepares the mesh for software or hardware skinning.
+     * <p>
+     * For software skinning, the bone index and weight buffers are converted
+     * to heap buffers which are only used on the CPU. For hardware skinning,
+     * they are converted to direct buffers and uploaded to the GPU as
+     * vertex attributes.
      * 
-     * @param forSoftwareAnim Should be true to enable the conversion.
+     * @param forSoftwareAnim True to prepare for software skinning, false
+     * for hardware skinning.
      */
     public void prepareForAnim(boolean forSoftwareAnim){
+        VertexBuffer indices = getBuffer(Type.BoneIndex);
+        VertexBuffer weights = getBuffer(Type.BoneWeight);
+        if (indices == null || weights == null) {
+            return;
+        }
+
+        ByteBuffer originalIndex = (ByteBuffer) indices.getData();
+        FloatBuffer originalWeight = (FloatBuffer) weights.getData();
         if (forSoftwareAnim){
             // convert indices
-            VertexBuffer indices = getBuffer(Type.BoneIndex);
-            ByteBuffer originalIndex = (ByteBuffer) indices.getData();
-            ByteBuffer arrayIndex = ByteBuffer.allocate(originalIndex.capacity());
-            originalIndex.clear();
-            arrayIndex.put(originalIndex);
-            indices.updateData(arrayIndex);
+            if (!originalIndex.hasArray()) {
+                ByteBuffer arrayIndex = ByteBuffer.allocate(originalIndex.capacity());
+                originalIndex.clear();
+                arrayIndex.put(originalIndex);
+                indices.updateData(arrayIndex);
+            }
+            indices.setUsage(Usage.CpuOnly);
 
             // convert weights
-            VertexBuffer weights = getBuffer(Type.BoneWeight);
-            FloatBuffer originalWeight = (FloatBuffer) weights.getData();
-            FloatBuffer arrayWeight = FloatBuffer.allocate(originalWeight.capacity());
-            originalWeight.clear();
-            arrayWeight.put(originalWeight);
-            weights.updateData(arrayWeight);
+            if (!originalWeight.hasArray()) {
+                FloatBuffer arrayWeight = FloatBuffer.allocate(originalWeight.capacity());
+                originalWeight.clear();
+                arrayWeight.put(originalWeight);
+                weights.updateData(arrayWeight);
+            }
+            weights.setUsage(Usage.CpuOnly);
+        } else {
+            // the renderer can only upload direct buffers
+            if (originalIndex.hasArray()) {
+                ByteBuffer directIndex = BufferUtils.createByteBuffer(originalIndex.capacity());
+                originalIndex.clear();
+                directIndex.put(originalIndex);
+                indices.updateData(directIndex);
+            }
+            indices.setUsage(Usage.Static);
+
+            if (originalWeight.hasArray()) {
+                FloatBuffer directWeight = BufferUtils.createFloatBuffer(originalWeight.capacity());
+                originalWeight.clear();
+                directWeight.put(originalWeight);
+                weights.updateData(directWeight);
+            }
+            weights.setUsage(Usage.Static);
         }
     }
 
@@ -691,6 +726,19 @@ public class Mesh implements Savable, Cloneable {
         }else{
             elementCount = computeNumElements(vertCount);
         }
+        instanceCount = computeInstanceCount();
+    }
+
+    private int computeInstanceCount(){
+        // the number of instances is bound by the largest
+        // instanced buffer, non-instanced meshes draw a single instance
+        int max = 1;
+        for (VertexBuffer vb : buffersList.getArray()){
+            if (vb.isInstanced() && vb.getData() != null){
+                max = Math.max(max, vb.getBaseInstanceCount());
+            }
+        }
+        return max;
     }
 
     /**
@@ -728,6 +776,19 @@ public class Mesh implements Savable, Cloneable {
         return elementCount;
     }
 
+    /**
+     * Returns the number of instances this mesh is drawn with.
+     * The count is computed from the {@link VertexBuffer#isInstanced() instanced}
+     * vertex buffers set on the mesh and is only updated when 
+     * {@link #updateCounts() } is called. Meshes without instanced
+     * buffers return 1.
+     * 
+     * @return Number of instances to draw
+     */
+    public int getInstanceCount(){
+        return instanceCount < 1 ? 1 : instanceCount;
+    }
+
     /**
      * Returns the number of vertices on this mesh.
      * The value is computed based on the position buffer, which 
@@ -831,11 +892,62 @@ public class Mesh implements Savable, Cloneable {
      * com.jme3.collision.CollisionResults) }.
      */
     public void createCollisionData(){
+        createCollisionData(null);
+    }
+
+    /**
+     * Generates a collision tree for the mesh, splitting the work 
+     * across the threads of the given executor for large meshes.
+     * <p>
+     * The collision tree is saved with the mesh when it is exported, so
+     * generating it before exporting a model avoids building it after the
+     * model is loaded. It can be generated eagerly for a whole model, off
+     * the render thread, with {@link com.jme3.util.CollisionDataGenerator}.
+     * 
+     * @param executor The executor to use, or null to build the tree on the
+     * calling thread.
+     * @see BIHTree#construct(java.util.concurrent.ExecutorService) 
+     */
+    public void createCollisionData(ExecutorService executor){
         BIHTree tree = new BIHTree(this);
-        tree.construct();
+        tree.construct(executor);
         collisionTree = tree;
     }
 
+    /**
+     * @return True if the collision tree of the mesh has been generated
+     * or loaded.
+     */
+    public boolean hasCollisionData(){
+        return collisionTree != null;
+    }
+
+    /**
+     * Clears the collision tree of the mesh, so that it is not exported
+     * with the mesh. The collision tree is generated again the next time
+     * it is needed.
+     */
+    public void clearCollisionData(){
+        collisionTree = null;
+    }
+
+    /**
+     * Returns the collision tree of the mesh stored in primitive arrays, 
+     * for casting large batches of rays with 
+     * {@link FlatBIHTree#intersectRays(float[], int, com.jme3.math.Matrix4f, boolean, float[], int[], java.util.concurrent.ExecutorService) }.
+     * The collision tree is generated first if needed.
+     * 
+     * @return The flat collision tree.
+     */
+    public FlatBIHTree getFlatCollisionTree(){
+        CollisionData tree = collisionTree;
+        if (tree == null){
+            createCollisionData();
+            tree = collisionTree;
+        }
+        return ((BIHTree) tree).getFlatTree();
+    }
+
     /**
      * Handles collision detection, internal use only.
      * User code should only use collideWith() on scene
@@ -846,11 +958,13 @@ public class Mesh implements Savable, Cloneable {
                            BoundingVolume worldBound,
                            CollisionResults results){
 
-        if (collisionTree == null){
+        CollisionData tree = collisionTree;
+        if (tree == null){
             createCollisionData();
+            tree = collisionTree;
         }
         
-        return collisionTree.collideWith(other, worldMatrix, worldBound, results);
+        return tree.collideWith(other, worldMatrix, worldBound, results);
     }
 
     /**
@@ -1289,6 +1403,7 @@ public class Mesh implements Savable, Cloneable {
         for (Entry<VertexBuffer> entry : buffers){
             buffersList.add(entry.getValue());
         }
+        instanceCount = computeInstanceCount();
         
         Savable[] lodLevelsSavable = in.readSavableArray("lodLevels", null);
         if (lodLevelsSavable != null) {
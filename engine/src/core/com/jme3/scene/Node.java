@@ -66,6 +66,12 @@ public class Node extends Spatial implements Savable {
      */
     protected SafeArrayList<Spatial> children = new SafeArrayList<Spatial>(Spatial.class);
 
+    /**
+     * Spatial index over the world bounds of the descendants, or null
+     * if collisions are checked by visiting every child.
+     */
+    protected transient DynamicAABBTree collisionIndex;
+
     /**
      * Serialization only. Do not use.
      */
@@ -138,6 +144,10 @@ public class Node extends Spatial implements Savable {
             }
         }
         this.worldBound = resultBound;
+
+        if (collisionTree != null) {
+            collisionTree.update(this);
+        }
     }
 
     @Override
@@ -242,6 +252,11 @@ public class Node extends Spatial implements Savable {
             child.setParent(this);
             children.add(child);
 
+            DynamicAABBTree tree = getEnclosingCollisionIndex();
+            if (tree != null) {
+                tree.addSubtree(child);
+            }
+
             // XXX: Not entirely correct? Forces bound update up the
             // tree stemming from the attached child. Also forces
             // transform update down the tree-
@@ -279,6 +294,11 @@ public class Node extends Spatial implements Savable {
             }
             child.setParent(this);
             children.add(index, child);
+
+            DynamicAABBTree tree = getEnclosingCollisionIndex();
+            if (tree != null) {
+                tree.addSubtree(child);
+            }
             child.setTransformRefresh();
             child.setLightListRefresh();
             if (logger.isLoggable(Level.INFO)) {
@@ -348,6 +368,11 @@ public class Node extends Spatial implements Savable {
     public Spatial detachChildAt(int index) {
         Spatial child =  children.remove(index);
         if ( child != null ) {
+            DynamicAABBTree tree = getEnclosingCollisionIndex();
+            if (tree != null) {
+                tree.removeSubtree(child);
+            }
+
             child.setParent( null );
             logger.log(Level.INFO, "{0}: Child removed.", this.toString());
 
@@ -486,7 +511,18 @@ public class Node extends Spatial implements Savable {
         }
     }
 
+    /**
+     * Collides the collidable with all the children of this node.
+     * <p>
+     * If the {@link #setCollisionIndexEnabled(boolean) collision index} is
+     * enabled, rays and bounding volumes are only tested against the
+     * geometries whose world bounds they touch.
+     */
     public int collideWith(Collidable other, CollisionResults results){
+        if (collisionIndex != null) {
+            return collisionIndex.collideWith(other, results);
+        }
+
         int total = 0;
         for (Spatial child : children.getArray()){
             total += child.collideWith(other, results);
@@ -494,6 +530,76 @@ public class Node extends Spatial implements Savable {
         return total;
     }
 
+    /**
+     * Enables or disables the collision index of this node.
+     * <p>
+     * When enabled, a {@link DynamicAABBTree} is maintained over the world
+     * bounds of all geometries attached below this node and is used by
+     * {@link #collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) collideWith}
+     * to skip the ones a ray or bounding volume cannot touch. This is
+     * worthwhile for nodes with many geometries that are picked often,
+     * such as the root node of a large scene. The index is updated as
+     * spatials are attached, detached or moved, and is not saved
+     * with the node.
+     * 
+     * @param enabled true to create the index, false to remove it.
+     */
+    public void setCollisionIndexEnabled(boolean enabled) {
+        if (enabled == (collisionIndex != null)) {
+            return;
+        }
+
+        // An enclosing index stores either our descendants or
+        // ourselves depending on whether we have an index
+        DynamicAABBTree outer = collisionTree;
+        if (outer == null && parent != null) {
+            outer = parent.getEnclosingCollisionIndex();
+        }
+        if (outer != null) {
+            outer.removeSubtree(this);
+        }
+
+        if (enabled) {
+            collisionIndex = new DynamicAABBTree(this);
+            for (Spatial child : children.getArray()) {
+                collisionIndex.addSubtree(child);
+            }
+        } else {
+            for (Spatial child : children.getArray()) {
+                collisionIndex.removeSubtree(child);
+            }
+            collisionIndex = null;
+        }
+
+        if (outer != null) {
+            outer.addSubtree(this);
+        }
+    }
+
+    /**
+     * @return The collision index of this node, or null if it is disabled.
+     * @see #setCollisionIndexEnabled(boolean) 
+     */
+    public DynamicAABBTree getCollisionIndex() {
+        return collisionIndex;
+    }
+
+    /**
+     * Returns the index that children attached to this node belong to,
+     * this node's own or the one of the closest ancestor that has one.
+     */
+    private DynamicAABBTree getEnclosingCollisionIndex() {
+        for (Node node = this; node != null; node = node.parent) {
+            if (node.collisionIndex != null) {
+                return node.collisionIndex;
+            }
+            if (!DynamicAABBTree.isTraversable(node)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
 
      /**
      * Returns flat list of Spatials implementing the specified class AND
@@ -567,18 +673,34 @@ public class Node extends Spatial implements Savable {
 //            childClone.parent = nodeClone;
 //            nodeClone.children.add(childClone);
 //        }
+        if (collisionIndex != null) {
+            nodeClone.collisionIndex = null;
+            nodeClone.setCollisionIndexEnabled(true);
+        }
         return nodeClone;
     }
 
     @Override
     public Spatial deepClone(){
-        Node nodeClone = (Node) super.clone();
+        // super.clone() goes through clone(boolean), keep it from indexing
+        // the children that are replaced below
+        DynamicAABBTree index = collisionIndex;
+        collisionIndex = null;
+        Node nodeClone;
+        try {
+            nodeClone = (Node) super.clone();
+        } finally {
+            collisionIndex = index;
+        }
         nodeClone.children = new SafeArrayList<Spatial>(Spatial.class);
         for (Spatial child : children){
             Spatial childClone = child.deepClone();
             childClone.parent = nodeClone;
             nodeClone.children.add(childClone);
         }
+        if (collisionIndex != null) {
+            nodeClone.setCollisionIndexEnabled(true);
+        }
         return nodeClone;
     }
 
@@ -159,6 +159,14 @@ public abstract class Spatial implements Savable, Cloneable, Collidable, Cloneab
      * updated to reflect the correct state.
      */
     protected transient int refreshFlags = 0;
+    /**
+     * The collision index this spatial is stored in as a leaf, if any,
+     * and the index of its tree node.
+     * 
+     * @see Node#setCollisionIndexEnabled(boolean) 
+     */
+    transient DynamicAABBTree collisionTree;
+    transient int collisionProxy = -1;
 
     /**
      * Serialization only. Do not use.
@@ -1165,6 +1173,8 @@ public abstract class Spatial implements Savable, Cloneable, Collidable, Cloneab
             }
 
             clone.parent = null;
+            clone.collisionTree = null;
+            clone.collisionProxy = -1;
             clone.setBoundRefresh();
             clone.setTransformRefresh();
             clone.setLightListRefresh();
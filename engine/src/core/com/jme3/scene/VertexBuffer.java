@@ -192,6 +192,14 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
          * on the heap.
          */
         BindPoseTangent,
+
+        /**
+         * Per-instance world transform, used with hardware instancing
+         * (16 floats, a column-major 4x4 matrix per instance).
+         * The buffer must be marked {@link VertexBuffer#setInstanced(boolean) instanced}
+         * and is bound to the <code>inInstanceData</code> mat4 attribute.
+         */
+        InstanceData,
     }
 
     /**
@@ -311,6 +319,7 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
     protected Type bufType;
     protected Format format;
     protected boolean normalized = false;
+    protected int instanceSpan = 0;
     protected transient boolean dataSizeChanged = false;
 
     /**
@@ -468,6 +477,66 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         return normalized;
     }
 
+    /**
+     * Sets the instanceSpan to 1 or 0 depending on
+     * the value of instanced and the existing value of
+     * instanceSpan.
+     * 
+     * @param instanced True if the buffer is per-instance data
+     * 
+     * @see #setInstanceSpan(int) 
+     */
+    public void setInstanced(boolean instanced) {
+        if (instanced && instanceSpan == 0) {
+            instanceSpan = 1;
+        } else if (!instanced) {
+            instanceSpan = 0;
+        }
+    }
+
+    /**
+     * @return True if the data in this buffer is per-instance
+     * rather than per-vertex.
+     */
+    public boolean isInstanced() {
+        return instanceSpan > 0;
+    }
+
+    /**
+     * Sets how many instances are drawn using each element of this buffer.
+     * A value of 0 means the buffer holds regular per-vertex data,
+     * a value of 1 advances to the next element for every instance, 
+     * a value of 2 every second instance, and so on.
+     * 
+     * @param i The number of instances that share an element.
+     */
+    public void setInstanceSpan(int i) {
+        this.instanceSpan = i;
+    }
+
+    /**
+     * @return The number of instances that share an element of this buffer.
+     * 
+     * @see #setInstanceSpan(int) 
+     */
+    public int getInstanceSpan() {
+        return instanceSpan;
+    }
+
+    /**
+     * Returns the number of instances that can be drawn from the data
+     * in this buffer. For buffers that are not 
+     * {@link #isInstanced() instanced}, this is always 1.
+     * 
+     * @return The number of instances this buffer provides data for.
+     */
+    public int getBaseInstanceCount() {
+        if (!isInstanced()) {
+            return 1;
+        }
+        return getNumElements() * instanceSpan;
+    }
+
     /**
      * @return The type of information that this buffer has.
      */
@@ -522,7 +591,8 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         if (data.isReadOnly()) 
             throw new IllegalArgumentException( "VertexBuffer data cannot be read-only." );
 
-        if (components < 1 || components > 4)
+        if ((components < 1 || components > 4) 
+                && !(components == 16 && bufType == Type.InstanceData))
             throw new IllegalArgumentException("components must be between 1 and 4");
 
         this.data = data;
@@ -921,6 +991,7 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         vb.normalized = normalized;
         vb.offset = offset;
         vb.stride = stride;
+        vb.instanceSpan = instanceSpan;
         vb.updateNeeded = true;
         vb.usage = usage;
         return vb;
@@ -964,6 +1035,7 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         oc.write(normalized, "normalized", false);
         oc.write(offset, "offset", 0);
         oc.write(stride, "stride", 0);
+        oc.write(instanceSpan, "instanceSpan", 0);
 
         String dataName = "data" + format.name();
         Buffer roData = getDataReadOnly();
@@ -998,6 +1070,7 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         normalized = ic.readBoolean("normalized", false);
         offset = ic.readInt("offset", 0);
         stride = ic.readInt("stride", 0);
+        instanceSpan = ic.readInt("instanceSpan", 0);
         componentsLength = components * format.getComponentSize();
 
         String dataName = "data" + format.name();
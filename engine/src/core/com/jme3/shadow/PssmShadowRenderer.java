@@ -32,8 +32,12 @@
 package com.jme3.shadow;
 
 import com.jme3.asset.AssetManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
 import com.jme3.math.Matrix4f;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
@@ -58,8 +62,11 @@ import com.jme3.texture.Texture.MinFilter;
 import com.jme3.texture.Texture.ShadowCompareMode;
 import com.jme3.texture.Texture2D;
 import com.jme3.ui.Picture;
+import com.jme3.util.TempVars;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * PssmShadow renderer use Parrallel Split Shadow Mapping technique (pssm)<br>
@@ -132,6 +139,13 @@ public class PssmShadowRenderer implements SceneProcessor {
          */
         Hardware;
     }
+    /**
+     * The user data key that marks shadow casters as static for
+     * {@link #setStaticCaching(boolean) static caching}. Set it to 
+     * <code>true</code> on a geometry, or on a node to mark all the
+     * geometries below it.
+     */
+    public static final String STATIC_CASTER = "StaticShadowCaster";
     protected int nbSplits = 3;
     protected float shadowMapSize;
     protected float lambda = 0.65f;
@@ -174,6 +188,28 @@ public class PssmShadowRenderer implements SceneProcessor {
     protected Vector2f fadeInfo;
     protected float fadeLength;
     protected boolean applyFadeInfo = false;
+    //static casters are rendered in their own shadow maps that are kept
+    //from frame to frame and copied to the shadow maps before the
+    //dynamic casters are rendered over them
+    protected boolean staticCaching = false;
+    protected float cacheMargin = 0.25f;
+    protected float cacheLightThreshold = 0.001f;
+    protected FrameBuffer[] staticFB;
+    protected Texture2D[] staticMaps;
+    protected Matrix4f[] staticProjections;
+    protected boolean[] staticValid;
+    protected List<Set<Geometry>> staticCasters;
+    protected Vector3f staticDirection = new Vector3f();
+    protected GeometryList staticOccluders = new GeometryList(new OpaqueComparator());
+    protected GeometryList dynamicOccluders = new GeometryList(new OpaqueComparator());
+    protected GeometryList cacheOccluders = new GeometryList(new OpaqueComparator());
+    protected GeometryList splitStaticOccluders = new GeometryList(new OpaqueComparator());
+    protected Vector3f[] cachePoints = new Vector3f[8];
+    /**
+     * Reused to transform the bounds of the dynamic casters.
+     */
+    private final BoundingBox casterBox = new BoundingBox();
+    private final BoundingSphere casterSphere = new BoundingSphere();
 
     /**
      * Create a PSSM Shadow Renderer More info on the technique at <a
@@ -248,6 +284,7 @@ public class PssmShadowRenderer implements SceneProcessor {
 
         for (int i = 0; i < points.length; i++) {
             points[i] = new Vector3f();
+            cachePoints[i] = new Vector3f();
         }
 
     }
@@ -406,8 +443,14 @@ public class PssmShadowRenderer implements SceneProcessor {
         float frustumNear = Math.max(viewCam.getFrustumNear(), 0.001f);
         ShadowUtil.updateFrustumPoints(viewCam, frustumNear, zFar, 1.0f, points);
 
+        Renderer r = renderManager.getRenderer();
+        boolean caching = staticCaching && r.getCaps().contains(Caps.FrameBufferBlit);
+        if (caching) {
+            sortStaticCasters(occluders);
+        }
+
         //shadowCam.setDirection(direction);
-        shadowCam.getRotation().lookAt(direction, shadowCam.getUp());
+        shadowCam.getRotation().lookAt(caching ? staticDirection : direction, shadowCam.getUp());
         shadowCam.update();
         shadowCam.updateViewProjection();
 
@@ -427,7 +470,6 @@ public class PssmShadowRenderer implements SceneProcessor {
                 break;
         }
 
-        Renderer r = renderManager.getRenderer();
         renderManager.setForcedMaterial(preshadowMat);
         renderManager.setForcedTechnique("PreShadow");
 
@@ -437,7 +479,12 @@ public class PssmShadowRenderer implements SceneProcessor {
             ShadowUtil.updateFrustumPoints(viewCam, splitsArray[i], splitsArray[i + 1], 1.0f, points);
 
             //Updating shadow cam with curent split frustra
-            ShadowUtil.updateShadowCamera(occluders, receivers, shadowCam, points, splitOccluders);
+            int staticRendered = 0;
+            if (caching) {
+                staticRendered = updateStaticShadowMap(i, occluders, receivers);
+            } else {
+                ShadowUtil.updateShadowCamera(occluders, receivers, shadowCam, points, splitOccluders);
+            }
 
             //saving light view projection matrix for this split            
             lightViewProjectionsMatrices[i].set(shadowCam.getViewProjectionMatrix());
@@ -453,8 +500,16 @@ public class PssmShadowRenderer implements SceneProcessor {
 
             }
 
-            r.setFrameBuffer(shadowFB[i]);
-            r.clearBuffers(false, true, false);
+            if (caching) {
+                // start from the static casters' depth
+                r.copyFrameBuffer(staticFB[i], shadowFB[i], true);
+                r.setFrameBuffer(shadowFB[i]);
+            } else {
+                r.setFrameBuffer(shadowFB[i]);
+                r.clearBuffers(false, true, false);
+            }
+            r.getStatistics().onShadowMapUpdate(caching && staticRendered < 0, 
+                    splitOccluders.size() + Math.max(staticRendered, 0));
 
             // render shadow casters to shadow map
             viewPort.getQueue().renderShadowQueue(splitOccluders, renderManager, shadowCam, true);
@@ -472,6 +527,276 @@ public class PssmShadowRenderer implements SceneProcessor {
     }
     boolean debugfrustums = false;
 
+    /**
+     * Sorts the occluders into static and dynamic ones, and invalidates
+     * the static shadow maps that miss a static caster or were rendered
+     * for another light direction.
+     */
+    protected void sortStaticCasters(GeometryList occluders) {
+        staticOccluders.clear();
+        dynamicOccluders.clear();
+        for (int i = 0; i < occluders.size(); i++) {
+            Geometry g = occluders.get(i);
+            if (isStaticCaster(g)) {
+                staticOccluders.add(g);
+            } else {
+                dynamicOccluders.add(g);
+            }
+        }
+
+        if (staticDirection.dot(direction) < FastMath.cos(cacheLightThreshold)) {
+            staticDirection.set(direction);
+            invalidateStaticShadows();
+        }
+
+        // Static casters that were culled when a static shadow map was
+        // rendered may have come into view since
+        for (int i = 0; i < nbSplits; i++) {
+            if (!staticValid[i]) {
+                continue;
+            }
+            Set<Geometry> rendered = staticCasters.get(i);
+            for (int j = 0; j < staticOccluders.size(); j++) {
+                if (!rendered.contains(staticOccluders.get(j))) {
+                    staticValid[i] = false;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the geometry or one of its parents is marked as a
+     * static caster.
+     */
+    protected boolean isStaticCaster(Geometry g) {
+        for (Spatial s = g; s != null; s = s.getParent()) {
+            Boolean b = s.getUserData(STATIC_CASTER);
+            if (b != null) {
+                return b;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets up the shadow camera for a split when caching static shadows
+     * and fills the split occluders with the dynamic casters to render
+     * over the static ones.  The static shadow map is reused as long as 
+     * it covers the split and all of the dynamic casters fit in its 
+     * depth range, else it is rendered again for the split grown by the 
+     * cache margin.
+     * 
+     * @return the number of static casters rendered, or -1 if the static
+     * shadow map was reused
+     */
+    protected int updateStaticShadowMap(int split, GeometryList occluders, GeometryList receivers) {
+        if (staticValid[split]) {
+            shadowCam.setProjectionMatrix(staticProjections[split]);
+            if (coversSplit(shadowCam.getViewProjectionMatrix())
+                    && selectDynamicCasters(shadowCam.getViewProjectionMatrix())) {
+                return -1;
+            }
+            splitOccluders.clear();
+        }
+
+        // Grow the split around its center
+        TempVars vars = TempVars.get();
+        Vector3f center = vars.vect1.set(0, 0, 0);
+        for (int i = 0; i < points.length; i++) {
+            center.addLocal(points[i]);
+        }
+        center.divideLocal(points.length);
+        for (int i = 0; i < points.length; i++) {
+            points[i].subtract(center, cachePoints[i]).multLocal(1 + cacheMargin).addLocal(center);
+        }
+        vars.release();
+
+        ShadowUtil.updateShadowCamera(occluders, receivers, shadowCam, cachePoints, cacheOccluders, true);
+        staticProjections[split].set(shadowCam.getProjectionMatrix());
+        staticValid[split] = true;
+
+        Set<Geometry> rendered = staticCasters.get(split);
+        rendered.clear();
+        for (int i = 0; i < staticOccluders.size(); i++) {
+            rendered.add(staticOccluders.get(i));
+        }
+
+        // Render the static casters and keep the dynamic ones for the caller
+        splitOccluders.clear();
+        for (int i = 0; i < cacheOccluders.size(); i++) {
+            Geometry g = cacheOccluders.get(i);
+            if (rendered.contains(g)) {
+                splitStaticOccluders.add(g);
+            } else {
+                splitOccluders.add(g);
+            }
+        }
+        cacheOccluders.clear();
+        int count = splitStaticOccluders.size();
+
+        Renderer r = renderManager.getRenderer();
+        renderManager.setCamera(shadowCam, false);
+        r.setFrameBuffer(staticFB[split]);
+        r.clearBuffers(false, true, false);
+        viewPort.getQueue().renderShadowQueue(splitStaticOccluders, renderManager, shadowCam, true);
+        return count;
+    }
+
+    private boolean coversSplit(Matrix4f viewProj) {
+        TempVars vars = TempVars.get();
+        Vector3f store = vars.vect1;
+        boolean covers = true;
+        for (int i = 0; i < points.length; i++) {
+            viewProj.mult(points[i], store);
+            if (FastMath.abs(store.x) > 1f || FastMath.abs(store.y) > 1f) {
+                covers = false;
+                break;
+            }
+        }
+        vars.release();
+        return covers;
+    }
+
+    /**
+     * Fills the split occluders with the dynamic casters seen by the 
+     * shadow camera.
+     * 
+     * @return false if one of them is closer to the light than the near
+     * plane, where it would be clipped
+     */
+    private boolean selectDynamicCasters(Matrix4f viewProj) {
+        for (int i = 0; i < dynamicOccluders.size(); i++) {
+            Geometry g = dynamicOccluders.get(i);
+            BoundingVolume bv = g.getWorldBound();
+            bv = bv.transform(viewProj, bv.getType() == BoundingVolume.Type.Sphere ? casterSphere : casterBox);
+            float x = bv.getCenter().x;
+            float y = bv.getCenter().y;
+            float z = bv.getCenter().z;
+            float ex, ey, ez;
+            if (bv instanceof BoundingBox) {
+                BoundingBox bb = (BoundingBox) bv;
+                ex = bb.getXExtent();
+                ey = bb.getYExtent();
+                ez = bb.getZExtent();
+            } else if (bv instanceof BoundingSphere) {
+                ex = ey = ez = ((BoundingSphere) bv).getRadius();
+            } else {
+                splitOccluders.add(g);
+                continue;
+            }
+            if (FastMath.abs(x) - ex > 1f || FastMath.abs(y) - ey > 1f) {
+                continue;
+            }
+            if (z - ez < 0f) {
+                return false;
+            }
+            splitOccluders.add(g);
+        }
+        return true;
+    }
+
+    /**
+     * Forces the static shadow maps to be rendered again on the next frame.
+     * This needs to be called when static casters are moved or removed.
+     */
+    public void invalidateStaticShadows() {
+        if (staticValid != null) {
+            for (int i = 0; i < staticValid.length; i++) {
+                staticValid[i] = false;
+            }
+        }
+    }
+
+    /**
+     * Enables or disables the caching of static casters' shadows.<br>
+     * When enabled, the casters marked with {@link #STATIC_CASTER} are 
+     * rendered in shadow maps that are kept between frames, and every frame
+     * only the dynamic casters are rendered over a copy of them. The 
+     * static shadow maps cover an area larger than each split by the
+     * cache margin, and are only rendered again when the split moves out of 
+     * that area, when the light turns by more than the light threshold, or
+     * when a static caster comes into view. <br>
+     * Static caching requires {@link Caps#FrameBufferBlit}, without it all
+     * casters are rendered every frame.
+     *
+     * @param staticCaching true to cache the shadows of static casters
+     */
+    public void setStaticCaching(boolean staticCaching) {
+        if (staticCaching && staticFB == null) {
+            int size = (int) shadowMapSize;
+            staticFB = new FrameBuffer[nbSplits];
+            staticMaps = new Texture2D[nbSplits];
+            staticProjections = new Matrix4f[nbSplits];
+            staticValid = new boolean[nbSplits];
+            staticCasters = new ArrayList<Set<Geometry>>(nbSplits);
+            for (int i = 0; i < nbSplits; i++) {
+                staticMaps[i] = new Texture2D(size, size, Format.Depth);
+                staticFB[i] = new FrameBuffer(size, size, 1);
+                staticFB[i].setDepthTexture(staticMaps[i]);
+                staticFB[i].setColorTexture(dummyTex);
+                staticProjections[i] = new Matrix4f();
+                staticCasters.add(new HashSet<Geometry>());
+            }
+        }
+        this.staticCaching = staticCaching;
+        invalidateStaticShadows();
+    }
+
+    /**
+     * returns true if the shadows of static casters are cached
+     *
+     * @see #setStaticCaching(boolean)
+     * @return staticCaching
+     */
+    public boolean isStaticCaching() {
+        return staticCaching;
+    }
+
+    /**
+     * Sets how much larger than a split its static shadow map is, as a
+     * fraction of the split size. Larger margins let the camera move 
+     * further before the static shadows are rendered again, at the cost 
+     * of shadow resolution. Default is 0.25
+     *
+     * @param cacheMargin the margin
+     */
+    public void setCacheMargin(float cacheMargin) {
+        this.cacheMargin = cacheMargin;
+        invalidateStaticShadows();
+    }
+
+    /**
+     * returns the cache margin
+     *
+     * @see #setCacheMargin(float)
+     * @return cacheMargin
+     */
+    public float getCacheMargin() {
+        return cacheMargin;
+    }
+
+    /**
+     * Sets the angle in radians that the light can turn before the static
+     * shadows are rendered again. Until then the shadows are rendered for 
+     * the light direction they were cached for. Default is 0.001
+     *
+     * @param angle the angle in radians
+     */
+    public void setCacheLightThreshold(float angle) {
+        this.cacheLightThreshold = angle;
+    }
+
+    /**
+     * returns the light threshold
+     *
+     * @see #setCacheLightThreshold(float)
+     * @return cacheLightThreshold
+     */
+    public float getCacheLightThreshold() {
+        return cacheLightThreshold;
+    }
+
     public void displayFrustum() {
         debugfrustums = true;
     }
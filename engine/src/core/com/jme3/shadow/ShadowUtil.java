@@ -354,6 +354,30 @@ public class ShadowUtil {
             Camera shadowCam,
             Vector3f[] points,
             GeometryList splitOccluders) {
+        updateShadowCamera(occluders, receivers, shadowCam, points, splitOccluders, false);
+    }
+
+    /**
+     * Updates the shadow camera to properly contain the given points (which
+     * contain the eye camera frustum corners) and the shadow occluder objects.
+     * 
+     * @param occluders
+     * @param receivers
+     * @param shadowCam
+     * @param points
+     * @param splitOccluders if not null, filled with the occluders that
+     * are in the shadow camera
+     * @param cropToPoints if true, the camera covers exactly the points
+     * sideways instead of only the part of them where occluders and 
+     * receivers are, so that its area doesn't depend on where the 
+     * occluders are.
+     */
+    public static void updateShadowCamera(GeometryList occluders,
+            GeometryList receivers,
+            Camera shadowCam,
+            Vector3f[] points,
+            GeometryList splitOccluders,
+            boolean cropToPoints) {
         
         boolean ortho = shadowCam.isParallelProjection();
         
@@ -450,11 +474,19 @@ public class ShadowUtil {
         Vector3f cropMax = vars.vect8;
 
         // IMPORTANT: Special handling for Z values
-        cropMin.x = max(max(casterMin.x, receiverMin.x), splitMin.x);
-        cropMax.x = min(min(casterMax.x, receiverMax.x), splitMax.x);
-        
-        cropMin.y = max(max(casterMin.y, receiverMin.y), splitMin.y);
-        cropMax.y = min(min(casterMax.y, receiverMax.y), splitMax.y);
+        if (cropToPoints) {
+            cropMin.x = splitMin.x;
+            cropMax.x = splitMax.x;
+            
+            cropMin.y = splitMin.y;
+            cropMax.y = splitMax.y;
+        } else {
+            cropMin.x = max(max(casterMin.x, receiverMin.x), splitMin.x);
+            cropMax.x = min(min(casterMax.x, receiverMax.x), splitMax.x);
+            
+            cropMin.y = max(max(casterMin.y, receiverMin.y), splitMin.y);
+            cropMax.y = min(min(casterMax.y, receiverMax.y), splitMax.y);
+        }
         
         cropMin.z = min(casterMin.z, splitMin.z);
         cropMax.z = min(receiverMax.z, splitMax.z);
@@ -134,6 +134,7 @@ public class NullRenderer implements Renderer {
     }
 
     public void renderMesh(Mesh mesh, int lod, int count) {
+        stats.onMeshDrawn(mesh, lod, count);
     }
 
     public void resetGLObjects() {
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.util;
+
+import com.jme3.collision.bih.BIHTree;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer.Type;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <code>CollisionDataGenerator</code> builds the collision trees of all
+ * meshes in a model ahead of time.
+ * <p>
+ * Collision trees are otherwise built the first time a geometry is
+ * collided with, which can stall the render thread for a noticeable 
+ * time on large meshes. Generate them before exporting a model to have
+ * them saved in the j3o file, or after loading a model with 
+ * {@link #generateAsync(com.jme3.scene.Spatial, java.util.concurrent.ExecutorService) }
+ * to build them on a background thread.
+ */
+public class CollisionDataGenerator {
+
+    /**
+     * Generates the missing collision trees of the meshes in the scene
+     * on the calling thread.
+     * 
+     * @param scene The model to generate collision trees for
+     * @return The number of collision trees generated.
+     */
+    public static int generate(Spatial scene) {
+        return generate(scene, null);
+    }
+
+    /**
+     * Generates the missing collision trees of the meshes in the scene,
+     * using the given executor. Large meshes are each split across
+     * the executor, smaller meshes are built one per task.
+     * <p>
+     * The calling thread waits for the trees to be built, so this must not
+     * be called from a thread of a bounded executor that is passed as the
+     * argument.
+     * 
+     * @param scene The model to generate collision trees for
+     * @param executor The executor to use, or null to build the trees on
+     * the calling thread.
+     * @return The number of collision trees generated.
+     */
+    public static int generate(Spatial scene, ExecutorService executor) {
+        List<Mesh> meshes = findMeshes(scene);
+        if (executor == null) {
+            for (Mesh mesh : meshes) {
+                mesh.createCollisionData();
+            }
+            return meshes.size();
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final Mesh mesh : meshes) {
+            if (mesh.getTriangleCount() >= BIHTree.PARALLEL_CONSTRUCT_THRESHOLD) {
+                mesh.createCollisionData(executor);
+            } else {
+                tasks.add(new Callable<Void>() {
+                    public Void call() {
+                        mesh.createCollisionData();
+                        return null;
+                    }
+                });
+            }
+        }
+
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating collision data");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause().toString());
+        }
+        return meshes.size();
+    }
+
+    /**
+     * Generates the missing collision trees of the meshes in the scene
+     * on a thread of the executor. Building the trees only reads the vertex
+     * data of the meshes, so the model may be attached to the scene 
+     * and rendered in the meantime. A mesh that is collided with before its
+     * tree is ready builds it on the colliding thread as usual.
+     * 
+     * @param scene The model to generate collision trees for
+     * @param executor The executor to run on
+     * @return A future that returns the scene once all trees are built.
+     */
+    public static Future<Spatial> generateAsync(final Spatial scene, ExecutorService executor) {
+        return executor.submit(new Callable<Spatial>() {
+            public Spatial call() {
+                generate(scene);
+                return scene;
+            }
+        });
+    }
+
+    private static List<Mesh> findMeshes(Spatial scene) {
+        final Map<Mesh, Mesh> meshes = new IdentityHashMap<Mesh, Mesh>();
+        scene.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geom) {
+                Mesh mesh = geom.getMesh();
+                if (mesh != null && !mesh.hasCollisionData() && isCollidable(mesh)) {
+                    meshes.put(mesh, mesh);
+                }
+            }
+        });
+        return new ArrayList<Mesh>(meshes.keySet());
+    }
+
+    private static boolean isCollidable(Mesh mesh) {
+        Mode mode = mesh.getMode();
+        return mesh.getBuffer(Type.Position) != null
+            && (mode == Mode.Triangles || mode == Mode.TriangleStrip || mode == Mode.TriangleFan);
+    }
+}
@@ -35,8 +35,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 
 /**
- * Quick and merge sort implementations that create no garbage, unlike {@link
- * Arrays#sort}. The merge sort is stable, the quick sort is not.
+ * Quick, merge and radix sort implementations that create no garbage, unlike {@link
+ * Arrays#sort}. The merge and radix sorts are stable, the quick sort is not.
  */
 public class SortUtil {
 
@@ -349,4 +349,91 @@ end procedure
             src[high] = dest[high];
         }
     }
+
+    /**
+     * The minimum length of the <code>counts</code> scratch array
+     * given to {@link #rsort(long[], java.lang.Object[], long[], java.lang.Object[], int, int[]) }.
+     */
+    public static final int RADIX_COUNTS_SIZE = 8 * 256;
+
+    /**
+     * Radix sort.
+     * <p>
+     * Sorts the first <code>size</code> keys in ascending order, treating
+     * them as unsigned 64-bit values, and applies the same permutation
+     * to <code>values</code>. The sort is stable. Byte positions that
+     * are equal for every key are skipped, so keys that only use
+     * a few of their bits sort in fewer passes.
+     * 
+     * @param keys The keys to sort, holds the sorted keys on return
+     * @param values The values to permute along with the keys
+     * @param keysTmp Scratch array, at least <code>size</code> long
+     * @param valuesTmp Scratch array, at least <code>size</code> long
+     * @param size Number of elements to sort
+     * @param counts Scratch array, at least {@link #RADIX_COUNTS_SIZE} long
+     */
+    public static void rsort(long[] keys, Object[] values, long[] keysTmp,
+            Object[] valuesTmp, int size, int[] counts) {
+        if (size < 2) {
+            return;
+        }
+
+        Arrays.fill(counts, 0, RADIX_COUNTS_SIZE, 0);
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            for (int b = 0; b < 8; b++) {
+                counts[(b << 8) + (int) ((key >>> (b << 3)) & 0xFF)]++;
+            }
+        }
+
+        long[] srcKeys = keys, dstKeys = keysTmp;
+        Object[] srcValues = values, dstValues = valuesTmp;
+        for (int b = 0; b < 8; b++) {
+            int offset = b << 8;
+            int shift = b << 3;
+
+            // all keys share this byte, nothing to do
+            if (counts[offset + (int) ((srcKeys[0] >>> shift) & 0xFF)] == size) {
+                continue;
+            }
+
+            int sum = 0;
+            for (int i = offset; i < offset + 256; i++) {
+                int count = counts[i];
+                counts[i] = sum;
+                sum += count;
+            }
+
+            for (int i = 0; i < size; i++) {
+                long key = srcKeys[i];
+                int pos = counts[offset + (int) ((key >>> shift) & 0xFF)]++;
+                dstKeys[pos] = key;
+                dstValues[pos] = srcValues[i];
+            }
+
+            long[] tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+            Object[] tv = srcValues;
+            srcValues = dstValues;
+            dstValues = tv;
+        }
+
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, size);
+            System.arraycopy(srcValues, 0, values, 0, size);
+        }
+    }
+
+    /**
+     * Maps a float to an int whose unsigned order matches the order
+     * of the float values. Useful for building radix sort keys.
+     * 
+     * @param value The float to convert
+     * @return An int that sorts like <code>value</code> when compared unsigned
+     */
+    public static int floatToSortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) | 0x80000000);
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the timings of a {@link BasicProfiler} as a JMX MBean.
+ * <p>
+ * Usage:<br/>
+ * <code>
+ * BasicProfiler profiler = new BasicProfiler();<br/>
+ * app.setAppProfiler(profiler);<br/>
+ * ProfilerStats.register(profiler);<br/>
+ * </code>
+ * The timings can then be browsed with JConsole under
+ * {@link #DEFAULT_NAME}.
+ */
+public class ProfilerStats implements ProfilerStatsMBean {
+
+    /**
+     * The object name used by {@link #register(com.jme3.profile.BasicProfiler) }.
+     */
+    public static final String DEFAULT_NAME = "com.jme3:type=Profiler";
+
+    private final BasicProfiler profiler;
+
+    public ProfilerStats(BasicProfiler profiler) {
+        if (profiler == null) {
+            throw new IllegalArgumentException("Profiler cannot be null");
+        }
+        this.profiler = profiler;
+    }
+
+    /**
+     * Registers the timings of the given profiler with the platform
+     * MBean server under {@link #DEFAULT_NAME}.
+     *
+     * @param profiler The profiler
+     * @return The object name of the registered MBean.
+     * @throws JMException If the MBean cannot be registered, e.g. because
+     * another profiler is registered under the same name.
+     */
+    public static ObjectName register(BasicProfiler profiler) throws JMException {
+        return register(profiler, new ObjectName(DEFAULT_NAME));
+    }
+
+    /**
+     * Registers the timings of the given profiler with the platform
+     * MBean server.
+     *
+     * @param profiler The profiler
+     * @param name The object name of the MBean
+     * @return The object name of the registered MBean.
+     * @throws JMException If the MBean cannot be registered.
+     */
+    public static ObjectName register(BasicProfiler profiler, ObjectName name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        return server.registerMBean(new ProfilerStats(profiler), name).getObjectName();
+    }
+
+    /**
+     * Unregisters an MBean registered with
+     * {@link #register(com.jme3.profile.BasicProfiler, javax.management.ObjectName) }.
+     *
+     * @param name The object name of the MBean
+     * @throws JMException If no MBean is registered under this name.
+     */
+    public static void unregister(ObjectName name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+
+    public long getFrameCount() {
+        return profiler.getFrameCount();
+    }
+
+    public String[] getTimingNames() {
+        List<PhaseTiming> timings = profiler.getTimings();
+        String[] names = new String[timings.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = timings.get(i).getName();
+        }
+        return names;
+    }
+
+    public String[] getSummary() {
+        List<PhaseTiming> timings = profiler.getTimings();
+        String[] summary = new String[timings.size()];
+        for (int i = 0; i < summary.length; i++) {
+            PhaseTiming timing = timings.get(i);
+            summary[i] = String.format("%s: avg %.3f, 50%% %.3f, 95%% %.3f, 99%% %.3f, max %.3f ms",
+                    timing.getName(),
+                    toMillis(timing.getAverageNanos()),
+                    toMillis(timing.getPercentileNanos(50)),
+                    toMillis(timing.getPercentileNanos(95)),
+                    toMillis(timing.getPercentileNanos(99)),
+                    toMillis(timing.getMaxNanos()));
+        }
+        return summary;
+    }
+
+    public double getAverageMillis(String timing) {
+        return toMillis(getTiming(timing).getAverageNanos());
+    }
+
+    public double getPercentileMillis(String timing, float percentile) {
+        return toMillis(getTiming(timing).getPercentileNanos(percentile));
+    }
+
+    public double getMaxMillis(String timing) {
+        return toMillis(getTiming(timing).getMaxNanos());
+    }
+
+    private PhaseTiming getTiming(String name) {
+        PhaseTiming timing = profiler.getTiming(name);
+        if (timing == null) {
+            throw new IllegalArgumentException("No timing named " + name);
+        }
+        return timing;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+}
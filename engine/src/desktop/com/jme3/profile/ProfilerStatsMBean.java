@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.profile;
+
+/**
+ * The management interface of {@link ProfilerStats}, exposing the timings
+ * of a {@link BasicProfiler} to JMX clients such as JConsole.
+ * All times are in milliseconds.
+ */
+public interface ProfilerStatsMBean {
+
+    /**
+     * @return The number of frames recorded by the profiler.
+     */
+    public long getFrameCount();
+
+    /**
+     * @return The names of the timings recorded by the profiler.
+     */
+    public String[] getTimingNames();
+
+    /**
+     * @return One line per timing with its average, median, 95th and 99th
+     * percentile and maximum time.
+     */
+    public String[] getSummary();
+
+    /**
+     * @param timing The name of a timing
+     * @return The average time per frame of the timing.
+     */
+    public double getAverageMillis(String timing);
+
+    /**
+     * @param timing The name of a timing
+     * @param percentile The percentile, between 0 and 100.
+     * @return The time per frame of the given percentile of the timing.
+     */
+    public double getPercentileMillis(String timing, float percentile);
+
+    /**
+     * @param timing The name of a timing
+     * @return The longest time in a frame of the timing.
+     */
+    public double getMaxMillis(String timing);
+}
@@ -284,7 +284,8 @@ public class JoglRenderer implements Renderer {
             caps.add(Caps.PackedDepthStencilBuffer);
         }
 
-        if (gl.isExtensionAvailable("GL_ARB_draw_instanced")) {
+        if (gl.isExtensionAvailable("GL_ARB_draw_instanced") 
+                && gl.isExtensionAvailable("GL_ARB_instanced_arrays")) {
             caps.add(Caps.MeshInstancing);
         }
 
@@ -350,6 +351,10 @@ public class JoglRenderer implements Renderer {
             maxFBOAttachs = intBuf16.get(0);
             logger.log(Level.FINER, "FBO Max renderbuffers: {0}", maxFBOAttachs);
             
+            if (gl.isExtensionAvailable("GL_EXT_framebuffer_blit")) {
+                caps.add(Caps.FrameBufferBlit);
+            }
+
             if (gl.isExtensionAvailable("GL_EXT_framebuffer_multisample")) {
                 caps.add(Caps.FrameBufferMultisample);
 
@@ -2143,10 +2148,32 @@ public class JoglRenderer implements Renderer {
             int idx = attribList.oldList[i];
             GL gl = GLContext.getCurrentGL();
             gl.getGL2GL3().glDisableVertexAttribArray(idx);
+            setVertexAttribDivisor(idx, context.boundAttribs[idx], null);
             context.boundAttribs[idx] = null;
         }
         context.attribIndexList.copyNewToOld();
     }
+
+    /**
+     * Updates the instancing divisor of the given attribute slot
+     * when the buffer bound to it changes between per-vertex and 
+     * per-instance data.
+     */
+    private void setVertexAttribDivisor(int loc, VertexBuffer oldVb, VertexBuffer newVb) {
+        int oldSpan = oldVb != null ? oldVb.getInstanceSpan() : 0;
+        int newSpan = newVb != null ? newVb.getInstanceSpan() : 0;
+        if (oldSpan != newSpan) {
+            if (!caps.contains(Caps.MeshInstancing)) {
+                if (newSpan != 0) {
+                    throw new RendererException("Instanced vertex buffers require "
+                            + "Caps.MeshInstancing to be supported");
+                }
+                return;
+            }
+            GL gl = GLContext.getCurrentGL();
+            gl.getGL2GL3().glVertexAttribDivisor(loc, newSpan);
+        }
+    }
     
     public void setVertexAttrib(VertexBuffer vb, VertexBuffer idb) {
         if (vb.getBufferType() == VertexBuffer.Type.Index) {
@@ -2181,10 +2208,24 @@ public class JoglRenderer implements Renderer {
                 updateBufferData(vb);
             }
 
+            // matrices (e.g. instance data) occupy one attribute slot per column
+            int slotsRequired = 1;
+            int components = vb.getNumComponents();
+            if (components > 4) {
+                if (components % 4 != 0) {
+                    throw new RendererException("Number of components in multi-slot "
+                            + "buffers must be divisible by 4");
+                }
+                slotsRequired = components / 4;
+                components = 4;
+            }
+
             VertexBuffer[] attribs = context.boundAttribs;
-            if (!context.attribIndexList.moveToNew(loc)) {
-                gl.getGL2GL3().glEnableVertexAttribArray(loc);
-                //System.out.println("Enabled ATTRIB IDX: "+loc);
+            for (int i = 0; i < slotsRequired; i++) {
+                if (!context.attribIndexList.moveToNew(loc + i)) {
+                    gl.getGL2GL3().glEnableVertexAttribArray(loc + i);
+                    //System.out.println("Enabled ATTRIB IDX: "+loc);
+                }
             }
             if (attribs[loc] != vb) {
                 // NOTE: Use id from interleaved buffer if specified
@@ -2198,14 +2239,30 @@ public class JoglRenderer implements Renderer {
                     //statistics.onVertexBufferUse(vb, false);
                 }
 
-                gl.getGL2GL3().glVertexAttribPointer(loc,
-                        vb.getNumComponents(),
-                        convertFormat(vb.getFormat()),
-                        vb.isNormalized(),
-                        vb.getStride(),
-                        vb.getOffset());
+                if (slotsRequired == 1) {
+                    gl.getGL2GL3().glVertexAttribPointer(loc,
+                            components,
+                            convertFormat(vb.getFormat()),
+                            vb.isNormalized(),
+                            vb.getStride(),
+                            vb.getOffset());
+                } else {
+                    int slotSize = components * vb.getFormat().getComponentSize();
+                    int stride = vb.getStride() != 0 ? vb.getStride() : slotSize * slotsRequired;
+                    for (int i = 0; i < slotsRequired; i++) {
+                        gl.getGL2GL3().glVertexAttribPointer(loc + i,
+                                components,
+                                convertFormat(vb.getFormat()),
+                                vb.isNormalized(),
+                                stride,
+                                vb.getOffset() + i * slotSize);
+                    }
+                }
 
-                attribs[loc] = vb;
+                for (int i = 0; i < slotsRequired; i++) {
+                    setVertexAttribDivisor(loc + i, attribs[loc + i], vb);
+                    attribs[loc + i] = vb;
+                }
             }
         } else {
             throw new IllegalStateException("Cannot render mesh without shader bound");
@@ -2472,7 +2529,7 @@ public class JoglRenderer implements Renderer {
             context.lineWidth = mesh.getLineWidth();
         }
 
-        statistics.onMeshDrawn(mesh, lod);
+        statistics.onMeshDrawn(mesh, lod, count);
 //        if (gl.isExtensionAvailable("GL_ARB_vertex_array_object")){
 //            renderMeshVertexArray(mesh, lod, count);
 //        }else{
@@ -275,7 +275,7 @@ public class LwjglRenderer implements Renderer {
             caps.add(Caps.PackedDepthStencilBuffer);
         }
 
-        if (ctxCaps.GL_ARB_draw_instanced) {
+        if (ctxCaps.GL_ARB_draw_instanced && ctxCaps.GL_ARB_instanced_arrays) {
             caps.add(Caps.MeshInstancing);
         }
 
@@ -338,6 +338,10 @@ public class LwjglRenderer implements Renderer {
             maxFBOAttachs = intBuf16.get(0);
             logger.log(Level.FINER, "FBO Max renderbuffers: {0}", maxFBOAttachs);
 
+            if (ctxCaps.GL_EXT_framebuffer_blit) {
+                caps.add(Caps.FrameBufferBlit);
+            }
+
             if (ctxCaps.GL_EXT_framebuffer_multisample) {
                 caps.add(Caps.FrameBufferMultisample);
 
@@ -2127,11 +2131,32 @@ public class LwjglRenderer implements Renderer {
         for (int i = 0; i < attribList.oldLen; i++) {
             int idx = attribList.oldList[i];
             glDisableVertexAttribArray(idx);
+            setVertexAttribDivisor(idx, context.boundAttribs[idx], null);
             context.boundAttribs[idx] = null;
         }
         context.attribIndexList.copyNewToOld();
     }
 
+    /**
+     * Updates the instancing divisor of the given attribute slot
+     * when the buffer bound to it changes between per-vertex and 
+     * per-instance data.
+     */
+    private void setVertexAttribDivisor(int loc, VertexBuffer oldVb, VertexBuffer newVb) {
+        int oldSpan = oldVb != null ? oldVb.getInstanceSpan() : 0;
+        int newSpan = newVb != null ? newVb.getInstanceSpan() : 0;
+        if (oldSpan != newSpan) {
+            if (!caps.contains(Caps.MeshInstancing)) {
+                if (newSpan != 0) {
+                    throw new RendererException("Instanced vertex buffers require "
+                            + "Caps.MeshInstancing to be supported");
+                }
+                return;
+            }
+            ARBInstancedArrays.glVertexAttribDivisorARB(loc, newSpan);
+        }
+    }
+
     public void setVertexAttrib(VertexBuffer vb, VertexBuffer idb) {
         if (vb.getBufferType() == VertexBuffer.Type.Index) {
             throw new IllegalArgumentException("Index buffers not allowed to be set to vertex attrib");
@@ -2164,10 +2189,24 @@ public class LwjglRenderer implements Renderer {
                 updateBufferData(vb);
             }
 
+            // matrices (e.g. instance data) occupy one attribute slot per column
+            int slotsRequired = 1;
+            int components = vb.getNumComponents();
+            if (components > 4) {
+                if (components % 4 != 0) {
+                    throw new RendererException("Number of components in multi-slot "
+                            + "buffers must be divisible by 4");
+                }
+                slotsRequired = components / 4;
+                components = 4;
+            }
+
             VertexBuffer[] attribs = context.boundAttribs;
-            if (!context.attribIndexList.moveToNew(loc)) {
-                glEnableVertexAttribArray(loc);
-                //System.out.println("Enabled ATTRIB IDX: "+loc);
+            for (int i = 0; i < slotsRequired; i++) {
+                if (!context.attribIndexList.moveToNew(loc + i)) {
+                    glEnableVertexAttribArray(loc + i);
+                    //System.out.println("Enabled ATTRIB IDX: "+loc);
+                }
             }
             if (attribs[loc] != vb) {
                 // NOTE: Use id from interleaved buffer if specified
@@ -2181,14 +2220,30 @@ public class LwjglRenderer implements Renderer {
                     //statistics.onVertexBufferUse(vb, false);
                 }
 
-                glVertexAttribPointer(loc,
-                        vb.getNumComponents(),
-                        convertFormat(vb.getFormat()),
-                        vb.isNormalized(),
-                        vb.getStride(),
-                        vb.getOffset());
+                if (slotsRequired == 1) {
+                    glVertexAttribPointer(loc,
+                            components,
+                            convertFormat(vb.getFormat()),
+                            vb.isNormalized(),
+                            vb.getStride(),
+                            vb.getOffset());
+                } else {
+                    int slotSize = components * vb.getFormat().getComponentSize();
+                    int stride = vb.getStride() != 0 ? vb.getStride() : slotSize * slotsRequired;
+                    for (int i = 0; i < slotsRequired; i++) {
+                        glVertexAttribPointer(loc + i,
+                                components,
+                                convertFormat(vb.getFormat()),
+                                vb.isNormalized(),
+                                stride,
+                                vb.getOffset() + i * slotSize);
+                    }
+                }
 
-                attribs[loc] = vb;
+                for (int i = 0; i < slotsRequired; i++) {
+                    setVertexAttribDivisor(loc + i, attribs[loc + i], vb);
+                    attribs[loc + i] = vb;
+                }
             }
         } else {
             throw new IllegalStateException("Cannot render mesh without shader bound");
@@ -2444,7 +2499,7 @@ public class LwjglRenderer implements Renderer {
             context.lineWidth = mesh.getLineWidth();
         }
 
-        statistics.onMeshDrawn(mesh, lod);
+        statistics.onMeshDrawn(mesh, lod, count);
 //        if (GLContext.getCapabilities().GL_ARB_vertex_array_object){
 //            renderMeshVertexArray(mesh, lod, count);
 //        }else{
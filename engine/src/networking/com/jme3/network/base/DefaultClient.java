@@ -34,6 +34,7 @@ package com.jme3.network.base;
 import com.jme3.network.*;
 import com.jme3.network.ClientStateListener.DisconnectInfo;
 import com.jme3.network.kernel.Connector;
+import com.jme3.network.kernel.NamedThreadFactory;
 import com.jme3.network.message.ChannelInfoMessage;
 import com.jme3.network.message.ClientRegistrationMessage;
 import com.jme3.network.message.DisconnectMessage;
@@ -42,6 +43,9 @@ import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -79,6 +83,11 @@ public class DefaultClient implements Client
     private List<ConnectorAdapter> channels = new ArrayList<ConnectorAdapter>();    
  
     private ConnectorFactory connectorFactory;
+ 
+    private boolean batching = false;
+    private long flushWindow = 0;
+    private MessageBatch batch;
+    private ScheduledExecutorService flusher;
     
     public DefaultClient( String gameName, int version )
     {
@@ -112,6 +121,54 @@ public class DefaultClient implements Client
         }
     }  
 
+    /**
+     *  Sets whether reliable messages are batched.  When batching, 
+     *  reliable messages are collected and written all at once when
+     *  flush() is called, when the flush window passes, or when the 
+     *  batch fills up.  This adds some latency but saves a write for
+     *  every message when many small messages are sent per tick.
+     *  Defaults to false.
+     */
+    public void setReliableBatching( boolean batching )
+    {
+        if( isRunning )
+            throw new IllegalStateException( "Batching cannot be changed once client is started." );
+        this.batching = batching;
+    }
+    
+    public boolean isReliableBatching()
+    {
+        return batching;
+    }
+ 
+    /**
+     *  Sets the longest time in milliseconds that batched messages
+     *  are held before they are written out without a call to flush().
+     *  Defaults to 0, meaning that they are only written by flush() or 
+     *  when the batch is full.
+     */
+    public void setFlushWindow( long millis )
+    {
+        if( isRunning )
+            throw new IllegalStateException( "Flush window cannot be changed once client is started." );
+        this.flushWindow = millis;
+    }
+    
+    public long getFlushWindow()
+    {
+        return flushWindow;
+    }
+ 
+    /**
+     *  Writes out the batched reliable messages.  When batching, this
+     *  is usually called once at the end of every tick.
+     */
+    public void flush()
+    {
+        if( batch != null )
+            batch.flush();
+    }
+ 
     protected void checkRunning()
     {
         if( !isRunning )
@@ -146,6 +203,25 @@ public class DefaultClient implements Client
         // hurt to reconcile with IP on the server side, though.
         long tempId = System.currentTimeMillis() + System.nanoTime();
 
+        if( batching ) {
+            batch = new MessageBatch() {
+                    protected void write( ByteBuffer data )
+                    {
+                        // The adapter queues the buffer so it needs
+                        // its own copy
+                        byte[] temp = new byte[data.remaining()];
+                        data.get(temp);
+                        channels.get(CH_RELIABLE).write( ByteBuffer.wrap(temp) );
+                    }
+                };
+            if( flushWindow > 0 ) {
+                flusher = Executors.newSingleThreadScheduledExecutor(
+                                            new NamedThreadFactory(getGameName() + "-flusher", true) );
+                flusher.scheduleWithFixedDelay( new Flusher(), flushWindow, flushWindow, 
+                                                TimeUnit.MILLISECONDS );
+            }
+        }
+ 
         // Set it true here so we can send some messages.
         isRunning = true;        
                 
@@ -235,6 +311,13 @@ public class DefaultClient implements Client
  
         // Convert the message to bytes
         buffer = MessageProtocol.messageToBuffer(message, buffer);
+ 
+        // The registration messages are sent before we are connected
+        // and always go out right away
+        if( batch != null && channel == CH_RELIABLE && waitForConnected ) {
+            batch.add( buffer );
+            return;
+        }
                 
         // Since we share the buffer between invocations, we will need to 
         // copy this message's part out of it.  This is because we actually
@@ -258,6 +341,12 @@ public class DefaultClient implements Client
         if( !isRunning )
             return;
 
+        if( flusher != null ) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        flush();
+ 
         // Send a close message
     
         // Tell the thread it's ok to die
@@ -409,6 +498,19 @@ public class DefaultClient implements Client
         }
     }
  
+    protected class Flusher implements Runnable
+    {
+        public void run()
+        {
+            try {
+                flush();
+            } catch( RuntimeException e ) {
+                // An exception would cancel any further flushes
+                log.log( Level.WARNING, "Error flushing batched messages", e );
+            }
+        }
+    }
+ 
     protected class Redispatch implements MessageListener<Object>, ErrorListener<Object>
     {
         public void messageReceived( Object source, Message m )
@@ -32,8 +32,11 @@
 package com.jme3.network.base;
 
 import com.jme3.network.*;
+import com.jme3.network.kernel.BufferPool;
 import com.jme3.network.kernel.Endpoint;
 import com.jme3.network.kernel.Kernel;
+import com.jme3.network.kernel.KernelException;
+import com.jme3.network.kernel.NamedThreadFactory;
 import com.jme3.network.message.ChannelInfoMessage;
 import com.jme3.network.message.ClientRegistrationMessage;
 import com.jme3.network.message.DisconnectMessage;
@@ -42,6 +45,9 @@ import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -84,6 +90,10 @@ public class DefaultServer implements Server
     private MessageListenerRegistry<HostedConnection> messageListeners 
                             = new MessageListenerRegistry<HostedConnection>();                        
     private List<ConnectionListener> connectionListeners = new CopyOnWriteArrayList<ConnectionListener>();
+ 
+    private boolean batching = false;
+    private long flushWindow = 0;
+    private ScheduledExecutorService flusher;
     
     public DefaultServer( String gameName, int version, Kernel reliable, Kernel fast )
     {
@@ -141,6 +151,64 @@ public class DefaultServer implements Server
         } 
     } 
 
+    /**
+     *  Sets whether reliable messages are batched.  When batching, the
+     *  reliable messages sent to each connection, broadcasts included,
+     *  are collected and written to the connection all at once when 
+     *  flush() is called, when the flush window passes, or when the 
+     *  batch fills up.  This adds some latency but saves a write and
+     *  a selector wakeup for every message when many small messages
+     *  are sent per tick.  Defaults to false.
+     */
+    public void setReliableBatching( boolean batching )
+    {
+        if( isRunning )
+            throw new IllegalStateException( "Batching cannot be changed once server is started." );
+        this.batching = batching;
+    }
+    
+    public boolean isReliableBatching()
+    {
+        return batching;
+    }
+ 
+    /**
+     *  Sets the longest time in milliseconds that batched messages
+     *  are held before they are written out without a call to flush().
+     *  Defaults to 0, meaning that they are only written by flush() or 
+     *  when the batch is full.
+     */
+    public void setFlushWindow( long millis )
+    {
+        if( isRunning )
+            throw new IllegalStateException( "Flush window cannot be changed once server is started." );
+        this.flushWindow = millis;
+    }
+    
+    public long getFlushWindow()
+    {
+        return flushWindow;
+    }
+ 
+    /**
+     *  Writes out the batched reliable messages of all connections.
+     *  When batching, this is usually called once at the end of every
+     *  tick.
+     */
+    public void flush()
+    {
+        if( !batching )
+            return;
+        for( HostedConnection c : connections.values() ) {
+            try {
+                ((Connection)c).flush();
+            } catch( KernelException e ) {
+                // The connection is closing and would never get them anyway
+                log.log( Level.FINE, "Dropped batched messages for:" + c, e );
+            }
+        }
+    }
+ 
     protected void checkChannel( int channel )
     {
         if( channel < 0 || channel >= alternatePorts.size() )
@@ -162,7 +230,14 @@ public class DefaultServer implements Server
             ka.start();
         }
         
-        isRunning = true;             
+        isRunning = true;
+        
+        if( batching && flushWindow > 0 ) {
+            flusher = Executors.newSingleThreadScheduledExecutor(
+                                        new NamedThreadFactory(getGameName() + "-flusher", true) );
+            flusher.scheduleWithFixedDelay( new Flusher(), flushWindow, flushWindow, 
+                                            TimeUnit.MILLISECONDS );
+        }             
     }
 
     public boolean isRunning()
@@ -175,6 +250,12 @@ public class DefaultServer implements Server
         if( !isRunning )
             throw new IllegalStateException( "Server is not started." );
  
+        if( flusher != null ) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        flush();
+ 
         try {
             // Kill the adpaters, they will kill the kernels
             for( KernelAdapter ka : channels ) {
@@ -199,11 +280,23 @@ public class DefaultServer implements Server
             
         ByteBuffer buffer = MessageProtocol.messageToBuffer(message, null);
  
+        if( batching && (message.isReliable() || fastAdapter == null) ) {
+            // Add it to each connection's batch to keep it in order 
+            // with the messages sent to that connection directly
+            for( HostedConnection c : connections.values() ) {
+                if( filter != null && !filter.apply(c) )
+                    continue;
+                ((Connection)c).batch.add( buffer );
+            }
+            BufferPool.getDefault().release( buffer );
+            return;
+        }
+ 
         FilterAdapter adapter = filter == null ? null : new FilterAdapter(filter);
                
         if( message.isReliable() || fastAdapter == null ) {
             // Don't need to copy the data because message protocol is already
-            // giving us a fresh buffer
+            // giving us a fresh buffer, the kernel releases it when sent
             reliableAdapter.broadcast( adapter, buffer, true, false );
         } else {
             fastAdapter.broadcast( adapter, buffer, false, false );
@@ -349,6 +442,7 @@ public class DefaultServer implements Server
                 if( !alternatePorts.isEmpty() ) {
                     ChannelInfoMessage cim = new ChannelInfoMessage( m.getId(), alternatePorts );
                     c.send(cim);
+                    c.flush();
                 }
             }
 
@@ -382,6 +476,7 @@ public class DefaultServer implements Server
             m.setId( addedConnection.getId() );
             m.setReliable(true);
             addedConnection.send(m);
+            addedConnection.flush();
             
             // Now we can notify the listeners about the
             // new connection.
@@ -442,6 +537,7 @@ public class DefaultServer implements Server
         private boolean closed;
         private Endpoint[] channels;
         private int setChannelCount = 0; 
+        private MessageBatch batch;
        
         private Map<String,Object> sessionData = new ConcurrentHashMap<String,Object>();       
         
@@ -449,6 +545,14 @@ public class DefaultServer implements Server
         {
             id = nextId.getAndIncrement();
             channels = new Endpoint[channelCount];
+            if( batching ) {
+                batch = new MessageBatch() {
+                        protected void write( ByteBuffer data )
+                        {
+                            channels[CH_RELIABLE].send( data );
+                        }
+                    };
+            }
         }
  
         void setChannel( int channel, Endpoint p )
@@ -486,10 +590,17 @@ public class DefaultServer implements Server
         {
             ByteBuffer buffer = MessageProtocol.messageToBuffer(message, null);
             if( message.isReliable() || channels[CH_UNRELIABLE] == null ) {
-                channels[CH_RELIABLE].send( buffer );
+                if( batch != null ) {
+                    batch.add( buffer );
+                } else {
+                    channels[CH_RELIABLE].send( buffer );
+                }
             } else {
                 channels[CH_UNRELIABLE].send( buffer );
             }
+            
+            // The endpoints keep their own copy
+            BufferPool.getDefault().release( buffer );
         }
 
         public void send( int channel, Message message )
@@ -497,6 +608,34 @@ public class DefaultServer implements Server
             checkChannel(channel);
             ByteBuffer buffer = MessageProtocol.messageToBuffer(message, null);
             channels[channel+CH_FIRST].send(buffer);
+            BufferPool.getDefault().release( buffer );
+        }
+ 
+        /**
+         *  Sends data that already contains one or more serialized
+         *  messages.  The endpoint keeps its own copy.
+         */
+        void send( ByteBuffer buffer, boolean reliable )
+        {
+            if( reliable || channels[CH_UNRELIABLE] == null ) {
+                if( batch != null ) {
+                    batch.add( buffer );
+                } else {
+                    channels[CH_RELIABLE].send( buffer );
+                }
+            } else {
+                channels[CH_UNRELIABLE].send( buffer );
+            }
+        }
+ 
+        /**
+         *  Writes out the batched reliable messages, if any.
+         */
+        void flush()
+        {
+            if( batch == null || closed )
+                return;
+            batch.flush();
         }
  
         protected void closeConnection()
@@ -525,6 +664,7 @@ public class DefaultServer implements Server
             m.setReason( reason );
             m.setReliable( true );
             send( m );
+            flush();
             
             // Just close the reliable endpoint
             // fast will be cleaned up as a side-effect
@@ -570,6 +710,19 @@ public class DefaultServer implements Server
         }
     }                                          
      
+    protected class Flusher implements Runnable
+    {
+        public void run()
+        {
+            try {
+                flush();
+            } catch( RuntimeException e ) {
+                // An exception would cancel any further flushes
+                log.log( Level.WARNING, "Error flushing batched messages", e );
+            }
+        }
+    }
+     
     protected class FilterAdapter implements Filter<Endpoint>
     {
         private Filter<? super HostedConnection> delegate;
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.base;
+
+import com.jme3.math.Vector3f;
+import com.jme3.network.ConnectionListener;
+import com.jme3.network.HostedConnection;
+import com.jme3.network.Message;
+import com.jme3.network.Server;
+import com.jme3.network.kernel.BufferPool;
+import com.jme3.network.kernel.KernelException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ *  Sends entity update messages only to the clients that are
+ *  interested in them, based on a spherical region of interest 
+ *  per client.
+ *
+ *  <p>During a tick, updates are posted along with the position of
+ *  the entity they describe.  flush() then sorts the updates into a
+ *  uniform grid, finds the updates within the region of each client,
+ *  serializes every update that someone wants exactly once, and sends
+ *  each client all of its updates concatenated into one buffer.  Clients
+ *  without a region receive no updates.  Messages that should go to
+ *  everyone are better sent with a regular broadcast.</p>
+ *
+ *  <p>Reliable updates are batched over the reliable channel.  Unreliable
+ *  updates go over the unreliable channel in datagrams of at most
+ *  getMaxDatagramSize() bytes, since each datagram must contain whole
+ *  messages.  Updates posted to the same client arrive in the order they
+ *  were posted, per channel.</p>
+ *
+ *  <p>Regions can be set from any thread, for example from a message
+ *  listener receiving client positions.  post() and flush() are meant
+ *  to be called from the single thread running the game loop.  Registering
+ *  the manager as a ConnectionListener forgets the regions of closed 
+ *  connections.</p>
+ *
+ *  @version   $Revision$
+ */
+public class InterestManager implements ConnectionListener
+{
+    static Logger log = Logger.getLogger(InterestManager.class.getName());
+
+    /**
+     *  The default maximum size of a batch of unreliable updates, chosen
+     *  to fit in the MTU of a typical network without fragmentation.
+     */
+    public static final int DEFAULT_MAX_DATAGRAM_SIZE = 1400;
+ 
+    private float cellSize;
+    private int maxDatagramSize = DEFAULT_MAX_DATAGRAM_SIZE;
+    private Map<HostedConnection,Region> regions = new ConcurrentHashMap<HostedConnection,Region>();
+ 
+    // The updates posted during the current tick, reused
+    // from tick to tick
+    private List<Update> updates = new ArrayList<Update>();
+    private int updateCount;
+ 
+    // Grid cells of the current tick, in an open addressing table
+    // with linked lists of updates threaded through Update.next
+    private long[] cellKeys = new long[64];
+    private int[] cellHeads = new int[64];
+    private boolean[] cellUsed = new boolean[64];
+ 
+    // Serialized updates of the current tick
+    private ByteBuffer data = ByteBuffer.allocate( 65536 );
+    
+    private int[] selected = new int[64];
+    private long bytesSent;
+
+    /**
+     *  Creates an interest manager sorting updates into cubic cells
+     *  of the given size.  A cell size close to the typical radius of
+     *  interest works best.
+     */
+    public InterestManager( float cellSize )
+    {
+        if( cellSize <= 0 )
+            throw new IllegalArgumentException( "Cell size must be positive:" + cellSize );
+        this.cellSize = cellSize;
+    }
+ 
+    public float getCellSize()
+    {
+        return cellSize;
+    }
+ 
+    /**
+     *  Sets the maximum size in bytes of the datagrams used to batch
+     *  unreliable updates.  A single update larger than this is sent 
+     *  in a datagram of its own.
+     */
+    public void setMaxDatagramSize( int maxDatagramSize )
+    {
+        this.maxDatagramSize = maxDatagramSize;
+    }
+    
+    public int getMaxDatagramSize()
+    {
+        return maxDatagramSize;
+    }
+ 
+    /**
+     *  Sets the region of interest of the connection.  The connection
+     *  will receive all updates posted within radius of center.
+     */
+    public void setInterest( HostedConnection conn, Vector3f center, float radius )
+    {
+        regions.put( conn, new Region(center.x, center.y, center.z, radius) );
+    }
+ 
+    /**
+     *  Removes the region of interest of the connection, which will
+     *  no longer receive updates.
+     */
+    public void removeInterest( HostedConnection conn )
+    {
+        regions.remove( conn );
+    }
+ 
+    /**
+     *  Returns true if the connection has a region of interest containing 
+     *  the position.
+     */
+    public boolean isInterested( HostedConnection conn, Vector3f position )
+    {
+        Region r = regions.get( conn );
+        return r != null && r.contains( position.x, position.y, position.z );
+    }
+ 
+    public void connectionAdded( Server server, HostedConnection conn )
+    {
+    }
+    
+    public void connectionRemoved( Server server, HostedConnection conn )
+    {
+        removeInterest( conn );
+    }
+ 
+    /**
+     *  Queues an update about an entity at the given position, to
+     *  be sent by the next flush() to the interested clients.
+     */
+    public void post( Message message, Vector3f position )
+    {
+        Update u;
+        if( updateCount < updates.size() ) {
+            u = updates.get(updateCount);
+        } else {
+            u = new Update();
+            updates.add(u);
+        }
+        updateCount++;
+        u.message = message;
+        u.x = position.x;
+        u.y = position.y;
+        u.z = position.z;
+        u.offset = -1;
+    }
+ 
+    /**
+     *  Returns the number of updates posted since the last flush.
+     */
+    public int getPendingCount()
+    {
+        return updateCount;
+    }
+ 
+    /**
+     *  Sends the updates posted since the last flush to the interested
+     *  clients and clears them.
+     *
+     *  @return The number of bytes sent to all clients.
+     */
+    public long flush()
+    {
+        bytesSent = 0;
+        if( updateCount == 0 )
+            return 0;
+        
+        try {
+            buildGrid();
+            data.clear();
+            for( Map.Entry<HostedConnection,Region> e : regions.entrySet() ) {
+                int count = select( e.getValue() );
+                if( count == 0 )
+                    continue;
+                try {
+                    sendUpdates( e.getKey(), count );
+                } catch( KernelException ex ) {
+                    // The connection is closing and would never get them 
+                    // anyway, the other clients still get their updates
+                    log.log( Level.FINE, "Dropped updates for:" + e.getKey(), ex );
+                }
+            }
+            return bytesSent;
+        } finally {
+            for( int i = 0; i < updateCount; i++ ) {
+                updates.get(i).message = null;
+            }
+            updateCount = 0;
+        }
+    }
+ 
+    /**
+     *  Sends a batch of serialized messages to the connection.  The 
+     *  batch is only valid during the call.  The default implementation
+     *  sends it over the reliable or unreliable channel of connections 
+     *  hosted by a DefaultServer, other connections need an override.
+     */
+    protected void send( HostedConnection conn, ByteBuffer batch, boolean reliable )
+    {
+        if( !(conn instanceof DefaultServer.Connection) )
+            throw new IllegalArgumentException( "Connection is not hosted by a DefaultServer:" + conn );
+        ((DefaultServer.Connection)conn).send( batch, reliable );
+    }
+ 
+    private long cellKey( int x, int y, int z )
+    {
+        return ((long)(x & 0x1fffff) << 42) | ((long)(y & 0x1fffff) << 21) | (long)(z & 0x1fffff);
+    }
+    
+    private int cell( float f )
+    {
+        return (int)Math.floor( f / cellSize );
+    }
+ 
+    private int findCell( long key )
+    {
+        int mask = cellKeys.length - 1;
+        int h = (int)(key ^ (key >>> 32)) * 0x9e3779b9;
+        int i = (h ^ (h >>> 16)) & mask; 
+        while( cellUsed[i] && cellKeys[i] != key ) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+ 
+    private void buildGrid()
+    {
+        int capacity = cellKeys.length;
+        while( capacity < updateCount * 2 ) {
+            capacity *= 2;
+        }
+        if( capacity != cellKeys.length ) {
+            cellKeys = new long[capacity];
+            cellHeads = new int[capacity];
+            cellUsed = new boolean[capacity];
+        } else {
+            Arrays.fill( cellUsed, false );
+        }
+
+        // Add in reverse so that the lists are in posting order        
+        for( int i = updateCount - 1; i >= 0; i-- ) {
+            Update u = updates.get(i);
+            long key = cellKey( cell(u.x), cell(u.y), cell(u.z) );
+            int slot = findCell( key );
+            if( cellUsed[slot] ) {
+                u.next = cellHeads[slot];
+            } else {
+                cellUsed[slot] = true;
+                cellKeys[slot] = key;
+                u.next = -1;
+            }
+            cellHeads[slot] = i;
+        }
+    }
+ 
+    /**
+     *  Collects the indices of the updates within the region into
+     *  selected, in posting order.
+     */
+    private int select( Region r )
+    {
+        int count = 0;
+        int x1 = cell(r.x - r.radius), x2 = cell(r.x + r.radius);
+        int y1 = cell(r.y - r.radius), y2 = cell(r.y + r.radius);
+        int z1 = cell(r.z - r.radius), z2 = cell(r.z + r.radius);
+        for( int x = x1; x <= x2; x++ ) {
+            for( int y = y1; y <= y2; y++ ) {
+                for( int z = z1; z <= z2; z++ ) {
+                    int slot = findCell( cellKey(x, y, z) );
+                    if( !cellUsed[slot] )
+                        continue;
+                    for( int i = cellHeads[slot]; i >= 0; i = updates.get(i).next ) {
+                        Update u = updates.get(i);
+                        if( !r.contains(u.x, u.y, u.z) )
+                            continue;
+                        if( count == selected.length ) {
+                            int[] bigger = new int[count * 2];
+                            System.arraycopy( selected, 0, bigger, 0, count );
+                            selected = bigger;
+                        }
+                        selected[count++] = i;
+                    }
+                }
+            }
+        }
+        
+        // Updates come grouped by cell
+        Arrays.sort( selected, 0, count );
+        return count;
+    }
+ 
+    private void serialize( Update u )
+    {
+        if( u.offset >= 0 )
+            return;
+        ByteBuffer buffer = MessageProtocol.messageToBuffer( u.message, null );
+        try {
+            if( data.remaining() < buffer.remaining() ) {
+                ByteBuffer bigger = ByteBuffer.allocate( Math.max(data.capacity() * 2, 
+                                                                  data.position() + buffer.remaining()) );
+                data.flip();
+                bigger.put( data );
+                data = bigger;
+            }
+            u.offset = data.position();
+            u.length = buffer.remaining();
+            data.put( buffer );
+        } finally {
+            BufferPool.getDefault().release( buffer );
+        }
+    }
+ 
+    private void sendUpdates( HostedConnection conn, int count )
+    {
+        int reliableSize = 0;
+        int unreliableSize = 0;
+        for( int i = 0; i < count; i++ ) {
+            Update u = updates.get(selected[i]);
+            serialize( u );
+            if( u.message.isReliable() ) {
+                reliableSize += u.length;
+            } else {
+                unreliableSize = Math.max( unreliableSize, u.length );
+            }
+        }
+
+        if( reliableSize > 0 ) {
+            ByteBuffer batch = BufferPool.getDefault().acquire( reliableSize );
+            try {
+                for( int i = 0; i < count; i++ ) {
+                    Update u = updates.get(selected[i]);
+                    if( u.message.isReliable() ) {
+                        batch.put( data.array(), u.offset, u.length );
+                    }
+                }
+                sendBatch( conn, batch, true );
+            } finally {
+                BufferPool.getDefault().release( batch );
+            }
+        }
+        
+        if( unreliableSize > 0 ) {
+            ByteBuffer batch = BufferPool.getDefault().acquire( Math.max(unreliableSize, maxDatagramSize) );
+            try {
+                for( int i = 0; i < count; i++ ) {
+                    Update u = updates.get(selected[i]);
+                    if( u.message.isReliable() )
+                        continue;
+                    if( batch.position() > 0 && batch.position() + u.length > maxDatagramSize ) {
+                        sendBatch( conn, batch, false );
+                        batch.clear();
+                    }
+                    batch.put( data.array(), u.offset, u.length );
+                }
+                sendBatch( conn, batch, false );
+            } finally {
+                BufferPool.getDefault().release( batch );
+            }
+        }
+    }
+    
+    private void sendBatch( HostedConnection conn, ByteBuffer batch, boolean reliable )
+    {
+        batch.flip();
+        bytesSent += batch.remaining();
+        send( conn, batch, reliable );
+    }
+ 
+    private static class Region
+    {
+        float x, y, z;
+        float radius;
+        
+        public Region( float x, float y, float z, float radius )
+        {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.radius = radius;
+        }
+        
+        public boolean contains( float px, float py, float pz )
+        {
+            float dx = px - x;
+            float dy = py - y;
+            float dz = pz - z;
+            return dx * dx + dy * dy + dz * dz <= radius * radius;
+        }
+    }
+ 
+    private static class Update
+    {
+        Message message;
+        float x, y, z;
+        int offset;
+        int length;
+        int next;
+    }
+}
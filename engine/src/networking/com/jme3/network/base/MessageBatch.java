@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.base;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  Collects the serialized messages sent on a reliable channel so
+ *  that they can be written out together.  Each message keeps its
+ *  own size prefix so a batch is just a run of regular message frames
+ *  that the MessageProtocol on the other end splits up again like
+ *  any other data it reads from the stream.
+ *
+ *  <p>Subclasses write the collected data where it needs to go.
+ *  The data passed to write() is only valid for the duration of 
+ *  the call.</p>
+ *
+ *  @version   $Revision$
+ */
+abstract class MessageBatch
+{
+    public static final int DEFAULT_SIZE = 8192;
+    
+    private ByteBuffer buffer;
+    
+    public MessageBatch()
+    {
+        this( DEFAULT_SIZE );
+    }
+    
+    public MessageBatch( int size )
+    {
+        this.buffer = ByteBuffer.allocate(size);
+    }
+ 
+    /**
+     *  Adds the remaining data of the supplied message frame to 
+     *  the batch, first writing out the batch if the frame doesn't 
+     *  fit.  Frames bigger than the whole batch are written by 
+     *  themselves.  The position of the frame is not changed.
+     */
+    public synchronized void add( ByteBuffer frame )
+    {
+        int size = frame.remaining();
+        if( size > buffer.remaining() ) {
+            flush();
+            if( size > buffer.capacity() ) {
+                write( frame.duplicate() );
+                return;
+            }
+        }
+        buffer.put( frame.duplicate() );
+    }
+ 
+    /**
+     *  Writes out any messages collected since the last flush.
+     */
+    public synchronized void flush()
+    {
+        if( buffer.position() == 0 )
+            return;
+        buffer.flip();
+        write( buffer );
+        buffer.clear();
+    }
+ 
+    public synchronized boolean isEmpty()
+    {
+        return buffer.position() == 0;
+    }
+ 
+    protected abstract void write( ByteBuffer data );
+}
@@ -32,6 +32,7 @@
 package com.jme3.network.base;
 
 import com.jme3.network.Message;
+import com.jme3.network.kernel.BufferPool;
 import com.jme3.network.serializing.Serializer;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -53,20 +54,42 @@ import java.util.LinkedList;
  */
 public class MessageProtocol
 {
+    private static final ThreadLocal<ByteBuffer> scratch = new ThreadLocal<ByteBuffer>() {
+            @Override
+            protected ByteBuffer initialValue()
+            {
+                return ByteBuffer.allocate( 32767 + 2 );
+            }
+        };
+
     private LinkedList<Message> messages = new LinkedList<Message>();
     private ByteBuffer current;
+    private ByteBuffer incoming;
     private int size;
     private Byte carry;
  
     /**
      *  Converts a message to a ByteBuffer using the Serializer
      *  and the (short length) + data protocol.  If target is null
-     *  then a 32k byte buffer will be created and filled.
+     *  then the message is serialized into a per-thread scratch buffer
+     *  and copied into a buffer of the right size acquired from 
+     *  BufferPool.getDefault().  The caller owns that buffer and
+     *  should release it when done, or hand it to a kernel broadcast
+     *  with copy set to false, which releases it once sent.
      */
     public static ByteBuffer messageToBuffer( Message message, ByteBuffer target )
     {
-        // Could let the caller pass their own in       
-        ByteBuffer buffer = target == null ? ByteBuffer.allocate( 32767 + 2 ) : target;
+        if( target == null ) {
+            ByteBuffer temp = scratch.get();
+            temp.clear();
+            temp = messageToBuffer( message, temp );
+            ByteBuffer buffer = BufferPool.getDefault().acquire( temp.remaining() );
+            buffer.put( temp );
+            buffer.flip();
+            return buffer;
+        }
+        
+        ByteBuffer buffer = target;
         
         try {
             buffer.position( 2 );
@@ -136,9 +159,15 @@ public class MessageProtocol
                     size = buffer.getShort();
                 }               
  
-                // Allocate the buffer into which we'll feed the
-                // data as we get it               
-                current = ByteBuffer.allocate(size);
+                // Reuse the buffer into which we'll feed the
+                // data as we get it.  Messages are deserialized as soon
+                // as they are complete so nothing holds on to it.
+                if( incoming == null ) {
+                    incoming = ByteBuffer.allocate( 32767 );
+                }
+                current = incoming;
+                current.clear();
+                current.limit(size);
             } 
 
             if( current.remaining() <= buffer.remaining() ) {
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.kernel;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  A pool of byte buffers grouped into power of two size
+ *  classes.  Buffers are handed out with acquire() and
+ *  returned with release().  A buffer can be shared, for example
+ *  by several endpoints sending the same broadcast, by counting 
+ *  its users in an AtomicInteger and releasing it with
+ *  release(buffer, users) once per user.  It is only returned to the
+ *  pool when every user has released it.
+ *
+ *  <p>The pool does not keep track of the buffers it hands out,
+ *  a buffer that is never released is simply garbage collected.
+ *  Releasing a buffer hands it over to the pool, so it must be
+ *  released only once and not be used afterwards.  Buffers that
+ *  don't fit a size class, like read-only buffers or buffers larger
+ *  than the biggest size class, are left to the garbage collector,
+ *  so code that accepts buffers from either the pool or the caller 
+ *  can release the buffers it was given unconditionally.</p>
+ *
+ *  @version   $Revision$
+ */
+public class BufferPool
+{
+    private static final int MIN_SHIFT = 6;   // 64 bytes
+    private static final int MAX_SHIFT = 16;  // 64 k, the largest message 
+
+    private static final BufferPool defaultPool = new BufferPool(true, 256);
+
+    private final boolean direct;
+    private final int maxFree;
+    private final SizeClass[] classes;
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     *  Creates a pool of direct or heap buffers that keeps at most
+     *  maxFree unused buffers per size class.
+     */
+    public BufferPool( boolean direct, int maxFree )
+    {
+        this.direct = direct;
+        this.maxFree = maxFree;
+        
+        classes = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+        for( int i = 0; i < classes.length; i++ ) {
+            classes[i] = new SizeClass();
+        }
+    }
+
+    /**
+     *  Returns the shared pool of direct buffers used by the
+     *  networking classes.
+     */
+    public static BufferPool getDefault()
+    {
+        return defaultPool;
+    }
+
+    public boolean isDirect()
+    {
+        return direct;
+    }
+
+    protected static int sizeClass( int size )
+    {
+        int shift = MIN_SHIFT;
+        while( (1 << shift) < size )
+            shift++;
+        return shift - MIN_SHIFT;
+    }
+
+    /**
+     *  Returns a buffer with at least the specified capacity, its
+     *  position set to 0 and its limit set to size.  Requests larger 
+     *  than the biggest size class are allocated without pooling.
+     */
+    public ByteBuffer acquire( int size )
+    {
+        if( size > (1 << MAX_SHIFT) ) {
+            misses.incrementAndGet();
+            return allocate(size);
+        }
+        
+        SizeClass sc = classes[sizeClass(size)];
+        ByteBuffer buffer = sc.free.poll();
+        if( buffer != null ) {
+            sc.count.decrementAndGet();
+            hits.incrementAndGet();
+        } else {
+            buffer = allocate(1 << (sizeClass(size) + MIN_SHIFT));
+            misses.incrementAndGet();
+        }
+        
+        inUse.incrementAndGet();
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    protected ByteBuffer allocate( int size )
+    {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    /**
+     *  Releases a buffer acquired from this pool, which is returned
+     *  to the pool and must not be used anymore.
+     *
+     *  @return true if the buffer fits a size class of this pool.
+     */
+    public boolean release( ByteBuffer buffer )
+    {
+        if( buffer == null || buffer.isReadOnly() || buffer.isDirect() != direct )
+            return false;
+        int capacity = buffer.capacity();
+        if( capacity < (1 << MIN_SHIFT) || capacity > (1 << MAX_SHIFT) 
+            || (capacity & (capacity - 1)) != 0 )
+            return false;
+
+        inUse.decrementAndGet();
+        SizeClass sc = classes[sizeClass(capacity)];
+        if( sc.count.incrementAndGet() <= maxFree ) {
+            sc.free.add(buffer);
+        } else {
+            // Let the garbage collector have it
+            sc.count.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     *  Releases one user of a shared buffer.  'users' is the number
+     *  of users that did not release the buffer yet, the buffer is 
+     *  returned to the pool when it drops to 0.  If 'users' is null 
+     *  then the buffer has a single user and is released right away.
+     *
+     *  @return true if the buffer was returned to the pool.
+     */
+    public boolean release( ByteBuffer buffer, AtomicInteger users )
+    {
+        if( users != null && users.decrementAndGet() > 0 )
+            return false;
+        return release(buffer);
+    }
+
+    /**
+     *  Returns the number of acquire() calls that reused a
+     *  pooled buffer.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     *  Returns the number of acquire() calls that had to allocate
+     *  a new buffer.
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     *  Returns the fraction of acquire() calls that reused a
+     *  pooled buffer.
+     */
+    public float getHitRate()
+    {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (float)h / total;
+    }
+
+    /**
+     *  Returns the number of pooled buffers acquired minus the 
+     *  number of buffers released, an estimate of the buffers
+     *  currently in use.
+     */
+    public int getInUseCount()
+    {
+        return inUse.get();
+    }
+
+    public String toString()
+    {
+        return "BufferPool[" + (direct ? "direct" : "heap") + ", hits=" + getHits() 
+                + ", misses=" + getMisses() + ", inUse=" + getInUseCount() + "]";
+    }
+
+    private static class SizeClass
+    {
+        final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+        final AtomicInteger count = new AtomicInteger();
+    }
+}
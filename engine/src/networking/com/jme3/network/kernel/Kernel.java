@@ -70,6 +70,9 @@ public interface Kernel
      *  the data buffer.  Though it is important that the buffer not be changed
      *  by another thread while this call is running.
      *  Only the bytes from data.position() to data.remaining() are sent.  
+     *  If 'copy' is false then the kernel takes ownership of the buffer and 
+     *  releases it to BufferPool.getDefault() once it has been sent, so
+     *  the caller must not use it anymore.
      */ 
     public void broadcast( Filter<? super Endpoint> filter, ByteBuffer data, boolean reliable, 
                            boolean copy );
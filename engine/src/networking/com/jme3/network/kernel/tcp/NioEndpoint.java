@@ -31,6 +31,7 @@
  */
 package com.jme3.network.kernel.tcp;
 
+import com.jme3.network.kernel.BufferPool;
 import com.jme3.network.kernel.Endpoint;
 import com.jme3.network.kernel.Kernel;
 import com.jme3.network.kernel.KernelException;
@@ -38,6 +39,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -55,8 +57,9 @@ public class NioEndpoint implements Endpoint
     private long id;
     private SocketChannel socket;
     private SelectorKernel kernel;
-    private ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+    private ConcurrentLinkedQueue<Pending> outbound = new ConcurrentLinkedQueue<Pending>();
     private boolean closing = false;
+    private volatile boolean closed = false;
 
     public NioEndpoint( SelectorKernel kernel, long id, SocketChannel socket )
     {
@@ -119,21 +122,46 @@ public class NioEndpoint implements Endpoint
      */
     protected void send( ByteBuffer data, boolean copy, boolean wakeup )
     {
-        // We create a ByteBuffer per endpoint since we
-        // use it to track the data sent to each endpoint
-        // separately.
-        ByteBuffer buffer;
         if( !copy ) {
-            buffer = data;
-        } else {
-            // Copy the buffer
-            buffer = ByteBuffer.allocate(data.remaining());
-            buffer.put(data);
-            buffer.flip();
+            send( data, null, wakeup );
+            return;
         }
+        
+        // Copy the buffer into a pooled one that is released
+        // once written
+        ByteBuffer buffer = BufferPool.getDefault().acquire(data.remaining());
+        buffer.put(data);
+        buffer.flip();
+        send( buffer, buffer, wakeup );
+    }
+
+    /**
+     *  Queues the data as is.  We need a ByteBuffer per endpoint 
+     *  since we use it to track the data sent to each endpoint
+     *  separately, but several endpoints can share the same bytes 
+     *  through duplicates.  If 'pooled' is not null then it is 
+     *  released to the default BufferPool once the data has been 
+     *  written.
+     */
+    protected void send( ByteBuffer data, ByteBuffer pooled, boolean wakeup )
+    {
+        send( data, pooled, null, wakeup );
+    }
 
+    /**
+     *  Queues the data of a pooled buffer shared with other endpoints.
+     *  The buffer is released with BufferPool.release(pooled, users) 
+     *  once the data has been written, so 'users' should count this 
+     *  endpoint.
+     */
+    protected void send( ByteBuffer data, ByteBuffer pooled, AtomicInteger users, boolean wakeup )
+    {
         // Queue it up
-        outbound.add(buffer);
+        outbound.add(new Pending(data, pooled, users));
+        
+        // In case we were closed while adding it
+        if( closed )
+            releasePending();
 
         if( wakeup )
             kernel.wakeupSelector();
@@ -145,7 +173,26 @@ public class NioEndpoint implements Endpoint
      */
     protected ByteBuffer peekPending()
     {
-        return outbound.peek();
+        Pending p = outbound.peek();
+        return p == null ? null : p.data;
+    }
+
+    /**
+     *  Called by the SelectorKernel to get as many pending buffers
+     *  as will fit in the store array, for a gathering write.  Stops 
+     *  before the close marker.
+     *
+     *  @return The number of buffers put in store.
+     */
+    protected int peekPending( ByteBuffer[] store )
+    {
+        int count = 0;
+        for( Pending p : outbound ) {
+            if( count == store.length || p.data == CLOSE_MARKER )
+                break;
+            store[count++] = p.data;
+        }
+        return count;
     }
 
     /**
@@ -154,7 +201,23 @@ public class NioEndpoint implements Endpoint
      */
     protected ByteBuffer removePending()
     {
-        return outbound.poll();
+        Pending p = outbound.poll();
+        if( p == null )
+            return null;
+        if( p.pooled != null )
+            BufferPool.getDefault().release(p.pooled, p.users);
+        return p.data;
+    }
+
+    /**
+     *  Called by the SelectorKernel when the endpoint has been
+     *  closed to release the data that will never be sent.
+     */
+    protected void releasePending()
+    {
+        closed = true;
+        while( removePending() != null )
+            ;
     }
 
     protected boolean hasPending()
@@ -177,4 +240,18 @@ public class NioEndpoint implements Endpoint
     {
         return "NioEndpoint[" + id + ", " + socket + "]";
     }
+    
+    private static class Pending
+    {
+        final ByteBuffer data;
+        final ByteBuffer pooled;
+        final AtomicInteger users;
+        
+        public Pending( ByteBuffer data, ByteBuffer pooled, AtomicInteger users )
+        {
+            this.data = data;
+            this.pooled = pooled;
+            this.users = users;
+        }
+    }
 }
@@ -40,10 +40,12 @@ import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -117,14 +119,17 @@ public class SelectorKernel extends AbstractKernel
         if( !reliable )
             throw new UnsupportedOperationException( "Unreliable send not supported by this kernel." );
 
+        BufferPool pool = BufferPool.getDefault();
         if( copy ) {
             // Copy the data just once
-            byte[] temp = new byte[data.remaining()];
-            System.arraycopy(data.array(), data.position(), temp, 0, data.remaining());
-            data = ByteBuffer.wrap(temp);
+            ByteBuffer temp = pool.acquire(data.remaining());
+            temp.put(data.duplicate());
+            temp.flip();
+            data = temp;
         }
 
         // Hand it to all of the endpoints that match our routing
+        AtomicInteger users = new AtomicInteger(1);
         for( NioEndpoint p : endpoints.values() ) {
             // Does it match the filter?
             if( filter != null && !filter.apply(p) )
@@ -132,9 +137,14 @@ public class SelectorKernel extends AbstractKernel
 
             // Give it the data... but let each endpoint track their
             // own completion over the shared array of bytes by
-            // duplicating it
-            p.send( data.duplicate(), false, false );
+            // duplicating it.  Each endpoint releases its reference
+            // when done.
+            users.incrementAndGet();
+            p.send( data.duplicate(), data, users, false );
         }
+        
+        // And we release ours
+        pool.release(data, users);
 
         // Wake up the selector so it can reinitialize its
         // state accordingly.
@@ -159,6 +169,7 @@ public class SelectorKernel extends AbstractKernel
     protected void removeEndpoint( NioEndpoint p, SocketChannel c )
     {
         endpoints.remove( p.getId() );
+        p.releasePending();
         log.log( Level.FINE, "Endpoints size:{0}", endpoints.size() );
 
         // Enqueue an endpoint event for the listeners
@@ -224,6 +235,7 @@ public class SelectorKernel extends AbstractKernel
         private Selector selector;
         private AtomicBoolean go = new AtomicBoolean(true);
         private ByteBuffer working = ByteBuffer.allocate( 8192 );
+        private ByteBuffer[] gather = new ByteBuffer[64];
 
         /**
          *  Because we want to keep the keys to ourselves, we'll do
@@ -394,12 +406,20 @@ public class SelectorKernel extends AbstractKernel
                 return;
             }
 
-            c.write( current );
+            // Write as many of the pending buffers as we can in
+            // one gathering write
+            int count = p.peekPending( gather );
+            if( count > 0 ) {
+                c.write( gather, 0, count );
+            }
 
-            // If we wrote all of that packet then we need to remove it
-            if( current.remaining() == 0 ) {
+            // Remove the packets we wrote completely
+            for( int i = 0; i < count; i++ ) {
+                if( gather[i].remaining() != 0 )
+                    break;
                 p.removePending();
             }
+            Arrays.fill( gather, 0, count, null );
 
             // If we happened to empty the pending queue then let's read
             // again.
@@ -39,6 +39,7 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -112,22 +113,50 @@ public class UdpEndpoint implements Endpoint
     }
 
     public void send( ByteBuffer data )
+    {
+        // The datagram is sent later from another thread and needs
+        // an array so we copy the data into a pooled heap buffer
+        ByteBuffer buffer = kernel.getBufferPool().acquire(data.remaining());
+        buffer.put(data.duplicate());
+        buffer.flip();
+        send( buffer, buffer );
+    }
+
+    /**
+     *  Sends the array backed data without copying it.  If 'pooled'
+     *  is not null then it is released to the kernel's buffer pool
+     *  once the datagram has been sent.
+     */
+    protected void send( ByteBuffer data, ByteBuffer pooled )
+    {
+        send( data, pooled, null );
+    }
+
+    /**
+     *  Sends the array backed data of a pooled buffer shared with 
+     *  other endpoints.  The buffer is released with 
+     *  BufferPool.release(pooled, users) once the datagram has been
+     *  sent, so 'users' should count this endpoint.
+     */
+    protected void send( ByteBuffer data, ByteBuffer pooled, AtomicInteger users )
     {
         if( !isConnected() ) {
+            kernel.getBufferPool().release(pooled, users);
             throw new KernelException( "Endpoint is not connected:" + this );
         }
         
         
         try {
-            DatagramPacket p = new DatagramPacket( data.array(), data.position(), 
+            DatagramPacket p = new DatagramPacket( data.array(), data.arrayOffset() + data.position(), 
                                                    data.remaining(), address );
                                                    
             // Just queue it up for the kernel threads to write
             // out
-            kernel.enqueueWrite( this, p );
+            kernel.enqueueWrite( this, p, pooled, users );
                                                                
             //socket.send(p);
         } catch( IOException e ) {
+            kernel.getBufferPool().release(pooled, users);
             throw new KernelException( "Error sending datagram to:" + address, e );
         }
     }
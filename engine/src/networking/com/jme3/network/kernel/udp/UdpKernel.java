@@ -41,6 +41,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,6 +60,9 @@ public class UdpKernel extends AbstractKernel
 
     private ExecutorService writer;
     
+    // Datagrams need array backed buffers
+    private BufferPool bufferPool = new BufferPool(false, 256);
+    
     // The nature of UDP means that even through a firewall,
     // a user would have to have a unique address+port since UDP
     // can't really be NAT'ed.
@@ -79,6 +83,15 @@ public class UdpKernel extends AbstractKernel
         this.address = address;
     }
 
+    /**
+     *  Returns the pool of heap buffers from which outbound
+     *  datagrams are sent.
+     */
+    public BufferPool getBufferPool()
+    {
+        return bufferPool;
+    }
+
     protected HostThread createHostThread()
     {
         return new HostThread();
@@ -125,22 +138,41 @@ public class UdpKernel extends AbstractKernel
         if( reliable )
             throw new UnsupportedOperationException( "Reliable send not supported by this kernel." );
 
-        if( copy ) {
-            // Copy the data just once
-            byte[] temp = new byte[data.remaining()];
-            System.arraycopy(data.array(), data.position(), temp, 0, data.remaining());
-            data = ByteBuffer.wrap(temp);
+        // The caller's heap buffer is sent as is and only buffers
+        // acquired here go back to our pool.  The default pool only
+        // keeps direct buffers so a heap buffer the caller gave us is
+        // left to the garbage collector.
+        ByteBuffer shared = data;
+        ByteBuffer pooled = null;
+        if( copy || !data.hasArray() ) {
+            // Copy the data just once, the datagrams of all endpoints 
+            // share the same array
+            shared = bufferPool.acquire(data.remaining());
+            shared.put(data.duplicate());
+            shared.flip();
+            pooled = shared;
+            
+            if( !copy ) {
+                // The caller gave us the buffer and we are done with it
+                BufferPool.getDefault().release(data);
+            }
         }
 
         // Hand it to all of the endpoints that match our routing
+        AtomicInteger users = new AtomicInteger(1);
         for( UdpEndpoint p : socketEndpoints.values() ) {
             // Does it match the filter?
             if( filter != null && !filter.apply(p) )
                 continue;
     
-            // Send the data
-            p.send( data );
+            // Send the data, each datagram releases its reference
+            // once sent
+            users.incrementAndGet();
+            p.send( shared, pooled, users );
         }
+        
+        // And we release ours
+        bufferPool.release(pooled, users);
     }
 
     protected Endpoint getEndpoint( SocketAddress address, boolean create )
@@ -200,34 +232,67 @@ public class UdpKernel extends AbstractKernel
 
     protected void enqueueWrite( Endpoint endpoint, DatagramPacket packet )
     {
-        writer.execute( new MessageWriter(endpoint, packet) );
+        enqueueWrite( endpoint, packet, null );
+    } 
+
+    /**
+     *  Queues the packet for writing.  If 'pooled' is not null then
+     *  it is released to the buffer pool once the packet has been sent.
+     */
+    protected void enqueueWrite( Endpoint endpoint, DatagramPacket packet, ByteBuffer pooled )
+    {
+        enqueueWrite( endpoint, packet, pooled, null );
+    } 
+
+    /**
+     *  Queues the packet of a pooled buffer shared with other packets.
+     *  The buffer is released with BufferPool.release(pooled, users)
+     *  once the packet has been sent.
+     */
+    protected void enqueueWrite( Endpoint endpoint, DatagramPacket packet, ByteBuffer pooled, 
+                                 AtomicInteger users )
+    {
+        writer.execute( new MessageWriter(endpoint, packet, pooled, users) );
     } 
 
     protected class MessageWriter implements Runnable
     {
         private Endpoint endpoint;
         private DatagramPacket packet;
+        private ByteBuffer pooled;
+        private AtomicInteger users;
         
         public MessageWriter( Endpoint endpoint, DatagramPacket packet )
+        {
+            this( endpoint, packet, null, null );
+        }
+        
+        public MessageWriter( Endpoint endpoint, DatagramPacket packet, ByteBuffer pooled,
+                              AtomicInteger users )
         {
             this.endpoint = endpoint;
             this.packet = packet;
+            this.pooled = pooled;
+            this.users = users;
         }
         
         public void run()
         {
-            // Not guaranteed to always work but an extra datagram
-            // to a dead connection isn't so big of a deal.
-            if( !endpoint.isConnected() ) {
-                return;
-            }
-            
             try {
+                // Not guaranteed to always work but an extra datagram
+                // to a dead connection isn't so big of a deal.
+                if( !endpoint.isConnected() ) {
+                    return;
+                }
+            
                 thread.getSocket().send(packet);
             } catch( Exception e ) {
                 KernelException exc = new KernelException( "Error sending datagram to:" + address, e );
                 exc.fillInStackTrace();
                 reportError(exc);
+            } finally {
+                if( pooled != null )
+                    bufferPool.release(pooled, users);
             }
         } 
     }
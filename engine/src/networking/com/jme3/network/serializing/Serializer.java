@@ -69,6 +69,8 @@ public abstract class Serializer {
     private static short nextAvailableId = -2; // historically the first ID was always -2
 
     private static boolean strictRegistration = true;
+    
+    private static boolean useTypedFieldSerializer = true;
 
 
     // Registers the classes we already have serializers for.
@@ -144,6 +146,21 @@ public abstract class Serializer {
         strictRegistration = b;
     }
 
+    /**
+     *  When set to true, classes that use the default field serialization
+     *  get their own TypedFieldSerializer that reads and writes primitive
+     *  fields without boxing.  Defaults to true.  Both serializers produce
+     *  the same data so this can be switched independently on each end.
+     *  Only affects classes registered after the call.
+     */
+    public static void setUseTypedFieldSerializer( boolean b ) {
+        useTypedFieldSerializer = b;
+    }
+
+    public static boolean isUseTypedFieldSerializer() {
+        return useTypedFieldSerializer;
+    }
+
     public static SerializerRegistration registerClass(Class cls) {
         return registerClass(cls, true);
     }
@@ -196,7 +213,7 @@ public abstract class Serializer {
 
             Serializer serializer = getSerializer(serializerClass, false);
 
-            if (serializer == null) serializer = fieldSerializer;
+            if (serializer == null || serializerClass == FieldSerializer.class) serializer = createFieldSerializer();
 
             SerializerRegistration existingReg = getExactSerializerRegistration(cls);
 
@@ -323,7 +340,14 @@ public abstract class Serializer {
         if( failOnMiss ) {
             throw new IllegalArgumentException( "Class has not been registered:" + cls );
         }
-        return registerClass(cls, fieldSerializer);
+        return registerClass(cls, createFieldSerializer());
+    }
+
+    private static Serializer createFieldSerializer() {
+        if( useTypedFieldSerializer ) {
+            return new TypedFieldSerializer();
+        }
+        return fieldSerializer;
     }
 
 
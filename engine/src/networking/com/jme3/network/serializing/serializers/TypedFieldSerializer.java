@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.serializing.serializers;
+
+import com.jme3.math.Vector3f;
+import com.jme3.network.serializing.Serializer;
+import com.jme3.network.serializing.SerializerException;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * A field serializer that is bound to a single class. When the class
+ * is registered, its fields are compiled into an array of typed accessors
+ * so that primitive fields are read and written straight to the buffer
+ * without boxing, and no per-message lookup of the field list is needed.
+ * <p>
+ * The wire format is the same as the one of {@link FieldSerializer}, so
+ * both ends can use either serializer. The {@link Serializer} creates one
+ * instance of this class for every message class that is registered with
+ * the default serializer.
+ */
+public class TypedFieldSerializer extends Serializer {
+
+    private Class<?> type;
+    private Constructor<?> constructor;
+    private FieldAccessor[] accessors;
+
+    @SuppressWarnings("unchecked")
+    public void initialize(Class clazz) {
+
+        // See if the class has a public no-arg constructor
+        try {
+            constructor = clazz.getConstructor();
+        } catch( NoSuchMethodException e ) {
+            throw new RuntimeException( "Registration error: no-argument constructor not found on:" + clazz );
+        }
+
+        List<Field> fields = new ArrayList<Field>();
+
+        Class<?> processingClass = clazz;
+        while (processingClass != Object.class ) {
+            Collections.addAll(fields, processingClass.getDeclaredFields());
+            processingClass = processingClass.getSuperclass();
+        }
+
+        // Same selection and order as FieldSerializer so that the
+        // two stay compatible on the wire
+        List<Field> selected = new ArrayList<Field>(fields.size());
+        for (Field field : fields) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isTransient(modifiers)) continue;
+            if (Modifier.isFinal(modifiers)) continue;
+            if (Modifier.isStatic(modifiers)) continue;
+            if (field.isSynthetic()) continue;
+            field.setAccessible(true);
+            selected.add(field);
+        }
+
+        Collections.sort(selected, new Comparator<Field>() {
+            public int compare (Field o1, Field o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+
+        FieldAccessor[] result = new FieldAccessor[selected.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = createAccessor(selected.get(i));
+        }
+
+        type = clazz;
+        accessors = result;
+    }
+
+    /**
+     * Returns the class this serializer was initialized for.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    private static FieldAccessor createAccessor(Field field) {
+        Class<?> fieldType = field.getType();
+
+        if (fieldType == int.class) return new IntField(field);
+        if (fieldType == float.class) return new FloatField(field);
+        if (fieldType == boolean.class) return new BooleanField(field);
+        if (fieldType == byte.class) return new ByteField(field);
+        if (fieldType == short.class) return new ShortField(field);
+        if (fieldType == char.class) return new CharField(field);
+        if (fieldType == long.class) return new LongField(field);
+        if (fieldType == double.class) return new DoubleField(field);
+
+        if (!Modifier.isFinal(fieldType.getModifiers())) {
+            // The runtime type is not known, it is written along
+            // with the value
+            return new ObjectField(field, null);
+        }
+
+        // See the comment in FieldSerializer.initialize(), this registers
+        // the field type as a side effect.
+        Serializer serializer = Serializer.getSerializer(fieldType, false);
+
+        if (serializer.getClass() == StringSerializer.class) return new StringField(field);
+        if (serializer.getClass() == Vector3Serializer.class) return new Vector3fField(field);
+        return new ObjectField(field, serializer);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T readObject(ByteBuffer data, Class<T> c) throws IOException {
+
+        // Read the null/non-null marker
+        if (data.get() == 0x0)
+            return null;
+
+        if (c != type)
+            throw new SerializerException( "Serializer for:" + type + " cannot read:" + c );
+
+        T object;
+        try {
+            object = (T) constructor.newInstance();
+        } catch (Exception e) {
+            throw new SerializerException( "Error creating object of type:" + c, e );
+        }
+
+        FieldAccessor[] fields = accessors;
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].read(data, object);
+            }
+        } catch (IllegalAccessException e) {
+            throw new SerializerException( "Error reading object", e);
+        }
+        return object;
+    }
+
+    public void writeObject(ByteBuffer buffer, Object object) throws IOException {
+
+        // Add the null/non-null marker
+        buffer.put( (byte)(object != null ? 0x1 : 0x0) );
+        if (object == null) {
+            // Nothing left to do
+            return;
+        }
+
+        if (object.getClass() != type)
+            throw new IOException("The " + object.getClass() + " is not registered"
+                                + " in the serializer!");
+
+        FieldAccessor[] fields = accessors;
+        for (int i = 0; i < fields.length; i++) {
+            FieldAccessor accessor = fields[i];
+            try {
+                accessor.write(buffer, object);
+            } catch (BufferOverflowException boe) {
+                throw boe;
+            } catch (Exception e) {
+                throw new SerializerException( "Error writing object for field:" + accessor.field, e );
+            }
+        }
+    }
+
+    /**
+     * Reads and writes the value of a single field.
+     */
+    private static abstract class FieldAccessor {
+        protected final Field field;
+
+        public FieldAccessor(Field field) {
+            this.field = field;
+        }
+
+        public abstract void read(ByteBuffer data, Object object) throws IOException, IllegalAccessException;
+
+        public abstract void write(ByteBuffer buffer, Object object) throws IOException, IllegalAccessException;
+    }
+
+    private static final class BooleanField extends FieldAccessor {
+        public BooleanField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            field.setBoolean(object, data.get() == 1);
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            buffer.put(field.getBoolean(object) ? (byte)1 : (byte)0);
+        }
+    }
+
+    private static final class ByteField extends FieldAccessor {
+        public ByteField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            field.setByte(object, data.get());
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            buffer.put(field.getByte(object));
+        }
+    }
+
+    private static final class CharField extends FieldAccessor {
+        public CharField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            field.setChar(object, data.getChar());
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            buffer.putChar(field.getChar(object));
+        }
+    }
+
+    private static final class ShortField extends FieldAccessor {
+        public ShortField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            field.setShort(object, data.getShort());
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            buffer.putShort(field.getShort(object));
+        }
+    }
+
+    private static final class IntField extends FieldAccessor {
+        public IntField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            field.setInt(object, data.getInt());
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            buffer.putInt(field.getInt(object));
+        }
+    }
+
+    private static final class LongField extends FieldAccessor {
+        public LongField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            field.setLong(object, data.getLong());
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            buffer.putLong(field.getLong(object));
+        }
+    }
+
+    private static final class FloatField extends FieldAccessor {
+        public FloatField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            field.setFloat(object, data.getFloat());
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            buffer.putFloat(field.getFloat(object));
+        }
+    }
+
+    private static final class DoubleField extends FieldAccessor {
+        public DoubleField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            field.setDouble(object, data.getDouble());
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            buffer.putDouble(field.getDouble(object));
+        }
+    }
+
+    private static final class StringField extends FieldAccessor {
+        public StringField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IOException, IllegalAccessException {
+            field.set(object, StringSerializer.readString(data));
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IOException, IllegalAccessException {
+            StringSerializer.writeString((String) field.get(object), buffer);
+        }
+    }
+
+    private static final class Vector3fField extends FieldAccessor {
+        public Vector3fField(Field field) {
+            super(field);
+        }
+
+        public void read(ByteBuffer data, Object object) throws IllegalAccessException {
+            float x = data.getFloat();
+            float y = data.getFloat();
+            float z = data.getFloat();
+            field.set(object, new Vector3f(x, y, z));
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IllegalAccessException {
+            Vector3f vec3 = (Vector3f) field.get(object);
+            buffer.putFloat(vec3.x);
+            buffer.putFloat(vec3.y);
+            buffer.putFloat(vec3.z);
+        }
+    }
+
+    private static final class ObjectField extends FieldAccessor {
+        private final Serializer serializer;
+        private final Class<?> fieldType;
+
+        public ObjectField(Field field, Serializer serializer) {
+            super(field);
+            this.serializer = serializer;
+            this.fieldType = field.getType();
+        }
+
+        public void read(ByteBuffer data, Object object) throws IOException, IllegalAccessException {
+            Object value;
+            if (serializer != null) {
+                value = serializer.readObject(data, fieldType);
+            } else {
+                value = Serializer.readClassAndObject(data);
+            }
+            field.set(object, value);
+        }
+
+        public void write(ByteBuffer buffer, Object object) throws IOException, IllegalAccessException {
+            Object value = field.get(object);
+            if (serializer != null) {
+                serializer.writeObject(buffer, value);
+            } else {
+                Serializer.writeClassAndObject(buffer, value);
+            }
+        }
+    }
+}
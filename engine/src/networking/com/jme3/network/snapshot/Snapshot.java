@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.snapshot;
+
+/**
+ *  The state of a set of entities at one tick.  Each entity has
+ *  a non-negative int ID and the same number of int fields, at most 32.  Float fields are
+ *  stored as their raw int bits.
+ *
+ *  <p>Entities are kept sorted by ID.  Setting the entities in 
+ *  increasing ID order is the fastest way to fill a snapshot.  Snapshots
+ *  are meant to be reused from tick to tick with clear().</p>
+ *
+ *  @version   $Revision$
+ */
+public class Snapshot
+{
+    private int fieldCount;
+    private int sequence = -1;
+    private int count;
+    private int[] ids;
+    private int[] values;
+    
+    public Snapshot( int fieldCount )
+    {
+        if( fieldCount < 1 || fieldCount > 32 )
+            throw new IllegalArgumentException( "Field count must be between 1 and 32:" + fieldCount );
+        this.fieldCount = fieldCount;
+        this.ids = new int[16];
+        this.values = new int[16 * fieldCount];
+    }
+ 
+    public int getFieldCount()
+    {
+        return fieldCount;
+    }
+
+    /**
+     *  Returns the sequence number of the snapshot, or -1 if it
+     *  hasn't been sent or received.
+     */
+    public int getSequence()
+    {
+        return sequence;
+    }
+    
+    void setSequence( int sequence )
+    {
+        this.sequence = sequence;
+    }
+ 
+    /**
+     *  Returns the number of entities in the snapshot.
+     */
+    public int size()
+    {
+        return count;
+    }
+ 
+    /**
+     *  Returns the ID of the entity at the specified index, in 
+     *  increasing ID order.
+     */
+    public int getEntityId( int index )
+    {
+        if( index >= count )
+            throw new IndexOutOfBoundsException( "Index:" + index + ", size:" + count );
+        return ids[index];
+    }
+ 
+    /**
+     *  Returns the index of the entity or a negative value if
+     *  the snapshot doesn't contain it.
+     */
+    public int indexOf( int entityId )
+    {
+        if( count > 0 && ids[count - 1] == entityId )
+            return count - 1;
+        int low = 0;
+        int high = count - 1;
+        while( low <= high ) {
+            int mid = (low + high) >>> 1;
+            int id = ids[mid];
+            if( id < entityId ) {
+                low = mid + 1;
+            } else if( id > entityId ) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+ 
+    public boolean contains( int entityId )
+    {
+        return indexOf(entityId) >= 0;
+    }
+ 
+    /**
+     *  Adds the entity with all fields set to 0 if it isn't in the
+     *  snapshot yet and returns its index.
+     */
+    public int add( int entityId )
+    {
+        if( entityId < 0 )
+            throw new IllegalArgumentException( "Entity IDs cannot be negative:" + entityId );
+        int index;
+        if( count == 0 || ids[count - 1] < entityId ) {
+            index = count;
+        } else {
+            index = indexOf(entityId);
+            if( index >= 0 )
+                return index;
+            index = -(index + 1);
+        }
+        
+        if( count == ids.length ) {
+            int[] newIds = new int[count * 2];
+            System.arraycopy( ids, 0, newIds, 0, count );
+            ids = newIds;
+            int[] newValues = new int[count * 2 * fieldCount];
+            System.arraycopy( values, 0, newValues, 0, count * fieldCount );
+            values = newValues;
+        }
+        if( index < count ) {
+            System.arraycopy( ids, index, ids, index + 1, count - index );
+            System.arraycopy( values, index * fieldCount, values, (index + 1) * fieldCount, 
+                              (count - index) * fieldCount );
+        }
+        ids[index] = entityId;
+        for( int f = 0; f < fieldCount; f++ ) {
+            values[index * fieldCount + f] = 0;
+        }
+        count++;
+        return index;
+    }
+ 
+    /**
+     *  Removes the entity from the snapshot.
+     *
+     *  @return true if the snapshot contained the entity.
+     */
+    public boolean remove( int entityId )
+    {
+        int index = indexOf(entityId);
+        if( index < 0 )
+            return false;
+        System.arraycopy( ids, index + 1, ids, index, count - index - 1 );
+        System.arraycopy( values, (index + 1) * fieldCount, values, index * fieldCount, 
+                          (count - index - 1) * fieldCount );
+        count--;
+        return true;
+    }
+    
+    public void clear()
+    {
+        count = 0;
+        sequence = -1;
+    }
+ 
+    public void setInt( int entityId, int field, int value )
+    {
+        checkField(field);
+        values[add(entityId) * fieldCount + field] = value;
+    }
+    
+    public void setFloat( int entityId, int field, float value )
+    {
+        setInt( entityId, field, Float.floatToIntBits(value) );
+    }
+ 
+    public int getInt( int entityId, int field )
+    {
+        checkField(field);
+        int index = indexOf(entityId);
+        if( index < 0 )
+            throw new IllegalArgumentException( "Entity not in snapshot:" + entityId );
+        return values[index * fieldCount + field];
+    }
+    
+    public float getFloat( int entityId, int field )
+    {
+        return Float.intBitsToFloat( getInt(entityId, field) );
+    }
+ 
+    /**
+     *  Returns the value of a field of the entity at the specified
+     *  index.
+     */
+    public int getIntAt( int index, int field )
+    {
+        return values[index * fieldCount + field];
+    }
+ 
+    void setIntAt( int index, int field, int value )
+    {
+        values[index * fieldCount + field] = value;
+    }
+    
+    private void checkField( int field )
+    {
+        if( field < 0 || field >= fieldCount )
+            throw new IllegalArgumentException( "Field is undefined:" + field );
+    }
+ 
+    /**
+     *  Makes this snapshot a copy of the specified one, including
+     *  its sequence number.
+     */
+    public void set( Snapshot s )
+    {
+        if( s.fieldCount != fieldCount )
+            throw new IllegalArgumentException( "Field count mismatch:" + s.fieldCount + " != " + fieldCount );
+        if( ids.length < s.count ) {
+            ids = new int[s.ids.length];
+            values = new int[s.ids.length * fieldCount];
+        }
+        System.arraycopy( s.ids, 0, ids, 0, s.count );
+        System.arraycopy( s.values, 0, values, 0, s.count * fieldCount );
+        count = s.count;
+        sequence = s.sequence;
+    }
+
+    /**
+     *  Returns true if both snapshots contain the same entities
+     *  with the same field values.  Sequence numbers are ignored.
+     */
+    public boolean isSameState( Snapshot s )
+    {
+        if( s.fieldCount != fieldCount || s.count != count )
+            return false;
+        for( int i = 0; i < count; i++ ) {
+            if( ids[i] != s.ids[i] )
+                return false;
+        }
+        for( int i = 0; i < count * fieldCount; i++ ) {
+            if( values[i] != s.values[i] )
+                return false;
+        }
+        return true;
+    }
+    
+    public String toString()
+    {
+        return "Snapshot[sequence=" + sequence + ", entities=" + count + ", fields=" + fieldCount + "]";
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.snapshot;
+
+import com.jme3.network.AbstractMessage;
+import com.jme3.network.serializing.Serializable;
+
+/**
+ *  Acknowledges the latest snapshot received by a client and,
+ *  as a bit mask, which of the 32 snapshots before it were received.
+ *  Since every ack repeats the recent history, a lost ack is covered
+ *  by the next one.  Ack messages are unreliable by default.
+ *
+ *  @version   $Revision$
+ */
+@Serializable(id=SnapshotAckMessage.SERIALIZER_ID)
+public class SnapshotAckMessage extends AbstractMessage
+{
+    /**
+     *  Fixed far from the automatically assigned IDs so that
+     *  registering it does not shift the IDs of other classes.
+     */
+    public static final short SERIALIZER_ID = -32002;
+
+    private int sequence;
+    private int history;
+    
+    public SnapshotAckMessage()
+    {
+        super( false );
+    }
+    
+    public SnapshotAckMessage( int sequence, int history )
+    {
+        super( false );
+        this.sequence = sequence;
+        this.history = history;
+    }
+ 
+    /**
+     *  Returns the sequence number of the latest received snapshot.
+     */
+    public int getSequence()
+    {
+        return sequence;
+    }
+    
+    /**
+     *  Returns the received snapshots before the latest one, where bit 
+     *  n is set if snapshot getSequence() - n - 1 was received.
+     */
+    public int getHistory()
+    {
+        return history;
+    }
+    
+    /**
+     *  Returns true if this ack covers the snapshot with the specified 
+     *  sequence number.
+     */
+    public boolean isAcknowledged( int s )
+    {
+        if( s == sequence )
+            return true;
+        int n = sequence - s - 1;
+        return n >= 0 && n < 32 && (history & (1 << n)) != 0;
+    }
+    
+    public String toString()
+    {
+        return "SnapshotAckMessage[sequence=" + sequence + ", history=" + Integer.toBinaryString(history) + "]";
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.snapshot;
+
+import com.jme3.network.ConnectionListener;
+import com.jme3.network.HostedConnection;
+import com.jme3.network.Message;
+import com.jme3.network.MessageListener;
+import com.jme3.network.Server;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *  Sends snapshots to all connections of a server, each one encoded
+ *  against the latest snapshot that connection has acknowledged.
+ *  Clients decode them with a SnapshotDecoder and send back the
+ *  SnapshotAckMessage it creates.
+ *
+ *  @version   $Revision$
+ */
+public class SnapshotBroadcaster implements MessageListener<HostedConnection>, 
+                                            ConnectionListener
+{
+    private Server server;
+    private int fieldCount;
+    private ConcurrentMap<HostedConnection,SnapshotEncoder> encoders 
+                            = new ConcurrentHashMap<HostedConnection,SnapshotEncoder>();
+    
+    public SnapshotBroadcaster( Server server, int fieldCount )
+    {
+        this.server = server;
+        this.fieldCount = fieldCount;
+        SnapshotSerializer.registerMessages();
+        server.addConnectionListener( this );
+        server.addMessageListener( this, SnapshotAckMessage.class );
+    }
+ 
+    /**
+     *  Stops listening to the server.
+     */
+    public void close()
+    {
+        server.removeConnectionListener( this );
+        server.removeMessageListener( this, SnapshotAckMessage.class );
+        encoders.clear();
+    }
+ 
+    /**
+     *  Returns the encoder for the connection, creating it if needed.
+     */
+    public SnapshotEncoder getEncoder( HostedConnection conn )
+    {
+        SnapshotEncoder encoder = encoders.get(conn);
+        if( encoder == null ) {
+            encoder = new SnapshotEncoder(fieldCount);
+            SnapshotEncoder existing = encoders.putIfAbsent( conn, encoder );
+            if( existing != null )
+                return existing;
+                
+            // The server forgets the connection before notifying us
+            // so if it is gone then connectionRemoved() may already
+            // have run and the encoder would never be removed
+            if( server.getConnection(conn.getId()) != conn )
+                encoders.remove( conn, encoder );
+        }
+        return encoder;
+    }
+ 
+    /**
+     *  Encodes the snapshot for each connection and sends it.
+     *
+     *  @return The total number of snapshot data bytes sent.
+     */
+    public long broadcast( Snapshot snapshot )
+    {
+        long bytes = 0;
+        for( HostedConnection conn : server.getConnections() ) {
+            SnapshotMessage m = getEncoder(conn).encode(snapshot);
+            conn.send(m);
+            bytes += m.getLength();
+        }
+        return bytes;
+    }
+ 
+    public void messageReceived( HostedConnection source, Message m )
+    {
+        SnapshotEncoder encoder = encoders.get(source);
+        if( encoder != null ) {
+            encoder.acknowledge( (SnapshotAckMessage)m );
+        }
+    }
+ 
+    public void connectionAdded( Server server, HostedConnection conn )
+    {
+    }
+ 
+    public void connectionRemoved( Server server, HostedConnection conn )
+    {
+        encoders.remove(conn);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.snapshot;
+
+/**
+ *  Decodes the snapshots received from a SnapshotEncoder and keeps
+ *  track of which ones were received in order to acknowledge them.
+ *
+ *  <p>Snapshots older than the latest one received are dropped, as 
+ *  are snapshots whose baseline is no longer in the history, which
+ *  can only happen if the decoder's history is smaller than the 
+ *  encoder's.  Each call to decode() should be followed by sending 
+ *  createAck() back to the server.  This class is not thread safe.</p>
+ *
+ *  @see SnapshotEncoder
+ *
+ *  @version   $Revision$
+ */
+public class SnapshotDecoder
+{
+    private Snapshot[] history;
+    private Snapshot scratch;
+    private int latest = -1;
+    private int received;
+    private byte[] data;
+    private int position;
+    private int limit;
+    
+    public SnapshotDecoder( int fieldCount )
+    {
+        this( fieldCount, SnapshotEncoder.DEFAULT_HISTORY_SIZE );
+    }
+    
+    public SnapshotDecoder( int fieldCount, int historySize )
+    {
+        SnapshotSerializer.registerMessages();
+        history = new Snapshot[historySize];
+        for( int i = 0; i < historySize; i++ ) {
+            history[i] = new Snapshot(fieldCount);
+        }
+        scratch = new Snapshot(fieldCount);
+    }
+ 
+    /**
+     *  Returns the latest snapshot decoded, or null if none has been 
+     *  received yet.  The snapshot must not be modified.
+     */
+    public Snapshot getLatest()
+    {
+        return latest < 0 ? null : history[latest % history.length];
+    }
+ 
+    /**
+     *  Decodes the snapshot of the message.  The returned snapshot is
+     *  kept as a possible baseline and must not be modified, it stays
+     *  valid until as many more snapshots as the history size have 
+     *  been received.
+     *
+     *  @return The decoded snapshot or null if the message was dropped.
+     */
+    public Snapshot decode( SnapshotMessage m )
+    {
+        int sequence = m.getSequence();
+        if( sequence <= latest )
+            return null;
+            
+        Snapshot base = null;
+        if( m.getBaseline() >= 0 ) {
+            base = history[m.getBaseline() % history.length];
+            if( base.getSequence() != m.getBaseline() )
+                return null;
+        }
+ 
+        if( base == null ) {
+            scratch.clear();
+        } else {
+            scratch.set( base );
+        }
+        data = m.getData();
+        position = 0;
+        limit = m.getLength();
+        readDelta( scratch );
+        data = null;
+        scratch.setSequence( sequence );
+ 
+        // Keep the result and reuse the oldest snapshot next time
+        int slot = sequence % history.length;
+        Snapshot result = scratch;
+        scratch = history[slot];
+        history[slot] = result;
+ 
+        if( latest < 0 ) {
+            received = 0;
+        } else {
+            int shift = sequence - latest;
+            received = shift > 32 ? 0 : (int)(((long)received << shift) | (1L << (shift - 1)));
+        }
+        latest = sequence;
+        
+        return result;
+    }
+ 
+    /**
+     *  Returns an ack for the latest snapshot and the ones received
+     *  before it, or null if no snapshot has been received yet.
+     */
+    public SnapshotAckMessage createAck()
+    {
+        if( latest < 0 )
+            return null;
+        return new SnapshotAckMessage( latest, received );
+    }
+ 
+    private void readDelta( Snapshot s )
+    {
+        int fieldCount = s.getFieldCount();
+        int id = -1;
+        for( int delta = readVarInt(); delta != 0; delta = readVarInt() ) {
+            id += delta;
+            int index = s.add(id);
+            int mask = readVarInt();
+            for( int f = 0; f < fieldCount; f++ ) {
+                if( (mask & (1 << f)) != 0 ) {
+                    s.setIntAt( index, f, s.getIntAt(index, f) ^ readVarInt() );
+                }
+            }
+        }
+        
+        id = -1;
+        for( int delta = readVarInt(); delta != 0; delta = readVarInt() ) {
+            id += delta;
+            s.remove(id);
+        }
+    }
+    
+    private int readVarInt()
+    {
+        int value = 0;
+        for( int shift = 0; ; shift += 7 ) {
+            if( position >= limit || shift > 28 )
+                throw new IllegalArgumentException( "Malformed snapshot data" );
+            byte b = data[position++];
+            value |= (b & 0x7f) << shift;
+            if( (b & 0x80) == 0 )
+                return value;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.snapshot;
+
+/**
+ *  Encodes the snapshots sent to one client as deltas against the
+ *  latest snapshot the client has acknowledged.
+ *
+ *  <p>Each snapshot gets the next sequence number and a copy is kept
+ *  in a history of recent snapshots.  Only the entities that were added,
+ *  changed, or removed since the baseline are written.  For changed
+ *  entities a bit mask tells which fields changed and each of those 
+ *  is written as the XOR with its baseline value in a variable length
+ *  int, so small changes to floats take fewer bytes too.  Until the 
+ *  client acknowledges a snapshot, or if its last acknowledged snapshot
+ *  has left the history, snapshots are encoded against an empty one.</p>
+ *
+ *  <p>Since each delta repeats every change the client hasn't 
+ *  acknowledged yet, any snapshot that arrives can be decoded no matter
+ *  how many were lost before it, which makes this suitable for unreliable 
+ *  channels.  The methods are synchronized so that acks can be passed
+ *  in from the network threads.</p>
+ *
+ *  @see SnapshotDecoder
+ *
+ *  @version   $Revision$
+ */
+public class SnapshotEncoder
+{
+    /**
+     *  The default number of snapshots kept for use as baselines. 
+     */
+    public static final int DEFAULT_HISTORY_SIZE = 32;
+    
+    /**
+     *  The maximum size of the data of a snapshot message, so that
+     *  it fits in a message frame.
+     */
+    public static final int MAX_DATA_SIZE = 32000;
+ 
+    private Snapshot[] history;
+    private int nextSequence = 0;
+    private int baseline = -1;
+    private byte[] buffer = new byte[1024];
+    private int position;
+    private int[] removed = new int[16];
+    
+    public SnapshotEncoder( int fieldCount )
+    {
+        this( fieldCount, DEFAULT_HISTORY_SIZE );
+    }
+    
+    public SnapshotEncoder( int fieldCount, int historySize )
+    {
+        history = new Snapshot[historySize];
+        for( int i = 0; i < historySize; i++ ) {
+            history[i] = new Snapshot(fieldCount);
+        }
+    }
+ 
+    /**
+     *  Returns the sequence number of the snapshot that the next one 
+     *  will be encoded against, or -1 if there is none.
+     */
+    public synchronized int getBaseline()
+    {
+        return getBaselineSnapshot() == null ? -1 : baseline;
+    }
+    
+    private Snapshot getBaselineSnapshot()
+    {
+        if( baseline < 0 || nextSequence - baseline >= history.length )
+            return null;
+        return history[baseline % history.length];
+    }
+ 
+    /**
+     *  Encodes the snapshot as a delta against the current baseline
+     *  and assigns it the next sequence number.  The snapshot itself
+     *  is not modified and can be reused once this returns.
+     */
+    public synchronized SnapshotMessage encode( Snapshot snapshot )
+    {
+        Snapshot base = getBaselineSnapshot();
+        int sequence = nextSequence++;
+        
+        position = 0;
+        writeDelta( base, snapshot );
+        if( position > MAX_DATA_SIZE )
+            throw new IllegalStateException( "Snapshot delta is too large:" + position + " bytes" );
+ 
+        Snapshot copy = history[sequence % history.length];
+        copy.set( snapshot );
+        copy.setSequence( sequence );
+ 
+        byte[] data = new byte[position];
+        System.arraycopy( buffer, 0, data, 0, position );
+        return new SnapshotMessage( sequence, base == null ? -1 : base.getSequence(), data, position );
+    }
+ 
+    /**
+     *  Moves the baseline to the newest snapshot covered by the ack.
+     */
+    public synchronized void acknowledge( SnapshotAckMessage ack )
+    {
+        int oldest = Math.max( baseline + 1, nextSequence - history.length + 1 );
+        for( int s = nextSequence - 1; s >= oldest; s-- ) {
+            if( ack.isAcknowledged(s) ) {
+                baseline = s;
+                return;
+            }
+        }
+    }
+ 
+    private void writeDelta( Snapshot base, Snapshot current )
+    {
+        int fieldCount = current.getFieldCount();
+        int baseCount = base == null ? 0 : base.size();
+        int removedCount = 0;
+        int previous = -1;
+        int j = 0;
+        
+        for( int i = 0; i < current.size(); i++ ) {
+            int id = current.getEntityId(i);
+            
+            // Entities of the baseline that come before were removed
+            while( j < baseCount && base.getEntityId(j) < id ) {
+                if( removedCount == removed.length ) {
+                    int[] bigger = new int[removedCount * 2];
+                    System.arraycopy( removed, 0, bigger, 0, removedCount );
+                    removed = bigger;
+                }
+                removed[removedCount++] = base.getEntityId(j++);
+            }
+            
+            boolean existing = j < baseCount && base.getEntityId(j) == id;
+            int mask = 0;
+            for( int f = 0; f < fieldCount; f++ ) {
+                int old = existing ? base.getIntAt(j, f) : 0;
+                if( current.getIntAt(i, f) != old )
+                    mask |= 1 << f;
+            }
+            if( existing && mask == 0 ) {
+                j++;
+                continue;
+            }
+ 
+            writeVarInt( id - previous );
+            previous = id;
+            writeVarInt( mask );
+            for( int f = 0; f < fieldCount; f++ ) {
+                if( (mask & (1 << f)) == 0 )
+                    continue;
+                int old = existing ? base.getIntAt(j, f) : 0;
+                writeVarInt( current.getIntAt(i, f) ^ old );
+            }
+            if( existing )
+                j++;
+        }
+        writeVarInt( 0 );
+ 
+        previous = -1;
+        for( int i = 0; i < removedCount; i++ ) {
+            writeVarInt( removed[i] - previous );
+            previous = removed[i];
+        }
+        for( ; j < baseCount; j++ ) {
+            writeVarInt( base.getEntityId(j) - previous );
+            previous = base.getEntityId(j);
+        }
+        writeVarInt( 0 );
+    }
+ 
+    /**
+     *  Writes the int as unsigned, 7 bits per byte.
+     */
+    private void writeVarInt( int value )
+    {
+        if( position + 5 > buffer.length ) {
+            byte[] bigger = new byte[buffer.length * 2];
+            System.arraycopy( buffer, 0, bigger, 0, position );
+            buffer = bigger;
+        }
+        while( (value & ~0x7f) != 0 ) {
+            buffer[position++] = (byte)((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte)value;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.snapshot;
+
+import com.jme3.network.AbstractMessage;
+import com.jme3.network.serializing.Serializable;
+
+/**
+ *  Carries a snapshot encoded as a delta against a baseline snapshot
+ *  that the receiver has acknowledged, or against an empty snapshot.
+ *  Snapshot messages are unreliable by default.
+ *
+ *  @see SnapshotEncoder
+ *  @see SnapshotDecoder
+ *
+ *  @version   $Revision$
+ */
+@Serializable(serializer=SnapshotSerializer.class, id=SnapshotMessage.SERIALIZER_ID)
+public class SnapshotMessage extends AbstractMessage
+{
+    /**
+     *  Fixed far from the automatically assigned IDs so that
+     *  registering it does not shift the IDs of other classes.
+     */
+    public static final short SERIALIZER_ID = -32001;
+
+    private int sequence;
+    private int baseline;
+    private byte[] data;
+    private int length;
+    
+    public SnapshotMessage()
+    {
+        super( false );
+    }
+    
+    public SnapshotMessage( int sequence, int baseline, byte[] data, int length )
+    {
+        super( false );
+        this.sequence = sequence;
+        this.baseline = baseline;
+        this.data = data;
+        this.length = length;
+    }
+
+    /**
+     *  Returns the sequence number of the encoded snapshot.
+     */
+    public int getSequence()
+    {
+        return sequence;
+    }
+    
+    /**
+     *  Returns the sequence number of the snapshot that the data
+     *  is a delta against, or -1 if it is relative to an empty
+     *  snapshot.
+     */
+    public int getBaseline()
+    {
+        return baseline;
+    }
+
+    /**
+     *  Returns the encoded delta, which takes the first getLength()
+     *  bytes of the array.
+     */
+    public byte[] getData()
+    {
+        return data;
+    }
+    
+    public int getLength()
+    {
+        return length;
+    }
+    
+    public String toString()
+    {
+        return "SnapshotMessage[sequence=" + sequence + ", baseline=" + baseline + ", length=" + length + "]";
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.network.snapshot;
+
+import com.jme3.network.serializing.Serializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ *  Serializes SnapshotMessages, copying the delta data in bulk.
+ *
+ *  @version   $Revision$
+ */
+public class SnapshotSerializer extends Serializer
+{
+    /**
+     *  Registers SnapshotMessage and SnapshotAckMessage under their
+     *  fixed IDs.  SnapshotBroadcaster and SnapshotDecoder call this
+     *  when created, code sending the messages without them must call
+     *  it on both ends before the first message is sent.
+     */
+    public static void registerMessages()
+    {
+        if( getExactSerializerRegistration(SnapshotMessage.class) == null )
+            registerClassForId( SnapshotMessage.SERIALIZER_ID, SnapshotMessage.class, 
+                                new SnapshotSerializer() );
+        if( getExactSerializerRegistration(SnapshotAckMessage.class) == null )
+            registerClass(SnapshotAckMessage.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T readObject( ByteBuffer data, Class<T> c ) throws IOException
+    {
+        int sequence = data.getInt();
+        int baseline = data.getInt();
+        int length = data.getInt();
+        if( length < 0 || length > data.remaining() )
+            throw new IOException( "Invalid snapshot length:" + length );
+        byte[] bytes = new byte[length];
+        data.get( bytes );
+        return (T)new SnapshotMessage( sequence, baseline, bytes, length );
+    }
+
+    public void writeObject( ByteBuffer buffer, Object object ) throws IOException
+    {
+        SnapshotMessage m = (SnapshotMessage)object;
+        buffer.putInt( m.getSequence() );
+        buffer.putInt( m.getBaseline() );
+        buffer.putInt( m.getLength() );
+        buffer.put( m.getData(), 0, m.getLength() );
+    }
+}
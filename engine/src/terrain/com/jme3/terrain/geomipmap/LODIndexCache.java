@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.terrain.geomipmap;
+
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Format;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.VertexBuffer.Usage;
+import com.jme3.scene.mesh.IndexBuffer;
+import java.nio.Buffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of the stitched index buffers used by terrain patches.
+ * The index pattern of a patch only depends on its size, its LOD and the
+ * LOD of its four neighbours, so every patch with the same combination can
+ * share one index buffer. Buffers are built the first time a combination
+ * is needed and are never modified afterwards.
+ * <p>
+ * The cached {@link VertexBuffer}s are set directly on the patch meshes,
+ * which means their data is uploaded to the GPU only once no matter how many
+ * patches or terrains use them. They must not be modified.
+ */
+public final class LODIndexCache {
+
+    private static final ConcurrentMap<Key, VertexBuffer> buffers = new ConcurrentHashMap<Key, VertexBuffer>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private LODIndexCache() {
+    }
+
+    /**
+     * Returns the shared index buffer for a patch stitched with
+     * {@link LODGeomap#writeIndexArrayLodDiff}.
+     *
+     * @param geomap any geomap that has the size of the patch
+     * @param lod the step of the patch, 2^lod
+     * @param rightLod true if the right neighbour has a lower detail
+     * @param topLod true if the top neighbour has a lower detail
+     * @param leftLod true if the left neighbour has a lower detail
+     * @param bottomLod true if the bottom neighbour has a lower detail
+     */
+    public static VertexBuffer getLodDiffIndexBuffer(LODGeomap geomap, int lod, boolean rightLod, boolean topLod, boolean leftLod, boolean bottomLod) {
+        Key key = new Key(false, geomap.getWidth(), lod, rightLod ? 1 : 0, topLod ? 1 : 0, leftLod ? 1 : 0, bottomLod ? 1 : 0);
+        VertexBuffer vb = buffers.get(key);
+        if (vb != null) {
+            hits.incrementAndGet();
+            return vb;
+        }
+        IndexBuffer ib = geomap.writeIndexArrayLodDiff(lod, rightLod, topLod, leftLod, bottomLod, 0);
+        return store(key, ib);
+    }
+
+    /**
+     * Returns the shared index buffer for a patch stitched with
+     * {@link LODGeomap#writeIndexArrayLodVariable}.
+     *
+     * @param geomap any geomap that has the size of the patch
+     * @param lod the step of the patch, 2^lod
+     * @param rightLod the step of the right neighbour
+     * @param topLod the step of the top neighbour
+     * @param leftLod the step of the left neighbour
+     * @param bottomLod the step of the bottom neighbour
+     */
+    public static VertexBuffer getLodVariableIndexBuffer(LODGeomap geomap, int lod, int rightLod, int topLod, int leftLod, int bottomLod) {
+        Key key = new Key(true, geomap.getWidth(), lod, rightLod, topLod, leftLod, bottomLod);
+        VertexBuffer vb = buffers.get(key);
+        if (vb != null) {
+            hits.incrementAndGet();
+            return vb;
+        }
+        IndexBuffer ib = geomap.writeIndexArrayLodVariable(lod, rightLod, topLod, leftLod, bottomLod, 0);
+        return store(key, ib);
+    }
+
+    private static VertexBuffer store(Key key, IndexBuffer ib) {
+        misses.incrementAndGet();
+
+        Buffer data = ib.getBuffer();
+        Format format = data instanceof IntBuffer ? Format.UnsignedInt : Format.UnsignedShort;
+        VertexBuffer vb = new VertexBuffer(Type.Index);
+        vb.setupData(Usage.Static, 3, format, data);
+
+        // Another thread may have built the same buffer in the meantime
+        VertexBuffer existing = buffers.putIfAbsent(key, vb);
+        return existing != null ? existing : vb;
+    }
+
+    /**
+     * @return the number of index buffers held by the cache
+     */
+    public static int getSize() {
+        return buffers.size();
+    }
+
+    /**
+     * @return the number of requests served from the cache
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests that had to build a new index buffer
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Removes all buffers from the cache. Meshes that already use
+     * one of them keep it.
+     */
+    public static void clear() {
+        buffers.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    private static final class Key {
+        private final boolean variable;
+        private final int size, lod, right, top, left, bottom;
+
+        Key(boolean variable, int size, int lod, int right, int top, int left, int bottom) {
+            this.variable = variable;
+            this.size = size;
+            this.lod = lod;
+            this.right = right;
+            this.top = top;
+            this.left = left;
+            this.bottom = bottom;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return variable == other.variable && size == other.size && lod == other.lod
+                    && right == other.right && top == other.top
+                    && left == other.left && bottom == other.bottom;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = variable ? 1 : 0;
+            hash = 31 * hash + size;
+            hash = 31 * hash + lod;
+            hash = 31 * hash + right;
+            hash = 31 * hash + top;
+            hash = 31 * hash + left;
+            hash = 31 * hash + bottom;
+            return hash;
+        }
+    }
+}
@@ -123,6 +123,14 @@ public class MultiTerrainLodControl extends TerrainLodControl {
             
             setLodCalcRunning(true);
             
+            if (isParallelLod()) {
+                try {
+                    return calculateLodParallel(terrains, camLocations, lodCalculator, false);
+                } finally {
+                    setLodCalcRunning(false);
+                }
+            }
+
             HashMap<String,UpdatedTerrainPatch> updated = new HashMap<String,UpdatedTerrainPatch>();
             
             for (TerrainQuad terrainQuad : terrains) {
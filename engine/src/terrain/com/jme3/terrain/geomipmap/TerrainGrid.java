@@ -51,13 +51,17 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -69,7 +73,8 @@ import java.util.logging.Logger;
  * TerrainGrid will piggyback on the TerrainLodControl so it can use the camera for its
  * updates as well. It does this in the overwritten update() method.
  * </p><p>
- * It uses an LRU (Least Recently Used) cache of 16 terrain tiles (full TerrainQuadTrees). The
+ * It uses an LRU (Least Recently Used) cache of terrain tiles (full TerrainQuadTrees), bounded
+ * by the memory the tiles use, see {@link TerrainGridTileCache}. The grid uses 16 tiles and the
  * center 4 are the ones that are visible. As the camera moves, it checks what camera cell it is in
  * and will attach the now visible tiles.
  * </p><p>
@@ -96,6 +101,8 @@ import java.util.logging.Logger;
  * The tile loading is done on a background thread, and once the tile is loaded, then it is
  * attached to the qrid quad tree, back on the OGL thread. It will grab the terrain quad from
  * the LRU cache if it exists. If it does not exist, it will load in the new TerrainQuad tile.
+ * When the camera moves into a new cell, the tiles needed one cell further in the same direction
+ * are prefetched at a lower priority, and requests for tiles that are out of reach are cancelled.
  * </p><p>
  * The loading of new tiles triggers events for any TerrainGridListeners. The events are:
  * <ul>
@@ -119,13 +126,100 @@ public class TerrainGrid extends TerrainQuad {
     protected Vector3f[] quadIndex;
     protected Set<TerrainGridListener> listeners = new HashSet<TerrainGridListener>();
     protected Material material;
-    //cache  needs to be 1 row (4 cells) larger than what we care is cached
-    protected LRUCache<Vector3f, TerrainQuad> cache = new LRUCache<Vector3f, TerrainQuad>(20);
+    // bounded by the memory used by the tiles, see initData() for the default budget
+    protected TerrainGridTileCache cache = new TerrainGridTileCache(Long.MAX_VALUE);
     protected int cellsLoaded = 0;
     protected int[] gridOffset;
     protected boolean runOnce = false;
     protected ExecutorService cacheExecutor;
 
+    // priorities of tile requests, lower values are loaded first
+    protected static final int PRIORITY_VISIBLE = 0;
+    protected static final int PRIORITY_GRID = 1;
+    protected static final int PRIORITY_PREFETCH = 2;
+
+    private ThreadPoolExecutor tileExecutor;
+    private int tileLoaderThreads = 1;
+    private boolean prefetchEnabled = true;
+    private final ConcurrentHashMap<Vector3f, TileRequest> pendingTiles = new ConcurrentHashMap<Vector3f, TileRequest>();
+    private final AtomicLong requestCounter = new AtomicLong();
+    private volatile Vector3f requestedCamCell;
+
+    private final AtomicLong tileHits = new AtomicLong();
+    private final AtomicLong tileMisses = new AtomicLong();
+    private final AtomicLong tilesLoaded = new AtomicLong();
+    private final AtomicLong tilesCancelled = new AtomicLong();
+    private final AtomicLong totalTileReadyTime = new AtomicLong();
+    private final AtomicLong maxTileReadyTime = new AtomicLong();
+
+    /**
+     * Loads one tile on the tile loader threads. Requests are ordered by
+     * priority, then by age, and can be cancelled until they start.
+     */
+    protected class TileRequest extends FutureTask<TerrainQuad> implements Comparable<TileRequest> {
+
+        protected final Vector3f cell;
+        protected final int priority;
+        private final long sequence = requestCounter.incrementAndGet();
+        private final long requestTime = System.nanoTime();
+        private volatile boolean started = false;
+
+        public TileRequest(final Vector3f cell, int priority) {
+            super(new Callable<TerrainQuad>() {
+                public TerrainQuad call() throws Exception {
+                    return loadTile(cell);
+                }
+            });
+            this.cell = cell;
+            this.priority = priority;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            super.run();
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        @Override
+        protected void set(TerrainQuad quad) {
+            // cache the tile before anyone waiting on it wakes up
+            cache.put(cell, quad);
+            long time = System.nanoTime() - requestTime;
+            tilesLoaded.incrementAndGet();
+            totalTileReadyTime.addAndGet(time);
+            long max = maxTileReadyTime.get();
+            while (time > max && !maxTileReadyTime.compareAndSet(max, time)) {
+                max = maxTileReadyTime.get();
+            }
+            super.set(quad);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            log.log(Level.WARNING, "Failed to load terrain tile " + cell, t);
+            super.setException(t);
+        }
+
+        @Override
+        protected void done() {
+            pendingTiles.remove(cell, this);
+            if (isCancelled()) {
+                tilesCancelled.incrementAndGet();
+            }
+        }
+
+        public int compareTo(TileRequest other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
     protected class UpdateQuadCache implements Runnable {
 
         protected final Vector3f location;
@@ -138,34 +232,55 @@ public class TerrainGrid extends TerrainQuad {
          * This is executed if the camera has moved into a new CameraCell and will load in
          * the new TerrainQuad tiles to be children of this TerrainGrid parent.
          * It will first check the LRU cache to see if the terrain tile is already there,
-         * if it is not there, it will load it in and then cache that tile.
+         * if it is not there, it requests it from the tile loader threads and waits for it.
          * The terrain tiles get added to the quad tree back on the OGL thread using the
          * attachQuadAt() method. It also resets any cached values in TerrainQuad (such as
          * neighbours).
          */
         public void run() {
+            if (!location.equals(requestedCamCell)) {
+                // the camera has already moved on, a newer update will follow
+                return;
+            }
+
+            // request all missing tiles first so that they load in the
+            // order of their priority
+            TerrainQuad[] quads = new TerrainQuad[16];
+            TileRequest[] requests = new TileRequest[16];
+            for (int quadIdx = 0; quadIdx < 16; quadIdx++) {
+                Vector3f quadCell = location.add(quadIndex[quadIdx]);
+                quads[quadIdx] = cache.get(quadCell);
+                if (quads[quadIdx] != null) {
+                    tileHits.incrementAndGet();
+                } else {
+                    tileMisses.incrementAndGet();
+                    requests[quadIdx] = requestTile(quadCell, isCenter(quadIdx) ? PRIORITY_VISIBLE : PRIORITY_GRID);
+                }
+            }
+
             for (int i = 0; i < 4; i++) {
                 for (int j = 0; j < 4; j++) {
                     int quadIdx = i * 4 + j;
                     final Vector3f quadCell = location.add(quadIndex[quadIdx]);
-                    TerrainQuad q = cache.get(quadCell);
+                    TerrainQuad q = quads[quadIdx];
                     if (q == null) {
-                        if (heightMapGrid != null) {
-                            // create the new Quad since it doesn't exist
-                            HeightMap heightMapAt = heightMapGrid.getHeightMapAt(quadCell);
-                            q = new TerrainQuad(getName() + "Quad" + quadCell, patchSize, quadSize, heightMapAt == null ? null : heightMapAt.getHeightMap());
-                            q.setMaterial(material.clone());
-                            log.log(Level.FINE, "Loaded TerrainQuad {0} from HeightMapGrid", q.getName());
-                        } else if (gridTileLoader != null) {
-                            q = gridTileLoader.getTerrainQuadAt(quadCell);
-                            // only clone the material to the quad if it doesn't have a material of its own
-                            if(q.getMaterial()==null) q.setMaterial(material.clone());
-                            log.log(Level.FINE, "Loaded TerrainQuad {0} from TerrainQuadGrid", q.getName());
+                        try {
+                            q = requests[quadIdx].get();
+                        } catch (CancellationException e) {
+                            // the camera has moved on and the tile is not needed anymore
+                            return;
+                        } catch (ExecutionException e) {
+                            // already logged by the request
+                            continue;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
                         }
                     }
-                    cache.put(quadCell, q);
+                    if (q == null) {
+                        continue;
+                    }
 
-                    
                     final int quadrant = getQuadrant(quadIdx);
                     final TerrainQuad newQuad = q;
                     
@@ -211,6 +326,85 @@ public class TerrainGrid extends TerrainQuad {
         }
     }
 
+    /**
+     * Loads the tile at the given cell from the HeightMapGrid or the
+     * TerrainGridTileLoader. Runs on the tile loader threads.
+     */
+    protected TerrainQuad loadTile(Vector3f quadCell) {
+        TerrainQuad q = null;
+        if (heightMapGrid != null) {
+            // create the new Quad since it doesn't exist
+            HeightMap heightMapAt = heightMapGrid.getHeightMapAt(quadCell);
+            q = new TerrainQuad(getName() + "Quad" + quadCell, patchSize, quadSize, heightMapAt == null ? null : heightMapAt.getHeightMap());
+            q.setMaterial(material.clone());
+            log.log(Level.FINE, "Loaded TerrainQuad {0} from HeightMapGrid", q.getName());
+        } else if (gridTileLoader != null) {
+            q = gridTileLoader.getTerrainQuadAt(quadCell);
+            // only clone the material to the quad if it doesn't have a material of its own
+            if(q.getMaterial()==null) q.setMaterial(material.clone());
+            log.log(Level.FINE, "Loaded TerrainQuad {0} from TerrainQuadGrid", q.getName());
+        }
+        return q;
+    }
+
+    /**
+     * Requests the tile at the given cell to be loaded in the background.
+     * If the tile is already requested, the existing request is returned,
+     * unless it has a lower priority and has not started yet.
+     */
+    protected TileRequest requestTile(Vector3f cell, int priority) {
+        synchronized (pendingTiles) {
+            TileRequest request = pendingTiles.get(cell);
+            if (request != null) {
+                if (request.priority <= priority || request.isStarted()) {
+                    return request;
+                }
+                request.cancel(false);
+            }
+            request = new TileRequest(cell, priority);
+            pendingTiles.put(cell, request);
+            getTileExecutor().execute(request);
+            return request;
+        }
+    }
+
+    /**
+     * Starts loading the tiles the grid will need after the camera
+     * moves one more cell in the given direction.
+     */
+    protected void prefetchTiles(Vector3f camCell, int dx, int dz) {
+        Vector3f next = camCell.add(dx, 0, dz);
+        for (int quadIdx = 0; quadIdx < 16; quadIdx++) {
+            Vector3f quadCell = next.add(quadIndex[quadIdx]);
+            if (!isInGrid(quadCell, camCell) && cache.get(quadCell) == null) {
+                requestTile(quadCell, PRIORITY_PREFETCH);
+            }
+        }
+    }
+
+    /**
+     * Cancels the requests for tiles that are neither in the grid around
+     * the camera cell nor in the grid around the cell it is moving to.
+     */
+    protected void cancelStaleRequests(Vector3f camCell, Vector3f nextCell) {
+        for (TileRequest request : pendingTiles.values()) {
+            if (!request.isStarted() && !isInGrid(request.cell, camCell)
+                    && (nextCell == null || !isInGrid(request.cell, nextCell))) {
+                request.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * @return true if the cell is one of the 16 cells of the grid
+     * around the camera cell
+     */
+    protected boolean isInGrid(Vector3f cell, Vector3f camCell) {
+        float x = cell.x - camCell.x;
+        float z = cell.z - camCell.z;
+        return x >= -1 && x <= 2 && z >= -1 && z <= 2;
+    }
+
     protected boolean isCenter(int quadIndex) {
         return quadIndex == 9 || quadIndex == 5 || quadIndex == 10 || quadIndex == 6;
     }
@@ -264,6 +458,11 @@ public class TerrainGrid extends TerrainQuad {
         this.totalSize = maxVisibleSize;
         this.gridOffset = new int[]{0, 0};
 
+        // By default the cache fits 25 tiles: the 4x4 grid, the tiles that
+        // get prefetched and a few more. A tile needs about 64 bytes per
+        // vertex for its vertex buffers and heightmap.
+        cache.setMaxBytes(25L * quadSize * quadSize * 64);
+
         /*
          *        -z
          *         | 
@@ -435,11 +634,145 @@ public class TerrainGrid extends TerrainQuad {
             cacheExecutor = createExecutorService();
         }
 
+        requestedCamCell = camCell;
         cacheExecutor.submit(new UpdateQuadCache(camCell));
 
+        // Load the tiles ahead of the camera in the background, the
+        // requests that are out of reach now are dropped.
+        Vector3f nextCell = null;
+        if (prefetchEnabled && Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && (dx != 0 || dy != 0)) {
+            nextCell = camCell.add(dx, 0, dy);
+            prefetchTiles(camCell, dx, dy);
+        }
+        cancelStaleRequests(camCell, nextCell);
+
         this.currentCamCell = camCell;
     }
 
+    /**
+     * Returns the executor that loads the tiles, it is created on first use
+     * with the number of threads set by {@link #setTileLoaderThreads(int) }.
+     */
+    protected synchronized ThreadPoolExecutor getTileExecutor() {
+        if (tileExecutor == null) {
+            ThreadFactory threadFactory = new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread th = new Thread(r);
+                    th.setName("jME TerrainGrid Tile Loader");
+                    th.setDaemon(true);
+                    return th;
+                }
+            };
+            tileExecutor = new ThreadPoolExecutor(tileLoaderThreads, tileLoaderThreads,
+                                    0L, TimeUnit.MILLISECONDS,
+                                    new PriorityBlockingQueue<Runnable>(),
+                                    threadFactory);
+        }
+        return tileExecutor;
+    }
+
+    /**
+     * Sets the number of threads that load tiles, 1 by default. Only use
+     * more than one if the HeightMapGrid or TerrainGridTileLoader can be
+     * used from several threads at once. Must be called before the grid
+     * is first updated.
+     */
+    public void setTileLoaderThreads(int threads) {
+        this.tileLoaderThreads = threads;
+    }
+
+    public int getTileLoaderThreads() {
+        return tileLoaderThreads;
+    }
+
+    /**
+     * If true (the default), the tiles the grid will need when the camera
+     * keeps moving in the same direction are loaded before the camera gets
+     * into the next cell.
+     */
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        this.prefetchEnabled = prefetchEnabled;
+    }
+
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    /**
+     * @return the cache of the loaded tiles, its byte budget can be changed
+     * with {@link TerrainGridTileCache#setMaxBytes(long) }
+     */
+    public TerrainGridTileCache getTileCache() {
+        return cache;
+    }
+
+    /**
+     * @return the number of times a tile needed by the grid was already
+     * in the cache
+     */
+    public long getTileHits() {
+        return tileHits.get();
+    }
+
+    /**
+     * @return the number of times a tile needed by the grid had to be
+     * waited for
+     */
+    public long getTileMisses() {
+        return tileMisses.get();
+    }
+
+    /**
+     * @return the ratio of tiles needed by the grid that were already in
+     * the cache, or 0 if no tile was needed yet
+     */
+    public float getTileHitRate() {
+        long hits = tileHits.get();
+        long total = hits + tileMisses.get();
+        return total == 0 ? 0 : (float) hits / total;
+    }
+
+    /**
+     * @return the number of tiles loaded by the tile loader threads
+     */
+    public long getTilesLoaded() {
+        return tilesLoaded.get();
+    }
+
+    /**
+     * @return the number of tile requests that were cancelled before they
+     * started, because the camera moved away
+     */
+    public long getTilesCancelled() {
+        return tilesCancelled.get();
+    }
+
+    /**
+     * @return the average time in milliseconds from the request of a tile
+     * until it is loaded
+     */
+    public float getAverageTileReadyTime() {
+        long loaded = tilesLoaded.get();
+        return loaded == 0 ? 0 : totalTileReadyTime.get() / (loaded * 1000000f);
+    }
+
+    /**
+     * @return the longest time in milliseconds from the request of a tile
+     * until it was loaded
+     */
+    public float getMaxTileReadyTime() {
+        return maxTileReadyTime.get() / 1000000f;
+    }
+
+    public void resetTileStatistics() {
+        tileHits.set(0);
+        tileMisses.set(0);
+        tilesLoaded.set(0);
+        tilesCancelled.set(0);
+        totalTileReadyTime.set(0);
+        maxTileReadyTime.set(0);
+    }
+
     public void addListener(TerrainGridListener listener) {
         this.listeners.add(listener);
     }
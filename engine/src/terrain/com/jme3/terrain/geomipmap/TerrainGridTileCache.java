@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.terrain.geomipmap;
+
+import com.jme3.asset.cache.BoundedAssetCache;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The cache of terrain tiles used by {@link TerrainGrid}. Instead of a fixed
+ * number of tiles it holds as many tiles as fit in a budget of bytes, using
+ * the size of their meshes and heightmaps. When the budget is exceeded the
+ * least recently used tiles are removed, except for tiles that are attached
+ * to the scene.
+ * <p>
+ * This class is thread-safe. All methods of this class are synchronized.
+ */
+public class TerrainGridTileCache {
+
+    private final LinkedHashMap<Vector3f, Entry> map = new LinkedHashMap<Vector3f, Entry>(32, 0.75f, true);
+    private long maxBytes;
+    private long usedBytes;
+
+    private static final class Entry {
+        final TerrainQuad quad;
+        final long size;
+
+        Entry(TerrainQuad quad, long size) {
+            this.quad = quad;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Creates a tile cache.
+     *
+     * @param maxBytes the number of bytes the tiles may use
+     */
+    public TerrainGridTileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Estimates the memory used by a terrain tile: its vertex buffers and
+     * the heightmaps of its patches.
+     */
+    public static long estimateSize(TerrainQuad quad) {
+        return BoundedAssetCache.estimateSize(quad) + estimateHeightMapSize(quad);
+    }
+
+    private static long estimateHeightMapSize(Spatial spatial) {
+        if (spatial instanceof TerrainPatch) {
+            int size = ((TerrainPatch) spatial).getSize();
+            return (long) size * size * 4;
+        } else if (spatial instanceof TerrainQuad) {
+            long size = 0;
+            for (Spatial child : ((TerrainQuad) spatial).getChildren()) {
+                size += estimateHeightMapSize(child);
+            }
+            return size;
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieves a tile from the cache, it becomes the most recently used one.
+     *
+     * @return the tile at the cell, or null if it is not in the cache
+     */
+    public synchronized TerrainQuad get(Vector3f cell) {
+        Entry entry = map.get(cell);
+        return entry != null ? entry.quad : null;
+    }
+
+    /**
+     * Adds a tile to the cache, replacing the tile at the same cell.
+     * Least recently used tiles are removed if the cache is then over
+     * its budget.
+     */
+    public synchronized void put(Vector3f cell, TerrainQuad quad) {
+        Entry old = map.remove(cell);
+        if (old != null) {
+            usedBytes -= old.size;
+        }
+        if (quad != null) {
+            Entry entry = new Entry(quad, estimateSize(quad));
+            map.put(cell, entry);
+            usedBytes += entry.size;
+        }
+        evict();
+    }
+
+    /**
+     * Removes the tile at the given cell.
+     */
+    public synchronized TerrainQuad remove(Vector3f cell) {
+        Entry entry = map.remove(cell);
+        if (entry == null) {
+            return null;
+        }
+        usedBytes -= entry.size;
+        return entry.quad;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = map.values().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.quad.getParent() != null) {
+                // visible tiles stay, they would only be loaded again
+                continue;
+            }
+            it.remove();
+            usedBytes -= entry.size;
+        }
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public synchronized void clear() {
+        map.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * @return the number of tiles currently in the cache
+     */
+    public synchronized int usedEntries() {
+        return map.size();
+    }
+
+    /**
+     * @return the estimated number of bytes used by the tiles in the cache
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the byte budget of the cache. Tiles are removed right away
+     * if the cache is over the new budget.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * @return a copy of the cells and tiles in the cache, least recently
+     * used first
+     */
+    public synchronized Map<Vector3f, TerrainQuad> getAll() {
+        Map<Vector3f, TerrainQuad> all = new LinkedHashMap<Vector3f, TerrainQuad>(map.size() * 2);
+        for (Map.Entry<Vector3f, Entry> entry : map.entrySet()) {
+            all.put(entry.getKey(), entry.getValue().quad);
+        }
+        return all;
+    }
+}
@@ -56,6 +56,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -92,6 +93,10 @@ public class TerrainLodControl extends AbstractControl {
     
     protected ExecutorService executor;
     protected Future<HashMap<String, UpdatedTerrainPatch>> indexer;
+
+    private static ExecutorService sharedLodExecutor;
+    private ExecutorService lodExecutor;
+    private boolean parallelLod = Runtime.getRuntime().availableProcessors() > 1;
     
     public TerrainLodControl() {
     }
@@ -119,6 +124,64 @@ public class TerrainLodControl extends AbstractControl {
     protected void controlRender(RenderManager rm, ViewPort vp) {
     }
     
+    /**
+     * Returns the pool that splits the LOD calculation of all terrain
+     * controls into parallel tasks, unless a control was given its own pool
+     * with {@link #setLodExecutor(java.util.concurrent.ExecutorService) }.
+     * By default it has one thread per processor.
+     */
+    public static synchronized ExecutorService getSharedLodExecutor() {
+        if (sharedLodExecutor == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            sharedLodExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private int count = 0;
+
+                public Thread newThread(Runnable r) {
+                    Thread th = new Thread(r);
+                    th.setName("jME Terrain LOD Worker-" + (++count));
+                    th.setDaemon(true);
+                    return th;
+                }
+            });
+        }
+        return sharedLodExecutor;
+    }
+
+    /**
+     * Replaces the pool shared by all terrain controls. The previous pool
+     * is not shut down.
+     */
+    public static synchronized void setSharedLodExecutor(ExecutorService executor) {
+        sharedLodExecutor = executor;
+    }
+
+    /**
+     * Sets the pool used by this control to run the LOD calculation in
+     * parallel, or null to use the shared one. It must not be the
+     * executor that runs the LOD thread itself, since that thread waits
+     * for the tasks.
+     */
+    public void setLodExecutor(ExecutorService lodExecutor) {
+        this.lodExecutor = lodExecutor;
+    }
+
+    public ExecutorService getLodExecutor() {
+        return lodExecutor != null ? lodExecutor : getSharedLodExecutor();
+    }
+
+    /**
+     * If true (the default on multi-core machines), the LOD of the
+     * sub-quads of the terrain is calculated in parallel on the
+     * LOD executor.
+     */
+    public void setParallelLod(boolean parallelLod) {
+        this.parallelLod = parallelLod;
+    }
+
+    public boolean isParallelLod() {
+        return parallelLod;
+    }
+
     protected ExecutorService createExecutorService() {
         return Executors.newSingleThreadExecutor(new ThreadFactory() {
             public Thread newThread(Runnable r) {
@@ -372,6 +435,16 @@ public class TerrainLodControl extends AbstractControl {
 
             TerrainQuad terrainQuad = (TerrainQuad)getSpatial();
             
+            if (isParallelLod()) {
+                List<TerrainQuad> terrains = new ArrayList<TerrainQuad>(1);
+                terrains.add(terrainQuad);
+                try {
+                    return calculateLodParallel(terrains, camLocations, lodCalculator, true);
+                } finally {
+                    setLodCalcRunning(false);
+                }
+            }
+
             // go through each patch and calculate its LOD based on camera distance
             HashMap<String,UpdatedTerrainPatch> updated = new HashMap<String,UpdatedTerrainPatch>();
             boolean lodChanged = terrainQuad.calculateLod(camLocations, updated, lodCalculator); // 'updated' gets populated here
@@ -398,6 +471,141 @@ public class TerrainLodControl extends AbstractControl {
         }
     }
 
+    /**
+     * Runs the LOD calculation of the given terrains as parallel tasks on
+     * the LOD executor. The terrains are split into sub-quads, then:
+     * <ol>
+     * <li>the LOD of the patches of every sub-quad is calculated,</li>
+     * <li>the neighbour LODs are found and the edges to fix are marked,</li>
+     * <li>the patches that changed get their new index buffers.</li>
+     * </ol>
+     * Each step runs in parallel and waits for the previous one. Between
+     * steps 1 and 2 the map of updated patches gets an entry for every
+     * neighbour, so later steps only change the entries and never the map.
+     *
+     * @param onlyIfChanged return null if no LOD changed in step 1
+     * @return the updated patches, by name
+     */
+    protected HashMap<String,UpdatedTerrainPatch> calculateLodParallel(List<TerrainQuad> terrains, final List<Vector3f> camLocations,
+                                                                       final LodCalculator lodCalculator, boolean onlyIfChanged) throws InterruptedException, ExecutionException {
+        ExecutorService pool = getLodExecutor();
+        List<TerrainQuad> quads = splitQuads(terrains, getPoolSize(pool) * 4);
+
+        // step 1: LOD of each patch, every task fills its own map
+        List<Callable<HashMap<String,UpdatedTerrainPatch>>> lodTasks = new ArrayList<Callable<HashMap<String,UpdatedTerrainPatch>>>(quads.size());
+        final AtomicBoolean lodChanged = new AtomicBoolean(false);
+        for (final TerrainQuad quad : quads) {
+            lodTasks.add(new Callable<HashMap<String,UpdatedTerrainPatch>>() {
+                public HashMap<String,UpdatedTerrainPatch> call() {
+                    HashMap<String,UpdatedTerrainPatch> updated = new HashMap<String,UpdatedTerrainPatch>();
+                    if (quad.calculateLod(camLocations, updated, lodCalculator))
+                        lodChanged.set(true);
+                    return updated;
+                }
+            });
+        }
+        HashMap<String,UpdatedTerrainPatch> updated = new HashMap<String,UpdatedTerrainPatch>();
+        for (Future<HashMap<String,UpdatedTerrainPatch>> result : pool.invokeAll(lodTasks)) {
+            updated.putAll(result.get());
+        }
+
+        if (onlyIfChanged && !lodChanged.get()) {
+            // not worth updating anything else since no one's LOD changed
+            return null;
+        }
+
+        for (TerrainQuad terrain : terrains) {
+            terrain.prepareNeighboursLod(updated);
+        }
+
+        // step 2: neighbour LOD values for seaming
+        final HashMap<String,UpdatedTerrainPatch> allUpdated = updated;
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(quads.size());
+        for (final TerrainQuad quad : quads) {
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    quad.findNeighboursLod(allUpdated);
+                    quad.fixEdges(allUpdated);
+                    return null;
+                }
+            });
+        }
+        waitFor(pool.invokeAll(tasks));
+
+        // step 3: new index buffers
+        final boolean variableLod = lodCalculator.usesVariableLod();
+        tasks.clear();
+        for (final TerrainQuad quad : quads) {
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    quad.reIndexPages(allUpdated, variableLod);
+                    return null;
+                }
+            });
+        }
+        waitFor(pool.invokeAll(tasks));
+
+        return updated;
+    }
+
+    private static void waitFor(List<? extends Future<?>> results) throws InterruptedException, ExecutionException {
+        // get() rethrows the failure of a task
+        for (Future<?> result : results) {
+            result.get();
+        }
+    }
+
+    /**
+     * @return the number of threads of the pool, or the number of
+     * processors if it can't be known
+     */
+    private static int getPoolSize(ExecutorService pool) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (pool instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor tpe = (ThreadPoolExecutor) pool;
+            if (tpe.getCorePoolSize() > 0)
+                return tpe.getCorePoolSize();
+            // e.g. a cached pool, it grows with the tasks
+            return Math.min(tpe.getMaximumPoolSize(), processors);
+        }
+        return processors;
+    }
+
+    /**
+     * Replaces quads by their child quads until there are at least
+     * the given number of quads or the quads contain patches.
+     */
+    private static List<TerrainQuad> splitQuads(List<TerrainQuad> terrains, int count) {
+        List<TerrainQuad> quads = new ArrayList<TerrainQuad>(terrains);
+        boolean split = true;
+        while (split && quads.size() < count) {
+            split = false;
+            List<TerrainQuad> next = new ArrayList<TerrainQuad>(quads.size() * 4);
+            for (TerrainQuad quad : quads) {
+                if (hasPatches(quad)) {
+                    next.add(quad);
+                    continue;
+                }
+                for (Spatial child : quad.getChildren()) {
+                    if (child instanceof TerrainQuad) {
+                        next.add((TerrainQuad) child);
+                        split = true;
+                    }
+                }
+            }
+            quads = next;
+        }
+        return quads;
+    }
+
+    private static boolean hasPatches(TerrainQuad quad) {
+        for (Spatial child : quad.getChildren()) {
+            if (child instanceof TerrainPatch)
+                return true;
+        }
+        return false;
+    }
+
     @Override
     public void write(JmeExporter ex) throws IOException {
         super.write(ex);
@@ -46,7 +46,6 @@ import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.scene.VertexBuffer.Type;
-import com.jme3.scene.mesh.IndexBuffer;
 import com.jme3.terrain.geomipmap.TerrainQuad.LocationHeight;
 import com.jme3.terrain.geomipmap.lodcalc.util.EntropyComputeUtil;
 import com.jme3.util.BufferUtils;
@@ -198,12 +197,12 @@ public class TerrainPatch extends Geometry {
         float[] entropies = new float[getMaxLod()+1];
         for (int i = 0; i <= getMaxLod(); i++){
             int curLod = (int) Math.pow(2, i);
-            IndexBuffer idxB = geomap.writeIndexArrayLodDiff(curLod, false, false, false, false, totalSize);
+            VertexBuffer idxB = LODIndexCache.getLodDiffIndexBuffer(geomap, curLod, false, false, false, false);
             Buffer ib;
-            if (idxB.getBuffer() instanceof IntBuffer)
-                ib = (IntBuffer)idxB.getBuffer();
+            if (idxB.getData() instanceof IntBuffer)
+                ib = ((IntBuffer)idxB.getData()).duplicate();
             else
-                ib = (ShortBuffer)idxB.getBuffer();
+                ib = ((ShortBuffer)idxB.getData()).duplicate();
             entropies[i] = EntropyComputeUtil.computeLodEntropy(mesh, ib);
         }
 
@@ -251,18 +250,15 @@ public class TerrainPatch extends Geometry {
             boolean right = utp.getRightLod() > utp.getNewLod();
             boolean bottom = utp.getBottomLod() > utp.getNewLod();
 
-            IndexBuffer idxB;
+            // The index buffers are shared between all patches of the same
+            // size, see LODIndexCache
+            VertexBuffer idxB;
             if (useVariableLod)
-                idxB = geomap.writeIndexArrayLodVariable(pow, (int) Math.pow(2, utp.getRightLod()), (int) Math.pow(2, utp.getTopLod()), (int) Math.pow(2, utp.getLeftLod()), (int) Math.pow(2, utp.getBottomLod()), totalSize);
+                idxB = LODIndexCache.getLodVariableIndexBuffer(geomap, pow, (int) Math.pow(2, utp.getRightLod()), (int) Math.pow(2, utp.getTopLod()), (int) Math.pow(2, utp.getLeftLod()), (int) Math.pow(2, utp.getBottomLod()));
             else
-                idxB = geomap.writeIndexArrayLodDiff(pow, right, top, left, bottom, totalSize);
+                idxB = LODIndexCache.getLodDiffIndexBuffer(geomap, pow, right, top, left, bottom);
             
-            Buffer b;
-            if (idxB.getBuffer() instanceof IntBuffer)
-                b = (IntBuffer)idxB.getBuffer();
-            else
-                b = (ShortBuffer)idxB.getBuffer();
-            utp.setNewIndexBuffer(b);
+            utp.setNewIndexBuffer(idxB);
         }
 
     }
@@ -460,6 +460,50 @@ public class TerrainQuad extends Node implements Terrain {
         }
     }
 
+    /**
+     * Makes sure that every patch below this quad, and every neighbour of
+     * those patches, has an entry in the updated map. Afterwards
+     * findNeighboursLod(), fixEdges() and reIndexPages() only change existing
+     * entries, so they can run on different child quads at the same time.
+     */
+    protected void prepareNeighboursLod(HashMap<String,UpdatedTerrainPatch> updated) {
+        if (children != null) {
+            for (int x = children.size(); --x >= 0;) {
+                Spatial child = children.get(x);
+                if (child instanceof TerrainQuad) {
+                    ((TerrainQuad) child).prepareNeighboursLod(updated);
+                } else if (child instanceof TerrainPatch) {
+                    TerrainPatch patch = (TerrainPatch) child;
+                    if (!patch.searchedForNeighboursAlready) {
+                        // set the references to the neighbours
+                        patch.rightNeighbour = findRightPatch(patch);
+                        patch.bottomNeighbour = findDownPatch(patch);
+                        patch.leftNeighbour = findLeftPatch(patch);
+                        patch.topNeighbour = findTopPatch(patch);
+                        patch.searchedForNeighboursAlready = true;
+                    }
+
+                    if (!updated.containsKey(patch.getName())) {
+                        UpdatedTerrainPatch utp = new UpdatedTerrainPatch(patch, patch.lod);
+                        updated.put(utp.getName(), utp);
+                    }
+                    prepareNeighbourLod(patch.rightNeighbour, updated);
+                    prepareNeighbourLod(patch.bottomNeighbour, updated);
+                    prepareNeighbourLod(patch.leftNeighbour, updated);
+                    prepareNeighbourLod(patch.topNeighbour, updated);
+                }
+            }
+        }
+    }
+
+    private void prepareNeighbourLod(TerrainPatch neighbour, HashMap<String,UpdatedTerrainPatch> updated) {
+        if (neighbour != null && !updated.containsKey(neighbour.getName())) {
+            UpdatedTerrainPatch utp = new UpdatedTerrainPatch(neighbour);
+            updated.put(utp.getName(), utp);
+            utp.setNewLod(neighbour.lod);
+        }
+    }
+
     /**
      * Reset the cached references of neighbours.
      * TerrainQuad caches neighbours for faster LOD checks.
@@ -45,7 +45,7 @@ import java.util.List;
 public class PerspectiveLodCalculator implements LodCalculator {
 
     private Camera cam;
-    private float[] entropyDistances;
+    private volatile float[] entropyDistances;
     private float pixelError;
 
     public PerspectiveLodCalculator() {}
@@ -73,14 +73,17 @@ public class PerspectiveLodCalculator implements LodCalculator {
     }
     
     public boolean calculateLod(TerrainPatch patch, List<Vector3f> locations, HashMap<String, UpdatedTerrainPatch> updates) {
-        if (entropyDistances == null){
-            // compute entropy distances
+        float[] distances = entropyDistances;
+        if (distances == null){
+            // compute entropy distances, patches can be calculated on
+            // several threads so only publish the array once it is filled
             float[] lodEntropies = patch.getLodEntropies();
-            entropyDistances = new float[lodEntropies.length];
+            distances = new float[lodEntropies.length];
             float cameraConstant = getCameraConstant(cam, pixelError);
             for (int i = 0; i < lodEntropies.length; i++){
-                entropyDistances[i] = lodEntropies[i] * cameraConstant;
+                distances[i] = lodEntropies[i] * cameraConstant;
             }
+            entropyDistances = distances;
         }
 
         Vector3f patchPos = getCenterLocation(patch);
@@ -92,7 +95,7 @@ public class PerspectiveLodCalculator implements LodCalculator {
 
         // go through each lod level to find the one we are in
         for (int i = 0; i <= patch.getMaxLod(); i++) {
-            if (distance < entropyDistances[i] || i == patch.getMaxLod()){
+            if (distance < distances[i] || i == patch.getMaxLod()){
                 boolean reIndexNeeded = false;
                 if (i != patch.getLod()) {
                     reIndexNeeded = true;
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.collision;
+
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compares the cost of picking with rays in a scene of 30000 geometries
+ * with and without the collision index of the root node, for a static scene
+ * and for a scene where some of the geometries move every frame.
+ */
+public class TestPickingBenchmark {
+
+    private static final int GROUPS = 100;
+    private static final int GEOMETRIES_PER_GROUP = 300;
+    private static final int RAYS = 200;
+    private static final int FRAMES = 10;
+    private static final int MOVED_PER_FRAME = 300;
+
+    private static Node createScene(Random random) {
+        Box box = new Box(0.5f, 0.5f, 0.5f);
+        Node root = new Node("Root");
+        for (int i = 0; i < GROUPS; i++) {
+            Node group = new Node("Group " + i);
+            group.setLocalTranslation(random.nextFloat() * 500, 0, random.nextFloat() * 500);
+            for (int j = 0; j < GEOMETRIES_PER_GROUP; j++) {
+                Geometry geom = new Geometry("Box " + i + "/" + j, box);
+                geom.setLocalTranslation(random.nextFloat() * 50, random.nextFloat() * 20, random.nextFloat() * 50);
+                group.attachChild(geom);
+            }
+            root.attachChild(group);
+        }
+        root.updateGeometricState();
+        return root;
+    }
+
+    private static Ray[] createRays(Random random) {
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; i++) {
+            Vector3f origin = new Vector3f(random.nextFloat() * 550, 40, random.nextFloat() * 550);
+            Vector3f target = new Vector3f(random.nextFloat() * 550, 0, random.nextFloat() * 550);
+            rays[i] = new Ray(origin, target.subtractLocal(origin).normalizeLocal());
+        }
+        return rays;
+    }
+
+    private static int pick(Node root, Ray[] rays) {
+        int hits = 0;
+        CollisionResults results = new CollisionResults();
+        for (Ray ray : rays) {
+            results.clear();
+            root.collideWith(ray, results);
+            hits += results.size();
+        }
+        return hits;
+    }
+
+    private static void moveSome(Node root, Random random) {
+        for (int i = 0; i < MOVED_PER_FRAME; i++) {
+            Node group = (Node) root.getChild(random.nextInt(GROUPS));
+            Spatial geom = group.getChild(random.nextInt(GEOMETRIES_PER_GROUP));
+            geom.move(random.nextFloat() - 0.5f, 0, random.nextFloat() - 0.5f);
+        }
+    }
+
+    private static void benchmark(String name, Node root, Ray[] rays, boolean moving) {
+        Random random = new Random(7);
+        // warm up
+        pick(root, rays);
+
+        long start = System.nanoTime();
+        int hits = 0;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            if (moving) {
+                moveSome(root, random);
+                root.updateGeometricState();
+            }
+            hits += pick(root, rays);
+        }
+        double ms = (System.nanoTime() - start) / 1000000.0;
+        System.out.printf("%-30s %9.2f us/pick  (%d hits)%n", name,
+                          ms * 1000.0 / (FRAMES * RAYS), hits);
+    }
+
+    public static void main(String[] args) {
+        Logger.getLogger(Node.class.getName()).setLevel(Level.WARNING);
+
+        Ray[] rays = createRays(new Random(3));
+        System.out.println((GROUPS * GEOMETRIES_PER_GROUP) + " geometries, "
+                           + FRAMES + " frames of " + RAYS + " rays:");
+
+        Node root = createScene(new Random(1));
+        benchmark("Static, traversal", root, rays, false);
+        root.setCollisionIndexEnabled(true);
+        benchmark("Static, collision index", root, rays, false);
+
+        root = createScene(new Random(1));
+        benchmark("Moving, traversal", root, rays, true);
+        root = createScene(new Random(1));
+        root.setCollisionIndexEnabled(true);
+        benchmark("Moving, collision index", root, rays, true);
+    }
+}
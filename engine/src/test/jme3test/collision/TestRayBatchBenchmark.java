@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.collision;
+
+import com.jme3.collision.CollisionResults;
+import com.jme3.collision.bih.FlatBIHTree;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Sphere;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures ray throughput against a mesh of about 80000 triangles, casting
+ * rays one at a time through Geometry.collideWith and in batches through
+ * the FlatBIHTree of the mesh, on one thread and on all processors.
+ */
+public class TestRayBatchBenchmark {
+
+    private static final int RAYS = 100000;
+    private static final int ROUNDS = 5;
+
+    private static float[] createRays(Random random) {
+        float[] rays = new float[RAYS * FlatBIHTree.RAY_STRIDE];
+        Vector3f origin = new Vector3f();
+        Vector3f target = new Vector3f();
+        for (int i = 0; i < RAYS; i++) {
+            origin.set(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f).multLocal(100);
+            target.set(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f).multLocal(20);
+            target.subtractLocal(origin).normalizeLocal();
+            int o = i * FlatBIHTree.RAY_STRIDE;
+            rays[o] = origin.x;
+            rays[o + 1] = origin.y;
+            rays[o + 2] = origin.z;
+            rays[o + 3] = target.x;
+            rays[o + 4] = target.y;
+            rays[o + 5] = target.z;
+            rays[o + 6] = Float.POSITIVE_INFINITY;
+        }
+        return rays;
+    }
+
+    private static void report(String name, long nanos, int hits) {
+        double raysPerSecond = RAYS * ROUNDS / (nanos / 1000000000.0);
+        System.out.printf("%-32s %12.0f rays/s  (%d hits)%n", name, raysPerSecond, hits / ROUNDS);
+    }
+
+    private static void benchmarkGeometry(Geometry geom, float[] rays) {
+        Ray ray = new Ray();
+        CollisionResults results = new CollisionResults();
+        long start = 0;
+        int hits = 0;
+        for (int round = -1; round < ROUNDS; round++) {
+            if (round == 0) {
+                // first round is warm up
+                start = System.nanoTime();
+                hits = 0;
+            }
+            for (int i = 0; i < RAYS; i++) {
+                int o = i * FlatBIHTree.RAY_STRIDE;
+                ray.getOrigin().set(rays[o], rays[o + 1], rays[o + 2]);
+                ray.getDirection().set(rays[o + 3], rays[o + 4], rays[o + 5]);
+                results.clear();
+                geom.collideWith(ray, results);
+                if (results.size() > 0) {
+                    hits++;
+                }
+            }
+        }
+        report("Geometry.collideWith", System.nanoTime() - start, hits);
+    }
+
+    private static void benchmarkBatch(String name, Geometry geom, float[] rays, 
+                                       boolean anyHit, ExecutorService executor) {
+        FlatBIHTree tree = geom.getMesh().getFlatCollisionTree();
+        float[] distances = new float[RAYS];
+        int[] triangles = new int[RAYS];
+        long start = 0;
+        int hits = 0;
+        for (int round = -1; round < ROUNDS; round++) {
+            if (round == 0) {
+                start = System.nanoTime();
+                hits = 0;
+            }
+            hits += tree.intersectRays(rays, RAYS, geom.getWorldMatrix(), anyHit,
+                                       distances, triangles, executor);
+        }
+        report(name, System.nanoTime() - start, hits);
+    }
+
+    public static void main(String[] args) {
+        Geometry geom = new Geometry("Sphere", new Sphere(200, 200, 10));
+        geom.setLocalTranslation(1, 2, 3);
+        geom.updateGeometricState();
+        geom.getMesh().createCollisionData();
+
+        float[] rays = createRays(new Random(11));
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        System.out.println(geom.getMesh().getTriangleCount() + " triangles, "
+                           + RAYS + " rays, " + threads + " threads:");
+        benchmarkGeometry(geom, rays);
+        benchmarkBatch("Batch, closest hit", geom, rays, false, null);
+        benchmarkBatch("Batch, any hit", geom, rays, true, null);
+        benchmarkBatch("Batch, closest hit, threads", geom, rays, false, executor);
+        benchmarkBatch("Batch, any hit, threads", geom, rays, true, executor);
+        executor.shutdown();
+    }
+}
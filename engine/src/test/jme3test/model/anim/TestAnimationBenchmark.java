@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3test.model.anim;
+
+import com.jme3.animation.AnimChannel;
+import com.jme3.animation.AnimControl;
+import com.jme3.animation.AnimLodControl;
+import com.jme3.animation.Animation;
+import com.jme3.animation.Bone;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.Skeleton;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import java.util.Random;
+
+/**
+ * Plays long motion capture like clips on 500 characters without
+ * rendering them and reports the time taken by their animation update,
+ * when playing the clips and when seeking to a random time every frame.
+ * <p>
+ * The characters are then spread up to 200 m away from the camera and
+ * animated with an {@link AnimLodControl}, with and without blending the
+ * frames between the updates of far characters, and with and without
+ * spreading these updates over the frames, reporting the longest frame.
+ */
+public class TestAnimationBenchmark {
+
+    private static final int CHARACTERS = 500;
+    private static final int BONES = 40;
+    private static final float CLIP_LENGTH = 120;
+    private static final int KEYS_PER_SECOND = 60;
+    private static final int FRAMES = 200;
+    private static final float TPF = 1f / 60f;
+
+    private static Skeleton createSkeleton() {
+        Bone[] bones = new Bone[BONES];
+        for (int i = 0; i < BONES; i++) {
+            bones[i] = new Bone("Bone " + i);
+            bones[i].setBindTransforms(new Vector3f(0, 1, 0), new Quaternion(), Vector3f.UNIT_XYZ);
+            if (i > 0) {
+                bones[i - 1].addChild(bones[i]);
+            }
+        }
+        return new Skeleton(bones);
+    }
+
+    private static Animation createClip(Random random) {
+        int keys = (int) (CLIP_LENGTH * KEYS_PER_SECOND) + 1;
+        Animation anim = new Animation("Mocap", CLIP_LENGTH);
+        float[] times = new float[keys];
+        for (int k = 0; k < keys; k++) {
+            times[k] = (float) k / KEYS_PER_SECOND;
+        }
+        float[] angles = new float[3];
+        for (int b = 0; b < BONES; b++) {
+            Vector3f[] translations = new Vector3f[keys];
+            Quaternion[] rotations = new Quaternion[keys];
+            for (int k = 0; k < keys; k++) {
+                translations[k] = new Vector3f(0, 1, random.nextFloat() * 0.1f);
+                angles[0] = random.nextFloat() * FastMath.QUARTER_PI;
+                angles[1] = random.nextFloat() * FastMath.QUARTER_PI;
+                rotations[k] = new Quaternion(angles);
+            }
+            anim.addTrack(new BoneTrack(b, times, translations, rotations));
+        }
+        return anim;
+    }
+
+    private static void benchmark(String name, Node[] characters, boolean seek, ViewPort vp) {
+        Random random = new Random(5);
+        long start = 0;
+        long maxFrame = 0;
+        for (int frame = -FRAMES; frame < FRAMES; frame++) {
+            if (frame == 0) {
+                // the first frames warm the JIT up
+                start = System.nanoTime();
+                maxFrame = 0;
+            }
+            long frameStart = System.nanoTime();
+            if (seek) {
+                for (Node character : characters) {
+                    AnimChannel channel = character.getControl(AnimControl.class).getChannel(0);
+                    channel.setTime(random.nextFloat() * CLIP_LENGTH);
+                }
+            }
+            for (Node character : characters) {
+                character.updateLogicalState(TPF);
+            }
+            if (vp != null) {
+                // what rendering the characters does for their LOD
+                for (Node character : characters) {
+                    character.getControl(AnimLodControl.class).render(null, vp);
+                }
+            }
+            maxFrame = Math.max(maxFrame, System.nanoTime() - frameStart);
+        }
+        double ms = (System.nanoTime() - start) / 1000000.0;
+        System.out.printf("%-20s %8.2f ms/frame, longest %6.2f ms%n", name, ms / FRAMES,
+                          maxFrame / 1000000.0);
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        Skeleton skeleton = createSkeleton();
+        Animation clip = createClip(random);
+
+        Node[] characters = new Node[CHARACTERS];
+        for (int i = 0; i < CHARACTERS; i++) {
+            AnimControl control = new AnimControl(new Skeleton(skeleton));
+            control.addAnim(clip);
+            characters[i] = new Node("Character " + i);
+            characters[i].attachChild(new Geometry("Body", new Box(0.5f, 1, 0.5f)));
+            characters[i].addControl(control);
+            AnimChannel channel = control.createChannel();
+            channel.setAnim("Mocap");
+            channel.setTime(random.nextFloat() * CLIP_LENGTH);
+        }
+
+        System.out.println(CHARACTERS + " characters, " + BONES + " bones, "
+                           + (int) (CLIP_LENGTH * KEYS_PER_SECOND) + " keys per track:");
+        benchmark("Playing", characters, false, null);
+        benchmark("Seeking", characters, true, null);
+
+        // in rows along the view direction, from 5 m to 200 m away
+        Camera cam = new Camera(640, 480);
+        cam.setFrustumPerspective(45, 640f / 480f, 1, 1000);
+        cam.lookAtDirection(Vector3f.UNIT_Z, Vector3f.UNIT_Y);
+        ViewPort vp = new ViewPort("Main", cam);
+        for (int i = 0; i < CHARACTERS; i++) {
+            int row = i / 20;
+            characters[i].setLocalTranslation((i % 20 - 10) * 2, 0, 5 + row * 8);
+            characters[i].updateGeometricState();
+
+            AnimLodControl lod = new AnimLodControl();
+            lod.setLevels(new float[]{20, 60, 120},
+                          new int[]{2, 4, 8},
+                          new int[]{-1, 20, 10});
+            characters[i].addControl(lod);
+        }
+        benchmark("Playing with LOD", characters, false, vp);
+
+        // far characters keep their pose between updates
+        for (Node character : characters) {
+            character.getControl(AnimLodControl.class).setMaxInterpolatedLevel(0);
+        }
+        benchmark("LOD without blending", characters, false, vp);
+
+        // all the far characters update on the same frame
+        for (Node character : characters) {
+            character.getControl(AnimLodControl.class).setUpdateOffset(0);
+        }
+        benchmark("LOD without offsets", characters, false, vp);
+    }
+}
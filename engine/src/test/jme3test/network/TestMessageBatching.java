@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2011 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.network;
+
+import com.jme3.network.*;
+import com.jme3.network.base.DefaultClient;
+import com.jme3.network.base.DefaultServer;
+import com.jme3.network.serializing.Serializable;
+import com.jme3.network.serializing.Serializer;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares sending many small reliable messages per tick with and
+ * without batching, over a loopback connection.  Each tick the client
+ * sends a burst of updates followed by a ping that the server answers.
+ * Ticks are first sent as fast as possible to measure throughput, and
+ * then at a steady rate to measure ping times when the connection
+ * isn't backed up.
+ */
+public class TestMessageBatching {
+
+    private static final int TICKS = 500;
+    private static final int MESSAGES_PER_TICK = 200;
+
+    @Serializable
+    public static class UpdateMessage extends AbstractMessage {
+        int entity;
+        float x, y, z;
+
+        public UpdateMessage() {
+            setReliable(true);
+        }
+    }
+
+    @Serializable
+    public static class PingMessage extends AbstractMessage {
+        long timeSent;
+
+        public PingMessage() {
+            setReliable(true);
+        }
+    }
+
+    private static void run(int port, boolean batching, long tickMillis) throws IOException, InterruptedException {
+        final AtomicInteger received = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(TICKS);
+        final long[] pingTotal = new long[1];
+
+        final DefaultServer server = (DefaultServer)Network.createServer(port, port);
+        server.setReliableBatching(batching);
+        server.addMessageListener(new MessageListener<HostedConnection>() {
+            public void messageReceived(HostedConnection source, Message m) {
+                if (m instanceof PingMessage) {
+                    source.send(m);
+                    server.flush();
+                } else {
+                    received.incrementAndGet();
+                }
+            }
+        }, UpdateMessage.class, PingMessage.class);
+        server.start();
+
+        DefaultClient client = (DefaultClient)Network.connectToServer("localhost", port);
+        client.setReliableBatching(batching);
+        client.addMessageListener(new MessageListener<Client>() {
+            public void messageReceived(Client source, Message m) {
+                pingTotal[0] += System.nanoTime() - ((PingMessage)m).timeSent;
+                done.countDown();
+            }
+        }, PingMessage.class);
+        client.start();
+
+        UpdateMessage update = new UpdateMessage();
+        PingMessage ping = new PingMessage();
+
+        long start = System.nanoTime();
+        for (int t = 0; t < TICKS; t++) {
+            for (int i = 0; i < MESSAGES_PER_TICK; i++) {
+                update.entity = i;
+                update.x = t;
+                client.send(update);
+            }
+            ping.timeSent = System.nanoTime();
+            client.send(ping);
+            client.flush();
+            if (tickMillis > 0) {
+                Thread.sleep(tickMillis);
+            }
+        }
+        done.await(60, TimeUnit.SECONDS);
+        long time = System.nanoTime() - start;
+
+        System.out.println((batching ? "Batched, " : "Unbatched, ")
+                + (tickMillis > 0 ? tickMillis + " ms ticks: " : "full speed: ")
+                + (long)(received.get() / (time / 1000000000.0)) + " messages/s, "
+                + "average ping " + (pingTotal[0] / TICKS / 1000) + " us, "
+                + received.get() + " of " + (TICKS * MESSAGES_PER_TICK) + " received");
+
+        client.close();
+        server.close();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Serializer.registerClass(UpdateMessage.class);
+        Serializer.registerClass(PingMessage.class);
+
+        // Once each to warm up, then for real
+        run(5110, false, 0);
+        run(5111, true, 0);
+        run(5112, false, 0);
+        run(5113, true, 0);
+        run(5114, false, 16);
+        run(5115, true, 16);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.network;
+
+import com.jme3.math.Vector3f;
+import com.jme3.network.AbstractMessage;
+import com.jme3.network.serializing.Serializable;
+import com.jme3.network.serializing.Serializer;
+import com.jme3.network.serializing.serializers.FieldSerializer;
+import com.jme3.network.serializing.serializers.TypedFieldSerializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the reflective FieldSerializer with the TypedFieldSerializer
+ * on a typical position update message. Each serializer is warmed up first
+ * and then timed over several rounds of writing and reading the message.
+ */
+public class TestSerializerPerformance {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final int MESSAGES = 200000;
+
+    @Serializable
+    public static class PositionUpdateMessage extends AbstractMessage {
+
+        private int entityId;
+        private long time;
+        private Vector3f position;
+        private Vector3f velocity;
+        private float yaw;
+        private float pitch;
+        private boolean grounded;
+
+        public PositionUpdateMessage() {
+            setReliable(false);
+        }
+
+        public PositionUpdateMessage(int entityId, long time, Vector3f position, Vector3f velocity,
+                                     float yaw, float pitch, boolean grounded) {
+            this();
+            this.entityId = entityId;
+            this.time = time;
+            this.position = position;
+            this.velocity = velocity;
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.grounded = grounded;
+        }
+    }
+
+    private static long run(Serializer serializer, PositionUpdateMessage msg, ByteBuffer buffer) throws IOException {
+        long start = System.nanoTime();
+        int checksum = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            buffer.clear();
+            serializer.writeObject(buffer, msg);
+            buffer.flip();
+            PositionUpdateMessage read = serializer.readObject(buffer, PositionUpdateMessage.class);
+            checksum += read.entityId;
+        }
+        long time = System.nanoTime() - start;
+        if (checksum != msg.entityId * MESSAGES) {
+            throw new IllegalStateException("Serializers produced wrong data");
+        }
+        return time;
+    }
+
+    private static void benchmark(String name, Serializer serializer, PositionUpdateMessage msg) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(serializer, msg, buffer);
+        }
+
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long time = run(serializer, msg, buffer);
+            best = Math.min(best, time);
+            total += time;
+        }
+        System.out.printf("%-22s avg: %7.1f ns/msg  best: %7.1f ns/msg%n", name,
+                          total / (double) (ROUNDS * MESSAGES), best / (double) MESSAGES);
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Registers Vector3f and the message class
+        Serializer.registerClass(PositionUpdateMessage.class);
+
+        FieldSerializer reflective = new FieldSerializer();
+        reflective.initialize(PositionUpdateMessage.class);
+        TypedFieldSerializer typed = new TypedFieldSerializer();
+        typed.initialize(PositionUpdateMessage.class);
+
+        PositionUpdateMessage msg = new PositionUpdateMessage(17, System.currentTimeMillis(),
+                                                              new Vector3f(10.5f, 0, -3.25f),
+                                                              new Vector3f(1, 0, 0.5f),
+                                                              1.2f, -0.3f, true);
+
+        System.out.println("Write and read of " + MESSAGES + " position updates, "
+                           + ROUNDS + " rounds:");
+        benchmark("FieldSerializer", reflective, msg);
+        benchmark("TypedFieldSerializer", typed, msg);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.terrain;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.terrain.geomipmap.TerrainLodControl;
+import com.jme3.terrain.geomipmap.TerrainQuad;
+import com.jme3.terrain.geomipmap.UpdatedTerrainPatch;
+import com.jme3.terrain.geomipmap.lodcalc.DistanceLodCalculator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Moves a camera along a fixed path over a large terrain and measures how
+ * long the LOD calculation of each frame takes, first on a single thread
+ * and then split into parallel tasks.
+ * The terrain size can be given as first argument (a power of two plus one).
+ */
+public class TerrainLodBenchmark {
+
+    private static final int FRAMES = 300;
+
+    /**
+     * Runs the LOD calculation synchronously instead of on the
+     * terrain thread so that every frame can be timed.
+     */
+    private static class BenchmarkLodControl extends TerrainLodControl {
+
+        public BenchmarkLodControl(TerrainQuad terrain) {
+            super(terrain, (List<Camera>) null);
+        }
+
+        public long runFrame(Vector3f location) throws Exception {
+            List<Vector3f> locations = new ArrayList<Vector3f>(1);
+            locations.add(location);
+
+            long start = System.nanoTime();
+            prepareTerrain();
+            HashMap<String, UpdatedTerrainPatch> updated = getLodThread(locations, getLodCalculator()).call();
+            if (updated != null) {
+                for (UpdatedTerrainPatch utp : updated.values()) {
+                    utp.updateAll();
+                }
+            }
+            return System.nanoTime() - start;
+        }
+    }
+
+    private static float[] createHeightMap(int size) {
+        float[] heights = new float[size * size];
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                heights[z * size + x] = 40f * FastMath.sin(x * 0.02f) * FastMath.cos(z * 0.015f)
+                                      + 5f * FastMath.sin(x * 0.11f + z * 0.07f);
+            }
+        }
+        return heights;
+    }
+
+    private static Vector3f getCameraLocation(int frame, int size) {
+        // a sweep across the terrain followed by a circle around its center
+        float half = size / 2f;
+        if (frame < FRAMES / 2) {
+            float t = frame / (float) (FRAMES / 2);
+            return new Vector3f(-half + t * size, 60, -half * 0.5f + t * half);
+        }
+        float angle = (frame - FRAMES / 2) / (float) (FRAMES / 2) * FastMath.TWO_PI;
+        return new Vector3f(FastMath.cos(angle) * half * 0.6f, 60, FastMath.sin(angle) * half * 0.6f);
+    }
+
+    private static void runPath(String name, BenchmarkLodControl control, int size) throws Exception {
+        // start every run from the same LOD state
+        control.runFrame(getCameraLocation(0, size));
+
+        long[] times = new long[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            times[i] = control.runFrame(getCameraLocation(i, size));
+        }
+
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-12s LOD latency per frame  avg: %6.2f ms  median: %6.2f ms  95%%: %6.2f ms  max: %6.2f ms%n",
+                          name, total / (FRAMES * 1e6), times[FRAMES / 2] / 1e6,
+                          times[FRAMES * 95 / 100] / 1e6, times[FRAMES - 1] / 1e6);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1025;
+
+        TerrainQuad terrain = new TerrainQuad("terrain", 65, size, createHeightMap(size));
+        terrain.updateGeometricState();
+
+        BenchmarkLodControl control = new BenchmarkLodControl(terrain);
+        control.setLodCalculator(new DistanceLodCalculator(65, 2.7f));
+        terrain.addControl(control);
+
+        System.out.println("Terrain " + size + "x" + size + ", " + FRAMES + " frames, "
+                           + Runtime.getRuntime().availableProcessors() + " processors");
+
+        // warm up both code paths
+        control.setParallelLod(false);
+        runPath("(warm up)", control, size);
+        control.setParallelLod(true);
+        runPath("(warm up)", control, size);
+
+        control.setParallelLod(false);
+        runPath("sequential", control, size);
+        control.setParallelLod(true);
+        runPath("parallel", control, size);
+    }
+}
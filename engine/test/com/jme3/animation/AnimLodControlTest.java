@@ -0,0 +1,196 @@
+package com.jme3.animation;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class AnimLodControlTest {
+
+    private static final float TPF = 0.1f;
+
+    /**
+     * A chain of 3 bones, each one moved along X by the time of the
+     * animation
+     */
+    private static Node createModel() {
+        Bone[] bones = new Bone[3];
+        for (int i = 0; i < bones.length; i++) {
+            bones[i] = new Bone("Bone " + i);
+            bones[i].setBindTransforms(new Vector3f(0, 1, 0), new Quaternion(), Vector3f.UNIT_XYZ);
+            if (i > 0) {
+                bones[i - 1].addChild(bones[i]);
+            }
+        }
+        Skeleton skeleton = new Skeleton(bones);
+
+        float[] times = {0, 10};
+        Animation anim = new Animation("Turn", 10);
+        for (int i = 0; i < bones.length; i++) {
+            Vector3f[] translations = {new Vector3f(), new Vector3f(10, 0, 0)};
+            Quaternion[] rotations = {new Quaternion(), new Quaternion()};
+            anim.addTrack(new BoneTrack(i, times, translations, rotations));
+        }
+
+        AnimControl control = new AnimControl(skeleton);
+        control.addAnim(anim);
+        Node model = new Node("Model");
+        model.attachChild(new Geometry("Body", new Box(1, 1, 1)));
+        model.addControl(control);
+        control.createChannel().setAnim("Turn");
+        return model;
+    }
+
+    private static float getX(AnimControl control, int bone) {
+        return control.getSkeleton().getBone(bone).getLocalPosition().x;
+    }
+
+    @Test
+    public void testUpdateSchedule() {
+        AnimControl[] controls = new AnimControl[4];
+        for (int i = 0; i < controls.length; i++) {
+            controls[i] = createModel().getControl(AnimControl.class);
+            controls[i].setUpdateInterval(4, i);
+            controls[i].setPoseInterpolation(false);
+        }
+        for (int frame = 0; frame < 12; frame++) {
+            int updated = 0;
+            for (AnimControl control : controls) {
+                int version = control.getPoseVersion();
+                control.update(TPF);
+                if (control.getPoseVersion() != version) {
+                    updated++;
+                }
+            }
+            // a single model updated on each frame
+            assertEquals(1, updated);
+        }
+    }
+
+    @Test
+    public void testSkippedTimeAddsUp() {
+        AnimControl control = createModel().getControl(AnimControl.class);
+        control.setUpdateInterval(3, 0);
+        control.setPoseInterpolation(false);
+        control.update(TPF);
+        assertEquals(0f, getX(control, 0), 0.0001f);
+        control.update(TPF);
+        control.update(TPF);
+        assertEquals(0f, getX(control, 0), 0.0001f);
+        // the pose is applied at the time of the previous update
+        control.update(TPF);
+        assertEquals(0.1f, getX(control, 0), 0.0001f);
+
+        control.setUpdateInterval(0, 0);
+        for (int i = 0; i < 10; i++) {
+            control.update(TPF);
+        }
+        assertEquals(0.1f, getX(control, 0), 0.0001f);
+
+        control.setUpdateInterval(1, 0);
+        control.update(TPF);
+        assertEquals(0.4f, getX(control, 0), 0.0001f);
+        control.update(TPF);
+        assertEquals(1.5f, getX(control, 0), 0.0001f);
+    }
+
+    @Test
+    public void testPoseInterpolation() {
+        AnimControl control = createModel().getControl(AnimControl.class);
+        control.setUpdateInterval(2, 0);
+        // one interval behind the animation, 0.1, 0.3, 0.5 at the updates
+        float[] expected = {0, 0, 0, 0.05f, 0.1f, 0.2f, 0.3f, 0.4f};
+        for (int frame = 0; frame < expected.length; frame++) {
+            int version = control.getPoseVersion();
+            control.update(TPF);
+            assertTrue(control.getPoseVersion() != version);
+            assertEquals("frame " + frame, expected[frame], getX(control, 0), 0.0001f);
+            assertEquals("frame " + frame, expected[frame], getX(control, 2), 0.0001f);
+        }
+        // the world transforms follow the blend
+        Bone tip = control.getSkeleton().getBone(2);
+        assertEquals(1.2f, tip.getModelSpacePosition().x, 0.0001f);
+
+        // a frozen animation keeps the blended pose
+        control.setUpdateInterval(0, 0);
+        int version = control.getPoseVersion();
+        control.update(TPF);
+        assertEquals(version, control.getPoseVersion());
+        assertEquals(0.4f, getX(control, 0), 0.0001f);
+    }
+
+    @Test
+    public void testLevels() {
+        Node model = createModel();
+        AnimControl control = model.getControl(AnimControl.class);
+        AnimLodControl lod = new AnimLodControl();
+        lod.setLevels(new float[]{10, 50}, new int[]{2, 0}, new int[]{2, -1});
+        lod.setUpdateOffset(0);
+        lod.setMaxInterpolatedLevel(0);
+        model.addControl(lod);
+        assertEquals(3, lod.getNumLevels());
+
+        Camera cam = new Camera(640, 480);
+        cam.setFrustumPerspective(45, 640f / 480f, 1, 1000);
+        ViewPort vp = new ViewPort("Test", cam);
+        Camera far = cam.clone();
+        far.setLocation(new Vector3f(0, 0, 100));
+        ViewPort farVp = new ViewPort("Far", far);
+
+        model.setLocalTranslation(0, 0, 20);
+        model.updateGeometricState();
+        lod.render(null, vp);
+        lod.render(null, farVp);
+        for (int i = 0; i < 4; i++) {
+            model.updateLogicalState(TPF);
+        }
+        // the closest viewport gives the level
+        assertEquals(1, lod.getLevel());
+        assertEquals(2, control.getUpdateInterval());
+        assertFalse(control.isPoseInterpolation());
+        assertTrue(control.getLodBones().get(1));
+        assertFalse(control.getLodBones().get(2));
+        assertEquals(0.1f, getX(control, 0), 0.0001f);
+        assertEquals(0.1f, getX(control, 1), 0.0001f);
+        assertEquals(0f, getX(control, 2), 0.0001f);
+
+        // not rendered, keeps its level
+        model.updateLogicalState(TPF);
+        assertEquals(1, lod.getLevel());
+
+        model.setLocalTranslation(0, 0, 60);
+        model.updateGeometricState();
+        lod.render(null, vp);
+        model.updateLogicalState(TPF);
+        assertEquals(2, lod.getLevel());
+        assertEquals(0, control.getUpdateInterval());
+        assertNull(control.getLodBones());
+
+        lod.setEnabled(false);
+        assertEquals(0, lod.getLevel());
+        assertEquals(1, control.getUpdateInterval());
+
+        lod.setEnabled(true);
+        lod.setMetric(AnimLodControl.Metric.ScreenArea);
+        lod.setLevels(new float[]{10000, 100}, new int[]{2, 4}, null);
+        assertEquals(0, lod.computeLevel(20000));
+        assertEquals(1, lod.computeLevel(10000));
+        assertEquals(2, lod.computeLevel(50));
+    }
+
+    @Test
+    public void testClonesGetOwnOffsets() {
+        Node model = createModel();
+        AnimLodControl lod = new AnimLodControl();
+        model.addControl(lod);
+        Node clone = (Node) model.clone();
+        AnimLodControl cloneLod = clone.getControl(AnimLodControl.class);
+        assertNotSame(lod, cloneLod);
+        assertTrue(lod.getUpdateOffset() != cloneLod.getUpdateOffset());
+    }
+}
@@ -0,0 +1,109 @@
+package com.jme3.animation;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class KeyFramesTest {
+
+    /**
+     * The keyframe search as it was before the cursors, scanning the
+     * keyframes from the first one
+     */
+    private static int scanStartFrame(float[] times, float time) {
+        int startFrame = 0;
+        for (int i = 0; i < times.length - 1 && times[i] < time; i++) {
+            startFrame = i;
+        }
+        return startFrame;
+    }
+
+    private static float[] createTimes(int count, Random random) {
+        float[] times = new float[count];
+        for (int i = 1; i < count; i++) {
+            // a few keyframes share their time
+            times[i] = times[i - 1] + (random.nextInt(8) == 0 ? 0 : random.nextFloat());
+        }
+        times[count - 1] += 1f;
+        return times;
+    }
+
+    @Test
+    public void testMatchesScan() {
+        Random random = new Random(7);
+        for (int count = 2; count < 40; count++) {
+            float[] times = createTimes(count, random);
+            float length = times[count - 1];
+            int cursor = -1;
+            for (int i = 0; i < 200; i++) {
+                float time;
+                if (i % 3 == 0) {
+                    // on a keyframe
+                    time = times[random.nextInt(count - 1)];
+                } else if (i % 5 == 0) {
+                    // seek
+                    time = random.nextFloat() * length;
+                } else {
+                    time = Math.min(times[Math.max(cursor, 0)] + random.nextFloat() * 0.5f,
+                                    length * 0.9999f);
+                }
+                cursor = KeyFrames.findStartFrame(times, time, cursor);
+                assertEquals(scanStartFrame(times, time), cursor);
+            }
+            // stale cursors out of range
+            assertEquals(scanStartFrame(times, 0f), KeyFrames.findStartFrame(times, 0f, count + 3));
+            assertEquals(0, KeyFrames.findStartFrame(times, 0f, -1));
+        }
+    }
+
+    @Test
+    public void testPlayAndSeek() {
+        int count = 300;
+        float[] times = new float[count];
+        Vector3f[] translations = new Vector3f[count];
+        Quaternion[] rotations = new Quaternion[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = i * 0.1f;
+            translations[i] = new Vector3f(i, 0, 0);
+            rotations[i] = new Quaternion();
+        }
+        Animation anim = new Animation("Walk", times[count - 1]);
+        anim.addTrack(new SpatialTrack(times, translations, rotations, null));
+        Animation other = new Animation("Other", times[count - 1]);
+        other.addTrack(new SpatialTrack(times, translations, rotations, null));
+
+        Node node = new Node("Node");
+        AnimControl control = new AnimControl();
+        control.addAnim(anim);
+        control.addAnim(other);
+        node.addControl(control);
+        AnimChannel channel = control.createChannel();
+        channel.setAnim("Walk");
+
+        float tpf = 0.016f;
+        float time = 0;
+        for (int i = 0; i < 500; i++) {
+            if (i == 200) {
+                // seek backwards
+                time = 3.37f;
+                channel.setTime(time);
+            } else if (i == 300) {
+                time = 25.5f;
+                channel.setTime(time);
+            }
+            control.update(tpf);
+            assertEquals(time * 10f, node.getLocalTranslation().x, 0.001f);
+            time += tpf;
+        }
+
+        // blending to another animation keeps the cursors of both
+        channel.setAnim("Other", 1f);
+        control.update(tpf);
+        channel.setTime(12f);
+        control.update(tpf);
+        assertEquals(120f, node.getLocalTranslation().x, 0.001f);
+    }
+}
@@ -0,0 +1,154 @@
+package com.jme3.animation;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.system.NullRenderer;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class SkeletonControlTest {
+
+    /**
+     * Enough vertices to be split in several skinning jobs
+     */
+    private static final int NUM_VERTS = 10000;
+
+    /**
+     * A strip of vertices along Y, weighted between two bones
+     */
+    private static Mesh createMesh(boolean tangents) {
+        float[] positions = new float[NUM_VERTS * 3];
+        float[] normals = new float[NUM_VERTS * 3];
+        float[] tans = new float[NUM_VERTS * 4];
+        float[] weights = new float[NUM_VERTS * 4];
+        byte[] indices = new byte[NUM_VERTS * 4];
+        for (int i = 0; i < NUM_VERTS; i++) {
+            float y = i * 2f / NUM_VERTS;
+            positions[i * 3] = (i % 2) - 0.5f;
+            positions[i * 3 + 1] = y;
+            positions[i * 3 + 2] = (i % 3) * 0.1f;
+            normals[i * 3 + 2] = 1;
+            tans[i * 4] = 1;
+            tans[i * 4 + 3] = 1;
+            weights[i * 4] = 1 - y / 2f;
+            weights[i * 4 + 1] = y / 2f;
+            indices[i * 4] = 0;
+            indices[i * 4 + 1] = 1;
+        }
+
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(Type.Position, 3, positions);
+        mesh.setBuffer(Type.Normal, 3, normals);
+        if (tangents) {
+            mesh.setBuffer(Type.Tangent, 4, tans);
+        }
+        mesh.setBuffer(Type.BoneWeight, 4, weights);
+        mesh.setBuffer(Type.BoneIndex, 4, indices);
+        mesh.setMaxNumWeights(2);
+        mesh.generateBindPose(true);
+        return mesh;
+    }
+
+    private static SkeletonControl createModel(boolean tangents) {
+        Bone root = new Bone("Root");
+        root.setBindTransforms(new Vector3f(), new Quaternion(), Vector3f.UNIT_XYZ);
+        Bone tip = new Bone("Tip");
+        tip.setBindTransforms(new Vector3f(0, 1, 0), new Quaternion(), Vector3f.UNIT_XYZ);
+        root.addChild(tip);
+        Skeleton skeleton = new Skeleton(new Bone[]{root, tip});
+
+        Node model = new Node("Model");
+        model.attachChild(new Geometry("Body", createMesh(tangents)));
+        SkeletonControl control = new SkeletonControl(skeleton);
+        model.addControl(control);
+
+        root.setUserControl(true);
+        tip.setUserControl(true);
+        root.setUserTransforms(new Vector3f(0.5f, 0, 0), new Quaternion(), Vector3f.UNIT_XYZ);
+        tip.setUserTransforms(Vector3f.ZERO,
+                new Quaternion().fromAngleAxis(FastMath.QUARTER_PI, Vector3f.UNIT_Z), Vector3f.UNIT_XYZ);
+        skeleton.updateWorldVectors();
+        return control;
+    }
+
+    private static Mesh skin(SkeletonControl control, RenderManager rm) {
+        control.update(0);
+        control.render(rm, null);
+        rm.waitForJobs();
+        return control.getTargets()[0];
+    }
+
+    private static void assertSameData(Mesh expected, Mesh actual, Type type) {
+        FloatBuffer a = (FloatBuffer) expected.getBuffer(type).getData();
+        FloatBuffer b = (FloatBuffer) actual.getBuffer(type).getData();
+        assertEquals(a.limit(), b.limit());
+        for (int i = 0; i < a.limit(); i++) {
+            assertEquals(type + " " + i, a.get(i), b.get(i), 0f);
+        }
+    }
+
+    private void testParallelSkinning(boolean tangents) {
+        Mesh serial = skin(createModel(tangents), new RenderManager(new NullRenderer()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            RenderManager rm = new RenderManager(new NullRenderer());
+            rm.setJobExecutor(executor);
+            Mesh parallel = skin(createModel(tangents), rm);
+
+            assertSameData(serial, parallel, Type.Position);
+            assertSameData(serial, parallel, Type.Normal);
+            if (tangents) {
+                assertSameData(serial, parallel, Type.Tangent);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // the last vertex follows the tip bone
+        FloatBuffer pos = (FloatBuffer) serial.getBuffer(Type.Position).getData();
+        FloatBuffer bindPos = (FloatBuffer) serial.getBuffer(Type.BindPosePosition).getData();
+        int last = (NUM_VERTS - 1) * 3;
+        assertTrue(pos.get(last) != bindPos.get(last));
+    }
+
+    @Test
+    public void testParallelSkinning() {
+        testParallelSkinning(false);
+    }
+
+    @Test
+    public void testParallelSkinningTangents() {
+        testParallelSkinning(true);
+    }
+
+    @Test
+    public void testUserControlWithFrozenAnimation() {
+        SkeletonControl control = createModel(false);
+        AnimControl animControl = new AnimControl(control.getSkeleton());
+        animControl.setUpdateInterval(0, 0);
+        control.getSpatial().addControl(animControl);
+        RenderManager rm = new RenderManager(new NullRenderer());
+
+        int last = (NUM_VERTS - 1) * 3;
+        float before = ((FloatBuffer) skin(control, rm).getBuffer(Type.Position).getData()).get(last);
+
+        // the animation does not update, the user moves the bone
+        Bone tip = control.getSkeleton().getBone(1);
+        tip.setUserTransforms(Vector3f.ZERO,
+                new Quaternion().fromAngleAxis(-FastMath.QUARTER_PI, Vector3f.UNIT_Z), Vector3f.UNIT_XYZ);
+        control.getSkeleton().updateWorldVectors();
+
+        float after = ((FloatBuffer) skin(control, rm).getBuffer(Type.Position).getData()).get(last);
+        assertTrue(before != after);
+    }
+}
@@ -0,0 +1,210 @@
+package com.jme3.asset;
+
+import com.jme3.asset.cache.AssetCache;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DesktopAssetManagerTest {
+
+    private static final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Locates any asset, the content is the asset name.
+     */
+    public static class NameLocator implements AssetLocator {
+
+        public void setRootPath(String rootPath) {
+        }
+
+        public AssetInfo locate(AssetManager manager, AssetKey key) {
+            return new AssetInfo(manager, key) {
+                @Override
+                public InputStream openStream() {
+                    return new ByteArrayInputStream(getKey().getName().getBytes());
+                }
+            };
+        }
+    }
+
+    /**
+     * A slow loader that counts how many times it was invoked.
+     */
+    public static class SlowLoader implements AssetLoader {
+
+        public Object load(AssetInfo assetInfo) throws IOException {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+            }
+            return assetInfo.getKey().getName();
+        }
+    }
+
+    /**
+     * A cache that never keeps anything.
+     */
+    public static class NoCache implements AssetCache {
+
+        public <T> void addToCache(AssetKey<T> key, T obj) {
+        }
+
+        public <T> void registerAssetClone(AssetKey<T> key, T clone) {
+        }
+
+        public void notifyNoAssetClone() {
+        }
+
+        public <T> T getFromCache(AssetKey<T> key) {
+            return null;
+        }
+
+        public boolean deleteFromCache(AssetKey key) {
+            return false;
+        }
+
+        public void clearCache() {
+        }
+    }
+
+    public static class UncachedKey extends AssetKey<Object> {
+
+        public UncachedKey(String name) {
+            super(name);
+        }
+
+        @Override
+        public Class<? extends AssetCache> getCacheType() {
+            return NoCache.class;
+        }
+    }
+
+    private static final CyclicBarrier cycleBarrier = new CyclicBarrier(2);
+
+    private static final ThreadLocal<Boolean> inCycleLoad = new ThreadLocal<Boolean>();
+
+    /**
+     * x.cycle needs y.cycle and y.cycle needs x.cycle, but only when
+     * requested first on a thread. Both threads take their own load
+     * before asking for the other asset.
+     */
+    public static class CycleLoader implements AssetLoader {
+
+        public Object load(AssetInfo assetInfo) throws IOException {
+            loads.incrementAndGet();
+            String name = assetInfo.getKey().getName();
+            if (inCycleLoad.get() == null) {
+                inCycleLoad.set(Boolean.TRUE);
+                try {
+                    cycleBarrier.await();
+                    String other = name.equals("x.cycle") ? "y.cycle" : "x.cycle";
+                    assetInfo.getManager().loadAsset(new UncachedKey(other));
+                } catch (Exception ex) {
+                    throw new IOException(ex.toString());
+                } finally {
+                    inCycleLoad.remove();
+                }
+            }
+            return name;
+        }
+    }
+
+    private DesktopAssetManager assetManager;
+
+    @Before
+    public void setUp() {
+        loads.set(0);
+        assetManager = new DesktopAssetManager();
+        assetManager.registerLocator("/", NameLocator.class);
+        assetManager.registerLoader(SlowLoader.class, "slow");
+        assetManager.registerLoader(CycleLoader.class, "cycle");
+    }
+
+    private Object[] loadConcurrently(final AssetKey<Object> key) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final Object[] results = new Object[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                    }
+                    results[index] = assetManager.loadAsset(key);
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        return results;
+    }
+
+    @Test
+    public void testConcurrentLoadsAreDeduplicated() throws Exception {
+        Object[] results = loadConcurrently(new AssetKey<Object>("shared.slow"));
+        assertEquals(1, loads.get());
+        for (Object result : results) {
+            assertEquals("shared.slow", result);
+        }
+    }
+
+    @Test
+    public void testConcurrentLoadsShareResultWithoutCache() throws Exception {
+        Object[] results = loadConcurrently(new UncachedKey("shared.slow"));
+        assertEquals(1, loads.get());
+        for (Object result : results) {
+            assertEquals("shared.slow", result);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCrossThreadCycle() throws Exception {
+        final Object[] results = new Object[2];
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                results[1] = assetManager.loadAsset(new UncachedKey("y.cycle"));
+            }
+        };
+        other.start();
+        results[0] = assetManager.loadAsset(new UncachedKey("x.cycle"));
+        other.join();
+
+        assertEquals("x.cycle", results[0]);
+        assertEquals("y.cycle", results[1]);
+        // one of the dependencies is loaded again instead of waiting
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testLoadAssetsAsync() throws Exception {
+        List<AssetKey<Object>> keys = new ArrayList<AssetKey<Object>>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(new AssetKey<Object>("asset" + (i % 5) + ".slow"));
+        }
+
+        List<Future<Object>> futures = assetManager.loadAssetsAsync(keys, 1);
+        assertEquals(keys.size(), futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(keys.get(i).getName(), futures.get(i).get());
+        }
+        // the assets stay in the cache, so each one is loaded once
+        assertEquals(5, loads.get());
+    }
+}
@@ -0,0 +1,72 @@
+package com.jme3.asset.cache;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.cache.BoundedAssetCache.EvictionPolicy;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class BoundedAssetCacheTest {
+
+    private static final long ENTRY = BoundedAssetCache.estimateSize(new byte[1000]);
+
+    private static AssetKey<byte[]> key(String name) {
+        return new AssetKey<byte[]>(name);
+    }
+
+    @Test
+    public void testLeastRecentlyUsed() {
+        BoundedAssetCache cache = new BoundedAssetCache(3 * ENTRY, EvictionPolicy.LeastRecentlyUsed);
+        cache.addToCache(key("a"), new byte[1000]);
+        cache.addToCache(key("b"), new byte[1000]);
+        cache.addToCache(key("c"), new byte[1000]);
+        assertEquals(3 * ENTRY, cache.getUsedBytes());
+
+        assertNotNull(cache.getFromCache(key("a")));
+        cache.addToCache(key("d"), new byte[1000]);
+
+        assertNull(cache.getFromCache(key("b")));
+        assertNotNull(cache.getFromCache(key("a")));
+        assertNotNull(cache.getFromCache(key("c")));
+        assertNotNull(cache.getFromCache(key("d")));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(4, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(3 * ENTRY, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testLeastFrequentlyUsed() {
+        BoundedAssetCache cache = new BoundedAssetCache(3 * ENTRY, EvictionPolicy.LeastFrequentlyUsed);
+        cache.addToCache(key("a"), new byte[1000]);
+        cache.addToCache(key("b"), new byte[1000]);
+        cache.addToCache(key("c"), new byte[1000]);
+        cache.getFromCache(key("a"));
+        cache.getFromCache(key("a"));
+        cache.getFromCache(key("b"));
+        cache.getFromCache(key("b"));
+        cache.getFromCache(key("c"));
+
+        // c was used last, but the least times
+        cache.addToCache(key("d"), new byte[1000]);
+        assertNull(cache.getFromCache(key("c")));
+        assertNotNull(cache.getFromCache(key("a")));
+        assertNotNull(cache.getFromCache(key("b")));
+    }
+
+    @Test
+    public void testBudget() {
+        BoundedAssetCache cache = new BoundedAssetCache(2 * ENTRY, EvictionPolicy.LeastRecentlyUsed);
+        cache.addToCache(key("big"), new byte[5000]);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getUsedBytes());
+
+        cache.addToCache(key("a"), new byte[1000]);
+        cache.addToCache(key("b"), new byte[1000]);
+        cache.setMaxBytes(ENTRY);
+        assertEquals(1, cache.getSize());
+        assertNotNull(cache.getFromCache(key("b")));
+
+        assertTrue(cache.deleteFromCache(key("b")));
+        assertEquals(0, cache.getUsedBytes());
+    }
+}
@@ -0,0 +1,108 @@
+package com.jme3.collision.bih;
+
+import com.jme3.collision.CollisionResults;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Sphere;
+import com.jme3.util.CollisionDataGenerator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class BIHTreeTest {
+
+    private static void assertSameTree(BIHTree expected, BIHTree actual) {
+        FlatBIHTree a = expected.getFlatTree();
+        FlatBIHTree b = actual.getFlatTree();
+        assertArrayEquals(a.getNodes(), b.getNodes());
+        assertTrue(Arrays.equals(a.getPlanes(), b.getPlanes()));
+        assertTrue(Arrays.equals(expected.getPointData(), actual.getPointData()));
+        assertArrayEquals(expected.getTriIndices(), actual.getTriIndices());
+    }
+
+    @Test
+    public void testParallelConstruct() {
+        Mesh mesh = new Sphere(100, 100, 5);
+        assertTrue(mesh.getTriangleCount() >= BIHTree.PARALLEL_CONSTRUCT_THRESHOLD);
+
+        BIHTree sequential = new BIHTree(mesh);
+        sequential.construct();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            BIHTree parallel = new BIHTree(mesh);
+            parallel.construct(executor);
+            assertSameTree(sequential, parallel);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Mesh mesh = new Sphere(40, 40, 5);
+        mesh.createCollisionData();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryExporter.getInstance().save(mesh, out);
+        Mesh loaded = (Mesh) new BinaryImporter().load(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(loaded.hasCollisionData());
+
+        FlatBIHTree saved = mesh.getFlatCollisionTree();
+        FlatBIHTree restored = loaded.getFlatCollisionTree();
+        assertArrayEquals(saved.getNodes(), restored.getNodes());
+        assertTrue(Arrays.equals(saved.getPlanes(), restored.getPlanes()));
+
+        Geometry original = new Geometry("original", mesh);
+        Geometry copy = new Geometry("copy", loaded);
+        original.updateGeometricState();
+        copy.updateGeometricState();
+        Ray ray = new Ray(new Vector3f(-20, 1, 0.5f), Vector3f.UNIT_X);
+        CollisionResults a = new CollisionResults();
+        CollisionResults b = new CollisionResults();
+        assertEquals(2, original.collideWith(ray, a));
+        assertEquals(2, copy.collideWith(ray, b));
+        assertEquals(a.getClosestCollision().getDistance(), b.getClosestCollision().getDistance(), 0f);
+
+        // Without collision data, nothing is saved
+        mesh.clearCollisionData();
+        out = new ByteArrayOutputStream();
+        BinaryExporter.getInstance().save(mesh, out);
+        loaded = (Mesh) new BinaryImporter().load(new ByteArrayInputStream(out.toByteArray()));
+        assertFalse(loaded.hasCollisionData());
+    }
+
+    @Test
+    public void testGenerator() throws Exception {
+        Mesh shared = new Box(1, 1, 1);
+        Mesh other = new Sphere(10, 10, 1);
+        Node scene = new Node("scene");
+        scene.attachChild(new Geometry("a", shared));
+        scene.attachChild(new Geometry("b", shared));
+        scene.attachChild(new Geometry("c", other));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertSame(scene, CollisionDataGenerator.generateAsync(scene, executor).get());
+            assertTrue(shared.hasCollisionData());
+            assertTrue(other.hasCollisionData());
+            assertEquals(0, CollisionDataGenerator.generate(scene, executor));
+
+            other.clearCollisionData();
+            assertEquals(1, CollisionDataGenerator.generate(scene, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.jme3.collision.bih;
+
+import com.jme3.collision.CollisionResult;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Sphere;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class FlatBIHTreeTest {
+
+    private static final int RAYS = 2000;
+
+    private float[] createRays(Random random, Vector3f center, float limit) {
+        float[] rays = new float[RAYS * FlatBIHTree.RAY_STRIDE];
+        for (int i = 0; i < RAYS; i++) {
+            Vector3f origin = new Vector3f(random.nextFloat() - 0.5f,
+                                           random.nextFloat() - 0.5f,
+                                           random.nextFloat() - 0.5f).multLocal(30).addLocal(center);
+            Vector3f target = new Vector3f(random.nextFloat() - 0.5f,
+                                           random.nextFloat() - 0.5f,
+                                           random.nextFloat() - 0.5f).multLocal(8).addLocal(center);
+            Vector3f dir = target.subtractLocal(origin).normalizeLocal();
+            int o = i * FlatBIHTree.RAY_STRIDE;
+            rays[o] = origin.x;
+            rays[o + 1] = origin.y;
+            rays[o + 2] = origin.z;
+            rays[o + 3] = dir.x;
+            rays[o + 4] = dir.y;
+            rays[o + 5] = dir.z;
+            rays[o + 6] = limit;
+        }
+        return rays;
+    }
+
+    private Geometry createGeometry() {
+        Geometry geom = new Geometry("Sphere", new Sphere(32, 32, 5));
+        geom.setLocalTranslation(3, -2, 7);
+        geom.setLocalRotation(new Quaternion().fromAngles(0.3f, 1.1f, -0.4f));
+        geom.setLocalScale(1.5f, 0.75f, 1f);
+        geom.updateGeometricState();
+        return geom;
+    }
+
+    private void assertMatchesGeometry(Geometry geom, float[] rays, float[] distances, int[] triangles) {
+        int hits = 0;
+        for (int i = 0; i < RAYS; i++) {
+            int o = i * FlatBIHTree.RAY_STRIDE;
+            Ray ray = new Ray(new Vector3f(rays[o], rays[o + 1], rays[o + 2]),
+                              new Vector3f(rays[o + 3], rays[o + 4], rays[o + 5]));
+            ray.setLimit(rays[o + 6]);
+            CollisionResults results = new CollisionResults();
+            geom.collideWith(ray, results);
+            CollisionResult closest = results.getClosestCollision();
+            if (closest == null || closest.getDistance() > rays[o + 6]) {
+                assertEquals(Float.POSITIVE_INFINITY, distances[i], 0);
+                assertEquals(-1, triangles[i]);
+            } else {
+                assertEquals(closest.getDistance(), distances[i], 1e-3f);
+                assertTrue(triangles[i] >= 0);
+                hits++;
+            }
+        }
+        assertTrue(hits > RAYS / 10);
+    }
+
+    @Test
+    public void testClosestHit() {
+        Geometry geom = createGeometry();
+        FlatBIHTree tree = geom.getMesh().getFlatCollisionTree();
+        assertEquals(geom.getMesh().getTriangleCount(), tree.getTriangleCount());
+        assertSame(tree, geom.getMesh().getFlatCollisionTree());
+
+        float[] rays = createRays(new Random(5), geom.getWorldTranslation(), Float.POSITIVE_INFINITY);
+        float[] distances = new float[RAYS];
+        int[] triangles = new int[RAYS];
+        int hits = tree.intersectRays(rays, RAYS, geom.getWorldMatrix(), false, distances, triangles, null);
+        assertMatchesGeometry(geom, rays, distances, triangles);
+
+        // limited rays
+        rays = createRays(new Random(6), geom.getWorldTranslation(), 12f);
+        hits = tree.intersectRays(rays, RAYS, geom.getWorldMatrix(), false, distances, triangles, null);
+        assertMatchesGeometry(geom, rays, distances, triangles);
+        assertTrue(hits > 0);
+    }
+
+    @Test
+    public void testThreadsAndAnyHit() {
+        Geometry geom = createGeometry();
+        FlatBIHTree tree = geom.getMesh().getFlatCollisionTree();
+        float[] rays = createRays(new Random(7), geom.getWorldTranslation(), Float.POSITIVE_INFINITY);
+
+        float[] distances = new float[RAYS];
+        int[] triangles = new int[RAYS];
+        int hits = tree.intersectRays(rays, RAYS, geom.getWorldMatrix(), false, distances, triangles, null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            float[] threadedDistances = new float[RAYS];
+            int[] threadedTriangles = new int[RAYS];
+            assertEquals(hits, tree.intersectRays(rays, RAYS, geom.getWorldMatrix(), false,
+                                                  threadedDistances, threadedTriangles, executor));
+            for (int i = 0; i < RAYS; i++) {
+                assertEquals(distances[i], threadedDistances[i], 0);
+                assertEquals(triangles[i], threadedTriangles[i]);
+            }
+
+            float[] anyDistances = new float[RAYS];
+            assertEquals(hits, tree.intersectRays(rays, RAYS, geom.getWorldMatrix(), true,
+                                                  anyDistances, null, executor));
+            for (int i = 0; i < RAYS; i++) {
+                assertEquals(Float.isInfinite(distances[i]), Float.isInfinite(anyDistances[i]));
+                assertTrue(anyDistances[i] >= distances[i]);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
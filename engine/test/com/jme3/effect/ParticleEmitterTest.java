@@ -0,0 +1,200 @@
+package com.jme3.effect;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.effect.influencers.DefaultParticleInfluencer;
+import com.jme3.effect.shapes.EmitterShape;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.VertexBuffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ParticleEmitterTest {
+
+    /**
+     * Creates an emitter whose particles all start at the origin with
+     * the same velocity and life, so that the simulation is predictable.
+     */
+    private static ParticleEmitter createEmitter(int numParticles) {
+        ParticleEmitter emitter = new ParticleEmitter("Emitter", ParticleMesh.Type.Triangle, numParticles);
+        emitter.getParticleInfluencer().setInitialVelocity(new Vector3f(1, 2, 3));
+        emitter.getParticleInfluencer().setVelocityVariation(0);
+        emitter.setGravity(0, 1, 0);
+        emitter.setLowLife(2);
+        emitter.setHighLife(2);
+        emitter.setStartColor(new ColorRGBA(1, 0, 0, 1));
+        emitter.setEndColor(new ColorRGBA(0, 0, 1, 0));
+        emitter.setStartSize(1);
+        emitter.setEndSize(3);
+        emitter.setParticlesPerSec(0);
+        return emitter;
+    }
+
+    @Test
+    public void testUpdate() {
+        ParticleEmitter emitter = createEmitter(10);
+        emitter.emitAllParticles();
+        assertEquals(10, emitter.getNumVisibleParticles());
+
+        emitter.updateFromControl(0.5f);
+        emitter.updateFromControl(0.5f);
+
+        ParticleData data = emitter.getParticleData();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, data.life[i], 1e-5f);
+            assertEquals(1, data.positions[i * 3], 1e-5f);
+            // the velocity loses 0.5 to gravity before each step
+            assertEquals(1.5f * 0.5f + 1f * 0.5f, data.positions[i * 3 + 1], 1e-5f);
+            assertEquals(3, data.positions[i * 3 + 2], 1e-5f);
+            assertEquals(1, data.velocities[i * 3 + 1], 1e-5f);
+            assertEquals(0.5f, data.colors[i * 4], 1e-5f);
+            assertEquals(0.5f, data.colors[i * 4 + 2], 1e-5f);
+            assertEquals(2, data.sizes[i], 1e-5f);
+        }
+
+        // all particles die at the same time
+        emitter.updateFromControl(1.5f);
+        assertEquals(0, emitter.getNumVisibleParticles());
+        assertEquals(0, data.life[0], 0);
+        assertEquals(0, data.sizes[0], 0);
+    }
+
+    @Test
+    public void testKilledParticlesAreCompacted() {
+        ParticleEmitter emitter = createEmitter(10);
+        emitter.emitAllParticles();
+        ParticleData data = emitter.getParticleData();
+        for (int i = 0; i < 10; i++) {
+            data.startLife[i] = 2 + i;
+            data.life[i] = 2 + i;
+        }
+        emitter.killParticle(2);
+        emitter.killParticle(5);
+        emitter.killParticle(9);
+        assertEquals(9, emitter.getNumVisibleParticles());
+
+        emitter.updateFromControl(0.1f);
+        assertEquals(7, emitter.getNumVisibleParticles());
+        float[] expected = {1.9f, 2.9f, 4.9f, 5.9f, 7.9f, 8.9f, 9.9f};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], data.life[i], 1e-5f);
+        }
+        for (int i = expected.length; i < 10; i++) {
+            assertEquals(0, data.life[i], 0);
+        }
+
+        // new particles are emitted after the living ones
+        emitter.emitAllParticles();
+        assertEquals(10, emitter.getNumVisibleParticles());
+        assertEquals(9.9f, data.life[6], 1e-5f);
+        assertEquals(2, data.life[7], 0);
+    }
+
+    @Test
+    public void testParticlesPerSec() {
+        ParticleEmitter emitter = createEmitter(100);
+        emitter.setParticlesPerSec(10);
+        emitter.updateFromControl(0.55f);
+        assertEquals(5, emitter.getNumVisibleParticles());
+
+        // each particle is aged by the time since it was emitted
+        ParticleData data = emitter.getParticleData();
+        assertEquals(2 - 0.45f, data.life[0], 1e-5f);
+        assertEquals(2 - 0.05f, data.life[4], 1e-5f);
+    }
+
+    @Test
+    public void testParallelUpdate() throws InterruptedException {
+        int numParticles = ParticleEmitter.PARTICLES_PER_TASK * 4 + 10;
+        ParticleEmitter sequential = createEmitter(numParticles);
+        ParticleEmitter parallel = createEmitter(numParticles);
+        sequential.emitAllParticles();
+        parallel.emitAllParticles();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            parallel.setUpdateExecutor(executor);
+            for (int frame = 0; frame < 5; frame++) {
+                sequential.updateFromControl(0.1f);
+                parallel.updateFromControl(0.1f);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        ParticleData a = sequential.getParticleData();
+        ParticleData b = parallel.getParticleData();
+        assertTrue(Arrays.equals(a.positions, b.positions));
+        assertTrue(Arrays.equals(a.velocities, b.velocities));
+        assertTrue(Arrays.equals(a.colors, b.colors));
+        assertTrue(Arrays.equals(a.life, b.life));
+        BoundingBox boundA = (BoundingBox) sequential.getMesh().getBound();
+        BoundingBox boundB = (BoundingBox) parallel.getMesh().getBound();
+        assertEquals(boundA.getCenter(), boundB.getCenter());
+        assertEquals(boundA.getExtent(null), boundB.getExtent(null));
+    }
+
+    @Test
+    public void testSingleParticleInfluencer() {
+        ParticleEmitter emitter = createEmitter(4);
+        // predates range influencers, overrides the single particle method only
+        emitter.setParticleInfluencer(new DefaultParticleInfluencer() {
+            @Override
+            public void influenceParticle(Particle particle, EmitterShape emitterShape) {
+                particle.position.set(5, 6, 7);
+                particle.velocity.set(0, 0, 0);
+            }
+        });
+        emitter.emitAllParticles();
+
+        Particle[] particles = emitter.getParticles();
+        for (Particle p : particles) {
+            assertEquals(new Vector3f(5, 6, 7), p.position);
+            assertEquals(2, p.life, 0);
+        }
+
+        // the particles are copies
+        particles[0].life = 0;
+        assertEquals(2, emitter.getParticleData().life[0], 0);
+    }
+
+    @Test
+    public void testTriangleMeshData() {
+        ParticleEmitter emitter = createEmitter(3);
+        emitter.emitAllParticles();
+        emitter.killParticle(2);
+
+        ParticleTriMesh mesh = (ParticleTriMesh) emitter.getMesh();
+        mesh.updateParticleData(emitter.getParticleData(), new Camera(640, 480), Matrix3f.IDENTITY);
+
+        FloatBuffer positions = (FloatBuffer) mesh.getBuffer(VertexBuffer.Type.Position).getData();
+        ByteBuffer colors = (ByteBuffer) mesh.getBuffer(VertexBuffer.Type.Color).getData();
+        int red = new ColorRGBA(1, 0, 0, 1).asIntABGR();
+        for (int i = 0; i < 2; i++) {
+            // the quad is centered on the particle
+            Vector3f center = new Vector3f();
+            for (int v = 0; v < 4; v++) {
+                int idx = (i * 4 + v) * 3;
+                center.addLocal(positions.get(idx), positions.get(idx + 1), positions.get(idx + 2));
+                assertEquals(red, colors.getInt((i * 4 + v) * 4));
+            }
+            assertTrue(center.divideLocal(4).distance(Vector3f.ZERO) < 1e-5f);
+            // opposite corners are two sizes apart on both axes
+            Vector3f corner1 = new Vector3f(positions.get(i * 12), positions.get(i * 12 + 1), positions.get(i * 12 + 2));
+            Vector3f corner4 = new Vector3f(positions.get(i * 12 + 9), positions.get(i * 12 + 10), positions.get(i * 12 + 11));
+            assertEquals(2 * FastMath.sqrt(2), corner1.distance(corner4), 1e-5f);
+        }
+        // dead particles are collapsed
+        for (int idx = 24; idx < 36; idx++) {
+            assertEquals(0, positions.get(idx), 0);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.jme3.export.binary;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.asset.plugins.ZipLocator;
+import com.jme3.export.Savable;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer.Type;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class BinaryImporterTest {
+
+    private static Mesh createMesh() {
+        float[] positions = new float[3000];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i * 0.5f;
+        }
+        short[] indices = new short[1000];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = (short) i;
+        }
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(Type.Position, 3, positions);
+        mesh.setBuffer(Type.Index, 1, indices);
+        mesh.updateCounts();
+        return mesh;
+    }
+
+    private static byte[] save(Savable savable) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryExporter.getInstance().save(savable, out);
+        return out.toByteArray();
+    }
+
+    private static void assertSamePositions(Mesh expected, Mesh actual) {
+        FloatBuffer a = (FloatBuffer) expected.getBuffer(Type.Position).getData();
+        FloatBuffer b = (FloatBuffer) actual.getBuffer(Type.Position).getData();
+        assertEquals(a.limit(), b.limit());
+        for (int i = 0; i < a.limit(); i++) {
+            assertEquals(a.get(i), b.get(i), 0f);
+        }
+        assertEquals(expected.getTriangleCount(), actual.getTriangleCount());
+    }
+
+    @Test
+    public void testLoadFromBuffer() throws IOException {
+        byte[] data = save(createMesh());
+
+        Mesh fromStream = (Mesh) new BinaryImporter().load(new ByteArrayInputStream(data));
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        Mesh fromBuffer = (Mesh) new BinaryImporter().load(direct);
+
+        assertSamePositions(fromStream, fromBuffer);
+        assertTrue(((FloatBuffer) fromBuffer.getBuffer(Type.Position).getData()).isDirect());
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        File dir = createTempDir();
+        Mesh mesh = createMesh();
+        byte[] data = save(mesh);
+        File file = new File(dir, "mesh.j3o");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(data);
+        out.close();
+
+        FileLocator locator = new FileLocator();
+        locator.setRootPath(dir.getPath());
+        AssetInfo info = locator.locate(null, new AssetKey("mesh.j3o"));
+        ByteBuffer mapped = info.openMappedBuffer();
+        assertNotNull(mapped);
+        assertTrue(mapped.isReadOnly());
+
+        Mesh loaded = (Mesh) new BinaryImporter().load(mapped);
+        assertSamePositions(mesh, loaded);
+
+        // The loaded buffers are writable copies, changes never reach the file
+        FloatBuffer positions = (FloatBuffer) loaded.getBuffer(Type.Position).getData();
+        assertFalse(positions.isReadOnly());
+        positions.put(0, -1f);
+        Mesh reloaded = (Mesh) new BinaryImporter().load(info.openMappedBuffer());
+        assertSamePositions(mesh, reloaded);
+    }
+
+    @Test
+    public void testMappedZipEntry() throws IOException {
+        File dir = createTempDir();
+        Mesh mesh = createMesh();
+        byte[] data = save(mesh);
+
+        File zip = new File(dir, "assets.zip");
+        zip.deleteOnExit();
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+        out.putNextEntry(new ZipEntry("Models/deflated.j3o"));
+        out.write(data);
+        out.closeEntry();
+        ZipEntry stored = new ZipEntry("Models/stored.j3o");
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        stored.setMethod(ZipEntry.STORED);
+        stored.setSize(data.length);
+        stored.setCrc(crc.getValue());
+        out.putNextEntry(stored);
+        out.write(data);
+        out.closeEntry();
+        out.close();
+
+        ZipLocator locator = new ZipLocator();
+        locator.setRootPath(zip.getPath());
+        assertNull(locator.locate(null, new AssetKey("Models/deflated.j3o")).openMappedBuffer());
+
+        ByteBuffer mapped = locator.locate(null, new AssetKey("Models/stored.j3o")).openMappedBuffer();
+        assertNotNull(mapped);
+        assertEquals(data.length, mapped.remaining());
+        assertSamePositions(mesh, (Mesh) new BinaryImporter().load(mapped));
+    }
+
+    private static Node createScene() {
+        Node root = new Node("root");
+        Node a = new Node("a");
+        a.setUserData("level", 3);
+        a.setLocalTranslation(1, 2, 3);
+        a.attachChild(new Geometry("g1", createMesh()));
+        Node b = new Node("b");
+        b.attachChild(new Geometry("g2", createMesh()));
+        a.attachChild(b);
+        root.attachChild(a);
+        root.attachChild(new Geometry("g3", createMesh()));
+        return root;
+    }
+
+    @Test
+    public void testLazyLoading() throws IOException {
+        byte[] data = save(createScene());
+        BinaryImporter importer = new BinaryImporter();
+        importer.setLazyLoading(true);
+        Node root = (Node) importer.load(data);
+
+        assertEquals(2, root.getQuantity());
+        SpatialPlaceholder a = (SpatialPlaceholder) root.getChild(0);
+        assertEquals("a", a.getName());
+        assertEquals(Integer.valueOf(3), a.<Integer>getUserData("level"));
+        assertEquals(2f, a.getLocalTranslation().y, 0f);
+        assertTrue(root.getChild(1) instanceof SpatialPlaceholder);
+
+        Spatial loaded = a.load();
+        assertTrue(loaded instanceof Node);
+        assertSame(loaded, root.getChild(0));
+        assertSame(root, loaded.getParent());
+        assertEquals(2f, loaded.getLocalTranslation().y, 0f);
+        assertTrue(((Node) loaded).getChild(0) instanceof SpatialPlaceholder);
+
+        SpatialPlaceholder.loadAll(root);
+        Geometry g2 = (Geometry) ((Node) ((Node) loaded).getChild(1)).getChild(0);
+        assertEquals("g2", g2.getName());
+        assertSamePositions(createMesh(), g2.getMesh());
+    }
+
+    @Test
+    public void testLazyLoadControl() throws IOException {
+        byte[] data = save(createScene());
+        BinaryImporter importer = new BinaryImporter();
+        importer.setLazyLoading(true);
+        Node root = (Node) importer.load(data);
+        LazyLoadControl control = new LazyLoadControl(2);
+        root.addControl(control);
+
+        int frames = 0;
+        while (!control.isDone()) {
+            root.updateLogicalState(0.1f);
+            frames++;
+        }
+        // a and g3, then g1 and b, then g2
+        assertEquals(3, frames);
+        Node b = (Node) root.getChild("b");
+        assertTrue(b.getChild(0) instanceof Geometry);
+        assertTrue(root.getChild(1) instanceof Geometry);
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("binaryimporter", "");
+        dir.delete();
+        dir.mkdir();
+        dir.deleteOnExit();
+        return dir;
+    }
+}
@@ -0,0 +1,247 @@
+package com.jme3.network.base;
+
+import com.jme3.math.Vector3f;
+import com.jme3.network.AbstractMessage;
+import com.jme3.network.HostedConnection;
+import com.jme3.network.Message;
+import com.jme3.network.Server;
+import com.jme3.network.kernel.KernelException;
+import com.jme3.network.serializing.Serializable;
+import com.jme3.network.serializing.Serializer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class InterestManagerTest {
+
+    @Serializable
+    public static class EntityUpdate extends AbstractMessage {
+        public int id;
+        public Vector3f position;
+        public float heading;
+
+        public EntityUpdate() {
+        }
+
+        public EntityUpdate(int id, Vector3f position) {
+            super(false);
+            this.id = id;
+            this.position = position;
+        }
+    }
+
+    private static class TestConnection implements HostedConnection {
+        private final int id;
+
+        TestConnection(int id) {
+            this.id = id;
+        }
+
+        public Server getServer() {
+            return null;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getAddress() {
+            return null;
+        }
+
+        public void close(String reason) {
+        }
+
+        public Object setAttribute(String name, Object value) {
+            return null;
+        }
+
+        public <T> T getAttribute(String name) {
+            return null;
+        }
+
+        public Set<String> attributeNames() {
+            return null;
+        }
+
+        public void send(Message message) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void send(int channel, Message message) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Records what each connection receives instead of sending it.
+     */
+    private static class RecordingManager extends InterestManager {
+        Map<HostedConnection, List<Message>> received = new HashMap<HostedConnection, List<Message>>();
+        int batches;
+        int largestUnreliableBatch;
+
+        RecordingManager(float cellSize) {
+            super(cellSize);
+        }
+
+        @Override
+        protected void send(HostedConnection conn, ByteBuffer batch, boolean reliable) {
+            batches++;
+            if (!reliable) {
+                largestUnreliableBatch = Math.max(largestUnreliableBatch, batch.remaining());
+            }
+            MessageProtocol protocol = new MessageProtocol();
+            protocol.addBuffer(batch.duplicate());
+            List<Message> list = received.get(conn);
+            if (list == null) {
+                list = new ArrayList<Message>();
+                received.put(conn, list);
+            }
+            Message m;
+            while ((m = protocol.getMessage()) != null) {
+                list.add(m);
+            }
+        }
+
+        List<Message> take(HostedConnection conn) {
+            List<Message> list = received.remove(conn);
+            return list == null ? new ArrayList<Message>() : list;
+        }
+    }
+
+    private static int serializedSize(Message m) {
+        return MessageProtocol.messageToBuffer(m, ByteBuffer.allocate(32767)).remaining();
+    }
+
+    @Test
+    public void testBytesPerTickVersusBroadcast() {
+        Serializer.registerClass(EntityUpdate.class);
+
+        int numClients = 200;
+        int numEntities = 2000;
+        float worldSize = 1000;
+        float radius = 75;
+        Random random = new Random(42);
+
+        RecordingManager manager = new RecordingManager(radius);
+        TestConnection[] clients = new TestConnection[numClients];
+        Vector3f[] centers = new Vector3f[numClients];
+        for (int i = 0; i < numClients; i++) {
+            clients[i] = new TestConnection(i);
+            centers[i] = new Vector3f(random.nextFloat() * worldSize, 0, random.nextFloat() * worldSize);
+            manager.setInterest(clients[i], centers[i], radius);
+        }
+
+        EntityUpdate[] entities = new EntityUpdate[numEntities];
+        for (int i = 0; i < numEntities; i++) {
+            entities[i] = new EntityUpdate(i, new Vector3f(random.nextFloat() * worldSize, 0, random.nextFloat() * worldSize));
+        }
+
+        for (int tick = 0; tick < 3; tick++) {
+            long broadcastBytes = 0;
+            for (EntityUpdate e : entities) {
+                e.position.x = Math.min(worldSize, e.position.x + random.nextFloat());
+                e.heading = tick;
+                manager.post(e, e.position);
+                // a broadcast sends every update to every client
+                broadcastBytes += (long) serializedSize(e) * numClients;
+            }
+            long interestBytes = manager.flush();
+            assertEquals(0, manager.getPendingCount());
+
+            long expectedBytes = 0;
+            for (int c = 0; c < numClients; c++) {
+                Set<Integer> expected = new HashSet<Integer>();
+                for (EntityUpdate e : entities) {
+                    if (e.position.distance(centers[c]) <= radius) {
+                        expected.add(e.id);
+                        expectedBytes += serializedSize(e);
+                    }
+                }
+                Set<Integer> actual = new HashSet<Integer>();
+                for (Message m : manager.take(clients[c])) {
+                    assertEquals(tick, ((EntityUpdate) m).heading, 0);
+                    actual.add(((EntityUpdate) m).id);
+                }
+                assertEquals(expected, actual);
+            }
+            assertEquals(expectedBytes, interestBytes);
+            assertTrue("Sent " + interestBytes + " bytes, broadcast " + broadcastBytes,
+                       interestBytes * 20 < broadcastBytes);
+        }
+        assertTrue(manager.largestUnreliableBatch <= InterestManager.DEFAULT_MAX_DATAGRAM_SIZE);
+    }
+
+    @Test
+    public void testOrderAndChannels() {
+        Serializer.registerClass(EntityUpdate.class);
+        RecordingManager manager = new RecordingManager(10);
+        TestConnection near = new TestConnection(1);
+        TestConnection far = new TestConnection(2);
+        TestConnection none = new TestConnection(3);
+        manager.setInterest(near, new Vector3f(0, 0, 0), 5);
+        manager.setInterest(far, new Vector3f(-100, 0, 0), 5);
+
+        // spread over several cells, including negative ones
+        Vector3f[] positions = {new Vector3f(4, 0, 0), new Vector3f(-4, 1, 0), new Vector3f(0, 0, -3),
+                                new Vector3f(3, 0, 3), new Vector3f(-99, 0, 0)};
+        for (int i = 0; i < positions.length; i++) {
+            EntityUpdate e = new EntityUpdate(i, positions[i]);
+            e.setReliable(i % 2 == 0);
+            manager.post(e, positions[i]);
+        }
+        manager.flush();
+        // one reliable and one unreliable batch for near, one for far
+        assertEquals(3, manager.batches);
+
+        List<Message> received = manager.take(near);
+        assertEquals(4, received.size());
+        int[] expectedOrder = {0, 2, 1, 3};
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(expectedOrder[i], ((EntityUpdate) received.get(i)).id);
+        }
+        assertEquals(1, manager.take(far).size());
+        assertTrue(manager.take(none).isEmpty());
+
+        // closed connections are forgotten
+        manager.connectionRemoved(null, near);
+        manager.post(new EntityUpdate(5, new Vector3f()), new Vector3f());
+        manager.flush();
+        assertTrue(manager.take(near).isEmpty());
+    }
+
+    @Test
+    public void testClosingConnectionDoesNotStopFlush() {
+        Serializer.registerClass(EntityUpdate.class);
+        final TestConnection closing = new TestConnection(1);
+        RecordingManager manager = new RecordingManager(10) {
+            @Override
+            protected void send(HostedConnection conn, ByteBuffer batch, boolean reliable) {
+                if (conn == closing) {
+                    throw new KernelException("Endpoint is not connected");
+                }
+                super.send(conn, batch, reliable);
+            }
+        };
+        TestConnection[] clients = new TestConnection[5];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = i == 2 ? closing : new TestConnection(i + 10);
+            manager.setInterest(clients[i], new Vector3f(0, 0, 0), 5);
+        }
+
+        manager.post(new EntityUpdate(1, new Vector3f(1, 0, 0)), new Vector3f(1, 0, 0));
+        manager.flush();
+        for (TestConnection client : clients) {
+            assertEquals(client == closing ? 0 : 1, manager.take(client).size());
+        }
+        assertEquals(0, manager.getPendingCount());
+    }
+}
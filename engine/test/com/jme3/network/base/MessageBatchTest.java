@@ -0,0 +1,116 @@
+package com.jme3.network.base;
+
+import com.jme3.network.AbstractMessage;
+import com.jme3.network.Message;
+import com.jme3.network.serializing.Serializable;
+import com.jme3.network.serializing.Serializer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class MessageBatchTest {
+
+    @Serializable
+    public static class Numbered extends AbstractMessage {
+        public int number;
+        public byte[] payload;
+
+        public Numbered() {
+        }
+
+        public Numbered(int number, int payloadSize) {
+            super(true);
+            this.number = number;
+            this.payload = new byte[payloadSize];
+        }
+    }
+
+    private static class CollectingBatch extends MessageBatch {
+        final List<ByteBuffer> writes = new ArrayList<ByteBuffer>();
+
+        CollectingBatch(int size) {
+            super(size);
+        }
+
+        @Override
+        protected void write(ByteBuffer data) {
+            ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+            copy.put(data);
+            copy.flip();
+            writes.add(copy);
+        }
+    }
+
+    private static ByteBuffer frame(Message m) {
+        return MessageProtocol.messageToBuffer(m, ByteBuffer.allocate(32767));
+    }
+
+    private static List<Integer> receive(List<ByteBuffer> writes) {
+        MessageProtocol protocol = new MessageProtocol();
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (ByteBuffer b : writes) {
+            protocol.addBuffer(b.duplicate());
+            Message m;
+            while ((m = protocol.getMessage()) != null) {
+                numbers.add(((Numbered) m).number);
+            }
+        }
+        return numbers;
+    }
+
+    @Test
+    public void testMessagesSplitOnReceive() {
+        Serializer.registerClass(Numbered.class);
+        CollectingBatch batch = new CollectingBatch(MessageBatch.DEFAULT_SIZE);
+        for (int i = 0; i < 20; i++) {
+            ByteBuffer f = frame(new Numbered(i, 8));
+            batch.add(f);
+            assertEquals(0, f.position());
+        }
+        assertTrue(batch.writes.isEmpty());
+        assertFalse(batch.isEmpty());
+
+        batch.flush();
+        assertTrue(batch.isEmpty());
+        assertEquals(1, batch.writes.size());
+        batch.flush();
+        assertEquals(1, batch.writes.size());
+
+        List<Integer> received = receive(batch.writes);
+        assertEquals(20, received.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) received.get(i));
+        }
+    }
+
+    @Test
+    public void testFullAndOversizedBatches() {
+        Serializer.registerClass(Numbered.class);
+        int frameSize = frame(new Numbered(0, 100)).remaining();
+        CollectingBatch batch = new CollectingBatch(frameSize * 3);
+
+        for (int i = 0; i < 4; i++) {
+            batch.add(frame(new Numbered(i, 100)));
+        }
+        // The fourth did not fit so the first three went out
+        assertEquals(1, batch.writes.size());
+        assertEquals(frameSize * 3, batch.writes.get(0).remaining());
+
+        // Too big for any batch so it goes by itself, after the
+        // one waiting to keep the order
+        batch.add(frame(new Numbered(4, 1000)));
+        assertEquals(3, batch.writes.size());
+        assertTrue(batch.isEmpty());
+
+        batch.add(frame(new Numbered(5, 100)));
+        batch.flush();
+
+        List<Integer> received = receive(batch.writes);
+        assertEquals(6, received.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i, (int) received.get(i));
+        }
+    }
+}
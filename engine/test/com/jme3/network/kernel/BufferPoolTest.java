@@ -0,0 +1,70 @@
+package com.jme3.network.kernel;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(true, 4);
+        ByteBuffer a = pool.acquire(100);
+        assertTrue(a.isDirect());
+        assertEquals(128, a.capacity());
+        assertEquals(100, a.limit());
+        assertEquals(1, pool.getInUseCount());
+
+        assertTrue(pool.release(a));
+        assertEquals(0, pool.getInUseCount());
+
+        ByteBuffer b = pool.acquire(120);
+        assertSame(a, b);
+        assertEquals(120, b.limit());
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        assertEquals(0.5f, pool.getHitRate(), 0f);
+
+        // Different size class
+        ByteBuffer c = pool.acquire(129);
+        assertNotSame(a, c);
+        assertEquals(256, c.capacity());
+    }
+
+    @Test
+    public void testSharedBuffer() {
+        BufferPool pool = new BufferPool(false, 4);
+        ByteBuffer a = pool.acquire(10);
+        AtomicInteger users = new AtomicInteger(3);
+
+        assertFalse(pool.release(a, users));
+        assertFalse(pool.release(a, users));
+        assertEquals(1, pool.getInUseCount());
+        assertNotSame(a, pool.acquire(10));
+
+        assertTrue(pool.release(a, users));
+        assertSame(a, pool.acquire(10));
+    }
+
+    @Test
+    public void testUnpooledBuffers() {
+        BufferPool pool = new BufferPool(true, 4);
+        // Not direct, read-only or not a size class
+        assertFalse(pool.release(ByteBuffer.allocate(128)));
+        assertFalse(pool.release(ByteBuffer.allocateDirect(128).asReadOnlyBuffer()));
+        assertFalse(pool.release(ByteBuffer.allocateDirect(100)));
+        assertFalse(pool.release(null));
+
+        // Too big to be pooled
+        ByteBuffer big = pool.acquire(1 << 20);
+        assertEquals(1 << 20, big.limit());
+        assertFalse(pool.release(big));
+        assertEquals(0, pool.getInUseCount());
+
+        // A buffer the caller handed over is reused
+        ByteBuffer given = ByteBuffer.allocateDirect(128);
+        assertTrue(pool.release(given));
+        assertSame(given, pool.acquire(128));
+    }
+}
@@ -0,0 +1,33 @@
+package com.jme3.network.kernel.udp;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class UdpKernelTest {
+
+    @Test
+    public void testCallerBufferIsNotPooled() {
+        UdpKernel kernel = new UdpKernel(new InetSocketAddress(0));
+        ByteBuffer data = ByteBuffer.allocate(64);
+        data.put(new byte[10]);
+        data.flip();
+
+        kernel.broadcast(null, data, false, false);
+        assertNotSame(data, kernel.getBufferPool().acquire(10));
+        assertEquals(0, kernel.getBufferPool().getHits());
+    }
+
+    @Test
+    public void testCopyIsPooled() {
+        UdpKernel kernel = new UdpKernel(new InetSocketAddress(0));
+        ByteBuffer data = ByteBuffer.allocate(64);
+        data.put(new byte[10]);
+        data.flip();
+
+        kernel.broadcast(null, data, false, true);
+        assertNotSame(data, kernel.getBufferPool().acquire(10));
+        assertEquals(1, kernel.getBufferPool().getHits());
+    }
+}
@@ -0,0 +1,107 @@
+package com.jme3.network.serializing;
+
+import com.jme3.math.Vector3f;
+import com.jme3.network.serializing.serializers.FieldSerializer;
+import com.jme3.network.serializing.serializers.TypedFieldSerializer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class TypedFieldSerializerTest {
+
+    public static class Base {
+        protected long time;
+    }
+
+    @Serializable
+    public static class AllFields extends Base {
+        public boolean b;
+        public byte by;
+        public char c;
+        public short s;
+        public int i;
+        public float f;
+        public double d;
+        public String name;
+        public Vector3f pos;
+        public Object any;
+        public transient int skipped;
+
+        public AllFields() {
+        }
+    }
+
+    private static AllFields createSample() {
+        AllFields obj = new AllFields();
+        obj.time = 123456789012L;
+        obj.b = true;
+        obj.by = -5;
+        obj.c = 'q';
+        obj.s = 1234;
+        obj.i = -987654;
+        obj.f = 1.5f;
+        obj.d = Math.PI;
+        obj.name = "player";
+        obj.pos = new Vector3f(1, 2, 3);
+        ArrayList<Integer> list = new ArrayList<Integer>();
+        list.add(42);
+        obj.any = list;
+        obj.skipped = 7;
+        return obj;
+    }
+
+    @Test
+    public void testSelectedForSerializable() {
+        Serializer.registerClass(AllFields.class);
+        Serializer serializer = Serializer.getExactSerializer(AllFields.class);
+        assertTrue(serializer instanceof TypedFieldSerializer);
+        assertSame(AllFields.class, ((TypedFieldSerializer) serializer).getType());
+    }
+
+    @Test
+    public void testSameDataAsFieldSerializer() throws Exception {
+        Serializer.registerClass(AllFields.class);
+        AllFields obj = createSample();
+
+        FieldSerializer reflective = new FieldSerializer();
+        reflective.initialize(AllFields.class);
+        TypedFieldSerializer typed = new TypedFieldSerializer();
+        typed.initialize(AllFields.class);
+
+        ByteBuffer expected = ByteBuffer.allocate(1024);
+        reflective.writeObject(expected, obj);
+        expected.flip();
+        ByteBuffer actual = ByteBuffer.allocate(1024);
+        typed.writeObject(actual, obj);
+        actual.flip();
+        assertEquals(expected, actual);
+
+        AllFields copy = typed.readObject(actual, AllFields.class);
+        assertFalse(actual.hasRemaining());
+        assertEquals(obj.time, copy.time);
+        assertEquals(obj.b, copy.b);
+        assertEquals(obj.by, copy.by);
+        assertEquals(obj.c, copy.c);
+        assertEquals(obj.s, copy.s);
+        assertEquals(obj.i, copy.i);
+        assertEquals(obj.f, copy.f, 0f);
+        assertEquals(obj.d, copy.d, 0.0);
+        assertEquals(obj.name, copy.name);
+        assertEquals(obj.pos, copy.pos);
+        assertEquals(obj.any, copy.any);
+        assertEquals(0, copy.skipped);
+    }
+
+    @Test
+    public void testNull() throws Exception {
+        TypedFieldSerializer typed = new TypedFieldSerializer();
+        typed.initialize(AllFields.class);
+
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        typed.writeObject(buffer, null);
+        buffer.flip();
+        assertEquals(1, buffer.remaining());
+        assertNull(typed.readObject(buffer, AllFields.class));
+    }
+}
@@ -0,0 +1,235 @@
+package com.jme3.network.snapshot;
+
+import com.jme3.network.AbstractMessage;
+import com.jme3.network.Message;
+import com.jme3.network.base.MessageProtocol;
+import com.jme3.network.serializing.Serializable;
+import com.jme3.network.serializing.Serializer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class SnapshotTest {
+
+    private static final int X = 0, Y = 1, Z = 2, HEADING = 3, HEALTH = 4, STATE = 5;
+    private static final int FIELDS = 6;
+
+    @Serializable
+    public static class EntityState extends AbstractMessage {
+        public int id;
+        public float x, y, z, heading;
+        public int health, state;
+
+        public EntityState() {
+            super(false);
+        }
+    }
+
+    /**
+     * Serializes and parses the message the way the kernels do,
+     * returning the parsed copy and adding its size to the total.
+     */
+    private static Message transmit(Message m, long[] bytes) {
+        ByteBuffer buffer = MessageProtocol.messageToBuffer(m, ByteBuffer.allocate(32767));
+        bytes[0] += buffer.remaining();
+        MessageProtocol protocol = new MessageProtocol();
+        protocol.addBuffer(buffer);
+        return protocol.getMessage();
+    }
+
+    private static Snapshot createWorld(Random random, int count) {
+        Snapshot s = new Snapshot(FIELDS);
+        for (int i = 0; i < count; i++) {
+            int id = i * 3;
+            s.add(id);
+            // positions in centimeters
+            s.setInt(id, X, random.nextInt(100000));
+            s.setInt(id, Y, random.nextInt(1000));
+            s.setInt(id, Z, random.nextInt(100000));
+            s.setFloat(id, HEADING, random.nextFloat() * 360);
+            s.setInt(id, HEALTH, 100);
+            s.setInt(id, STATE, 1);
+        }
+        return s;
+    }
+
+    private static void tick(Random random, Snapshot s, int nextId) {
+        for (int i = 0; i < s.size(); i++) {
+            int id = s.getEntityId(i);
+            s.setInt(id, X, s.getInt(id, X) + random.nextInt(21) - 10);
+            s.setInt(id, Z, s.getInt(id, Z) + random.nextInt(21) - 10);
+            if (random.nextInt(4) == 0) {
+                s.setFloat(id, HEADING, random.nextFloat() * 360);
+            }
+            if (random.nextInt(50) == 0) {
+                s.setInt(id, HEALTH, random.nextInt(101));
+            }
+            if (random.nextInt(100) == 0) {
+                s.setInt(id, STATE, random.nextInt(8));
+            }
+        }
+        // a few entities leave and others arrive
+        for (int i = 0; i < 5; i++) {
+            s.remove(s.getEntityId(random.nextInt(s.size())));
+            s.add(nextId + i);
+        }
+    }
+
+    @Test
+    public void testLossyLoopback() {
+        Serializer.registerClass(EntityState.class);
+        Random random = new Random(42);
+        Snapshot world = createWorld(random, 1000);
+        int nextId = 3000;
+
+        SnapshotEncoder encoder = new SnapshotEncoder(FIELDS);
+        SnapshotDecoder decoder = new SnapshotDecoder(FIELDS);
+        Map<Integer, Snapshot> sent = new HashMap<Integer, Snapshot>();
+        List<Message> delayed = new ArrayList<Message>();
+        long[] deltaBytes = new long[1];
+        long[] ackBytes = new long[1];
+        int decoded = 0;
+        int ticks = 300;
+
+        for (int t = 0; t < ticks; t++) {
+            tick(random, world, nextId);
+            nextId += 5;
+
+            Message m = transmit(encoder.encode(world), deltaBytes);
+            Snapshot copy = new Snapshot(FIELDS);
+            copy.set(world);
+            sent.put(((SnapshotMessage) m).getSequence(), copy);
+
+            // drop 10% and hold back 10% for a few ticks
+            List<Message> arrived = new ArrayList<Message>();
+            int roll = random.nextInt(10);
+            if (roll == 1) {
+                delayed.add(m);
+            } else if (roll != 0) {
+                arrived.add(m);
+            }
+            if (!delayed.isEmpty() && random.nextInt(3) == 0) {
+                arrived.add(delayed.remove(0));
+            }
+
+            for (Message a : arrived) {
+                SnapshotMessage sm = (SnapshotMessage) a;
+                Snapshot result = decoder.decode(sm);
+                if (result == null) {
+                    continue;
+                }
+                decoded++;
+                assertTrue(result.isSameState(sent.get(sm.getSequence())));
+
+                SnapshotAckMessage ack = (SnapshotAckMessage) transmit(decoder.createAck(), ackBytes);
+                if (random.nextInt(10) != 0) {
+                    encoder.acknowledge(ack);
+                }
+            }
+        }
+        assertTrue(decoded > ticks * 3 / 4);
+
+        EntityState state = new EntityState();
+        long[] fullBytes = new long[1];
+        transmit(state, fullBytes);
+        fullBytes[0] *= (long) world.size() * ticks;
+
+        // A snapshot relative to nothing every tick for comparison
+        long[] keyframeBytes = new long[1];
+        transmit(new SnapshotEncoder(FIELDS).encode(world), keyframeBytes);
+        keyframeBytes[0] *= ticks;
+
+        assertTrue(deltaBytes[0] + ackBytes[0] < fullBytes[0] / 4);
+        assertTrue(deltaBytes[0] < keyframeBytes[0] / 2);
+    }
+
+    @Test
+    public void testAddRemoveAndFloats() {
+        SnapshotEncoder encoder = new SnapshotEncoder(2);
+        SnapshotDecoder decoder = new SnapshotDecoder(2);
+
+        Snapshot s = new Snapshot(2);
+        s.add(7);
+        s.setFloat(7, 0, -1.5f);
+        s.setInt(7, 1, Integer.MIN_VALUE);
+        s.add(0);
+        s.add(Integer.MAX_VALUE);
+        assertTrue(decoder.decode(encoder.encode(s)).isSameState(s));
+        encoder.acknowledge(decoder.createAck());
+        assertEquals(0, encoder.getBaseline());
+
+        s.remove(0);
+        s.remove(Integer.MAX_VALUE);
+        s.add(3);
+        s.setInt(3, 1, -1);
+        s.setFloat(7, 0, 2.25f);
+        SnapshotMessage m = encoder.encode(s);
+        assertEquals(0, m.getBaseline());
+        Snapshot result = decoder.decode(m);
+        assertTrue(result.isSameState(s));
+        assertEquals(2.25f, result.getFloat(7, 0), 0f);
+        assertFalse(result.contains(0));
+
+        // Nothing changed so only the two list terminators are sent
+        encoder.acknowledge(decoder.createAck());
+        assertEquals(2, encoder.encode(s).getLength());
+    }
+
+    @Test
+    public void testStaleMessagesDropped() {
+        SnapshotEncoder encoder = new SnapshotEncoder(1);
+        SnapshotDecoder decoder = new SnapshotDecoder(1);
+        Snapshot s = new Snapshot(1);
+        s.add(1);
+
+        SnapshotMessage first = encoder.encode(s);
+        s.setInt(1, 0, 5);
+        SnapshotMessage second = encoder.encode(s);
+
+        assertNotNull(decoder.decode(second));
+        assertNull(decoder.decode(first));
+        assertNull(decoder.decode(second));
+        assertEquals(5, decoder.getLatest().getInt(1, 0));
+
+        SnapshotAckMessage ack = decoder.createAck();
+        assertTrue(ack.isAcknowledged(1));
+        assertFalse(ack.isAcknowledged(0));
+    }
+
+    @Test
+    public void testBaselineLeavesHistory() {
+        SnapshotEncoder encoder = new SnapshotEncoder(1, 4);
+        SnapshotDecoder decoder = new SnapshotDecoder(1, 4);
+        Snapshot s = new Snapshot(1);
+        s.add(1);
+
+        assertEquals(-1, encoder.encode(s).getBaseline());
+        decoder.decode(encoder.encode(s));
+        encoder.acknowledge(decoder.createAck());
+        assertEquals(1, encoder.getBaseline());
+
+        // Without further acks the baseline gets too old to use
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, encoder.encode(s).getBaseline());
+        }
+        assertEquals(-1, encoder.getBaseline());
+        SnapshotMessage m = encoder.encode(s);
+        assertEquals(-1, m.getBaseline());
+        assertTrue(decoder.decode(m).isSameState(s));
+    }
+
+    @Test
+    public void testFixedIds() {
+        SnapshotSerializer.registerMessages();
+        assertEquals(SnapshotMessage.SERIALIZER_ID,
+                Serializer.getExactSerializerRegistration(SnapshotMessage.class).getId());
+        assertEquals(SnapshotAckMessage.SERIALIZER_ID,
+                Serializer.getExactSerializerRegistration(SnapshotAckMessage.class).getId());
+        assertTrue(Serializer.getExactSerializer(SnapshotMessage.class) instanceof SnapshotSerializer);
+    }
+}
@@ -0,0 +1,205 @@
+package com.jme3.post;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.ColorRGBA;
+import com.jme3.post.filters.ColorOverlayFilter;
+import com.jme3.post.filters.FXAAFilter;
+import com.jme3.post.filters.FadeFilter;
+import com.jme3.post.filters.GammaCorrectionFilter;
+import com.jme3.post.filters.PosterizationFilter;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Mesh;
+import com.jme3.shader.Shader;
+import com.jme3.shader.Shader.ShaderSource;
+import com.jme3.shader.Shader.ShaderType;
+import com.jme3.shader.Uniform;
+import com.jme3.system.NullRenderer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FilterPostProcessorTest {
+
+    /**
+     * A full screen pass as seen by the renderer: the material uniforms
+     * set for the draw and the defines of the fragment shader.
+     */
+    private static class Draw {
+        final Map<String, Object> uniforms = new HashMap<String, Object>();
+        String defines = "";
+    }
+
+    private static class RecordingRenderer extends NullRenderer {
+        final EnumSet<Caps> caps = EnumSet.of(Caps.GLSL100, Caps.FrameBuffer);
+        final List<Draw> draws = new ArrayList<Draw>();
+        Shader shader;
+
+        @Override
+        public EnumSet<Caps> getCaps() {
+            return caps;
+        }
+
+        @Override
+        public void setShader(Shader shader) {
+            this.shader = shader;
+        }
+
+        @Override
+        public void renderMesh(Mesh mesh, int lod, int count) {
+            Draw draw = new Draw();
+            for (Uniform u : shader.getUniformMap().values()) {
+                if (u.isSetByCurrentMaterial() && u.getName().startsWith("m_")) {
+                    draw.uniforms.put(u.getName().substring(2), u.getValue());
+                }
+            }
+            for (ShaderSource source : shader.getSources()) {
+                if (source.getType() == ShaderType.Fragment && source.getDefines() != null) {
+                    draw.defines = source.getDefines();
+                }
+            }
+            draws.add(draw);
+        }
+    }
+
+    private AssetManager assetManager;
+    private RecordingRenderer renderer;
+    private RenderManager renderManager;
+    private ViewPort viewPort;
+
+    @Before
+    public void setUp() {
+        assetManager = new DesktopAssetManager(true);
+        renderer = new RecordingRenderer();
+        renderManager = new RenderManager(renderer);
+    }
+
+    private FilterPostProcessor createProcessor(boolean fusion, Filter... filters) {
+        Camera cam = new Camera(320, 240);
+        viewPort = renderManager.createMainView("Test", cam);
+        FilterPostProcessor fpp = new FilterPostProcessor(assetManager);
+        fpp.setFilterFusion(fusion);
+        for (Filter filter : filters) {
+            fpp.addFilter(filter);
+        }
+        viewPort.addProcessor(fpp);
+        return fpp;
+    }
+
+    private List<Draw> renderFrame() {
+        renderer.draws.clear();
+        renderManager.renderViewPort(viewPort, 0);
+        return new ArrayList<Draw>(renderer.draws);
+    }
+
+    private Filter[] createChain() {
+        ColorOverlayFilter overlay = new ColorOverlayFilter(new ColorRGBA(1f, 0.5f, 0.25f, 1f));
+        PosterizationFilter posterization = new PosterizationFilter(6, 0.7f);
+        posterization.setStrength(0.5f);
+        GammaCorrectionFilter gamma = new GammaCorrectionFilter(2.2f);
+        gamma.setComputeLuma(true);
+        FadeFilter fade = new FadeFilter();
+        fade.setValue(0.75f);
+        return new Filter[]{overlay, posterization, gamma, fade};
+    }
+
+    /**
+     * Checks the given pass of the unfused chain is set up as the given
+     * stage of the fused pass
+     */
+    private void assertSameStage(Draw pass, Draw fused, int stage, int operation) {
+        assertTrue(fused.defines.contains("STAGE" + stage + " " + operation + "\n"));
+        for (Map.Entry<String, Object> e : pass.uniforms.entrySet()) {
+            if (!e.getKey().equals("Texture")) {
+                assertEquals(e.getKey(), e.getValue(), fused.uniforms.get(e.getKey() + stage));
+            }
+        }
+    }
+
+    @Test
+    public void testFusedChainMatchesUnfused() {
+        createProcessor(false, createChain());
+        renderFrame();
+        List<Draw> passes = renderFrame();
+        assertEquals(4, passes.size());
+
+        renderManager.removeMainView("Test");
+        createProcessor(true, createChain());
+        renderFrame();
+        List<Draw> fused = renderFrame();
+        assertEquals(1, fused.size());
+
+        Draw pass = fused.get(0);
+        for (int i = 0; i < passes.size(); i++) {
+            assertSameStage(passes.get(i), pass, i, i + 1);
+        }
+        assertTrue(passes.get(2).defines.contains("COMPUTE_LUMA"));
+        assertTrue(pass.defines.contains("COMPUTE_LUMA2"));
+        assertEquals(Float.valueOf(0.75f), pass.uniforms.get("Value3"));
+        // the texture, the 4 stage operations and the 7 filter parameters
+        assertEquals(12, pass.uniforms.size());
+    }
+
+    @Test
+    public void testFusionDisabledByDefault() {
+        FilterPostProcessor fpp = createProcessor(false, createChain());
+        assertFalse(fpp.isFilterFusion());
+        assertEquals(4, renderFrame().size());
+    }
+
+    @Test
+    public void testFusionStopsAtOtherFilters() {
+        Filter[] chain = createChain();
+        createProcessor(true, chain[0], chain[1], new FXAAFilter(), chain[2], chain[3]);
+        List<Draw> passes = renderFrame();
+        assertEquals(3, passes.size());
+        assertTrue(passes.get(0).defines.contains("STAGE1 2\n"));
+        assertFalse(passes.get(0).defines.contains("STAGE2"));
+        assertTrue(passes.get(2).defines.contains("STAGE0 3\n"));
+        assertTrue(passes.get(2).defines.contains("STAGE1 4\n"));
+    }
+
+    @Test
+    public void testFusionLimit() {
+        Filter[] chain = createChain();
+        createProcessor(true, chain[0], chain[1], chain[2], chain[3], new FadeFilter());
+        List<Draw> passes = renderFrame();
+        // the fifth filter is rendered on its own
+        assertEquals(2, passes.size());
+        assertFalse(passes.get(1).defines.contains("STAGE"));
+    }
+
+    @Test
+    public void testDisabledFilterSkipped() {
+        Filter[] chain = createChain();
+        createProcessor(true, chain[0], chain[1], chain[3]);
+        List<Draw> passes = renderFrame();
+        assertEquals(1, passes.size());
+        assertNotNull(passes.get(0).uniforms.get("NumColors1"));
+
+        chain[1].setEnabled(false);
+        passes = renderFrame();
+        assertEquals(1, passes.size());
+        Draw pass = passes.get(0);
+        assertTrue(pass.defines.contains("STAGE1 4\n"));
+        assertFalse(pass.defines.contains("STAGE2"));
+        assertEquals(Float.valueOf(0.75f), pass.uniforms.get("Value1"));
+        assertNull(pass.uniforms.get("NumColors1"));
+        assertNull(pass.uniforms.get("Value2"));
+
+        // a single fusable filter left renders with its own material
+        chain[3].setEnabled(false);
+        passes = renderFrame();
+        assertEquals(1, passes.size());
+        assertFalse(passes.get(0).defines.contains("STAGE"));
+        assertNotNull(passes.get(0).uniforms.get("Color"));
+    }
+}
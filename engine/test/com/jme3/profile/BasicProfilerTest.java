@@ -0,0 +1,199 @@
+package com.jme3.profile;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.material.Material;
+import com.jme3.post.FilterPostProcessor;
+import com.jme3.post.filters.ColorOverlayFilter;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.system.NullRenderer;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.EnumSet;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class BasicProfilerTest {
+
+    private static final long MS = 1000000;
+
+    private static class ManualProfiler extends BasicProfiler {
+        long time;
+
+        ManualProfiler(int historySize) {
+            super(historySize);
+        }
+
+        @Override
+        protected long getTime() {
+            return time;
+        }
+    }
+
+    private static void runPhase(ManualProfiler prof, ProfilePhase phase, Object detail, long nanos) {
+        prof.begin(phase, detail);
+        prof.time += nanos;
+        prof.end(phase, detail);
+    }
+
+    @Test
+    public void testPercentiles() {
+        ManualProfiler prof = new ManualProfiler(100);
+        // frames 1 to 110, only the last 100 are kept
+        for (int i = 1; i <= 110; i++) {
+            prof.beginFrame();
+            runPhase(prof, ProfilePhase.StateUpdate, null, i * MS);
+            prof.endFrame();
+        }
+        assertEquals(110, prof.getFrameCount());
+
+        PhaseTiming timing = prof.getTiming("StateUpdate");
+        assertEquals(100, timing.getFrameCount());
+        assertEquals(110 * MS, timing.getLastNanos());
+        assertEquals(110 * MS, timing.getMaxNanos());
+        assertEquals(60 * MS + MS / 2, timing.getAverageNanos());
+        assertEquals(60 * MS, timing.getPercentileNanos(50));
+        assertEquals(105 * MS, timing.getPercentileNanos(95));
+        assertEquals(11 * MS, timing.getPercentileNanos(0));
+        assertEquals(110 * MS, timing.getPercentileNanos(100));
+
+        // the percentiles follow the new frames
+        prof.beginFrame();
+        runPhase(prof, ProfilePhase.StateUpdate, null, 200 * MS);
+        prof.endFrame();
+        assertEquals(200 * MS, timing.getPercentileNanos(100));
+        assertEquals(12 * MS, timing.getPercentileNanos(0));
+
+        // the frame includes the phase
+        assertEquals(200 * MS, prof.getTiming("Frame").getLastNanos());
+        assertSame(prof.getTiming(ProfilePhase.Frame, null), prof.getTimings().get(0));
+    }
+
+    @Test
+    public void testPhasesSumPerFrame() {
+        ManualProfiler prof = new ManualProfiler(10);
+        Object detail = "Detail";
+        prof.beginFrame();
+        runPhase(prof, ProfilePhase.Processor, detail, 2 * MS);
+        runPhase(prof, ProfilePhase.Processor, detail, 3 * MS);
+        // nested runs are counted once
+        prof.begin(ProfilePhase.Processor, detail);
+        runPhase(prof, ProfilePhase.Processor, detail, MS);
+        prof.time += MS;
+        prof.end(ProfilePhase.Processor, detail);
+        runPhase(prof, ProfilePhase.Processor, null, 4 * MS);
+        prof.endFrame();
+
+        assertEquals(7 * MS, prof.getTiming("Processor Detail").getLastNanos());
+        assertEquals(4 * MS, prof.getTiming("Processor").getLastNanos());
+
+        // a phase that did not run takes no time
+        prof.beginFrame();
+        prof.endFrame();
+        assertEquals(0, prof.getTiming("Processor").getLastNanos());
+        assertEquals(2 * MS, prof.getTiming("Processor").getAverageNanos());
+
+        prof.reset();
+        assertEquals(0, prof.getFrameCount());
+        assertEquals(1, prof.getTimings().size());
+    }
+
+    @Test
+    public void testDetailsByName() {
+        ManualProfiler prof = new ManualProfiler(10);
+        ViewPort a = new ViewPort("Gui", new Camera(320, 240));
+        ViewPort b = new ViewPort("Gui", new Camera(320, 240));
+        prof.beginFrame();
+        runPhase(prof, ProfilePhase.ViewPort, a, 2 * MS);
+        runPhase(prof, ProfilePhase.ViewPort, b, 3 * MS);
+        prof.endFrame();
+        assertSame(prof.getTiming(ProfilePhase.ViewPort, a), prof.getTiming(ProfilePhase.ViewPort, b));
+        assertEquals(5 * MS, prof.getTiming("ViewPort Gui").getLastNanos());
+
+        // the profiler does not keep removed viewports alive
+        WeakReference<ViewPort> ref = new WeakReference<ViewPort>(a);
+        a = null;
+        b = null;
+        for (int i = 0; i < 10 && ref.get() != null; i++) {
+            System.gc();
+        }
+        assertNull(ref.get());
+        assertNotNull(prof.getTiming("ViewPort Gui"));
+    }
+
+    @Test
+    public void testRenderPhases() {
+        NullRenderer renderer = new NullRenderer() {
+            @Override
+            public EnumSet<Caps> getCaps() {
+                return EnumSet.of(Caps.GLSL100, Caps.FrameBuffer);
+            }
+        };
+        AssetManager assetManager = new DesktopAssetManager(true);
+        RenderManager rm = new RenderManager(renderer);
+        BasicProfiler prof = new BasicProfiler();
+        rm.setAppProfiler(prof);
+
+        ViewPort vp = rm.createMainView("Main", new Camera(320, 240));
+        Node scene = new Node("Scene");
+        Geometry geom = new Geometry("Box", new Box(1, 1, 1));
+        geom.setMaterial(new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md"));
+        scene.attachChild(geom);
+        scene.updateGeometricState();
+        vp.attachScene(scene);
+        FilterPostProcessor fpp = new FilterPostProcessor(assetManager);
+        fpp.addFilter(new ColorOverlayFilter());
+        vp.addProcessor(fpp);
+
+        for (int i = 0; i < 3; i++) {
+            prof.beginFrame();
+            rm.renderViewPort(vp, 0);
+            prof.endFrame();
+        }
+
+        String[] names = {"Frame", "ViewPort Main", "Processor FilterPostProcessor",
+                          "Filter Color Overlay", "Cull Main", "Flush Opaque", "Sort Opaque"};
+        for (String name : names) {
+            PhaseTiming timing = prof.getTiming(name);
+            assertNotNull(name, timing);
+            assertEquals(name, 3, timing.getFrameCount());
+        }
+        assertTrue(prof.getTiming("ViewPort Main").getMaxNanos() > 0);
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        ManualProfiler prof = new ManualProfiler(10);
+        for (int i = 1; i <= 4; i++) {
+            prof.beginFrame();
+            runPhase(prof, ProfilePhase.Render, null, i * MS);
+            prof.endFrame();
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = ProfilerStats.register(prof);
+        try {
+            assertEquals(4L, server.getAttribute(name, "FrameCount"));
+            String[] names = (String[]) server.getAttribute(name, "TimingNames");
+            assertEquals("Render", names[1]);
+            Object max = server.invoke(name, "getMaxMillis",
+                    new Object[]{"Render"}, new String[]{String.class.getName()});
+            assertEquals(4.0, (Double) max, 0.0001);
+            Object median = server.invoke(name, "getPercentileMillis",
+                    new Object[]{"Render", 50f}, new String[]{String.class.getName(), float.class.getName()});
+            assertEquals(2.0, (Double) median, 0.0001);
+            String[] summary = (String[]) server.getAttribute(name, "Summary");
+            assertTrue(summary[1], summary[1].startsWith("Render: avg 2"));
+        } finally {
+            ProfilerStats.unregister(name);
+        }
+    }
+}
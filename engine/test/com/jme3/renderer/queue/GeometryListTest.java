@@ -0,0 +1,54 @@
+package com.jme3.renderer.queue;
+
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Quad;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class GeometryListTest {
+
+    /**
+     * Sorts by descending Z, without overriding the sort key
+     */
+    private static class ReverseGuiComparator extends GuiComparator {
+        @Override
+        public int compare(Geometry o1, Geometry o2) {
+            return super.compare(o2, o1);
+        }
+    }
+
+    private static GeometryList createList(GeometryComparator comparator) {
+        GeometryList list = new GeometryList(comparator);
+        float[] zs = {3, -1, 7, 0, 2, 5};
+        for (int i = 0; i < zs.length; i++) {
+            Geometry geom = new Geometry("Geom " + i, new Quad(1, 1));
+            geom.setLocalTranslation(0, 0, zs[i]);
+            geom.updateGeometricState();
+            list.add(geom);
+        }
+        return list;
+    }
+
+    private static void assertSorted(GeometryList list, int sign) {
+        for (int i = 1; i < list.size(); i++) {
+            float z0 = list.get(i - 1).getWorldTranslation().z;
+            float z1 = list.get(i).getWorldTranslation().z;
+            assertTrue(z0 + " then " + z1, Math.signum(z1 - z0) == sign);
+        }
+    }
+
+    @Test
+    public void testSortKeys() {
+        GeometryList list = createList(new GuiComparator());
+        list.sort();
+        assertSorted(list, 1);
+    }
+
+    @Test
+    public void testOverriddenCompareIsUsed() {
+        GeometryList list = createList(new ReverseGuiComparator());
+        assertTrue(list.isUseSortKeys());
+        list.sort();
+        assertSorted(list, -1);
+    }
+}
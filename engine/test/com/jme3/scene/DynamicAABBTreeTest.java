@@ -0,0 +1,184 @@
+package com.jme3.scene;
+
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResult;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.shape.Box;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class DynamicAABBTreeTest {
+
+    private final Random random = new Random(1234);
+
+    private Vector3f randomVector(float range) {
+        return new Vector3f((random.nextFloat() - 0.5f) * range,
+                            (random.nextFloat() - 0.5f) * range,
+                            (random.nextFloat() - 0.5f) * range);
+    }
+
+    private Node createScene(int groups, int perGroup) {
+        Box box = new Box(0.5f, 0.5f, 0.5f);
+        Node root = new Node("root");
+        for (int i = 0; i < groups; i++) {
+            Node group = new Node("group" + i);
+            group.setLocalTranslation(randomVector(100));
+            for (int j = 0; j < perGroup; j++) {
+                Geometry geom = new Geometry("geom" + i + "_" + j, box);
+                geom.setLocalTranslation(randomVector(20));
+                group.attachChild(geom);
+            }
+            root.attachChild(group);
+        }
+        return root;
+    }
+
+    private static List<String> collide(Node node, Collidable other) {
+        CollisionResults results = new CollisionResults();
+        node.collideWith(other, results);
+        List<String> list = new ArrayList<String>();
+        for (CollisionResult result : results) {
+            list.add(result.getGeometry().getName() + "@" + result.getDistance());
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    private Collidable randomQuery() {
+        if (random.nextBoolean()) {
+            Vector3f origin = randomVector(150);
+            Vector3f target = randomVector(60);
+            return new Ray(origin, target.subtractLocal(origin).normalizeLocal());
+        }
+        return new BoundingSphere(random.nextFloat() * 10, randomVector(100));
+    }
+
+    private void assertSameResults(Node root, int queries) {
+        DynamicAABBTree index = root.getCollisionIndex();
+        int hits = 0;
+        for (int i = 0; i < queries; i++) {
+            Collidable query = randomQuery();
+            List<String> indexed = collide(root, query);
+            root.collisionIndex = null;
+            List<String> linear = collide(root, query);
+            root.collisionIndex = index;
+            assertEquals(linear, indexed);
+            hits += linear.size();
+        }
+        assertTrue(hits > 0);
+    }
+
+    @Test
+    public void testMatchesTraversal() {
+        Node root = createScene(20, 50);
+        root.setCollisionIndexEnabled(true);
+        assertEquals(1000, root.getCollisionIndex().getLeafCount());
+        assertSameResults(root, 300);
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        Node root = createScene(20, 50);
+        root.setCollisionIndexEnabled(true);
+        root.updateGeometricState();
+
+        for (int frame = 0; frame < 5; frame++) {
+            // move some groups and geometries around
+            for (Spatial group : root.getChildren()) {
+                if (random.nextInt(4) == 0) {
+                    group.move(randomVector(10));
+                }
+                for (Spatial geom : ((Node) group).getChildren()) {
+                    if (random.nextInt(10) == 0) {
+                        geom.move(randomVector(5));
+                    }
+                }
+            }
+            if (frame % 2 == 0) {
+                root.updateGeometricState();
+            }
+            assertSameResults(root, 100);
+        }
+
+        // detach a group, move geometries between groups
+        Node first = (Node) root.getChild(0);
+        Node second = (Node) root.getChild(1);
+        root.detachChild(first);
+        assertEquals(950, root.getCollisionIndex().getLeafCount());
+        second.attachChild(first.getChild(0));
+        assertEquals(951, root.getCollisionIndex().getLeafCount());
+        assertSameResults(root, 100);
+
+        root.setCollisionIndexEnabled(false);
+        assertNull(root.getCollisionIndex());
+        assertNull(second.getChild(0).collisionTree);
+    }
+
+    @Test
+    public void testNestedIndex() {
+        Node root = createScene(10, 50);
+        Node group = (Node) root.getChild(3);
+        root.setCollisionIndexEnabled(true);
+        group.setCollisionIndexEnabled(true);
+
+        // the indexed group is a single leaf of the outer index
+        assertEquals(451, root.getCollisionIndex().getLeafCount());
+        assertEquals(50, group.getCollisionIndex().getLeafCount());
+        assertSameResults(root, 200);
+
+        group.setCollisionIndexEnabled(false);
+        assertEquals(500, root.getCollisionIndex().getLeafCount());
+        assertSameResults(root, 200);
+    }
+
+    @Test
+    public void testClone() {
+        Node root = createScene(5, 20);
+        root.setCollisionIndexEnabled(true);
+        Node clone = root.clone(false);
+        assertNotSame(root.getCollisionIndex(), clone.getCollisionIndex());
+        assertEquals(100, clone.getCollisionIndex().getLeafCount());
+        assertSameResults(clone, 100);
+    }
+
+    @Test
+    public void testDeepClone() {
+        Node root = createScene(5, 20);
+        root.setCollisionIndexEnabled(true);
+        Node clone = (Node) root.deepClone();
+        assertNotSame(root.getCollisionIndex(), clone.getCollisionIndex());
+        assertEquals(100, clone.getCollisionIndex().getLeafCount());
+        assertEquals(100, root.getCollisionIndex().getLeafCount());
+        assertSameResults(clone, 100);
+    }
+
+    @Test
+    public void testBulkQueries() {
+        Node root = createScene(20, 50);
+        root.setCollisionIndexEnabled(true);
+        Collidable[] queries = new Collidable[50];
+        CollisionResults[] results = new CollisionResults[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = randomQuery();
+            results[i] = new CollisionResults();
+        }
+        int total = root.getCollisionIndex().collideWith(queries, results);
+        int sum = 0;
+        for (int i = 0; i < queries.length; i++) {
+            assertEquals(collide(root, queries[i]).size(), results[i].size());
+            sum += results[i].size();
+        }
+        assertEquals(sum, total);
+
+        List<Spatial> candidates = new ArrayList<Spatial>();
+        root.getCollisionIndex().getIntersecting(new BoundingSphere(1000, Vector3f.ZERO), candidates);
+        assertEquals(1000, candidates.size());
+    }
+}
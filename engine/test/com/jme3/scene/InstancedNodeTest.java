@@ -0,0 +1,155 @@
+package com.jme3.scene;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Statistics;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.shape.Box;
+import com.jme3.system.NullRenderer;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InstancedNodeTest {
+
+    private static final int NUM_GEOMS = 100;
+
+    private AssetManager assetManager;
+    private RenderManager renderManager;
+    private NullRenderer renderer;
+    private ViewPort viewPort;
+    private Mesh mesh;
+    private Material material;
+
+    @Before
+    public void setUp() {
+        assetManager = new DesktopAssetManager(true);
+        renderer = new NullRenderer();
+        renderManager = new RenderManager(renderer);
+
+        Camera cam = new Camera(640, 480);
+        cam.setFrustumPerspective(45f, 640f / 480f, 1f, 1000f);
+        cam.setLocation(new Vector3f(0, 0, 100));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+        viewPort = renderManager.createMainView("Test", cam);
+
+        mesh = new Box(1, 1, 1);
+        material = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        material.setBoolean("UseInstancing", true);
+    }
+
+    private void fill(Node node) {
+        for (int i = 0; i < NUM_GEOMS; i++) {
+            Geometry geom = new Geometry("Box" + i, mesh);
+            geom.setMaterial(material);
+            geom.setLocalTranslation((i % 10) * 3 - 15, (i / 10) * 3 - 15, 0);
+            node.attachChild(geom);
+        }
+    }
+
+    private int renderObjects(Node scene) {
+        viewPort.clearScenes();
+        viewPort.attachScene(scene);
+        scene.updateLogicalState(0);
+        scene.updateGeometricState();
+
+        Statistics stats = renderer.getStatistics();
+        stats.clearFrame();
+        renderManager.renderViewPort(viewPort, 0);
+
+        int[] data = new int[stats.getLabels().length];
+        stats.getData(data);
+        return data[3];
+    }
+
+    @Test
+    public void testDrawCallReduction() {
+        Node plain = new Node("Plain");
+        fill(plain);
+        assertEquals(NUM_GEOMS, renderObjects(plain));
+
+        InstancedNode instanced = new InstancedNode("Instanced");
+        fill(instanced);
+        instanced.instance();
+        assertEquals(1, instanced.getInstancedGeometries().size());
+        assertEquals(1, renderObjects(instanced));
+
+        InstancedGeometry ig = instanced.getInstancedGeometries().get(0);
+        assertEquals(NUM_GEOMS, ig.getMesh().getInstanceCount());
+    }
+
+    @Test
+    public void testInstanceDataFollowsTransforms() {
+        InstancedNode instanced = new InstancedNode("Instanced");
+        fill(instanced);
+        instanced.instance();
+        InstancedGeometry ig = instanced.getInstancedGeometries().get(0);
+
+        Geometry first = ig.getInstances().get(0);
+        first.setLocalTranslation(100, 200, 300);
+        instanced.updateGeometricState();
+
+        VertexBuffer vb = ig.getMesh().getBuffer(VertexBuffer.Type.InstanceData);
+        assertTrue(vb.isInstanced());
+        java.nio.FloatBuffer data = (java.nio.FloatBuffer) vb.getData();
+        // translation is in the last column of the column-major matrix
+        assertEquals(100f, data.get(12), 0f);
+        assertEquals(200f, data.get(13), 0f);
+        assertEquals(300f, data.get(14), 0f);
+        assertTrue(ig.getWorldBound().contains(new Vector3f(100, 200, 300)));
+    }
+
+    @Test
+    public void testDetachInstance() {
+        InstancedNode instanced = new InstancedNode("Instanced");
+        fill(instanced);
+        instanced.instance();
+        InstancedGeometry ig = instanced.getInstancedGeometries().get(0);
+
+        Geometry first = ig.getInstances().get(0);
+        first.removeFromParent();
+        assertEquals(NUM_GEOMS - 1, ig.getNumInstances());
+        assertEquals(NUM_GEOMS - 1, ig.getMesh().getInstanceCount());
+        assertEquals(Spatial.CullHint.Inherit, first.getLocalCullHint());
+    }
+
+    @Test
+    public void testDetachNestedInstance() {
+        InstancedNode instanced = new InstancedNode("Instanced");
+        Node group = new Node("Group");
+        Node subGroup = new Node("SubGroup");
+        fill(group);
+        fill(subGroup);
+        group.attachChild(subGroup);
+        instanced.attachChild(group);
+        instanced.instance();
+        InstancedGeometry ig = instanced.getInstancedGeometries().get(0);
+        assertEquals(NUM_GEOMS * 2, ig.getNumInstances());
+
+        // detached from a child node
+        Geometry first = (Geometry) group.getChild(0);
+        first.removeFromParent();
+        // a whole sub node detached from a child node
+        subGroup.removeFromParent();
+        assertEquals(1, renderObjects(instanced));
+
+        assertEquals(NUM_GEOMS - 1, ig.getNumInstances());
+        assertEquals(NUM_GEOMS - 1, ig.getMesh().getInstanceCount());
+        assertFalse(ig.getInstances().contains(first));
+        assertEquals(Spatial.CullHint.Inherit, first.getLocalCullHint());
+        for (Spatial child : subGroup.getChildren()) {
+            assertFalse(ig.getInstances().contains((Geometry) child));
+            assertEquals(Spatial.CullHint.Inherit, child.getLocalCullHint());
+        }
+
+        // the last instances go, so does the instanced geometry
+        group.detachAllChildren();
+        assertEquals(0, renderObjects(instanced));
+        assertTrue(instanced.getInstancedGeometries().isEmpty());
+        assertNull(ig.getParent());
+    }
+}
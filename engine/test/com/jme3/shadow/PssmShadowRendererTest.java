@@ -0,0 +1,183 @@
+package com.jme3.shadow;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Statistics;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.ShadowMode;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.system.NullRenderer;
+import com.jme3.texture.FrameBuffer;
+import java.util.EnumSet;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PssmShadowRendererTest {
+
+    private static final int SPLITS = 3;
+    private static final int STATIC_CASTERS = 50;
+
+    private static class BlitRenderer extends NullRenderer {
+        final EnumSet<Caps> caps = EnumSet.of(Caps.GLSL100, Caps.FrameBuffer, Caps.FrameBufferBlit);
+        int copies;
+
+        @Override
+        public EnumSet<Caps> getCaps() {
+            return caps;
+        }
+
+        @Override
+        public void copyFrameBuffer(FrameBuffer src, FrameBuffer dst, boolean copyDepth) {
+            copies++;
+        }
+    }
+
+    private AssetManager assetManager;
+    private BlitRenderer renderer;
+    private RenderManager renderManager;
+    private ViewPort viewPort;
+    private Camera cam;
+    private Node scene;
+    private Geometry mover;
+
+    @Before
+    public void setUp() {
+        assetManager = new DesktopAssetManager(true);
+        renderer = new BlitRenderer();
+        renderManager = new RenderManager(renderer);
+
+        cam = new Camera(640, 480);
+        cam.setFrustumPerspective(45f, 640f / 480f, 1f, 200f);
+        cam.setLocation(new Vector3f(0, 20, 60));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+        viewPort = renderManager.createMainView("Test", cam);
+
+        Material mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        scene = new Node("Scene");
+
+        Geometry floor = new Geometry("Floor", new Box(100, 0.5f, 100));
+        floor.setMaterial(mat);
+        floor.setLocalTranslation(0, -1, 0);
+        floor.setShadowMode(ShadowMode.Receive);
+        scene.attachChild(floor);
+
+        Node city = new Node("City");
+        city.setUserData(PssmShadowRenderer.STATIC_CASTER, true);
+        Box building = new Box(1, 3, 1);
+        for (int i = 0; i < STATIC_CASTERS; i++) {
+            Geometry g = new Geometry("Building" + i, building);
+            g.setMaterial(mat);
+            g.setLocalTranslation((i % 10) * 6 - 27, 3, (i / 10) * 6 - 12);
+            g.setShadowMode(ShadowMode.CastAndReceive);
+            city.attachChild(g);
+        }
+        scene.attachChild(city);
+
+        mover = new Geometry("Mover", new Box(1, 1, 1));
+        mover.setMaterial(mat);
+        mover.setLocalTranslation(0, 2, 20);
+        mover.setShadowMode(ShadowMode.Cast);
+        scene.attachChild(mover);
+
+        viewPort.attachScene(scene);
+    }
+
+    private PssmShadowRenderer createShadows(boolean caching) {
+        PssmShadowRenderer pssm = new PssmShadowRenderer(assetManager, 512, SPLITS);
+        pssm.setDirection(new Vector3f(-1, -1, -1));
+        pssm.setStaticCaching(caching);
+        viewPort.addProcessor(pssm);
+        return pssm;
+    }
+
+    /**
+     * Renders a frame and returns the rendered and cached shadow map
+     * counts and the number of shadow casters rendered.
+     */
+    private int[] renderFrame() {
+        scene.updateLogicalState(0);
+        scene.updateGeometricState();
+
+        Statistics stats = renderer.getStatistics();
+        stats.clearFrame();
+        renderManager.renderViewPort(viewPort, 0);
+
+        int[] data = new int[stats.getLabels().length];
+        stats.getData(data);
+        return new int[]{data[13], data[14], data[15]};
+    }
+
+    @Test
+    public void testStaticShadowsReused() {
+        createShadows(true);
+
+        int[] first = renderFrame();
+        assertEquals(SPLITS, first[0]);
+        assertEquals(0, first[1]);
+        assertEquals(SPLITS, renderer.copies);
+
+        for (int i = 0; i < 10; i++) {
+            mover.move(0.2f, 0, 0);
+            cam.setLocation(cam.getLocation().add(0.05f, 0, 0));
+            int[] frame = renderFrame();
+            assertEquals(0, frame[0]);
+            assertEquals(SPLITS, frame[1]);
+            // only the moving caster is rendered, in the splits it is in
+            assertTrue(frame[2] >= 1 && frame[2] <= SPLITS);
+        }
+        assertEquals(SPLITS * 11, renderer.copies);
+    }
+
+    @Test
+    public void testStaticShadowsInvalidated() {
+        PssmShadowRenderer pssm = createShadows(true);
+        renderFrame();
+
+        // Moving the camera a lot leaves the cached area
+        cam.setLocation(new Vector3f(80, 20, 60));
+        assertTrue(renderFrame()[0] > 0);
+        assertEquals(0, renderFrame()[0]);
+
+        // Turning the light invalidates everything
+        pssm.setDirection(new Vector3f(-1, -1, -0.5f));
+        assertEquals(SPLITS, renderFrame()[0]);
+
+        // As does an explicit invalidation
+        renderFrame();
+        pssm.invalidateStaticShadows();
+        assertEquals(SPLITS, renderFrame()[0]);
+
+        // A turn under the threshold does not
+        pssm.setDirection(new Vector3f(-1, -1, -0.5001f));
+        assertEquals(0, renderFrame()[0]);
+    }
+
+    @Test
+    public void testWithoutCaching() {
+        createShadows(false);
+        int[] first = renderFrame();
+        int[] second = renderFrame();
+        assertEquals(SPLITS, second[0]);
+        assertEquals(0, second[1]);
+        assertEquals(first[2], second[2]);
+        assertTrue(second[2] > STATIC_CASTERS / 2);
+        assertEquals(0, renderer.copies);
+    }
+
+    @Test
+    public void testCachingNeedsBlit() {
+        renderer.caps.remove(Caps.FrameBufferBlit);
+        createShadows(true);
+        renderFrame();
+        assertEquals(SPLITS, renderFrame()[0]);
+        assertEquals(0, renderer.copies);
+    }
+}
@@ -0,0 +1,56 @@
+package com.jme3.terrain.geomipmap;
+
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import java.nio.Buffer;
+import java.nio.ShortBuffer;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class LODIndexCacheTest {
+
+    private static LODGeomap createGeomap(int size, float height) {
+        float[] heights = new float[size * size];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = height * (i % size);
+        }
+        return new LODGeomap(size, heights);
+    }
+
+    private static void assertSameIndices(IndexBuffer expected, Buffer actual) {
+        ShortBuffer data = (ShortBuffer) actual;
+        assertEquals(expected.size(), data.limit());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), data.get(i) & 0xFFFF);
+        }
+    }
+
+    @Test
+    public void testSharedBetweenPatches() {
+        LODGeomap a = createGeomap(33, 1f);
+        LODGeomap b = createGeomap(33, 5f);
+
+        VertexBuffer vbA = LODIndexCache.getLodDiffIndexBuffer(a, 2, true, false, false, true);
+        VertexBuffer vbB = LODIndexCache.getLodDiffIndexBuffer(b, 2, true, false, false, true);
+        assertSame(vbA, vbB);
+        assertEquals(VertexBuffer.Usage.Static, vbA.getUsage());
+        assertSameIndices(a.writeIndexArrayLodDiff(2, true, false, false, true, 0), vbA.getData());
+
+        VertexBuffer other = LODIndexCache.getLodDiffIndexBuffer(a, 2, false, false, false, true);
+        assertNotSame(vbA, other);
+
+        // A different patch size needs its own pattern
+        VertexBuffer larger = LODIndexCache.getLodDiffIndexBuffer(createGeomap(65, 1f), 2, true, false, false, true);
+        assertNotSame(vbA, larger);
+    }
+
+    @Test
+    public void testVariable() {
+        LODGeomap geomap = createGeomap(17, 1f);
+        long misses = LODIndexCache.getMisses();
+        VertexBuffer vb = LODIndexCache.getLodVariableIndexBuffer(geomap, 1, 2, 1, 4, 1);
+        assertSame(vb, LODIndexCache.getLodVariableIndexBuffer(geomap, 1, 2, 1, 4, 1));
+        assertEquals(misses + 1, LODIndexCache.getMisses());
+        assertSameIndices(geomap.writeIndexArrayLodVariable(1, 2, 1, 4, 1, 0), vb.getData());
+    }
+}
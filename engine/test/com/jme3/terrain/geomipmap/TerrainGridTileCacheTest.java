@@ -0,0 +1,60 @@
+package com.jme3.terrain.geomipmap;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class TerrainGridTileCacheTest {
+
+    private static TerrainQuad createTile(String name) {
+        return new TerrainQuad(name, 17, 33, new float[33 * 33]);
+    }
+
+    @Test
+    public void testByteBudget() {
+        TerrainQuad a = createTile("a");
+        TerrainQuad b = createTile("b");
+        TerrainQuad c = createTile("c");
+        long tileSize = TerrainGridTileCache.estimateSize(a);
+        assertTrue(tileSize > 33 * 33 * 4);
+
+        TerrainGridTileCache cache = new TerrainGridTileCache(tileSize * 2);
+        cache.put(new Vector3f(0, 0, 0), a);
+        cache.put(new Vector3f(1, 0, 0), b);
+        assertEquals(2, cache.usedEntries());
+        assertEquals(tileSize * 2, cache.getUsedBytes());
+
+        // touch a so that b is the least recently used tile
+        assertSame(a, cache.get(new Vector3f(0, 0, 0)));
+        cache.put(new Vector3f(2, 0, 0), c);
+        assertEquals(2, cache.usedEntries());
+        assertNull(cache.get(new Vector3f(1, 0, 0)));
+        assertSame(a, cache.get(new Vector3f(0, 0, 0)));
+        assertSame(c, cache.get(new Vector3f(2, 0, 0)));
+
+        cache.setMaxBytes(tileSize);
+        assertEquals(1, cache.usedEntries());
+        assertEquals(tileSize, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testAttachedTilesStay() {
+        TerrainQuad a = createTile("a");
+        TerrainQuad b = createTile("b");
+        new Node("grid").attachChild(a);
+
+        TerrainGridTileCache cache = new TerrainGridTileCache(TerrainGridTileCache.estimateSize(a));
+        cache.put(new Vector3f(0, 0, 0), a);
+        cache.put(new Vector3f(1, 0, 0), b);
+
+        // b is the only tile that can go
+        assertSame(a, cache.get(new Vector3f(0, 0, 0)));
+        assertNull(cache.get(new Vector3f(1, 0, 0)));
+
+        a.removeFromParent();
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.usedEntries());
+        assertEquals(0, cache.getUsedBytes());
+    }
+}
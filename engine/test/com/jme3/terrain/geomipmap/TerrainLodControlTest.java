@@ -0,0 +1,138 @@
+package com.jme3.terrain.geomipmap;
+
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.terrain.geomipmap.lodcalc.DistanceLodCalculator;
+import java.nio.Buffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class TerrainLodControlTest {
+
+    private static final int PATCH_SIZE = 17;
+    private static final int TOTAL_SIZE = 257;
+
+    private static TerrainQuad createTerrain() {
+        float[] heights = new float[TOTAL_SIZE * TOTAL_SIZE];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = (i % 7) * 0.5f;
+        }
+        TerrainQuad terrain = new TerrainQuad("Terrain", PATCH_SIZE, TOTAL_SIZE, heights);
+        terrain.updateGeometricState();
+        return terrain;
+    }
+
+    private static TerrainLodControl createControl(TerrainQuad terrain, boolean parallel) {
+        TerrainLodControl control = new TerrainLodControl(terrain, new Camera(640, 480));
+        control.setLodCalculator(new DistanceLodCalculator(PATCH_SIZE, 2.7f));
+        control.setParallelLod(parallel);
+        terrain.addControl(control);
+        return control;
+    }
+
+    private static HashMap<String, UpdatedTerrainPatch> calculateLod(TerrainLodControl control, Vector3f location) throws Exception {
+        List<Vector3f> locations = new ArrayList<Vector3f>();
+        locations.add(location);
+        control.prepareTerrain();
+        HashMap<String, UpdatedTerrainPatch> updated = control.getLodThread(locations, control.getLodCalculator()).call();
+        if (updated != null) {
+            for (UpdatedTerrainPatch utp : updated.values()) {
+                utp.updateAll();
+            }
+        }
+        return updated;
+    }
+
+    private static void assertSameIndices(Buffer expected, Buffer actual) {
+        ShortBuffer a = (ShortBuffer) expected;
+        ShortBuffer b = (ShortBuffer) actual;
+        assertEquals(a.limit(), b.limit());
+        for (int i = 0; i < a.limit(); i++) {
+            assertEquals(a.get(i), b.get(i));
+        }
+    }
+
+    private static void assertSameUpdates(HashMap<String, UpdatedTerrainPatch> expected,
+                                          HashMap<String, UpdatedTerrainPatch> actual) {
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (UpdatedTerrainPatch a : expected.values()) {
+            UpdatedTerrainPatch b = actual.get(a.getName());
+            assertEquals(a.getName(), a.getNewLod(), b.getNewLod());
+            assertEquals(a.getName(), a.getLeftLod(), b.getLeftLod());
+            assertEquals(a.getName(), a.getTopLod(), b.getTopLod());
+            assertEquals(a.getName(), a.getRightLod(), b.getRightLod());
+            assertEquals(a.getName(), a.getBottomLod(), b.getBottomLod());
+            assertEquals(a.getName(), a.isFixEdges(), b.isFixEdges());
+            assertEquals(a.getName(), a.isReIndexNeeded(), b.isReIndexNeeded());
+            assertSameIndices(a.getUpdatedPatch().getMesh().getBuffer(Type.Index).getData(),
+                              b.getUpdatedPatch().getMesh().getBuffer(Type.Index).getData());
+        }
+    }
+
+    @Test
+    public void testParallelLodMatchesSerial() throws Exception {
+        TerrainQuad serialTerrain = createTerrain();
+        TerrainLodControl serial = createControl(serialTerrain, false);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            TerrainQuad parallelTerrain = createTerrain();
+            TerrainLodControl parallel = createControl(parallelTerrain, true);
+            parallel.setLodExecutor(pool);
+
+            Vector3f[] locations = {
+                new Vector3f(-100, 0, -100),
+                new Vector3f(0, 0, 0),
+                new Vector3f(60, 10, -20)
+            };
+            for (Vector3f location : locations) {
+                assertSameUpdates(calculateLod(serial, location), calculateLod(parallel, location));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // the camera moves, so some patches are not at full detail any more
+        List<TerrainPatch> patches = new ArrayList<TerrainPatch>();
+        serialTerrain.getAllTerrainPatches(patches);
+        int changed = 0;
+        for (TerrainPatch patch : patches) {
+            if (patch.getLod() != 0) {
+                changed++;
+            }
+        }
+        assertTrue(changed > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailureEndsCalculation() throws Exception {
+        TerrainQuad terrain = createTerrain();
+        TerrainLodControl control = createControl(terrain, true);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        control.setLodExecutor(pool);
+        control.setLodCalculator(new DistanceLodCalculator(PATCH_SIZE, 2.7f) {
+            @Override
+            public boolean calculateLod(TerrainPatch patch, List<Vector3f> locations, HashMap<String, UpdatedTerrainPatch> updates) {
+                throw new IllegalStateException();
+            }
+        });
+        try {
+            calculateLod(control, new Vector3f());
+        } catch (ExecutionException ex) {
+            assertFalse(control.isLodCalcRunning());
+            throw (Exception) ex.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
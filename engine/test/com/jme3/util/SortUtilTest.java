@@ -0,0 +1,47 @@
+package com.jme3.util;
+
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class SortUtilTest {
+
+    @Test
+    public void testRadixSortMatchesUnsignedOrder() {
+        Random random = new Random(1234);
+        int size = 5000;
+        long[] keys = new long[size];
+        Integer[] values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            // few distinct keys so stability is exercised
+            keys[i] = ((long) random.nextInt(64) << 40) ^ (random.nextBoolean() ? Long.MIN_VALUE : 0);
+            values[i] = i;
+        }
+        long[] original = keys.clone();
+
+        SortUtil.rsort(keys, values, new long[size], new Object[size], size,
+                new int[SortUtil.RADIX_COUNTS_SIZE]);
+
+        for (int i = 1; i < size; i++) {
+            long a = keys[i - 1] ^ Long.MIN_VALUE;
+            long b = keys[i] ^ Long.MIN_VALUE;
+            assertTrue(a <= b);
+            if (a == b) {
+                assertTrue(values[i - 1] < values[i]);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            assertEquals(original[values[i]], keys[i]);
+        }
+    }
+
+    @Test
+    public void testFloatToSortableBits() {
+        float[] values = {Float.NEGATIVE_INFINITY, -1000f, -1f, -0.5f, 0f, 0.25f, 1f, 1e20f, Float.POSITIVE_INFINITY};
+        for (int i = 1; i < values.length; i++) {
+            long a = SortUtil.floatToSortableBits(values[i - 1]) & 0xFFFFFFFFL;
+            long b = SortUtil.floatToSortableBits(values[i]) & 0xFFFFFFFFL;
+            assertTrue(a < b);
+        }
+    }
+}